@@ -0,0 +1,48 @@
+package com.techtwist.config;
+
+import com.techtwist.services.support.Durability;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Lets a request choose how durable its writes must be before they are acknowledged, with an
+ * X-Durability header of sync or async, overriding product.persistence.log.durability
+ * Only active when local profile is enabled, as the in-memory store's change log is what honours it
+ */
+@Component
+@Profile("local")
+public class DurabilityHeaderFilter extends OncePerRequestFilter {
+    public static final String HEADER = "X-Durability";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HEADER);
+        if (header == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        Durability durability;
+        try {
+            durability = Durability.parse(header);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+            return;
+        }
+        Durability.request(durability);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Durability.clearRequest();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.techtwist.config;
+
+import com.techtwist.models.Product;
+import com.techtwist.services.support.MongoProductQueries;
+
+import com.mongodb.MongoException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the indexes declared on MongoDB documents at application startup
+ * Spring Data no longer auto-creates annotated indexes, so they are resolved
+ * from the mapping metadata and ensured here
+ * Only active when mongodb profile is enabled
+ */
+@Component
+@Profile("mongodb")
+public class MongoIndexInitializer {
+    private static final Logger logger = LoggerFactory.getLogger(MongoIndexInitializer.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    @Autowired
+    public MongoIndexInitializer(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Ensure all indexes declared on Product exist (no-op for indexes already present)
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void ensureIndexes() {
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(
+                mongoTemplate.getConverter().getMappingContext());
+        IndexOperations indexOps = mongoTemplate.indexOps(Product.class);
+        resolver.resolveIndexFor(Product.class).forEach(index -> {
+            try {
+                String name = indexOps.ensureIndex(index);
+                logger.info("Ensured MongoDB index {} on products", name);
+            } catch (DataAccessException e) {
+                // e.g. a unique index over existing duplicates; keep starting so the other indexes are created
+                logger.error("Failed to ensure MongoDB index {} on products: {}",
+                        index.getIndexOptions().get("name"), e.getMessage());
+            }
+        });
+        backfillPrefixKeys();
+        convertStringPrices();
+    }
+
+    /**
+     * Set the autocomplete keys on products that lack them, in one server-side update
+     */
+    void backfillPrefixKeys() {
+        try {
+            long updated = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Product.class))
+                    .updateMany(MongoProductQueries.missingPrefixKeys(), MongoProductQueries.setPrefixKeys())
+                    .getModifiedCount();
+            if (updated > 0) {
+                logger.info("Set autocomplete keys on {} existing products", updated);
+            }
+        } catch (MongoException e) {
+            logger.error("Failed to set autocomplete keys on existing products: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Convert prices still held as strings to Decimal128, in one server-side update
+     */
+    void convertStringPrices() {
+        try {
+            long updated = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Product.class))
+                    .updateMany(MongoProductQueries.stringPrice(), MongoProductQueries.priceToDecimal())
+                    .getModifiedCount();
+            if (updated > 0) {
+                logger.info("Converted the string price of {} existing products to Decimal128", updated);
+            }
+        } catch (MongoException e) {
+            logger.error("Failed to convert string prices of existing products: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.techtwist.config;
+
+import com.techtwist.models.Product;
+import com.techtwist.services.support.MongoProductQueries;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Creates the indexes declared on MongoDB documents at application startup
+ * Reactive counterpart of MongoIndexInitializer; blocks once at startup so the
+ * application only serves traffic after its indexes exist
+ * Only active when mongodb-reactive profile is enabled
+ */
+@Component
+@Profile("mongodb-reactive")
+public class ReactiveMongoIndexInitializer {
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveMongoIndexInitializer.class);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    public ReactiveMongoIndexInitializer(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Ensure all indexes declared on Product exist (no-op for indexes already present)
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void ensureIndexes() {
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(
+                mongoTemplate.getConverter().getMappingContext());
+        ReactiveIndexOperations indexOps = mongoTemplate.indexOps(Product.class);
+        Flux.fromIterable(resolver.resolveIndexFor(Product.class))
+                .concatMap(index -> indexOps.ensureIndex(index)
+                        .doOnNext(name -> logger.info("Ensured MongoDB index {} on products", name))
+                        // e.g. a unique index over existing duplicates; keep going so the other indexes are created
+                        .onErrorResume(e -> {
+                            logger.error("Failed to ensure MongoDB index {} on products: {}",
+                                    index.getIndexOptions().get("name"), e.getMessage());
+                            return Mono.empty();
+                        }))
+                .blockLast();
+        backfillPrefixKeys();
+        convertStringPrices();
+    }
+
+    /**
+     * Set the autocomplete keys on products that lack them, in one server-side update
+     */
+    void backfillPrefixKeys() {
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(Product.class))
+                .flatMap(collection -> Mono.from(collection.updateMany(
+                        MongoProductQueries.missingPrefixKeys(), MongoProductQueries.setPrefixKeys())))
+                .doOnNext(result -> {
+                    if (result.getModifiedCount() > 0) {
+                        logger.info("Set autocomplete keys on {} existing products", result.getModifiedCount());
+                    }
+                })
+                .onErrorResume(e -> {
+                    logger.error("Failed to set autocomplete keys on existing products: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .block();
+    }
+
+    /**
+     * Convert prices still held as strings to Decimal128, in one server-side update
+     */
+    void convertStringPrices() {
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(Product.class))
+                .flatMap(collection -> Mono.from(collection.updateMany(
+                        MongoProductQueries.stringPrice(), MongoProductQueries.priceToDecimal())))
+                .doOnNext(result -> {
+                    if (result.getModifiedCount() > 0) {
+                        logger.info("Converted the string price of {} existing products to Decimal128",
+                                result.getModifiedCount());
+                    }
+                })
+                .onErrorResume(e -> {
+                    logger.error("Failed to convert string prices of existing products: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .block();
+    }
+}
@@ -0,0 +1,49 @@
+package com.techtwist.config;
+
+import com.techtwist.services.MongoProductService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.framework.AbstractAdvisingBeanPostProcessor;
+import org.springframework.aop.interceptor.ConcurrencyThrottleInterceptor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.RootClassFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bulkhead in front of MongoProductService when requests run on virtual threads
+ * (spring.threads.virtual.enabled on a Java 21+ runtime)
+ *
+ * Every request may now reach the driver at once, so callers beyond the limit wait on a
+ * ReentrantLock condition, where a virtual thread unmounts from its carrier, instead of
+ * piling into the driver. Anything that still pins inside the driver (JDK monitors in DNS or
+ * TLS code on Java 21) then holds at most limit carriers, and the pool wait queue stays short.
+ * Keep the limit at or below the driver's maxPoolSize
+ *
+ * A lazy Stream (streamAll) releases its permit once the cursor is opened
+ * Only active when mongodb profile is enabled
+ */
+@Component
+@Profile("mongodb")
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadMongoGuard extends AbstractAdvisingBeanPostProcessor {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadMongoGuard.class);
+
+    public VirtualThreadMongoGuard(@Value("${product.virtual-threads.mongo-concurrency-limit:100}") int concurrencyLimit) {
+        if (concurrencyLimit < 1) {
+            throw new IllegalArgumentException("product.virtual-threads.mongo-concurrency-limit must be at least 1");
+        }
+        ConcurrencyThrottleInterceptor throttle = new ConcurrencyThrottleInterceptor();
+        throttle.setConcurrencyLimit(concurrencyLimit);
+        this.advisor = new DefaultPointcutAdvisor(
+                new ComposablePointcut(new RootClassFilter(MongoProductService.class)), throttle);
+        // Wait for a permit before a transaction is opened, not while holding one
+        setBeforeExistingAdvisors(true);
+        logger.info("Virtual threads enabled; MongoDB calls limited to {} concurrent callers", concurrencyLimit);
+    }
+}
@@ -1,36 +1,88 @@
 package com.techtwist.controllers;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.techtwist.dto.*;
+import com.techtwist.exceptions.InsufficientStockException;
+import com.techtwist.exceptions.ProductNotFoundException;
+import com.techtwist.exceptions.VersionConflictException;
+import com.techtwist.services.ProductJsonCache;
 import com.techtwist.services.interfaces.IProductService;
+import com.techtwist.services.support.Suggestions;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springdoc.core.annotations.ParameterObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Iterator;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @RestController
+@Profile("!mongodb-reactive")
 @RequestMapping("/api/products")
 @CrossOrigin(origins = "*", allowedHeaders = "*")
 @Tag(name = "Product", description = "Product API")
 public class ProductController {
     private static final Logger logger = LoggerFactory.getLogger(ProductController.class);
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 500;
+    static final int DEFAULT_SEARCH_SIZE = 20;
+    static final int DEFAULT_SUGGESTION_SIZE = 10;
+    static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    private static final int STREAM_FLUSH_INTERVAL = 500;
+
     private final IProductService productService;
+    private final ObjectWriter productWriter;
+    private final ObjectReader bulkReader;
+    private final int bulkChunkSize;
+    // Set when product.json-cache.enabled is true
+    private ProductJsonCache jsonCache;
 
     @Autowired
-    public ProductController(IProductService productService) {
+    public ProductController(IProductService productService, ObjectMapper objectMapper,
+                             @Value("${product.bulk.chunk-size:500}") int bulkChunkSize) {
+        if (bulkChunkSize < 1) {
+            throw new IllegalArgumentException("product.bulk.chunk-size must be at least 1");
+        }
         this.productService = productService;
+        this.productWriter = objectMapper.writerFor(ProductResponseDTO.class);
+        this.bulkReader = objectMapper.readerFor(ProductCreateDTO.class);
+        this.bulkChunkSize = bulkChunkSize;
+    }
+
+    @Autowired(required = false)
+    public void setJsonCache(ProductJsonCache jsonCache) {
+        this.jsonCache = jsonCache;
     }
 
     @Operation(summary = "Create a new product",
@@ -49,21 +101,69 @@ public class ProductController {
         } catch (ResponseStatusException e) {
             logger.error("Error creating product: {}", e.getMessage());
             throw e;
+        } catch (DuplicateKeyException e) {
+            throw skuConflict(e);
         } catch (Exception e) {
             logger.error("Unexpected error creating product", e);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to create product", e);
         }
     }
 
+    @Operation(summary = "Create or update products in bulk",
+            description = "Upsert products on SKU from a JSON array or newline-delimited JSON. " +
+                    "The body is read incrementally and written in chunks, so earlier chunks stay written " +
+                    "if a later one fails. Returns one result per item in request order")
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkResultDTO> bulkUpsert(InputStream body) {
+        BulkResultDTO result = new BulkResultDTO();
+        int offset = 0;
+        try (MappingIterator<ProductCreateDTO> items = bulkReader.readValues(body)) {
+            List<ProductCreateDTO> chunk = new ArrayList<>(bulkChunkSize);
+            while (items.hasNextValue()) {
+                chunk.add(items.nextValue());
+                if (chunk.size() == bulkChunkSize) {
+                    result.append(productService.bulkUpsert(chunk), offset);
+                    offset += chunk.size();
+                    chunk = new ArrayList<>(bulkChunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                result.append(productService.bulkUpsert(chunk), offset);
+                offset += chunk.size();
+            }
+            if (offset == 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No products supplied");
+            }
+            logger.info("Bulk upsert processed {} products: {}", offset, result);
+            return ResponseEntity.ok(result.sorted());
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (JsonProcessingException e) {
+            logger.error("Malformed bulk request after {} items: {}", offset, e.getOriginalMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Malformed product data after " + offset + " items", e);
+        } catch (Exception e) {
+            logger.error("Unexpected error in bulk upsert after {} items", offset, e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to upsert products", e);
+        }
+    }
+
     @Operation(summary = "Get a product by ID",
             description = "Retrieve a product by its unique identifier")
     @Parameter(name = "id", description = "The unique identifier of the product")
+    @ApiResponse(responseCode = "200", description = "The product; gzip-encoded when the JSON cache keeps it compressed",
+            content = @Content(schema = @Schema(implementation = ProductResponseDTO.class)))
     @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<ProductResponseDTO> getById(@PathVariable String id) {
+    public ResponseEntity<?> getById(@PathVariable String id,
+                                     @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         try {
+            if (jsonCache != null) {
+                return getJsonById(id, acceptEncoding);
+            }
             Optional<ProductResponseDTO> product = productService.findById(id);
             if (product.isPresent()) {
-                return ResponseEntity.ok(product.get());
+                return withETag(product.get());
             } else {
                 return ResponseEntity.notFound().build();
             }
@@ -92,29 +192,164 @@ public class ProductController {
     }
 
     @Operation(summary = "Update a product",
-            description = "Update an existing product using ProductUpdateDTO")
+            description = "Update an existing product using ProductUpdateDTO. " +
+                    "Send the ETag from a previous read as If-Match to update only if the product is unchanged")
     @Parameter(name = "id", description = "The unique identifier of the product to update")
+    @Parameter(name = HttpHeaders.IF_MATCH, description = "ETag of the version being updated; 412 if it is stale")
     @PutMapping("/{id}")
-    public ResponseEntity<ProductResponseDTO> update(@PathVariable String id, @RequestBody ProductUpdateDTO updateDTO) {
+    public ResponseEntity<ProductResponseDTO> update(@PathVariable String id, @RequestBody ProductUpdateDTO updateDTO,
+                                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
             if (updateDTO == null) {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid product data");
             }
-            ProductResponseDTO updatedProduct = productService.update(id, updateDTO);
+            Long expectedVersion = expectedVersion(ifMatch);
+            ProductResponseDTO updatedProduct = expectedVersion == null
+                    ? productService.update(id, updateDTO)
+                    : productService.update(id, updateDTO, expectedVersion);
             if (updatedProduct != null) {
-                return ResponseEntity.ok(updatedProduct);
+                return withETag(updatedProduct);
             } else {
                 return ResponseEntity.notFound().build();
             }
         } catch (ResponseStatusException e) {
             logger.error("Error updating product: {}", e.getMessage());
             throw e;
+        } catch (VersionConflictException e) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, e.getMessage(), e);
+        } catch (DuplicateKeyException e) {
+            throw skuConflict(e);
         } catch (Exception e) {
             logger.error("Error updating product with ID: {}", id, e);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to update product", e);
         }
     }
 
+    @Operation(summary = "Partially update a product",
+            description = "Atomically set only the fields supplied in ProductUpdateDTO and return the updated product. " +
+                    "Send the ETag from a previous read as If-Match to update only if the product is unchanged")
+    @Parameter(name = "id", description = "The unique identifier of the product to update")
+    @Parameter(name = HttpHeaders.IF_MATCH, description = "ETag of the version being updated; 412 if it is stale")
+    @PatchMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ProductResponseDTO> patch(@PathVariable String id, @RequestBody ProductUpdateDTO updateDTO,
+                                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            if (updateDTO == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid product data");
+            }
+            Long expectedVersion = expectedVersion(ifMatch);
+            ProductResponseDTO updatedProduct = expectedVersion == null
+                    ? productService.patch(id, updateDTO)
+                    : productService.patch(id, updateDTO, expectedVersion);
+            if (updatedProduct != null) {
+                return withETag(updatedProduct);
+            } else {
+                return ResponseEntity.notFound().build();
+            }
+        } catch (ResponseStatusException e) {
+            logger.error("Error patching product: {}", e.getMessage());
+            throw e;
+        } catch (VersionConflictException e) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, e.getMessage(), e);
+        } catch (DuplicateKeyException e) {
+            throw skuConflict(e);
+        } catch (Exception e) {
+            logger.error("Error patching product with ID: {}", id, e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to update product", e);
+        }
+    }
+
+    @Operation(summary = "Decrement product stock",
+            description = "Atomically remove stock, e.g. at checkout. Fails with 409 and changes nothing " +
+                    "if less than the requested quantity is in stock")
+    @Parameter(name = "id", description = "The unique identifier of the product")
+    @Parameter(name = "quantity", description = "Units to remove (at least 1)")
+    @PostMapping(value = "/{id}/stock/decrement", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ProductResponseDTO> decrementStock(@PathVariable String id, @RequestParam int quantity) {
+        try {
+            ProductResponseDTO product = productService.decrementStock(id, quantity);
+            if (product != null) {
+                return ResponseEntity.ok(product);
+            } else {
+                return ResponseEntity.notFound().build();
+            }
+        } catch (InsufficientStockException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (Exception e) {
+            logger.error("Error decrementing stock for product with ID: {}", id, e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to adjust stock", e);
+        }
+    }
+
+    @Operation(summary = "Increment product stock",
+            description = "Atomically add stock, e.g. on restock or when an order is cancelled")
+    @Parameter(name = "id", description = "The unique identifier of the product")
+    @Parameter(name = "quantity", description = "Units to add (at least 1)")
+    @PostMapping(value = "/{id}/stock/increment", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ProductResponseDTO> incrementStock(@PathVariable String id, @RequestParam int quantity) {
+        try {
+            ProductResponseDTO product = productService.incrementStock(id, quantity);
+            if (product != null) {
+                return ResponseEntity.ok(product);
+            } else {
+                return ResponseEntity.notFound().build();
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (Exception e) {
+            logger.error("Error incrementing stock for product with ID: {}", id, e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to adjust stock", e);
+        }
+    }
+
+    @Operation(summary = "Decrement stock for several products",
+            description = "Remove stock for every line of a multi-line order. Either every line is applied " +
+                    "or none is: 409 if any product is short of stock, 404 if any product does not exist")
+    @PostMapping(value = "/stock/decrement", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<ProductResponseDTO>> decrementStock(@RequestBody List<StockAdjustmentDTO> lines) {
+        try {
+            if (lines == null || lines.isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No stock adjustments supplied");
+            }
+            return ResponseEntity.ok(productService.decrementStock(lines));
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (InsufficientStockException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+        } catch (ProductNotFoundException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage(), e);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (Exception e) {
+            logger.error("Error decrementing stock: {}", lines, e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to adjust stock", e);
+        }
+    }
+
+    @Operation(summary = "Increment stock for several products",
+            description = "Add stock for every line, e.g. when a multi-line order is cancelled. " +
+                    "Either every line is applied or none is: 404 if any product does not exist")
+    @PostMapping(value = "/stock/increment", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<ProductResponseDTO>> incrementStock(@RequestBody List<StockAdjustmentDTO> lines) {
+        try {
+            if (lines == null || lines.isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No stock adjustments supplied");
+            }
+            return ResponseEntity.ok(productService.incrementStock(lines));
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (ProductNotFoundException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage(), e);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (Exception e) {
+            logger.error("Error incrementing stock: {}", lines, e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to adjust stock", e);
+        }
+    }
+
     @Operation(summary = "Delete a product",
             description = "Delete a product by its unique identifier")
     @Parameter(name = "id", description = "The unique identifier of the product to delete")
@@ -122,6 +357,9 @@ public class ProductController {
     public ResponseEntity<Void> delete(@PathVariable String id) {
         try {
             productService.delete(id);
+            if (jsonCache != null) {
+                jsonCache.evict(id);
+            }
             return ResponseEntity.noContent().build();
         } catch (Exception e) {
             logger.error("Error deleting product with ID: {}", id, e);
@@ -131,30 +369,209 @@ public class ProductController {
 
     @Operation(summary = "List all products",
             description = "Retrieve a list of all active products")
+    @Parameter(name = "limit", description = "Page size for cursor pagination (default 50, max 500)")
+    @Parameter(name = "after", description = "Opaque cursor from the X-Next-Cursor header of the previous page")
     @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<List<ProductResponseDTO>> listAll() {
+    public ResponseEntity<List<ProductResponseDTO>> listAll(@RequestParam(required = false) Integer limit,
+                                                            @RequestParam(required = false) String after) {
         try {
+            if (limit != null || after != null) {
+                return toPageResponse(productService.findAll(pageSize(limit), after));
+            }
             List<ProductResponseDTO> products = productService.findAll();
             if (products.isEmpty()) {
                 return ResponseEntity.noContent().build();
             }
             return ResponseEntity.ok(products);
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
         } catch (Exception e) {
             logger.error("Error retrieving product list", e);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to retrieve product list", e);
         }
     }
 
+    @Operation(summary = "Filter products",
+            description = "Retrieve active products matching any combination of category, productArea, brand, " +
+                    "price range, featured, inStock and text filters. Only the filters supplied are applied")
+    @Parameter(name = "limit", description = "Page size for cursor pagination (default 50, max 500)")
+    @Parameter(name = "after", description = "Opaque cursor from the X-Next-Cursor header of the previous page")
+    @GetMapping(value = "/filter", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<ProductResponseDTO>> filter(@ParameterObject ProductFilterDTO filter,
+                                                           @RequestParam(required = false) Integer limit,
+                                                           @RequestParam(required = false) String after) {
+        try {
+            requirePriceRange(filter.getMinPrice(), filter.getMaxPrice());
+            return toPageResponse(productService.findWithFilters(filter, pageSize(limit), after));
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (Exception e) {
+            logger.error("Error filtering products: {}", filter, e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to filter products", e);
+        }
+    }
+
+    @Operation(summary = "List products by price",
+            description = "Retrieve active products priced within an optional range, ordered by price then id. " +
+                    "With no bounds the first page holds the limit cheapest (or dearest) products")
+    @Parameter(name = "minPrice", description = "Lowest price, inclusive")
+    @Parameter(name = "maxPrice", description = "Highest price, inclusive")
+    @Parameter(name = "sort", description = "asc for cheapest first (default), desc for dearest first")
+    @Parameter(name = "limit", description = "Page size for cursor pagination (default 50, max 500)")
+    @Parameter(name = "after", description = "Opaque cursor from the X-Next-Cursor header of the previous page")
+    @GetMapping(value = "/price", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<ProductResponseDTO>> getByPrice(@RequestParam(required = false) BigDecimal minPrice,
+                                                               @RequestParam(required = false) BigDecimal maxPrice,
+                                                               @RequestParam(defaultValue = "asc") String sort,
+                                                               @RequestParam(required = false) Integer limit,
+                                                               @RequestParam(required = false) String after) {
+        try {
+            requirePriceRange(minPrice, maxPrice);
+            return toPageResponse(productService.findByPriceRange(minPrice, maxPrice, descending(sort),
+                    pageSize(limit), after));
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (Exception e) {
+            logger.error("Error retrieving products by price: {} - {}", minPrice, maxPrice, e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to retrieve products by price", e);
+        }
+    }
+
+    @Operation(summary = "Get facet counts",
+            description = "Count active products per category, productArea, brand, featured flag and price bucket. " +
+                    "Accepts the same filters as /filter so counts reflect the current selection")
+    @GetMapping(value = "/facets", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ProductFacetsDTO> getFacets(@ParameterObject ProductFilterDTO filter) {
+        try {
+            return ResponseEntity.ok(productService.findFacets(filter));
+        } catch (Exception e) {
+            logger.error("Error computing product facets: {}", filter, e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to compute product facets", e);
+        }
+    }
+
+    @Operation(summary = "Search products",
+            description = "Full-text search over name, brand, tags and description, ranked by relevance")
+    @Parameter(name = "q", description = "Search terms; products matching any term are returned")
+    @Parameter(name = "page", description = "Zero-based result page")
+    @Parameter(name = "size", description = "Results per page (default 20, max 500)")
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<ProductResponseDTO>> search(@RequestParam String q,
+                                                           @RequestParam(defaultValue = "0") int page,
+                                                           @RequestParam(defaultValue = "" + DEFAULT_SEARCH_SIZE) int size) {
+        try {
+            if (q.isBlank()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Search query is required");
+            }
+            if (page < 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "page must not be negative");
+            }
+            List<ProductResponseDTO> products = productService.search(q, page, pageSize(size));
+            if (products.isEmpty()) {
+                return ResponseEntity.noContent().build();
+            }
+            return ResponseEntity.ok(products);
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error searching products: {}", q, e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to search products", e);
+        }
+    }
+
+    @Operation(summary = "Autocomplete",
+            description = "Product names, brands and tags starting with a prefix, ignoring case. " +
+                    "Texts of featured products come first, then those shared by the most products")
+    @Parameter(name = "prefix", description = "What has been typed so far")
+    @Parameter(name = "size", description = "Suggestions to return (default 10, max " + Suggestions.MAX_SIZE + ")")
+    @GetMapping(value = "/autocomplete", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<SuggestionDTO>> autocomplete(@RequestParam String prefix,
+                                                            @RequestParam(defaultValue = "" + DEFAULT_SUGGESTION_SIZE) int size) {
+        try {
+            if (prefix.isBlank()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "prefix is required");
+            }
+            if (size < 1) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size must be positive");
+            }
+            List<SuggestionDTO> suggestions = productService.autocomplete(prefix, Math.min(size, Suggestions.MAX_SIZE));
+            if (suggestions.isEmpty()) {
+                return ResponseEntity.noContent().build();
+            }
+            return ResponseEntity.ok(suggestions);
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error autocompleting products: {}", prefix, e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to autocomplete products", e);
+        }
+    }
+
+    @Operation(summary = "Stream all products",
+            description = "Export every active product as newline-delimited JSON, one product per line. " +
+                    "Products are streamed from a backend cursor so memory use does not grow with the catalog")
+    @GetMapping(value = "/stream", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        StreamingResponseBody body = outputStream -> {
+            long written = 0;
+            try (Stream<ProductResponseDTO> products = productService.streamAll()) {
+                Iterator<ProductResponseDTO> iterator = products.iterator();
+                while (iterator.hasNext()) {
+                    outputStream.write(productWriter.writeValueAsBytes(iterator.next()));
+                    outputStream.write('\n');
+                    if (++written % STREAM_FLUSH_INTERVAL == 0) {
+                        outputStream.flush();
+                    }
+                }
+                outputStream.flush();
+                logger.debug("Streamed {} products", written);
+            } catch (Exception e) {
+                // Headers are already committed, so the client sees a truncated stream
+                logger.error("Error streaming products after {} rows", written, e);
+                throw e;
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+                .body(body);
+    }
+
     @Operation(summary = "Get product summaries",
             description = "Retrieve a list of all active products in summary format (optimized for performance)")
+    @Parameter(name = "limit", description = "Page size for cursor pagination (default 50, max 500)")
+    @Parameter(name = "after", description = "Opaque cursor from the X-Next-Cursor header of the previous page")
+    @ApiResponse(responseCode = "200", description = "The summaries",
+            content = @Content(array = @ArraySchema(schema = @Schema(implementation = ProductSummaryDTO.class))))
     @GetMapping(value = "/summaries", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<List<ProductSummaryDTO>> getSummaries() {
+    public ResponseEntity<?> getSummaries(@RequestParam(required = false) Integer limit,
+                                          @RequestParam(required = false) String after) {
         try {
+            if (limit != null || after != null) {
+                CursorPageDTO<ProductSummaryDTO> page = productService.findAllSummary(pageSize(limit), after);
+                if (jsonCache != null && !page.getItems().isEmpty()) {
+                    return pageResponse(page).contentType(MediaType.APPLICATION_JSON)
+                            .body(jsonCache.summaries(page.getItems()));
+                }
+                return toPageResponse(page);
+            }
             List<ProductSummaryDTO> summaries = productService.findAllSummary();
             if (summaries.isEmpty()) {
                 return ResponseEntity.noContent().build();
             }
+            if (jsonCache != null) {
+                return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(jsonCache.summaries(summaries));
+            }
             return ResponseEntity.ok(summaries);
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
         } catch (Exception e) {
             logger.error("Error retrieving product summaries", e);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to retrieve product summaries", e);
@@ -164,14 +581,25 @@ public class ProductController {
     @Operation(summary = "Get products by category",
             description = "Retrieve products filtered by category")
     @Parameter(name = "category", description = "The category to filter by")
+    @Parameter(name = "limit", description = "Page size for cursor pagination (default 50, max 500)")
+    @Parameter(name = "after", description = "Opaque cursor from the X-Next-Cursor header of the previous page")
     @GetMapping(value = "/category/{category}", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<List<ProductResponseDTO>> getByCategory(@PathVariable String category) {
+    public ResponseEntity<List<ProductResponseDTO>> getByCategory(@PathVariable String category,
+                                                                  @RequestParam(required = false) Integer limit,
+                                                                  @RequestParam(required = false) String after) {
         try {
+            if (limit != null || after != null) {
+                return toPageResponse(productService.findByCategory(category, pageSize(limit), after));
+            }
             List<ProductResponseDTO> products = productService.findByCategory(category);
             if (products.isEmpty()) {
                 return ResponseEntity.noContent().build();
             }
             return ResponseEntity.ok(products);
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
         } catch (Exception e) {
             logger.error("Error retrieving products by category: {}", category, e);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to retrieve products", e);
@@ -181,14 +609,25 @@ public class ProductController {
     @Operation(summary = "Get products by brand",
             description = "Retrieve products filtered by brand")
     @Parameter(name = "brand", description = "The brand to filter by")
+    @Parameter(name = "limit", description = "Page size for cursor pagination (default 50, max 500)")
+    @Parameter(name = "after", description = "Opaque cursor from the X-Next-Cursor header of the previous page")
     @GetMapping(value = "/brand/{brand}", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<List<ProductResponseDTO>> getByBrand(@PathVariable String brand) {
+    public ResponseEntity<List<ProductResponseDTO>> getByBrand(@PathVariable String brand,
+                                                               @RequestParam(required = false) Integer limit,
+                                                               @RequestParam(required = false) String after) {
         try {
+            if (limit != null || after != null) {
+                return toPageResponse(productService.findByBrand(brand, pageSize(limit), after));
+            }
             List<ProductResponseDTO> products = productService.findByBrand(brand);
             if (products.isEmpty()) {
                 return ResponseEntity.noContent().build();
             }
             return ResponseEntity.ok(products);
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
         } catch (Exception e) {
             logger.error("Error retrieving products by brand: {}", brand, e);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to retrieve products", e);
@@ -198,14 +637,25 @@ public class ProductController {
     @Operation(summary = "Get products by product area",
             description = "Retrieve products filtered by product area")
     @Parameter(name = "productArea", description = "The product area to filter by")
+    @Parameter(name = "limit", description = "Page size for cursor pagination (default 50, max 500)")
+    @Parameter(name = "after", description = "Opaque cursor from the X-Next-Cursor header of the previous page")
     @GetMapping(value = "/area/{productArea}", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<List<ProductResponseDTO>> getByProductArea(@PathVariable String productArea) {
+    public ResponseEntity<List<ProductResponseDTO>> getByProductArea(@PathVariable String productArea,
+                                                                     @RequestParam(required = false) Integer limit,
+                                                                     @RequestParam(required = false) String after) {
         try {
+            if (limit != null || after != null) {
+                return toPageResponse(productService.findByProductArea(productArea, pageSize(limit), after));
+            }
             List<ProductResponseDTO> products = productService.findByProductArea(productArea);
             if (products.isEmpty()) {
                 return ResponseEntity.noContent().build();
             }
             return ResponseEntity.ok(products);
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
         } catch (Exception e) {
             logger.error("Error retrieving products by product area: {}", productArea, e);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to retrieve products", e);
@@ -214,17 +664,163 @@ public class ProductController {
 
     @Operation(summary = "Get featured products",
             description = "Retrieve all featured products")
+    @Parameter(name = "limit", description = "Page size for cursor pagination (default 50, max 500)")
+    @Parameter(name = "after", description = "Opaque cursor from the X-Next-Cursor header of the previous page")
     @GetMapping(value = "/featured", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<List<ProductResponseDTO>> getFeaturedProducts() {
+    public ResponseEntity<List<ProductResponseDTO>> getFeaturedProducts(@RequestParam(required = false) Integer limit,
+                                                                        @RequestParam(required = false) String after) {
         try {
+            if (limit != null || after != null) {
+                return toPageResponse(productService.findFeaturedProducts(pageSize(limit), after));
+            }
             List<ProductResponseDTO> products = productService.findFeaturedProducts();
             if (products.isEmpty()) {
                 return ResponseEntity.noContent().build();
             }
             return ResponseEntity.ok(products);
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
         } catch (Exception e) {
             logger.error("Error retrieving featured products", e);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to retrieve featured products", e);
         }
     }
+
+    // The only unique key a product write can break is its SKU (MongoDB's sku_idx)
+    static ResponseStatusException skuConflict(DuplicateKeyException e) {
+        return new ResponseStatusException(HttpStatus.CONFLICT, "A product with this SKU already exists", e);
+    }
+
+    // A product's ETag is its quoted version; products written before versioning have none
+    static ResponseEntity<ProductResponseDTO> withETag(ProductResponseDTO product) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (product.getVersion() != null) {
+            response.eTag(String.valueOf(product.getVersion()));
+        }
+        return response.body(product);
+    }
+
+    /**
+     * GET /{id} from the JSON cache: when JSON is held for the product, its version is looked up
+     * without building the product and the JSON is sent if still current; otherwise the product
+     * is read and serialized, with no version lookup before
+     */
+    private ResponseEntity<byte[]> getJsonById(String id, String acceptEncoding) {
+        ProductJsonCache.Json json = jsonCache.held(id);
+        if (json != null) {
+            Optional<Long> version = productService.findVersion(id);
+            if (version.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            json = jsonCache.product(id, version.get());
+        }
+        if (json == null) {
+            Optional<ProductResponseDTO> product = productService.findById(id);
+            if (product.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            json = jsonCache.serialize(product.get());
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (json.version() != null) {
+            response.eTag(String.valueOf(json.version()));
+        }
+        if (json.gzip() != null && acceptsGzip(acceptEncoding)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(json.gzip());
+        }
+        return response.body(json.json());
+    }
+
+    // Whether an Accept-Encoding header allows gzip, by name or as *, without refusing it with q=0
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean any = false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            boolean refused = parts.length > 1 && parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            if (name.equalsIgnoreCase("gzip")) {
+                return !refused;
+            }
+            if (name.equals("*")) {
+                any = !refused;
+            }
+        }
+        return any;
+    }
+
+    /**
+     * Parse an If-Match header into the expected version, or null for no condition (absent or "*")
+     * A header that names no version of ours can never match, so it fails with 412
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || "*".equals(ifMatch.trim())) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "If-Match does not match the current version");
+        }
+    }
+
+    static void requirePriceRange(BigDecimal minPrice, BigDecimal maxPrice) {
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "minPrice must not exceed maxPrice");
+        }
+    }
+
+    static boolean descending(String sort) {
+        if ("asc".equalsIgnoreCase(sort)) {
+            return false;
+        }
+        if ("desc".equalsIgnoreCase(sort)) {
+            return true;
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "sort must be asc or desc");
+    }
+
+    static int pageSize(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be positive");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    // Page items go in the body as before; the cursor for the next page travels in headers
+    private <T> ResponseEntity<List<T>> toPageResponse(CursorPageDTO<T> page) {
+        if (page.getItems().isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+        return pageResponse(page).body(page.getItems());
+    }
+
+    private ResponseEntity.BodyBuilder pageResponse(CursorPageDTO<?> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.hasMore()) {
+            String nextLink = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("limit", page.getLimit())
+                    .replaceQueryParam("after", page.getNextCursor())
+                    .toUriString();
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor())
+                    .header(HttpHeaders.LINK, "<" + nextLink + ">; rel=\"next\"");
+        }
+        return response;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,467 @@
+package com.techtwist.controllers;
+
+import com.techtwist.dto.*;
+import com.techtwist.exceptions.InsufficientStockException;
+import com.techtwist.exceptions.ProductNotFoundException;
+import com.techtwist.exceptions.VersionConflictException;
+import com.techtwist.services.interfaces.IReactiveProductService;
+import com.techtwist.services.support.Suggestions;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springdoc.core.annotations.ParameterObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * WebFlux variant of ProductController for the mongodb-reactive profile, exposing the same routes
+ * Unpaged lists and /stream are written element by element as the client consumes them,
+ * so backpressure reaches the MongoDB cursor and the catalog is never collected in memory
+ */
+@RestController
+@Profile("mongodb-reactive")
+@RequestMapping("/api/products")
+@CrossOrigin(origins = "*", allowedHeaders = "*")
+@Tag(name = "Product", description = "Product API")
+public class ReactiveProductController {
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveProductController.class);
+
+    private final IReactiveProductService productService;
+    private final int bulkChunkSize;
+
+    @Autowired
+    public ReactiveProductController(IReactiveProductService productService,
+                                     @Value("${product.bulk.chunk-size:500}") int bulkChunkSize) {
+        if (bulkChunkSize < 1) {
+            throw new IllegalArgumentException("product.bulk.chunk-size must be at least 1");
+        }
+        this.productService = productService;
+        this.bulkChunkSize = bulkChunkSize;
+    }
+
+    @Operation(summary = "Create a new product",
+            description = "Create a new product using ProductCreateDTO")
+    @PostMapping
+    public Mono<ResponseEntity<ProductResponseDTO>> create(@RequestBody ProductCreateDTO createDTO) {
+        return productService.create(createDTO)
+                .doOnNext(created -> logger.info("Product created successfully with ID: {}", created.getId()))
+                .map(created -> ResponseEntity.status(HttpStatus.CREATED).body(created))
+                .onErrorMap(e -> toResponseStatus(e, "Failed to create product", createDTO));
+    }
+
+    @Operation(summary = "Create or update products in bulk",
+            description = "Upsert products on SKU from a JSON array or newline-delimited JSON. " +
+                    "The body is decoded incrementally and written in chunks, so earlier chunks stay written " +
+                    "if a later one fails. Returns one result per item in request order")
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, ProductController.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<BulkResultDTO>> bulkUpsert(@RequestBody Flux<ProductCreateDTO> body) {
+        return Mono.defer(() -> {
+            BulkResultDTO result = new BulkResultDTO();
+            AtomicInteger offset = new AtomicInteger();
+            // Only one chunk is decoded ahead of the write in progress
+            return body.buffer(bulkChunkSize)
+                    .concatMap(chunk -> productService.bulkUpsert(chunk)
+                            .doOnNext(chunkResult -> result.append(chunkResult, offset.getAndAdd(chunk.size()))), 1)
+                    .then(Mono.fromCallable(() -> {
+                        if (offset.get() == 0) {
+                            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No products supplied");
+                        }
+                        logger.info("Bulk upsert processed {} products: {}", offset.get(), result);
+                        return ResponseEntity.ok(result.sorted());
+                    }))
+                    .onErrorMap(DecodingException.class, e -> {
+                        logger.error("Malformed bulk request after {} items: {}", offset.get(), e.getMessage());
+                        return new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                                "Malformed product data after " + offset.get() + " items", e);
+                    })
+                    .onErrorMap(e -> toResponseStatus(e, "Failed to upsert products", offset.get() + " items"));
+        });
+    }
+
+    @Operation(summary = "Get a product by ID",
+            description = "Retrieve a product by its unique identifier")
+    @Parameter(name = "id", description = "The unique identifier of the product")
+    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<ProductResponseDTO>> getById(@PathVariable String id) {
+        return productService.findById(id)
+                .map(ProductController::withETag)
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .onErrorMap(e -> toResponseStatus(e, "Failed to retrieve product", id));
+    }
+
+    @Operation(summary = "Get a product by name",
+            description = "Retrieve a product by its name")
+    @Parameter(name = "name", description = "The name of the product")
+    @GetMapping(value = "/name/{name}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<ProductResponseDTO>> getByName(@PathVariable String name) {
+        return productService.findByName(name)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .onErrorMap(e -> toResponseStatus(e, "Failed to retrieve product", name));
+    }
+
+    @Operation(summary = "Update a product",
+            description = "Update an existing product using ProductUpdateDTO. " +
+                    "Send the ETag from a previous read as If-Match to update only if the product is unchanged")
+    @Parameter(name = "id", description = "The unique identifier of the product to update")
+    @Parameter(name = HttpHeaders.IF_MATCH, description = "ETag of the version being updated; 412 if it is stale")
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<ProductResponseDTO>> update(@PathVariable String id, @RequestBody ProductUpdateDTO updateDTO,
+                                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long expectedVersion = ProductController.expectedVersion(ifMatch);
+        Mono<ProductResponseDTO> updatedProduct = expectedVersion == null
+                ? productService.update(id, updateDTO)
+                : productService.update(id, updateDTO, expectedVersion);
+        return updatedProduct
+                .map(ProductController::withETag)
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .onErrorMap(e -> toResponseStatus(e, "Failed to update product", id));
+    }
+
+    @Operation(summary = "Partially update a product",
+            description = "Atomically set only the fields supplied in ProductUpdateDTO and return the updated product. " +
+                    "Send the ETag from a previous read as If-Match to update only if the product is unchanged")
+    @Parameter(name = "id", description = "The unique identifier of the product to update")
+    @Parameter(name = HttpHeaders.IF_MATCH, description = "ETag of the version being updated; 412 if it is stale")
+    @PatchMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<ProductResponseDTO>> patch(@PathVariable String id, @RequestBody ProductUpdateDTO updateDTO,
+                                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long expectedVersion = ProductController.expectedVersion(ifMatch);
+        Mono<ProductResponseDTO> updatedProduct = expectedVersion == null
+                ? productService.patch(id, updateDTO)
+                : productService.patch(id, updateDTO, expectedVersion);
+        return updatedProduct
+                .map(ProductController::withETag)
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .onErrorMap(e -> toResponseStatus(e, "Failed to update product", id));
+    }
+
+    @Operation(summary = "Decrement product stock",
+            description = "Atomically remove stock, e.g. at checkout. Fails with 409 and changes nothing " +
+                    "if less than the requested quantity is in stock")
+    @Parameter(name = "id", description = "The unique identifier of the product")
+    @Parameter(name = "quantity", description = "Units to remove (at least 1)")
+    @PostMapping(value = "/{id}/stock/decrement", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<ProductResponseDTO>> decrementStock(@PathVariable String id, @RequestParam int quantity) {
+        return productService.decrementStock(id, quantity)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .onErrorMap(e -> toResponseStatus(e, "Failed to adjust stock", id));
+    }
+
+    @Operation(summary = "Increment product stock",
+            description = "Atomically add stock, e.g. on restock or when an order is cancelled")
+    @Parameter(name = "id", description = "The unique identifier of the product")
+    @Parameter(name = "quantity", description = "Units to add (at least 1)")
+    @PostMapping(value = "/{id}/stock/increment", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<ProductResponseDTO>> incrementStock(@PathVariable String id, @RequestParam int quantity) {
+        return productService.incrementStock(id, quantity)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .onErrorMap(e -> toResponseStatus(e, "Failed to adjust stock", id));
+    }
+
+    @Operation(summary = "Decrement stock for several products",
+            description = "Remove stock for every line of a multi-line order. Either every line is applied " +
+                    "or none is: 409 if any product is short of stock, 404 if any product does not exist")
+    @PostMapping(value = "/stock/decrement", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<List<ProductResponseDTO>>> decrementStock(@RequestBody List<StockAdjustmentDTO> lines) {
+        if (lines.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No stock adjustments supplied");
+        }
+        return productService.decrementStock(lines)
+                .map(ResponseEntity::ok)
+                .onErrorMap(e -> toResponseStatus(e, "Failed to adjust stock", lines));
+    }
+
+    @Operation(summary = "Increment stock for several products",
+            description = "Add stock for every line, e.g. when a multi-line order is cancelled. " +
+                    "Either every line is applied or none is: 404 if any product does not exist")
+    @PostMapping(value = "/stock/increment", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<List<ProductResponseDTO>>> incrementStock(@RequestBody List<StockAdjustmentDTO> lines) {
+        if (lines.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No stock adjustments supplied");
+        }
+        return productService.incrementStock(lines)
+                .map(ResponseEntity::ok)
+                .onErrorMap(e -> toResponseStatus(e, "Failed to adjust stock", lines));
+    }
+
+    @Operation(summary = "Delete a product",
+            description = "Delete a product by its unique identifier")
+    @Parameter(name = "id", description = "The unique identifier of the product to delete")
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> delete(@PathVariable String id) {
+        return productService.delete(id)
+                .then(Mono.just(ResponseEntity.noContent().<Void>build()))
+                .onErrorMap(e -> toResponseStatus(e, "Failed to delete product", id));
+    }
+
+    @Operation(summary = "List all products",
+            description = "Retrieve all active products, streamed as they are read unless a page is requested")
+    @Parameter(name = "limit", description = "Page size for cursor pagination (default 50, max 500)")
+    @Parameter(name = "after", description = "Opaque cursor from the X-Next-Cursor header of the previous page")
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Flux<ProductResponseDTO>>> listAll(@RequestParam(required = false) Integer limit,
+                                                                  @RequestParam(required = false) String after,
+                                                                  ServerHttpRequest request) {
+        if (limit != null || after != null) {
+            return toPageResponse(productService.findAll(ProductController.pageSize(limit), after), request,
+                    "Failed to retrieve product list");
+        }
+        return streamed(productService.findAll(), "Failed to retrieve product list");
+    }
+
+    @Operation(summary = "Filter products",
+            description = "Retrieve active products matching any combination of category, productArea, brand, " +
+                    "price range, featured, inStock and text filters. Only the filters supplied are applied")
+    @Parameter(name = "limit", description = "Page size for cursor pagination (default 50, max 500)")
+    @Parameter(name = "after", description = "Opaque cursor from the X-Next-Cursor header of the previous page")
+    @GetMapping(value = "/filter", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Flux<ProductResponseDTO>>> filter(@ParameterObject ProductFilterDTO filter,
+                                                                 @RequestParam(required = false) Integer limit,
+                                                                 @RequestParam(required = false) String after,
+                                                                 ServerHttpRequest request) {
+        ProductController.requirePriceRange(filter.getMinPrice(), filter.getMaxPrice());
+        return toPageResponse(productService.findWithFilters(filter, ProductController.pageSize(limit), after), request,
+                "Failed to filter products");
+    }
+
+    @Operation(summary = "List products by price",
+            description = "Retrieve active products priced within an optional range, ordered by price then id. " +
+                    "With no bounds the first page holds the limit cheapest (or dearest) products")
+    @Parameter(name = "minPrice", description = "Lowest price, inclusive")
+    @Parameter(name = "maxPrice", description = "Highest price, inclusive")
+    @Parameter(name = "sort", description = "asc for cheapest first (default), desc for dearest first")
+    @Parameter(name = "limit", description = "Page size for cursor pagination (default 50, max 500)")
+    @Parameter(name = "after", description = "Opaque cursor from the X-Next-Cursor header of the previous page")
+    @GetMapping(value = "/price", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Flux<ProductResponseDTO>>> getByPrice(@RequestParam(required = false) BigDecimal minPrice,
+                                                                     @RequestParam(required = false) BigDecimal maxPrice,
+                                                                     @RequestParam(defaultValue = "asc") String sort,
+                                                                     @RequestParam(required = false) Integer limit,
+                                                                     @RequestParam(required = false) String after,
+                                                                     ServerHttpRequest request) {
+        ProductController.requirePriceRange(minPrice, maxPrice);
+        return toPageResponse(productService.findByPriceRange(minPrice, maxPrice, ProductController.descending(sort),
+                ProductController.pageSize(limit), after), request, "Failed to retrieve products by price");
+    }
+
+    @Operation(summary = "Get facet counts",
+            description = "Count active products per category, productArea, brand, featured flag and price bucket. " +
+                    "Accepts the same filters as /filter so counts reflect the current selection")
+    @GetMapping(value = "/facets", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<ProductFacetsDTO>> getFacets(@ParameterObject ProductFilterDTO filter) {
+        return productService.findFacets(filter)
+                .map(ResponseEntity::ok)
+                .onErrorMap(e -> toResponseStatus(e, "Failed to compute product facets", filter));
+    }
+
+    @Operation(summary = "Search products",
+            description = "Full-text search over name, brand, tags and description, ranked by relevance")
+    @Parameter(name = "q", description = "Search terms; products matching any term are returned")
+    @Parameter(name = "page", description = "Zero-based result page")
+    @Parameter(name = "size", description = "Results per page (default 20, max 500)")
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Flux<ProductResponseDTO>>> search(@RequestParam String q,
+                                                                 @RequestParam(defaultValue = "0") int page,
+                                                                 @RequestParam(defaultValue = "" + ProductController.DEFAULT_SEARCH_SIZE) int size) {
+        if (q.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Search query is required");
+        }
+        if (page < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "page must not be negative");
+        }
+        return streamed(productService.search(q, page, ProductController.pageSize(size)), "Failed to search products");
+    }
+
+    @Operation(summary = "Autocomplete",
+            description = "Product names, brands and tags starting with a prefix, ignoring case. " +
+                    "Texts of featured products come first, then those shared by the most products")
+    @Parameter(name = "prefix", description = "What has been typed so far")
+    @Parameter(name = "size", description = "Suggestions to return (default 10, max " + Suggestions.MAX_SIZE + ")")
+    @GetMapping(value = "/autocomplete", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<List<SuggestionDTO>>> autocomplete(@RequestParam String prefix,
+                                                                  @RequestParam(defaultValue = "" + ProductController.DEFAULT_SUGGESTION_SIZE) int size) {
+        if (prefix.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "prefix is required");
+        }
+        if (size < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size must be positive");
+        }
+        return productService.autocomplete(prefix, Math.min(size, Suggestions.MAX_SIZE))
+                .map(suggestions -> suggestions.isEmpty()
+                        ? ResponseEntity.noContent().<List<SuggestionDTO>>build()
+                        : ResponseEntity.ok(suggestions))
+                .onErrorMap(e -> toResponseStatus(e, "Failed to autocomplete products", prefix));
+    }
+
+    @Operation(summary = "Stream all products",
+            description = "Export every active product as newline-delimited JSON, one product per line. " +
+                    "Products are read from the database cursor only as fast as the client consumes them")
+    @GetMapping(value = "/stream", produces = ProductController.APPLICATION_NDJSON_VALUE)
+    public Flux<ProductResponseDTO> streamAll() {
+        // Headers are already committed once streaming starts, so the client sees a truncated stream on error
+        return productService.streamAll()
+                .doOnError(e -> logger.error("Error streaming products", e));
+    }
+
+    @Operation(summary = "Get product summaries",
+            description = "Retrieve all active products in summary format (optimized for performance)")
+    @Parameter(name = "limit", description = "Page size for cursor pagination (default 50, max 500)")
+    @Parameter(name = "after", description = "Opaque cursor from the X-Next-Cursor header of the previous page")
+    @GetMapping(value = "/summaries", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Flux<ProductSummaryDTO>>> getSummaries(@RequestParam(required = false) Integer limit,
+                                                                      @RequestParam(required = false) String after,
+                                                                      ServerHttpRequest request) {
+        if (limit != null || after != null) {
+            return toPageResponse(productService.findAllSummary(ProductController.pageSize(limit), after), request,
+                    "Failed to retrieve product summaries");
+        }
+        return streamed(productService.findAllSummary(), "Failed to retrieve product summaries");
+    }
+
+    @Operation(summary = "Get products by category",
+            description = "Retrieve products filtered by category")
+    @Parameter(name = "category", description = "The category to filter by")
+    @Parameter(name = "limit", description = "Page size for cursor pagination (default 50, max 500)")
+    @Parameter(name = "after", description = "Opaque cursor from the X-Next-Cursor header of the previous page")
+    @GetMapping(value = "/category/{category}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Flux<ProductResponseDTO>>> getByCategory(@PathVariable String category,
+                                                                        @RequestParam(required = false) Integer limit,
+                                                                        @RequestParam(required = false) String after,
+                                                                        ServerHttpRequest request) {
+        if (limit != null || after != null) {
+            return toPageResponse(productService.findByCategory(category, ProductController.pageSize(limit), after),
+                    request, "Failed to retrieve products");
+        }
+        return streamed(productService.findByCategory(category), "Failed to retrieve products");
+    }
+
+    @Operation(summary = "Get products by brand",
+            description = "Retrieve products filtered by brand")
+    @Parameter(name = "brand", description = "The brand to filter by")
+    @Parameter(name = "limit", description = "Page size for cursor pagination (default 50, max 500)")
+    @Parameter(name = "after", description = "Opaque cursor from the X-Next-Cursor header of the previous page")
+    @GetMapping(value = "/brand/{brand}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Flux<ProductResponseDTO>>> getByBrand(@PathVariable String brand,
+                                                                     @RequestParam(required = false) Integer limit,
+                                                                     @RequestParam(required = false) String after,
+                                                                     ServerHttpRequest request) {
+        if (limit != null || after != null) {
+            return toPageResponse(productService.findByBrand(brand, ProductController.pageSize(limit), after),
+                    request, "Failed to retrieve products");
+        }
+        return streamed(productService.findByBrand(brand), "Failed to retrieve products");
+    }
+
+    @Operation(summary = "Get products by product area",
+            description = "Retrieve products filtered by product area")
+    @Parameter(name = "productArea", description = "The product area to filter by")
+    @Parameter(name = "limit", description = "Page size for cursor pagination (default 50, max 500)")
+    @Parameter(name = "after", description = "Opaque cursor from the X-Next-Cursor header of the previous page")
+    @GetMapping(value = "/area/{productArea}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Flux<ProductResponseDTO>>> getByProductArea(@PathVariable String productArea,
+                                                                           @RequestParam(required = false) Integer limit,
+                                                                           @RequestParam(required = false) String after,
+                                                                           ServerHttpRequest request) {
+        if (limit != null || after != null) {
+            return toPageResponse(productService.findByProductArea(productArea, ProductController.pageSize(limit), after),
+                    request, "Failed to retrieve products");
+        }
+        return streamed(productService.findByProductArea(productArea), "Failed to retrieve products");
+    }
+
+    @Operation(summary = "Get featured products",
+            description = "Retrieve all featured products")
+    @Parameter(name = "limit", description = "Page size for cursor pagination (default 50, max 500)")
+    @Parameter(name = "after", description = "Opaque cursor from the X-Next-Cursor header of the previous page")
+    @GetMapping(value = "/featured", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Flux<ProductResponseDTO>>> getFeaturedProducts(@RequestParam(required = false) Integer limit,
+                                                                              @RequestParam(required = false) String after,
+                                                                              ServerHttpRequest request) {
+        if (limit != null || after != null) {
+            return toPageResponse(productService.findFeaturedProducts(ProductController.pageSize(limit), after),
+                    request, "Failed to retrieve featured products");
+        }
+        return streamed(productService.findFeaturedProducts(), "Failed to retrieve featured products");
+    }
+
+    /**
+     * Unpaged lists are written as a JSON array while the cursor is read, so an empty result
+     * is 200 with [] rather than the 204 of the servlet controller (the status is sent first)
+     */
+    private <T> Mono<ResponseEntity<Flux<T>>> streamed(Flux<T> items, String failure) {
+        return Mono.just(ResponseEntity.ok(items.doOnError(e -> logger.error(failure, e))));
+    }
+
+    // Page items go in the body as before; the cursor for the next page travels in headers
+    private <T> Mono<ResponseEntity<Flux<T>>> toPageResponse(Mono<CursorPageDTO<T>> pageResult, ServerHttpRequest request,
+                                                             String failure) {
+        return pageResult.map(page -> {
+            if (page.getItems().isEmpty()) {
+                return ResponseEntity.noContent().<Flux<T>>build();
+            }
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.hasMore()) {
+                String nextLink = UriComponentsBuilder.fromUri(request.getURI())
+                        .replaceQueryParam("limit", page.getLimit())
+                        .replaceQueryParam("after", page.getNextCursor())
+                        .toUriString();
+                response.header(ProductController.NEXT_CURSOR_HEADER, page.getNextCursor())
+                        .header(HttpHeaders.LINK, "<" + nextLink + ">; rel=\"next\"");
+            }
+            return response.body(Flux.fromIterable(page.getItems()));
+        }).onErrorMap(e -> toResponseStatus(e, failure, request.getURI()));
+    }
+
+    /**
+     * Map a service error to the status the servlet controller answers with
+     * Anything unexpected is logged and becomes a 500 with the given message
+     */
+    private static Throwable toResponseStatus(Throwable e, String failure, Object context) {
+        if (e instanceof ResponseStatusException) {
+            return e;
+        }
+        if (e instanceof VersionConflictException) {
+            return new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, e.getMessage(), e);
+        }
+        if (e instanceof InsufficientStockException) {
+            return new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+        }
+        if (e instanceof DuplicateKeyException duplicate) {
+            return ProductController.skuConflict(duplicate);
+        }
+        if (e instanceof ProductNotFoundException) {
+            return new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage(), e);
+        }
+        if (e instanceof IllegalArgumentException) {
+            return new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        logger.error("{}: {}", failure, context, e);
+        return new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, failure, e);
+    }
+}
@@ -0,0 +1,66 @@
+package com.techtwist.dto;
+
+/**
+ * DTO for the outcome of one item in a bulk upsert request
+ * index is the position of the item in the request body
+ */
+public class BulkItemResultDTO {
+
+    public enum Status {
+        CREATED,
+        UPDATED,
+        SKIPPED, // superseded by a later item with the same SKU
+        FAILED
+    }
+
+    private int index;
+    private String sku;
+    private String id;
+    private Status status;
+    private String error;
+
+    public BulkItemResultDTO() {}
+
+    public BulkItemResultDTO(int index, String sku, String id, Status status, String error) {
+        this.index = index;
+        this.sku = sku;
+        this.id = id;
+        this.status = status;
+        this.error = error;
+    }
+
+    public static BulkItemResultDTO success(int index, String sku, String id, Status status) {
+        return new BulkItemResultDTO(index, sku, id, status, null);
+    }
+
+    public static BulkItemResultDTO failure(int index, String sku, Status status, String error) {
+        return new BulkItemResultDTO(index, sku, null, status, error);
+    }
+
+    // Getters and setters
+    public int getIndex() { return index; }
+    public void setIndex(int index) { this.index = index; }
+
+    public String getSku() { return sku; }
+    public void setSku(String sku) { this.sku = sku; }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    @Override
+    public String toString() {
+        return "BulkItemResultDTO{" +
+                "index=" + index +
+                ", sku='" + sku + '\'' +
+                ", id='" + id + '\'' +
+                ", status=" + status +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
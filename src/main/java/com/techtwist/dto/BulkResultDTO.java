@@ -0,0 +1,77 @@
+package com.techtwist.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * DTO for the result of a bulk upsert, with one entry per submitted item
+ */
+public class BulkResultDTO {
+
+    private List<BulkItemResultDTO> items = new ArrayList<>();
+
+    // Computed fields
+    @JsonProperty("created")
+    public long getCreated() {
+        return count(BulkItemResultDTO.Status.CREATED);
+    }
+
+    @JsonProperty("updated")
+    public long getUpdated() {
+        return count(BulkItemResultDTO.Status.UPDATED);
+    }
+
+    @JsonProperty("skipped")
+    public long getSkipped() {
+        return count(BulkItemResultDTO.Status.SKIPPED);
+    }
+
+    @JsonProperty("failed")
+    public long getFailed() {
+        return count(BulkItemResultDTO.Status.FAILED);
+    }
+
+    public BulkResultDTO() {}
+
+    public BulkResultDTO(List<BulkItemResultDTO> items) {
+        this.items = items;
+    }
+
+    /**
+     * Append the results of one chunk, shifting item indexes by the chunk's offset in the request
+     */
+    public void append(BulkResultDTO chunk, int indexOffset) {
+        for (BulkItemResultDTO item : chunk.getItems()) {
+            item.setIndex(item.getIndex() + indexOffset);
+            items.add(item);
+        }
+    }
+
+    /**
+     * Order items by their position in the request
+     */
+    public BulkResultDTO sorted() {
+        items.sort(Comparator.comparingInt(BulkItemResultDTO::getIndex));
+        return this;
+    }
+
+    private long count(BulkItemResultDTO.Status status) {
+        return items.stream().filter(item -> item.getStatus() == status).count();
+    }
+
+    // Getters and setters
+    public List<BulkItemResultDTO> getItems() { return items; }
+    public void setItems(List<BulkItemResultDTO> items) { this.items = items; }
+
+    @Override
+    public String toString() {
+        return "BulkResultDTO{" +
+                "created=" + getCreated() +
+                ", updated=" + getUpdated() +
+                ", skipped=" + getSkipped() +
+                ", failed=" + getFailed() +
+                '}';
+    }
+}
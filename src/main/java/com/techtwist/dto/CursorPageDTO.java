@@ -0,0 +1,48 @@
+package com.techtwist.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+
+/**
+ * DTO for one page of a keyset (cursor) paginated result
+ * nextCursor is opaque and is null on the last page
+ */
+public class CursorPageDTO<T> {
+
+    private List<T> items;
+    private String nextCursor;
+    private int limit;
+
+    // Computed fields
+    @JsonProperty("hasMore")
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    public CursorPageDTO() {}
+
+    public CursorPageDTO(List<T> items, String nextCursor, int limit) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.limit = limit;
+    }
+
+    // Getters and setters
+    public List<T> getItems() { return items; }
+    public void setItems(List<T> items) { this.items = items; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    public int getLimit() { return limit; }
+    public void setLimit(int limit) { this.limit = limit; }
+
+    @Override
+    public String toString() {
+        return "CursorPageDTO{" +
+                "items=" + (items != null ? items.size() : 0) +
+                ", nextCursor='" + nextCursor + '\'' +
+                ", limit=" + limit +
+                '}';
+    }
+}
@@ -0,0 +1,47 @@
+package com.techtwist.dto;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * DTO for storefront facet counts
+ * Each map goes from facet value to the number of matching active products,
+ * ordered by descending count (price buckets are ordered by price)
+ */
+public class ProductFacetsDTO {
+
+    private Map<String, Long> categories = new LinkedHashMap<>();
+    private Map<String, Long> productAreas = new LinkedHashMap<>();
+    private Map<String, Long> brands = new LinkedHashMap<>();
+    private Map<String, Long> featured = new LinkedHashMap<>();
+    private Map<String, Long> priceBuckets = new LinkedHashMap<>();
+
+    public ProductFacetsDTO() {}
+
+    // Getters and setters
+    public Map<String, Long> getCategories() { return categories; }
+    public void setCategories(Map<String, Long> categories) { this.categories = categories; }
+
+    public Map<String, Long> getProductAreas() { return productAreas; }
+    public void setProductAreas(Map<String, Long> productAreas) { this.productAreas = productAreas; }
+
+    public Map<String, Long> getBrands() { return brands; }
+    public void setBrands(Map<String, Long> brands) { this.brands = brands; }
+
+    public Map<String, Long> getFeatured() { return featured; }
+    public void setFeatured(Map<String, Long> featured) { this.featured = featured; }
+
+    public Map<String, Long> getPriceBuckets() { return priceBuckets; }
+    public void setPriceBuckets(Map<String, Long> priceBuckets) { this.priceBuckets = priceBuckets; }
+
+    @Override
+    public String toString() {
+        return "ProductFacetsDTO{" +
+                "categories=" + categories +
+                ", productAreas=" + productAreas +
+                ", brands=" + brands +
+                ", featured=" + featured +
+                ", priceBuckets=" + priceBuckets +
+                '}';
+    }
+}
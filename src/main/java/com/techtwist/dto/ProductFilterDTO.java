@@ -0,0 +1,64 @@
+package com.techtwist.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * DTO for the combined product filter
+ * Every field is optional; only the filters that are supplied are applied
+ */
+public class ProductFilterDTO {
+
+    private String category;
+    private String productArea;
+    private String brand;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private Boolean featured;
+    private Boolean inStock;
+    private String q;
+
+    public ProductFilterDTO() {}
+
+    // Getters and setters
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+
+    public String getProductArea() { return productArea; }
+    public void setProductArea(String productArea) { this.productArea = productArea; }
+
+    public String getBrand() { return brand; }
+    public void setBrand(String brand) { this.brand = brand; }
+
+    public BigDecimal getMinPrice() { return minPrice; }
+    public void setMinPrice(BigDecimal minPrice) { this.minPrice = minPrice; }
+
+    public BigDecimal getMaxPrice() { return maxPrice; }
+    public void setMaxPrice(BigDecimal maxPrice) { this.maxPrice = maxPrice; }
+
+    public Boolean getFeatured() { return featured; }
+    public void setFeatured(Boolean featured) { this.featured = featured; }
+
+    public Boolean getInStock() { return inStock; }
+    public void setInStock(Boolean inStock) { this.inStock = inStock; }
+
+    public String getQ() { return q; }
+    public void setQ(String q) { this.q = q; }
+
+    public boolean hasText() {
+        return q != null && !q.isBlank();
+    }
+
+    @Override
+    public String toString() {
+        return "ProductFilterDTO{" +
+                "category='" + category + '\'' +
+                ", productArea='" + productArea + '\'' +
+                ", brand='" + brand + '\'' +
+                ", minPrice=" + minPrice +
+                ", maxPrice=" + maxPrice +
+                ", featured=" + featured +
+                ", inStock=" + inStock +
+                ", q='" + q + '\'' +
+                '}';
+    }
+}
@@ -33,6 +33,7 @@ public class ProductResponseDTO {
     private List<String> tags;
     private String createdAt;
     private String updatedAt;
+    private Long version;
 
     // Computed fields
     @JsonProperty("inStock")
@@ -123,6 +124,9 @@ public class ProductResponseDTO {
     public String getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(String updatedAt) { this.updatedAt = updatedAt; }
 
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
     @Override
     public String toString() {
         return "ProductResponseDTO{" +
@@ -0,0 +1,32 @@
+package com.techtwist.dto;
+
+/**
+ * DTO for one line of a batch stock adjustment (e.g. one line of an order)
+ */
+public class StockAdjustmentDTO {
+
+    private String productId;
+    private int quantity;
+
+    public StockAdjustmentDTO() {}
+
+    public StockAdjustmentDTO(String productId, int quantity) {
+        this.productId = productId;
+        this.quantity = quantity;
+    }
+
+    // Getters and setters
+    public String getProductId() { return productId; }
+    public void setProductId(String productId) { this.productId = productId; }
+
+    public int getQuantity() { return quantity; }
+    public void setQuantity(int quantity) { this.quantity = quantity; }
+
+    @Override
+    public String toString() {
+        return "StockAdjustmentDTO{" +
+                "productId='" + productId + '\'' +
+                ", quantity=" + quantity +
+                '}';
+    }
+}
@@ -0,0 +1,49 @@
+package com.techtwist.dto;
+
+/**
+ * DTO for one autocomplete suggestion: a product name, brand or tag starting with the typed prefix
+ * count is the number of active products with that text; featured is set if any of them is featured
+ */
+public class SuggestionDTO {
+
+    public static final String NAME = "name";
+    public static final String BRAND = "brand";
+    public static final String TAG = "tag";
+
+    private String text;
+    private String field;
+    private long count;
+    private boolean featured;
+
+    public SuggestionDTO() {}
+
+    public SuggestionDTO(String text, String field, long count, boolean featured) {
+        this.text = text;
+        this.field = field;
+        this.count = count;
+        this.featured = featured;
+    }
+
+    // Getters and setters
+    public String getText() { return text; }
+    public void setText(String text) { this.text = text; }
+
+    public String getField() { return field; }
+    public void setField(String field) { this.field = field; }
+
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+
+    public boolean isFeatured() { return featured; }
+    public void setFeatured(boolean featured) { this.featured = featured; }
+
+    @Override
+    public String toString() {
+        return "SuggestionDTO{" +
+                "text='" + text + '\'' +
+                ", field='" + field + '\'' +
+                ", count=" + count +
+                ", featured=" + featured +
+                '}';
+    }
+}
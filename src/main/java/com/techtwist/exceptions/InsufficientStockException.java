@@ -0,0 +1,25 @@
+package com.techtwist.exceptions;
+
+/**
+ * Thrown when a stock decrement would take a product's stock below zero
+ * No stock is changed when this is thrown
+ */
+public class InsufficientStockException extends RuntimeException {
+
+    private final String productId;
+    private final int requested;
+
+    public InsufficientStockException(String productId, int requested) {
+        super("Insufficient stock for product " + productId + " (requested " + requested + ")");
+        this.productId = productId;
+        this.requested = requested;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public int getRequested() {
+        return requested;
+    }
+}
@@ -0,0 +1,19 @@
+package com.techtwist.exceptions;
+
+/**
+ * Thrown by multi-product operations when one of the referenced products does not exist
+ * Single-product operations return null or an empty Optional instead
+ */
+public class ProductNotFoundException extends RuntimeException {
+
+    private final String productId;
+
+    public ProductNotFoundException(String productId) {
+        super("Product not found: " + productId);
+        this.productId = productId;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+}
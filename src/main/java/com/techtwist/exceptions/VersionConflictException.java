@@ -0,0 +1,25 @@
+package com.techtwist.exceptions;
+
+/**
+ * Thrown when a conditional write's expected version does not match the stored product
+ * (including when the product no longer exists); nothing is written
+ */
+public class VersionConflictException extends RuntimeException {
+
+    private final String productId;
+    private final long expectedVersion;
+
+    public VersionConflictException(String productId, long expectedVersion) {
+        super("Product " + productId + " is not at version " + expectedVersion);
+        this.productId = productId;
+        this.expectedVersion = expectedVersion;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public long getExpectedVersion() {
+        return expectedVersion;
+    }
+}
@@ -8,6 +8,7 @@ import com.techtwist.dto.ProductSummaryDTO;
 import com.techtwist.models.Product;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
 /**
@@ -84,6 +85,7 @@ public class ProductMapper {
         dto.setTags(product.getTags());
         dto.setCreatedAt(product.getCreatedAt() != null ? product.getCreatedAt().format(formatter) : null);
         dto.setUpdatedAt(product.getUpdatedAt() != null ? product.getUpdatedAt().format(formatter) : null);
+        dto.setVersion(product.getVersion());
 
         return dto;
     }
@@ -176,6 +178,53 @@ public class ProductMapper {
         return product;
     }
 
+    /**
+     * Convert ProductResponseDTO back to a Product entity, e.g. a product read from a catalog export
+     * Keeps id, version and timestamps when given; status and featured keep their defaults when missing
+     */
+    public Product toEntity(ProductResponseDTO dto) {
+        if (dto == null) {
+            return null;
+        }
+
+        Product product = new Product();
+        product.setId(dto.getId());
+        product.setName(dto.getName());
+        product.setBrand(dto.getBrand());
+        product.setPrice(dto.getPrice());
+        product.setDescription(dto.getDescription());
+        product.setImageUrl(dto.getImageUrl());
+        product.setCategory(dto.getCategory());
+        product.setCategoryName(dto.getCategoryName());
+        product.setProductArea(dto.getProductArea());
+        product.setProductAreaName(dto.getProductAreaName());
+        product.setStockQuantity(dto.getStockQuantity());
+        product.setSku(dto.getSku());
+        if (dto.getStatus() != null) {
+            product.setStatus(dto.getStatus());
+        }
+        if (dto.getFeatured() != null) {
+            product.setFeatured(dto.getFeatured());
+        }
+        product.setWeight(dto.getWeight());
+        product.setDimensions(dto.getDimensions());
+        product.setWarranty(dto.getWarranty());
+        product.setManufacturer(dto.getManufacturer());
+        product.setFeatures(dto.getFeatures());
+        product.setSpecifications(dto.getSpecifications());
+        product.setTags(dto.getTags());
+        product.setVersion(dto.getVersion());
+        // Last, as the setters above stamp updatedAt
+        if (dto.getCreatedAt() != null) {
+            product.setCreatedAt(LocalDateTime.parse(dto.getCreatedAt(), formatter));
+        }
+        if (dto.getUpdatedAt() != null) {
+            product.setUpdatedAt(LocalDateTime.parse(dto.getUpdatedAt(), formatter));
+        }
+
+        return product;
+    }
+
     /**
      * Update existing Product entity with ProductUpdateDTO
      */
@@ -208,6 +257,38 @@ public class ProductMapper {
         return product;
     }
 
+    /**
+     * Update existing Product entity with ProductCreateDTO (bulk upsert of an existing SKU)
+     * Like toEntity, the status from the DTO is not applied
+     */
+    public Product updateEntity(Product product, ProductCreateDTO dto) {
+        if (product == null || dto == null) {
+            return product;
+        }
+
+        if (dto.getName() != null) product.setName(dto.getName());
+        if (dto.getBrand() != null) product.setBrand(dto.getBrand());
+        if (dto.getPrice() != null) product.setPrice(dto.getPrice());
+        if (dto.getDescription() != null) product.setDescription(dto.getDescription());
+        if (dto.getImageUrl() != null) product.setImageUrl(dto.getImageUrl());
+        if (dto.getCategory() != null) product.setCategory(dto.getCategory());
+        if (dto.getCategoryName() != null) product.setCategoryName(dto.getCategoryName());
+        if (dto.getProductArea() != null) product.setProductArea(dto.getProductArea());
+        if (dto.getProductAreaName() != null) product.setProductAreaName(dto.getProductAreaName());
+        if (dto.getStockQuantity() != null) product.setStockQuantity(dto.getStockQuantity());
+        if (dto.getSku() != null) product.setSku(dto.getSku());
+        if (dto.getFeatured() != null) product.setFeatured(dto.getFeatured());
+        if (dto.getWeight() != null) product.setWeight(dto.getWeight());
+        if (dto.getDimensions() != null) product.setDimensions(dto.getDimensions());
+        if (dto.getWarranty() != null) product.setWarranty(dto.getWarranty());
+        if (dto.getManufacturer() != null) product.setManufacturer(dto.getManufacturer());
+        if (dto.getFeatures() != null) product.setFeatures(dto.getFeatures());
+        if (dto.getSpecifications() != null) product.setSpecifications(dto.getSpecifications());
+        if (dto.getTags() != null) product.setTags(dto.getTags());
+
+        return product;
+    }
+
     /**
      * Update existing Product entity with ProductDTO (backward compatibility)
      */
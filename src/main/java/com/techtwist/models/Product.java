@@ -2,19 +2,50 @@ package com.techtwist.models;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
 
 import javax.validation.constraints.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
  * Product entity representing a technology product in the TechTwist catalog
+ * Compound indexes back the status-scoped finders in ProductRepository
  */
 @Document(collection = "products")
+@CompoundIndexes({
+    // _id lets keyset pages seek and sort within the index; price and stockQuantity
+    // let range and in-stock filters be checked on index keys before any document is fetched
+    @CompoundIndex(name = "category_filter_idx",
+            def = "{'category': 1, 'status': 1, '_id': 1, 'price': 1, 'stockQuantity': 1}"),
+    @CompoundIndex(name = "brand_filter_idx",
+            def = "{'brand': 1, 'status': 1, '_id': 1, 'price': 1, 'stockQuantity': 1}"),
+    @CompoundIndex(name = "productArea_filter_idx",
+            def = "{'productArea': 1, 'status': 1, '_id': 1, 'price': 1, 'stockQuantity': 1}"),
+    @CompoundIndex(name = "featured_filter_idx",
+            def = "{'featured': 1, 'status': 1, '_id': 1, 'price': 1, 'stockQuantity': 1}"),
+    @CompoundIndex(name = "name_status_idx", def = "{'name': 1, 'status': 1}"),
+    // Price ranges and price-ordered keyset pages; _id breaks ties so the sort is read from the index
+    @CompoundIndex(name = "status_price_idx", def = "{'status': 1, 'price': 1, '_id': 1}"),
+    // Covers ProductRepository.findSummariesByStatus so /summaries never touches documents
+    @CompoundIndex(name = "summary_covering_idx",
+            def = "{'status': 1, '_id': 1, 'name': 1, 'brand': 1, 'price': 1, 'imageUrl': 1, " +
+                  "'category': 1, 'categoryName': 1, 'stockQuantity': 1, 'featured': 1}"),
+    // Autocomplete: anchored prefix regexes on the lower-cased keys read a range of these indexes
+    @CompoundIndex(name = "name_key_idx", def = "{'nameKey': 1, 'status': 1}"),
+    @CompoundIndex(name = "brand_key_idx", def = "{'brandKey': 1, 'status': 1}"),
+    @CompoundIndex(name = "tag_keys_idx", def = "{'tagKeys': 1, 'status': 1}")
+})
 public class Product {
 
     @Id
@@ -22,19 +53,23 @@ public class Product {
 
     @NotBlank(message = "Product name is required")
     @Size(min = 2, max = 200, message = "Product name must be between 2 and 200 characters")
+    @TextIndexed(weight = 10)
     private String name;
 
     @NotBlank(message = "Brand is required")
     @Size(min = 2, max = 100, message = "Brand must be between 2 and 100 characters")
+    @TextIndexed(weight = 5)
     private String brand;
 
     @NotNull(message = "Price is required")
     @DecimalMin(value = "0.0", inclusive = false, message = "Price must be greater than 0")
     @Digits(integer = 10, fraction = 2, message = "Price must have at most 10 integer digits and 2 decimal places")
+    @Field(targetType = FieldType.DECIMAL128) // numeric, so price ranges compare by value not as strings
     private BigDecimal price;
 
     @NotBlank(message = "Description is required")
     @Size(min = 10, max = 2000, message = "Description must be between 10 and 2000 characters")
+    @TextIndexed
     private String description;
 
     @NotBlank(message = "Image URL is required")
@@ -65,6 +100,8 @@ public class Product {
     @Min(value = 0, message = "Stock quantity cannot be negative")
     private Integer stockQuantity;
 
+    // Unique so bulk upserts keyed on SKU resolve to one document; sparse because SKU is optional
+    @Indexed(name = "sku_idx", unique = true, sparse = true)
     private String sku; // Stock Keeping Unit
 
     private String status; // ACTIVE, INACTIVE, DISCONTINUED
@@ -79,12 +116,21 @@ public class Product {
 
     private String manufacturer;
 
+    @TextIndexed(weight = 3)
     private List<String> tags; // for search and categorization
 
+    // prefixKey of name, brand and each tag, kept in step by their setters for autocomplete
+    private String nameKey;
+    private String brandKey;
+    private List<String> tagKeys;
+
     private LocalDateTime createdAt;
 
     private LocalDateTime updatedAt;
 
+    @Version
+    private Long version; // incremented on every write; exposed to clients as the ETag
+
     // Constructors
     public Product() {
         this.createdAt = LocalDateTime.now();
@@ -95,13 +141,47 @@ public class Product {
 
     public Product(String name, String brand, BigDecimal price, String description, String imageUrl) {
         this();
-        this.name = name;
-        this.brand = brand;
+        setName(name);
+        setBrand(brand);
         this.price = price;
         this.description = description;
         this.imageUrl = imageUrl;
     }
 
+    /**
+     * Shallow copy, keeping the source's timestamps
+     * Lets the in-memory store replace a product atomically instead of mutating it in place
+     */
+    public Product(Product other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.brand = other.brand;
+        this.price = other.price;
+        this.description = other.description;
+        this.imageUrl = other.imageUrl;
+        this.features = other.features;
+        this.specifications = other.specifications;
+        this.category = other.category;
+        this.categoryName = other.categoryName;
+        this.productArea = other.productArea;
+        this.productAreaName = other.productAreaName;
+        this.stockQuantity = other.stockQuantity;
+        this.sku = other.sku;
+        this.status = other.status;
+        this.featured = other.featured;
+        this.weight = other.weight;
+        this.dimensions = other.dimensions;
+        this.warranty = other.warranty;
+        this.manufacturer = other.manufacturer;
+        this.tags = other.tags;
+        this.nameKey = other.nameKey;
+        this.brandKey = other.brandKey;
+        this.tagKeys = other.tagKeys;
+        this.createdAt = other.createdAt;
+        this.updatedAt = other.updatedAt;
+        this.version = other.version;
+    }
+
     // Getters and Setters
     public String getId() {
         return id;
@@ -117,6 +197,7 @@ public class Product {
 
     public void setName(String name) {
         this.name = name;
+        this.nameKey = prefixKey(name);
         this.updatedAt = LocalDateTime.now();
     }
 
@@ -126,6 +207,7 @@ public class Product {
 
     public void setBrand(String brand) {
         this.brand = brand;
+        this.brandKey = prefixKey(brand);
         this.updatedAt = LocalDateTime.now();
     }
 
@@ -278,9 +360,22 @@ public class Product {
 
     public void setTags(List<String> tags) {
         this.tags = tags;
+        this.tagKeys = tagKeys(tags);
         this.updatedAt = LocalDateTime.now();
     }
 
+    public String getNameKey() {
+        return nameKey;
+    }
+
+    public String getBrandKey() {
+        return brandKey;
+    }
+
+    public List<String> getTagKeys() {
+        return tagKeys;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -297,6 +392,14 @@ public class Product {
         this.updatedAt = updatedAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     // Utility methods
     public boolean isInStock() {
         return stockQuantity != null && stockQuantity > 0;
@@ -310,6 +413,25 @@ public class Product {
         this.updatedAt = LocalDateTime.now();
     }
 
+    /**
+     * Text as autocomplete matches it: trimmed and lower-cased, so a prefix is matched case-insensitively
+     */
+    public static String prefixKey(String text) {
+        return text != null ? text.trim().toLowerCase(Locale.ROOT) : null;
+    }
+
+    /**
+     * Typed text as matched against prefix keys: only leading space is dropped, as a trailing
+     * space marks the end of a word ("alps " does not match "alpspace")
+     */
+    public static String prefixOf(String typed) {
+        return typed.stripLeading().toLowerCase(Locale.ROOT);
+    }
+
+    public static List<String> tagKeys(List<String> tags) {
+        return tags != null ? tags.stream().filter(tag -> tag != null).map(Product::prefixKey).toList() : null;
+    }
+
     // toString method for debugging
     @Override
     public String toString() {
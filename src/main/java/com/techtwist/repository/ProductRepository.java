@@ -70,23 +70,6 @@ public interface ProductRepository extends MongoRepository<Product, String> {
      */
     List<Product> findByStockQuantityGreaterThanAndStatus(Integer quantity, String status);
 
-    /**
-     * Search products by name or description (case-insensitive)
-     * @param searchTerm Term to search for
-     * @param pageable Pagination information
-     * @return Page of products matching the search term
-     */
-    @Query("{ $and: [ " +
-           "  { $or: [ " +
-           "    { 'name': { $regex: ?0, $options: 'i' } }, " +
-           "    { 'description': { $regex: ?0, $options: 'i' } }, " +
-           "    { 'brand': { $regex: ?0, $options: 'i' } }, " +
-           "    { 'tags': { $regex: ?0, $options: 'i' } } " +
-           "  ] }, " +
-           "  { 'status': ?1 } " +
-           "] }")
-    Page<Product> searchProducts(String searchTerm, String status, Pageable pageable);
-
     /**
      * Find products by SKU
      * @param sku SKU to search for
@@ -129,6 +112,17 @@ public interface ProductRepository extends MongoRepository<Product, String> {
      */
     List<Product> findByStatus(String status);
 
+    /**
+     * Find active products projected to the fields needed by ProductSummaryDTO
+     * Served entirely from the summary_covering_idx index (covered query)
+     * @param status Product status
+     * @return List of partially populated products (summary fields only)
+     */
+    @Query(value = "{ 'status': ?0 }",
+           fields = "{ 'name': 1, 'brand': 1, 'price': 1, 'imageUrl': 1, 'category': 1, " +
+                    "'categoryName': 1, 'stockQuantity': 1, 'featured': 1, 'status': 1 }")
+    List<Product> findSummariesByStatus(String status);
+
     /**
      * Find products with pagination
      * @param pageable Pagination information
@@ -136,31 +130,6 @@ public interface ProductRepository extends MongoRepository<Product, String> {
      */
     Page<Product> findByStatus(String status, Pageable pageable);
 
-    /**
-     * Complex search with multiple filters
-     * @param category Category filter (optional)
-     * @param productArea Product area filter (optional)
-     * @param minPrice Minimum price filter (optional)
-     * @param maxPrice Maximum price filter (optional)
-     * @param searchTerm Search term for name/description (optional)
-     * @param status Product status
-     * @param pageable Pagination information
-     * @return Page of products matching the filters
-     */
-    @Query("{ $and: [ " +
-           "  { $or: [ { 'category': { $exists: false } }, { 'category': ?0 } ] }, " +
-           "  { $or: [ { 'productArea': { $exists: false } }, { 'productArea': ?1 } ] }, " +
-           "  { $or: [ { 'price': { $exists: false } }, { 'price': { $gte: ?2 } } ] }, " +
-           "  { $or: [ { 'price': { $exists: false } }, { 'price': { $lte: ?3 } } ] }, " +
-           "  { $or: [ " +
-           "    { 'name': { $regex: ?4, $options: 'i' } }, " +
-           "    { 'description': { $regex: ?4, $options: 'i' } } " +
-           "  ] }, " +
-           "  { 'status': ?5 } " +
-           "] }")
-    Page<Product> findWithFilters(String category, String productArea, BigDecimal minPrice, 
-                                 BigDecimal maxPrice, String searchTerm, String status, Pageable pageable);
-
     /**
      * Find products by name and status
      * @param name Product name to search for
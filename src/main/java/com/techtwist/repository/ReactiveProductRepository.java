@@ -0,0 +1,80 @@
+package com.techtwist.repository;
+
+import com.techtwist.models.Product;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of ProductRepository
+ * Finders return a Flux read from the server-side cursor on demand, so results are
+ * streamed with backpressure instead of being collected into a list
+ * Only active when mongodb-reactive profile is enabled
+ */
+@Repository
+@Profile("mongodb-reactive")
+public interface ReactiveProductRepository extends ReactiveMongoRepository<Product, String> {
+
+    /**
+     * Find products by category
+     * @param category Category to filter by
+     * @return Products in the specified category
+     */
+    Flux<Product> findByCategoryAndStatus(String category, String status);
+
+    /**
+     * Find products by product area
+     * @param productArea Product area to filter by
+     * @return Products in the specified product area
+     */
+    Flux<Product> findByProductAreaAndStatus(String productArea, String status);
+
+    /**
+     * Find products by brand
+     * @param brand Brand to filter by
+     * @return Products from the specified brand
+     */
+    Flux<Product> findByBrandAndStatus(String brand, String status);
+
+    /**
+     * Find featured products
+     * @return Featured products
+     */
+    Flux<Product> findByFeaturedTrueAndStatus(String status);
+
+    /**
+     * Find products by SKU
+     * @param sku SKU to search for
+     * @return Product with the specified SKU, or empty
+     */
+    Mono<Product> findBySku(String sku);
+
+    /**
+     * Find all products with the given status
+     * @return Products with the status
+     */
+    Flux<Product> findByStatus(String status);
+
+    /**
+     * Find active products projected to the fields needed by ProductSummaryDTO
+     * Served entirely from the summary_covering_idx index (covered query)
+     * @param status Product status
+     * @return Partially populated products (summary fields only)
+     */
+    @Query(value = "{ 'status': ?0 }",
+           fields = "{ 'name': 1, 'brand': 1, 'price': 1, 'imageUrl': 1, 'category': 1, " +
+                    "'categoryName': 1, 'stockQuantity': 1, 'featured': 1, 'status': 1 }")
+    Flux<Product> findSummariesByStatus(String status);
+
+    /**
+     * Find products by name and status
+     * @param name Product name to search for
+     * @param status Product status
+     * @return Products with the specified name and status
+     */
+    Flux<Product> findByNameAndStatus(String name, String status);
+}
@@ -0,0 +1,512 @@
+package com.techtwist.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.techtwist.dto.BulkResultDTO;
+import com.techtwist.dto.CursorPageDTO;
+import com.techtwist.dto.ProductCreateDTO;
+import com.techtwist.dto.ProductDTO;
+import com.techtwist.dto.ProductFacetsDTO;
+import com.techtwist.dto.ProductFilterDTO;
+import com.techtwist.dto.ProductResponseDTO;
+import com.techtwist.dto.ProductSummaryDTO;
+import com.techtwist.dto.ProductUpdateDTO;
+import com.techtwist.dto.StockAdjustmentDTO;
+import com.techtwist.dto.SuggestionDTO;
+import com.techtwist.exceptions.VersionConflictException;
+import com.techtwist.services.interfaces.IProductService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Read-through cache in front of the active IProductService backend, for the product lookups
+ * and the list, filter and search queries
+ *
+ * Results are held in a Caffeine cache bounded by the number of products they hold (a list
+ * weighs one per product) and evicted by W-TinyLFU, so a burst of one-off queries does not push
+ * out the entries read all the time. Each entry expires after the TTL of its method group.
+ *
+ * Every entry depends on one tag: its product id or name, its category, brand or product area,
+ * the featured products, or all products for the full listings, filters and searches. Cache
+ * keys carry the generation of their tag, and a write bumps the tags it affects: the product's
+ * id and name, category, brand and area before and after the write, featured if it was or is
+ * featured, and all. Entries under an old generation are never read again and age out, so a
+ * load racing with a write cannot be served once the write returns. Bulk and legacy writes,
+ * updates that raced with another write, and deletes of products not cached bump every tag.
+ * Changes made by other replicas or straight to the database are only seen once entries
+ * expire, or once a conditional update here finds the product at another version; versions
+ * are always read from the backend. Returned DTOs are shared between callers and must not be
+ * modified
+ * Only active when product.cache.enabled is true (local and mongodb profiles)
+ */
+@Service
+@Primary
+@Profile("!mongodb-reactive")
+@ConditionalOnProperty(name = "product.cache.enabled", havingValue = "true")
+public class CachingProductService implements IProductService {
+    private static final Logger logger = LoggerFactory.getLogger(CachingProductService.class);
+
+    // Tags share this many generation counters, so a write rarely also expires an unrelated tag
+    private static final int GENERATIONS = 1 << 16;
+    private static final String ALL = "all";
+    private static final String FEATURED = "featured";
+
+    private final IProductService delegate;
+    private final Cache<Key, Object> cache;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATIONS);
+    // Added to every tag's generation; bumped to expire everything at once
+    private final AtomicLong epoch = new AtomicLong();
+    private final Counter tagInvalidations;
+    private final Counter fullInvalidations;
+
+    @Autowired
+    public CachingProductService(IProductService delegate, MeterRegistry meterRegistry,
+                                 @Value("${product.cache.maximum-weight:100000}") long maximumWeight,
+                                 @Value("${product.cache.ttl.by-id:5m}") Duration byIdTtl,
+                                 @Value("${product.cache.ttl.lists:1m}") Duration listsTtl,
+                                 @Value("${product.cache.ttl.queries:30s}") Duration queriesTtl) {
+        this(delegate, meterRegistry, maximumWeight, byIdTtl, listsTtl, queriesTtl, Ticker.systemTicker());
+    }
+
+    CachingProductService(IProductService delegate, MeterRegistry meterRegistry, long maximumWeight,
+                          Duration byIdTtl, Duration listsTtl, Duration queriesTtl, Ticker ticker) {
+        if (maximumWeight < 1) {
+            throw new IllegalArgumentException("product.cache.maximum-weight must be at least 1");
+        }
+        for (Duration ttl : List.of(byIdTtl, listsTtl, queriesTtl)) {
+            if (ttl.isNegative() || ttl.isZero()) {
+                throw new IllegalArgumentException("product.cache.ttl settings must be positive");
+            }
+        }
+        this.delegate = delegate;
+        long[] ttls = {byIdTtl.toNanos(), listsTtl.toNanos(), queriesTtl.toNanos()};
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher((Key key, Object value) -> weight(value))
+                .expireAfter(new Expiry<Key, Object>() {
+                    @Override
+                    public long expireAfterCreate(Key key, Object value, long currentTime) {
+                        return ttls[key.group().ordinal()];
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Key key, Object value, long currentTime, long currentDuration) {
+                        return ttls[key.group().ordinal()];
+                    }
+
+                    @Override
+                    public long expireAfterRead(Key key, Object value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "products");
+        this.tagInvalidations = Counter.builder("product.cache.invalidations").tag("scope", "tags")
+                .description("Writes that expired the cache entries of the products they changed")
+                .register(meterRegistry);
+        this.fullInvalidations = Counter.builder("product.cache.invalidations").tag("scope", "all")
+                .description("Writes that expired every cache entry")
+                .register(meterRegistry);
+        logger.info("Caching {} results: up to {} products, TTL {} by id, {} lists, {} queries",
+                delegate.getClass().getSimpleName(), maximumWeight, byIdTtl, listsTtl, queriesTtl);
+    }
+
+    // TTL groups
+    enum Group { BY_ID, LISTS, QUERIES }
+
+    // generation is the tag's generation when the key was made
+    record Key(String method, List<Object> args, long generation, Group group) {
+    }
+
+    // Create operations
+
+    @Override
+    public ProductResponseDTO create(ProductCreateDTO productCreateDTO) {
+        ProductResponseDTO created = delegate.create(productCreateDTO);
+        invalidate(created.getId(), null, created);
+        return created;
+    }
+
+    // Read operations
+
+    @Override
+    public Optional<ProductResponseDTO> findById(String id) {
+        return cached(Group.BY_ID, idTag(id), "findById", () -> delegate.findById(id), id);
+    }
+
+    @Override
+    public Optional<Long> findVersion(String id) {
+        // Not cached: ETags and If-Match checks must see writes made through other replicas,
+        // and the backend reads the version alone
+        return delegate.findVersion(id);
+    }
+
+    @Override
+    public ProductResponseDTO findByName(String name) {
+        Optional<ProductResponseDTO> product = cached(Group.BY_ID, tag("name", name), "findByName",
+                () -> Optional.ofNullable(delegate.findByName(name)), name);
+        return product.orElse(null);
+    }
+
+    @Override
+    public List<ProductResponseDTO> findAll() {
+        return cached(Group.LISTS, ALL, "findAll", delegate::findAll);
+    }
+
+    @Override
+    public List<ProductSummaryDTO> findAllSummary() {
+        return cached(Group.LISTS, ALL, "findAllSummary", delegate::findAllSummary);
+    }
+
+    @Override
+    public List<ProductResponseDTO> findByCategory(String category) {
+        return cached(Group.LISTS, tag("category", category), "findByCategory",
+                () -> delegate.findByCategory(category), category);
+    }
+
+    @Override
+    public List<ProductResponseDTO> findByBrand(String brand) {
+        return cached(Group.LISTS, tag("brand", brand), "findByBrand", () -> delegate.findByBrand(brand), brand);
+    }
+
+    @Override
+    public List<ProductResponseDTO> findByProductArea(String productArea) {
+        return cached(Group.LISTS, tag("area", productArea), "findByProductArea",
+                () -> delegate.findByProductArea(productArea), productArea);
+    }
+
+    @Override
+    public List<ProductResponseDTO> findFeaturedProducts() {
+        return cached(Group.LISTS, FEATURED, "findFeaturedProducts", delegate::findFeaturedProducts);
+    }
+
+    @Override
+    public CursorPageDTO<ProductResponseDTO> findAll(int limit, String after) {
+        return cached(Group.LISTS, ALL, "findAll", () -> delegate.findAll(limit, after), limit, after);
+    }
+
+    @Override
+    public CursorPageDTO<ProductSummaryDTO> findAllSummary(int limit, String after) {
+        return cached(Group.LISTS, ALL, "findAllSummary", () -> delegate.findAllSummary(limit, after), limit, after);
+    }
+
+    @Override
+    public CursorPageDTO<ProductResponseDTO> findByCategory(String category, int limit, String after) {
+        return cached(Group.LISTS, tag("category", category), "findByCategory",
+                () -> delegate.findByCategory(category, limit, after), category, limit, after);
+    }
+
+    @Override
+    public CursorPageDTO<ProductResponseDTO> findByBrand(String brand, int limit, String after) {
+        return cached(Group.LISTS, tag("brand", brand), "findByBrand",
+                () -> delegate.findByBrand(brand, limit, after), brand, limit, after);
+    }
+
+    @Override
+    public CursorPageDTO<ProductResponseDTO> findByProductArea(String productArea, int limit, String after) {
+        return cached(Group.LISTS, tag("area", productArea), "findByProductArea",
+                () -> delegate.findByProductArea(productArea, limit, after), productArea, limit, after);
+    }
+
+    @Override
+    public CursorPageDTO<ProductResponseDTO> findFeaturedProducts(int limit, String after) {
+        return cached(Group.LISTS, FEATURED, "findFeaturedProducts",
+                () -> delegate.findFeaturedProducts(limit, after), limit, after);
+    }
+
+    @Override
+    public CursorPageDTO<ProductResponseDTO> findWithFilters(ProductFilterDTO filter, int limit, String after) {
+        return cached(Group.QUERIES, ALL, "findWithFilters",
+                () -> delegate.findWithFilters(filter, limit, after), filterKey(filter), limit, after);
+    }
+
+    @Override
+    public CursorPageDTO<ProductResponseDTO> findByPriceRange(BigDecimal minPrice, BigDecimal maxPrice,
+                                                              boolean descending, int limit, String after) {
+        return cached(Group.QUERIES, ALL, "findByPriceRange",
+                () -> delegate.findByPriceRange(minPrice, maxPrice, descending, limit, after),
+                minPrice, maxPrice, descending, limit, after);
+    }
+
+    @Override
+    public ProductFacetsDTO findFacets(ProductFilterDTO filter) {
+        return cached(Group.QUERIES, ALL, "findFacets", () -> delegate.findFacets(filter), filterKey(filter));
+    }
+
+    @Override
+    public List<ProductResponseDTO> search(String query, int page, int size) {
+        return cached(Group.QUERIES, ALL, "search", () -> delegate.search(query, page, size), query, page, size);
+    }
+
+    @Override
+    public List<SuggestionDTO> autocomplete(String prefix, int size) {
+        return cached(Group.QUERIES, ALL, "autocomplete", () -> delegate.autocomplete(prefix, size), prefix, size);
+    }
+
+    @Override
+    public Stream<ProductResponseDTO> streamAll() {
+        return delegate.streamAll();
+    }
+
+    // Bulk operations
+
+    @Override
+    public BulkResultDTO bulkUpsert(List<ProductCreateDTO> products) {
+        BulkResultDTO result = delegate.bulkUpsert(products);
+        if (result.getCreated() > 0 || result.getUpdated() > 0) {
+            invalidateAll();
+        }
+        return result;
+    }
+
+    // Update operations
+
+    @Override
+    public ProductResponseDTO update(String id, ProductUpdateDTO productUpdateDTO) {
+        return updated(id, productUpdateDTO, () -> delegate.update(id, productUpdateDTO));
+    }
+
+    @Override
+    public ProductResponseDTO patch(String id, ProductUpdateDTO productUpdateDTO) {
+        return updated(id, productUpdateDTO, () -> delegate.patch(id, productUpdateDTO));
+    }
+
+    @Override
+    public ProductResponseDTO update(String id, ProductUpdateDTO productUpdateDTO, long expectedVersion) {
+        return conditionally(id, productUpdateDTO, () -> delegate.update(id, productUpdateDTO, expectedVersion));
+    }
+
+    @Override
+    public ProductResponseDTO patch(String id, ProductUpdateDTO productUpdateDTO, long expectedVersion) {
+        return conditionally(id, productUpdateDTO, () -> delegate.patch(id, productUpdateDTO, expectedVersion));
+    }
+
+    // Stock operations
+
+    @Override
+    public ProductResponseDTO decrementStock(String id, int quantity) {
+        ProductResponseDTO adjusted = delegate.decrementStock(id, quantity);
+        invalidate(id, null, adjusted);
+        return adjusted;
+    }
+
+    @Override
+    public ProductResponseDTO incrementStock(String id, int quantity) {
+        ProductResponseDTO adjusted = delegate.incrementStock(id, quantity);
+        invalidate(id, null, adjusted);
+        return adjusted;
+    }
+
+    @Override
+    public List<ProductResponseDTO> decrementStock(List<StockAdjustmentDTO> lines) {
+        return adjusted(lines, () -> delegate.decrementStock(lines));
+    }
+
+    @Override
+    public List<ProductResponseDTO> incrementStock(List<StockAdjustmentDTO> lines) {
+        return adjusted(lines, () -> delegate.incrementStock(lines));
+    }
+
+    // Delete operations
+
+    @Override
+    public void delete(String id) {
+        // The lists the product was in are only known if it is cached; it is not read just for them
+        Optional<ProductResponseDTO> before = cachedIfPresent(Group.BY_ID, idTag(id), "findById", id);
+        delegate.delete(id);
+        if (before != null && before.isPresent()) {
+            invalidate(id, before.get(), null);
+        } else {
+            invalidateAll();
+        }
+    }
+
+    // Backward compatibility methods (not cached; writes expire everything)
+
+    @Override
+    public ProductDTO createLegacy(ProductDTO productDTO) {
+        ProductDTO created = delegate.createLegacy(productDTO);
+        invalidateAll();
+        return created;
+    }
+
+    @Override
+    public Optional<ProductDTO> findByIdLegacy(String id) {
+        return delegate.findByIdLegacy(id);
+    }
+
+    @Override
+    public ProductDTO updateLegacy(String id, ProductDTO productDTO) {
+        ProductDTO updated = delegate.updateLegacy(id, productDTO);
+        invalidateAll();
+        return updated;
+    }
+
+    /**
+     * Run pending evictions now rather than on the next maintenance pass
+     */
+    void cleanUp() {
+        cache.cleanUp();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T cached(Group group, String tag, String method, Supplier<T> load, Object... args) {
+        return (T) cache.get(key(group, tag, method, args), k -> load.get());
+    }
+
+    // The current entry for the call, or null if none is held
+    @SuppressWarnings("unchecked")
+    private <T> T cachedIfPresent(Group group, String tag, String method, Object... args) {
+        return (T) cache.getIfPresent(key(group, tag, method, args));
+    }
+
+    private Key key(Group group, String tag, String method, Object... args) {
+        return new Key(method, Arrays.asList(args), generation(tag), group);
+    }
+
+    /**
+     * A conditional update; if it lost to a write made elsewhere, the cached product is stale
+     * and is expired, so the client's next read sees the current version
+     */
+    private ProductResponseDTO conditionally(String id, ProductUpdateDTO changes, Supplier<ProductResponseDTO> write) {
+        try {
+            return updated(id, changes, write);
+        } catch (VersionConflictException e) {
+            invalidate(id, null, null);
+            throw e;
+        }
+    }
+
+    /**
+     * When the update may move the product to another name, category, brand, area or in or out of
+     * the featured products, the lists it leaves are taken from its cached entry; it is not read
+     * just for them, and if it is not cached every list is expired instead
+     */
+    private ProductResponseDTO updated(String id, ProductUpdateDTO changes, Supplier<ProductResponseDTO> write) {
+        boolean moves = changes != null && (changes.getName() != null || changes.getCategory() != null
+                || changes.getBrand() != null || changes.getProductArea() != null || changes.getFeatured() != null);
+        Optional<ProductResponseDTO> cached = moves ? cachedIfPresent(Group.BY_ID, idTag(id), "findById", id) : null;
+        ProductResponseDTO before = cached != null ? cached.orElse(null) : null;
+        ProductResponseDTO after = write.get();
+        if (moves && after != null && (before == null || before.getVersion() != null && after.getVersion() != null
+                && after.getVersion() != before.getVersion() + 1)) {
+            // Nothing cached, or another write landed after the cached copy; the tags the product left are unknown
+            invalidateAll();
+            return after;
+        }
+        invalidate(id, before, after);
+        return after;
+    }
+
+    private List<ProductResponseDTO> adjusted(List<StockAdjustmentDTO> lines,
+                                              Supplier<List<ProductResponseDTO>> write) {
+        List<ProductResponseDTO> adjusted;
+        try {
+            adjusted = write.get();
+        } catch (RuntimeException e) {
+            // Lines applied before the failing one were reversed, by writes of their own
+            for (StockAdjustmentDTO line : lines) {
+                invalidate(line.getProductId(), null, null);
+            }
+            throw e;
+        }
+        for (ProductResponseDTO product : adjusted) {
+            invalidate(product.getId(), null, product);
+        }
+        return adjusted;
+    }
+
+    /**
+     * Expire the entries a write to one product may have changed, given the product before the
+     * write (null if unchanged in name, category, brand, area and featured, or if not found)
+     * and after it (null if deleted or not found)
+     */
+    private void invalidate(String id, ProductResponseDTO before, ProductResponseDTO after) {
+        List<String> tags = new ArrayList<>(12);
+        tags.add(ALL);
+        tags.add(idTag(id));
+        for (ProductResponseDTO product : Arrays.asList(before, after)) {
+            if (product != null) {
+                tags.add(tag("name", product.getName()));
+                tags.add(tag("category", product.getCategory()));
+                tags.add(tag("brand", product.getBrand()));
+                tags.add(tag("area", product.getProductArea()));
+                if (Boolean.TRUE.equals(product.getFeatured())) {
+                    tags.add(FEATURED);
+                }
+            }
+        }
+        for (String tag : tags) {
+            generations.incrementAndGet(slot(tag));
+        }
+        tagInvalidations.increment();
+    }
+
+    private void invalidateAll() {
+        epoch.incrementAndGet();
+        fullInvalidations.increment();
+    }
+
+    private long generation(String tag) {
+        // Both only grow, so the sum changes whenever either is bumped
+        return epoch.get() + generations.get(slot(tag));
+    }
+
+    private static int slot(String tag) {
+        int h = tag.hashCode();
+        return (h ^ (h >>> 16)) & (GENERATIONS - 1);
+    }
+
+    private static String idTag(String id) {
+        return tag("id", id);
+    }
+
+    private static String tag(String kind, String value) {
+        return kind + ':' + value;
+    }
+
+    // ProductFilterDTO has no equals
+    private static List<Object> filterKey(ProductFilterDTO filter) {
+        if (filter == null) {
+            return null;
+        }
+        return Arrays.asList(filter.getCategory(), filter.getProductArea(), filter.getBrand(), filter.getMinPrice(),
+                filter.getMaxPrice(), filter.getFeatured(), filter.getInStock(), filter.getQ());
+    }
+
+    // Products held by a cached result
+    private static int weight(Object value) {
+        if (value instanceof List<?> list) {
+            return Math.max(1, list.size());
+        }
+        if (value instanceof CursorPageDTO<?> page && page.getItems() != null) {
+            return Math.max(1, page.getItems().size());
+        }
+        return 1;
+    }
+}
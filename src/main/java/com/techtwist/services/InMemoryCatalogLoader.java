@@ -0,0 +1,149 @@
+package com.techtwist.services;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.techtwist.dto.ProductResponseDTO;
+import com.techtwist.mapper.ProductMapper;
+import com.techtwist.models.Product;
+import com.techtwist.services.support.CatalogFiles;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Preloads the in-memory catalog from a file on the data volume at startup, e.g. a large catalog
+ * for load tests or staging, in place of the sample products
+ *
+ * The file holds products as GET /api/products/stream exports them, one per line, or as one JSON
+ * array; ids, versions and timestamps are kept when given. A product without an id gets one derived
+ * from its SKU, or from its position in the file if it has none, so it keeps that id across restarts
+ * and the change log replayed over the catalog finds it again.
+ * It is parsed in parallel chunks, then the store and every index are filled in one bulk restore
+ * rather than product by product. A product listed twice keeps its last record. The catalog is
+ * loaded while the context is created, before the snapshotter; a snapshot found there replaces it
+ * Only active when local profile is enabled and product.catalog.enabled is true
+ */
+@Component
+@Profile("local")
+@ConditionalOnProperty(name = "product.catalog.enabled", havingValue = "true")
+public class InMemoryCatalogLoader {
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryCatalogLoader.class);
+
+    private final InMemoryProductService productService;
+    private final ProductMapper productMapper;
+    private final ObjectReader reader;
+    private final Path file;
+    private int chunkBytes = CatalogFiles.DEFAULT_CHUNK_BYTES;
+    private volatile boolean loaded;
+
+    @Autowired
+    public InMemoryCatalogLoader(InMemoryProductService productService, ProductMapper productMapper,
+                                 ObjectMapper objectMapper,
+                                 @Value("${product.catalog.file:/app/data/catalog.ndjson}") String file) {
+        this.productService = productService;
+        this.productMapper = productMapper;
+        // Exports also hold computed fields such as inStock
+        this.reader = objectMapper.readerFor(ProductResponseDTO.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.file = Paths.get(file);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        load();
+    }
+
+    /**
+     * Replace the store's contents with the catalog file's products
+     * @return Number of products loaded, or -1 if there is no catalog file
+     */
+    int load() throws IOException {
+        if (!Files.exists(file)) {
+            logger.warn("No product catalog at {}; starting with the sample products", file);
+            return -1;
+        }
+        long start = System.nanoTime();
+        List<Product> records;
+        try {
+            records = CatalogFiles.read(file, reader, this::toProduct, ForkJoinPool.commonPool(), chunkBytes);
+        } catch (IOException e) {
+            throw new IOException("Failed to load product catalog " + file + ": " + e.getMessage(), e);
+        }
+        long parsed = System.nanoTime();
+
+        Map<String, Product> products = new LinkedHashMap<>(records.size() * 4 / 3 + 1);
+        for (int i = 0; i < records.size(); i++) {
+            Product product = records.get(i);
+            if (product.getId() == null) {
+                product.setId(stableId(product, i));
+            }
+            products.put(product.getId(), product);
+        }
+        productService.restore(new ArrayList<>(products.values()));
+        loaded = true;
+        long done = System.nanoTime();
+
+        long bytes = Files.size(file);
+        logger.info("Loaded {} products ({} MB) from {} in {} ms, {} products/s (parse {} ms at {} MB/s, index {} ms)",
+                products.size(), bytes >> 20, file, TimeUnit.NANOSECONDS.toMillis(done - start),
+                perSecond(products.size(), done - start), TimeUnit.NANOSECONDS.toMillis(parsed - start),
+                perSecond(bytes >> 20, parsed - start), TimeUnit.NANOSECONDS.toMillis(done - parsed));
+        if (products.size() < records.size()) {
+            logger.warn("{} catalog records repeated the id of a later one and were skipped",
+                    records.size() - products.size());
+        }
+        return products.size();
+    }
+
+    /**
+     * Whether the store holds the catalog rather than the sample products
+     */
+    boolean loaded() {
+        return loaded;
+    }
+
+    /**
+     * Parse chunks of this many bytes rather than the default
+     */
+    void setChunkBytes(int chunkBytes) {
+        this.chunkBytes = chunkBytes;
+    }
+
+    private Product toProduct(ProductResponseDTO dto) {
+        Product product = productMapper.toEntity(dto);
+        if (product.getVersion() == null) {
+            product.setVersion(0L);
+        }
+        return product;
+    }
+
+    // The same record gets the same id on every load, unlike a random one
+    private static String stableId(Product product, int position) {
+        String key = product.getSku() != null ? "sku:" + product.getSku() : "position:" + position;
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private static long perSecond(long count, long nanos) {
+        return nanos > 0 ? count * TimeUnit.SECONDS.toNanos(1) / nanos : count;
+    }
+}
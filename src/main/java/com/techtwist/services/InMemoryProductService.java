@@ -3,21 +3,115 @@ package com.techtwist.services;
 import com.techtwist.services.interfaces.IProductService;
 import com.techtwist.models.Product;
 import com.techtwist.dto.*;
+import com.techtwist.exceptions.InsufficientStockException;
+import com.techtwist.exceptions.VersionConflictException;
 import com.techtwist.mapper.ProductMapper;
+import com.techtwist.services.support.BulkUpserts;
+import com.techtwist.services.support.Durability;
+import com.techtwist.services.support.HashIndex;
+import com.techtwist.services.support.KeysetPaging;
+import com.techtwist.services.support.PriceCursor;
+import com.techtwist.services.support.PrefixIndex;
+import com.techtwist.services.support.PriceIndex;
+import com.techtwist.services.support.PriceBuckets;
+import com.techtwist.services.support.ProductChangeLog;
+import com.techtwist.services.support.ProductSnapshots;
+import com.techtwist.services.support.PublishedIndexes;
+import com.techtwist.services.support.StockAdjustments;
+import com.techtwist.services.support.StripedSnapshotLock;
+import com.techtwist.services.support.Suggestions;
+import com.techtwist.services.support.TextIndex;
+import com.techtwist.services.support.TextTokenizer;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service("InMemoryProductService")
 @Profile("local")
 public class InMemoryProductService implements IProductService {
 
-    private final Map<String, Product> productStore = new HashMap<>();
+    // Search field weights, mirroring the @TextIndexed weights on Product
+    private static final int NAME_WEIGHT = 10;
+    private static final int BRAND_WEIGHT = 5;
+    private static final int TAGS_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private static final String ACTIVE_STATUS = "ACTIVE";
+
+    // Ordered by id so keyset pages can seek with tailMap instead of skipping rows.
+    // Stored products are never mutated: writers swap in an updated copy under the stripe lock
+    // of its id, so concurrent writes to one product are never lost and a reader never sees
+    // a half-applied change
+    private final ConcurrentNavigableMap<String, Product> productStore = new ConcurrentSkipListMap<>();
+
+    // List queries read through storeLock.snapshot so a page or list reflects one point in time
+    // rather than a mix of before and after a concurrent write
+    private final StripedSnapshotLock storeLock =
+            new StripedSnapshotLock(Runtime.getRuntime().availableProcessors() * 4);
+    // Bulk upserts resolve and write each SKU under its stripe here, so concurrent batches cannot
+    // both create the same SKU; always taken before, never while holding, a storeLock stripe
+    private final StripedSnapshotLock skuLock =
+            new StripedSnapshotLock(Runtime.getRuntime().availableProcessors() * 4);
+
+    // Secondary indexes, changed under the same stripe lock as the product they index, so finders
+    // read only the ids holding a value instead of scanning the whole store
+    private final HashIndex<Product> statusIndex = new HashIndex<>(Product::getStatus);
+    private final HashIndex<Product> categoryIndex = new HashIndex<>(Product::getCategory);
+    private final HashIndex<Product> brandIndex = new HashIndex<>(Product::getBrand);
+    private final HashIndex<Product> productAreaIndex = new HashIndex<>(Product::getProductArea);
+    private final HashIndex<Product> featuredIndex = new HashIndex<>(InMemoryProductService::featuredKey);
+    private final HashIndex<Product> nameIndex = new HashIndex<>(Product::getName);
+    private final HashIndex<Product> skuIndex = new HashIndex<>(Product::getSku);
+    private final List<HashIndex<Product>> indexes =
+            List.of(statusIndex, categoryIndex, brandIndex, productAreaIndex, featuredIndex, nameIndex, skuIndex);
+    // Active products ordered by price in cents, then id
+    private final PriceIndex priceIndex = new PriceIndex();
+    // Active products by the terms of their weighted search fields, for ranked search
+    private final TextIndex<Product> textIndex = new TextIndex<>(Product::getId, List.of(
+            new TextIndex.Field<>(p -> Collections.singletonList(p.getName()), NAME_WEIGHT),
+            new TextIndex.Field<>(p -> Collections.singletonList(p.getBrand()), BRAND_WEIGHT),
+            new TextIndex.Field<>(Product::getTags, TAGS_WEIGHT),
+            new TextIndex.Field<>(p -> Collections.singletonList(p.getDescription()), DESCRIPTION_WEIGHT)));
+    // Active products' names, brands and tags by prefix, for autocomplete
+    private final PrefixIndex<Product> nameSuggestions = new PrefixIndex<>(
+            p -> Collections.singletonList(p.getName()), InMemoryProductService::isFeatured, Product::prefixKey, Suggestions.MAX_SIZE);
+    private final PrefixIndex<Product> brandSuggestions = new PrefixIndex<>(
+            p -> Collections.singletonList(p.getBrand()), InMemoryProductService::isFeatured, Product::prefixKey, Suggestions.MAX_SIZE);
+    private final PrefixIndex<Product> tagSuggestions = new PrefixIndex<>(
+            Product::getTags, InMemoryProductService::isFeatured, Product::prefixKey, Suggestions.MAX_SIZE);
+    // Counts changes to the store, so snapshots can be skipped while nothing has changed
+    private final LongAdder writes = new LongAdder();
+    // Set once persistence has restored the store; every change is logged before it is applied
+    private volatile ProductChangeLog changeLog;
+    private volatile Durability durability = Durability.SYNC;
+
+    // Copy-on-write read mode: list reads use an immutable copy of the low-cardinality indexes,
+    // holding the products themselves, which writers replace through an AtomicReference, so
+    // readers take no locks and never wait for or retry behind a writer. Changes are queued
+    // under their stripe lock and published in batches by whichever writer holds publishLock
+    private final List<HashIndex<Product>> publishedIndexes =
+            List.of(statusIndex, categoryIndex, brandIndex, productAreaIndex, featuredIndex);
+    private final AtomicReference<PublishedIndexes<Product>> published = new AtomicReference<>();
+    private final Queue<PublishedIndexes.Change<Product>> unpublished = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock publishLock = new ReentrantLock();
+    private volatile boolean copyOnWriteReads;
 
     @Autowired
     private ProductMapper productMapper;
@@ -29,6 +123,37 @@ public class InMemoryProductService implements IProductService {
     @Autowired
     public void initializeSampleProducts() {
         createSampleProducts();
+        publish();
+    }
+
+    /**
+     * locked (the default) reads under the stripe locks; copy-on-write reads published index copies
+     */
+    @Value("${product.in-memory.read-mode:locked}")
+    public void setReadMode(String readMode) {
+        switch (readMode) {
+            case "locked" -> {
+                copyOnWriteReads = false;
+                published.set(null);
+            }
+            case "copy-on-write" -> enableCopyOnWriteReads();
+            default -> throw new IllegalArgumentException(
+                    "product.in-memory.read-mode must be locked or copy-on-write, not " + readMode);
+        }
+    }
+
+    private void enableCopyOnWriteReads() {
+        // Queue changes before copying the store: replaying a change the copy already holds is
+        // harmless, as each id's changes are replayed in order and the last one wins
+        copyOnWriteReads = true;
+        List<Product> products = storeLock.snapshot(() -> new ArrayList<>(productStore.values()));
+        publishLock.lock();
+        try {
+            published.set(PublishedIndexes.of(publishedIndexes, products, Product::getId));
+        } finally {
+            publishLock.unlock();
+        }
+        publish();
     }
 
     // New DTO-based methods
@@ -36,105 +161,673 @@ public class InMemoryProductService implements IProductService {
     public ProductResponseDTO create(ProductCreateDTO createDTO) {
         Product product = productMapper.toEntity(createDTO);
         product.setId(UUID.randomUUID().toString());
-        productStore.put(product.getId(), product);
+        durably(() -> insert(product));
         return productMapper.toResponseDTO(product);
     }
 
     @Override
     public Optional<ProductResponseDTO> findById(String id) {
         Product product = productStore.get(id);
-        if (product != null && "ACTIVE".equals(product.getStatus())) {
+        if (product != null && ACTIVE_STATUS.equals(product.getStatus())) {
             return Optional.of(productMapper.toResponseDTO(product));
         }
         return Optional.empty();
     }
 
+    @Override
+    public Optional<Long> findVersion(String id) {
+        Product product = productStore.get(id);
+        if (product != null && ACTIVE_STATUS.equals(product.getStatus())) {
+            return Optional.of(product.getVersion() != null ? product.getVersion() : 0L);
+        }
+        return Optional.empty();
+    }
+
     @Override
     public ProductResponseDTO findByName(String name) {
-        return productStore.values().stream()
-                .filter(p -> "ACTIVE".equals(p.getStatus()) && name.equals(p.getName()))
-                .findFirst()
+        return storeLock.snapshot(() -> nameIndex.ids(name).stream()
+                .map(productStore::get)
+                .filter(p -> p != null && ACTIVE_STATUS.equals(p.getStatus()))
+                .findFirst())
                 .map(productMapper::toResponseDTO)
                 .orElse(null);
     }
 
     @Override
     public ProductResponseDTO update(String id, ProductUpdateDTO updateDTO) {
-        Product existingProduct = productStore.get(id);
-        if (existingProduct != null) {
-            productMapper.updateEntity(existingProduct, updateDTO);
-            productStore.put(id, existingProduct);
-            return productMapper.toResponseDTO(existingProduct);
+        return productMapper.toResponseDTO(
+                durably(() -> replace(id, null, product -> productMapper.updateEntity(product, updateDTO))));
+    }
+
+    @Override
+    public ProductResponseDTO update(String id, ProductUpdateDTO updateDTO, long expectedVersion) {
+        return productMapper.toResponseDTO(
+                durably(() -> replace(id, expectedVersion, product -> productMapper.updateEntity(product, updateDTO))));
+    }
+
+    @Override
+    public ProductResponseDTO patch(String id, ProductUpdateDTO updateDTO) {
+        // updateEntity already applies only the non-null fields
+        return update(id, updateDTO);
+    }
+
+    @Override
+    public ProductResponseDTO patch(String id, ProductUpdateDTO updateDTO, long expectedVersion) {
+        return update(id, updateDTO, expectedVersion);
+    }
+
+    private Product insert(Product product) {
+        product.setVersion(0L);
+        return storeLock.write(product.getId(), () -> {
+            logPut(product);
+            reindex(product.getId(), productStore.put(product.getId(), product), product);
+            return product;
+        });
+    }
+
+    /**
+     * Replace a product with a changed copy and the next version, atomically under the id's stripe lock
+     * If expectedVersion is given the change is only applied while the product is at that version
+     * @return The new product, or null if it does not exist (and no version was expected)
+     */
+    private Product replace(String id, Long expectedVersion, UnaryOperator<Product> change) {
+        Product updated = storeLock.write(id, () -> {
+            // No other writer can change this id while its stripe is held
+            Product current = productStore.get(id);
+            if (current == null) {
+                return null;
+            }
+            if (expectedVersion != null && !expectedVersion.equals(current.getVersion())) {
+                throw new VersionConflictException(id, expectedVersion);
+            }
+            Product next = change.apply(new Product(current));
+            next.setVersion((current.getVersion() != null ? current.getVersion() : 0L) + 1);
+            logPut(next);
+            productStore.put(id, next);
+            reindex(id, current, next);
+            return next;
+        });
+        if (updated == null && expectedVersion != null) {
+            throw new VersionConflictException(id, expectedVersion);
         }
-        return null;
+        return updated;
+    }
+
+    @Override
+    public ProductResponseDTO decrementStock(String id, int quantity) {
+        StockAdjustments.requirePositive(quantity);
+        return productMapper.toResponseDTO(durably(() -> adjustStock(id, -quantity)));
+    }
+
+    @Override
+    public ProductResponseDTO incrementStock(String id, int quantity) {
+        StockAdjustments.requirePositive(quantity);
+        return productMapper.toResponseDTO(durably(() -> adjustStock(id, quantity)));
+    }
+
+    @Override
+    public List<ProductResponseDTO> decrementStock(List<StockAdjustmentDTO> lines) {
+        return durably(() -> StockAdjustments.applyAll(lines, -1, this::adjustStock)).stream()
+                .map(productMapper::toResponseDTO)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<ProductResponseDTO> incrementStock(List<StockAdjustmentDTO> lines) {
+        return durably(() -> StockAdjustments.applyAll(lines, 1, this::adjustStock)).stream()
+                .map(productMapper::toResponseDTO)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Stock adjustment: the new stock level is computed on a copy and swapped in while holding the
+     * product's stripe lock, so concurrent adjustments to one product are serialized
+     * Throwing from the change leaves the stored product unchanged
+     */
+    private Product adjustStock(String id, int delta) {
+        return replace(id, null, product -> {
+            int stock = product.getStockQuantity() != null ? product.getStockQuantity() : 0;
+            if (stock + delta < 0) {
+                throw new InsufficientStockException(id, -delta);
+            }
+            product.setStockQuantity(stock + delta);
+            return product;
+        });
     }
 
     @Override
     public void delete(String id) {
-        productStore.remove(id);
+        durably(() -> storeLock.write(id, () -> {
+            if (productStore.containsKey(id)) {
+                logDelete(id);
+            }
+            Product removed = productStore.remove(id);
+            reindex(id, removed, null);
+            return removed;
+        }));
     }
 
     @Override
     public List<ProductResponseDTO> findAll() {
-        return productStore.values().stream()
-                .filter(p -> "ACTIVE".equals(p.getStatus()))
+        return activeSnapshot(statusIndex, ACTIVE_STATUS, p -> true).stream()
                 .map(productMapper::toResponseDTO)
                 .collect(Collectors.toList());
     }
 
     @Override
     public List<ProductSummaryDTO> findAllSummary() {
-        return productStore.values().stream()
-                .filter(p -> "ACTIVE".equals(p.getStatus()))
+        return activeSnapshot(statusIndex, ACTIVE_STATUS, p -> true).stream()
                 .map(productMapper::toSummaryDTO)
                 .collect(Collectors.toList());
     }
 
     @Override
     public List<ProductResponseDTO> findByCategory(String category) {
-        return productStore.values().stream()
-                .filter(p -> "ACTIVE".equals(p.getStatus()) && category.equals(p.getCategory()))
+        return activeSnapshot(categoryIndex, category, p -> true).stream()
                 .map(productMapper::toResponseDTO)
                 .collect(Collectors.toList());
     }
 
     @Override
     public List<ProductResponseDTO> findByBrand(String brand) {
-        return productStore.values().stream()
-                .filter(p -> "ACTIVE".equals(p.getStatus()) && brand.equals(p.getBrand()))
+        return activeSnapshot(brandIndex, brand, p -> true).stream()
                 .map(productMapper::toResponseDTO)
                 .collect(Collectors.toList());
     }
 
     @Override
     public List<ProductResponseDTO> findByProductArea(String productArea) {
-        return productStore.values().stream()
-                .filter(p -> "ACTIVE".equals(p.getStatus()) && productArea.equals(p.getProductArea()))
+        return activeSnapshot(productAreaIndex, productArea, p -> true).stream()
                 .map(productMapper::toResponseDTO)
                 .collect(Collectors.toList());
     }
 
     @Override
     public List<ProductResponseDTO> findFeaturedProducts() {
-        return productStore.values().stream()
-                .filter(p -> "ACTIVE".equals(p.getStatus()) && Boolean.TRUE.equals(p.getFeatured()))
+        return activeSnapshot(featuredIndex, featuredKey(true), p -> true).stream()
+                .map(productMapper::toResponseDTO)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public CursorPageDTO<ProductResponseDTO> findAll(int limit, String after) {
+        return keysetPage(statusIndex, ACTIVE_STATUS, p -> true, limit, after, productMapper::toResponseDTO);
+    }
+
+    @Override
+    public CursorPageDTO<ProductSummaryDTO> findAllSummary(int limit, String after) {
+        return keysetPage(statusIndex, ACTIVE_STATUS, p -> true, limit, after, productMapper::toSummaryDTO);
+    }
+
+    @Override
+    public CursorPageDTO<ProductResponseDTO> findByCategory(String category, int limit, String after) {
+        return keysetPage(categoryIndex, category, p -> true, limit, after, productMapper::toResponseDTO);
+    }
+
+    @Override
+    public CursorPageDTO<ProductResponseDTO> findByBrand(String brand, int limit, String after) {
+        return keysetPage(brandIndex, brand, p -> true, limit, after, productMapper::toResponseDTO);
+    }
+
+    @Override
+    public CursorPageDTO<ProductResponseDTO> findByProductArea(String productArea, int limit, String after) {
+        return keysetPage(productAreaIndex, productArea, p -> true, limit, after, productMapper::toResponseDTO);
+    }
+
+    @Override
+    public CursorPageDTO<ProductResponseDTO> findFeaturedProducts(int limit, String after) {
+        return keysetPage(featuredIndex, featuredKey(true), p -> true, limit, after, productMapper::toResponseDTO);
+    }
+
+    @Override
+    public CursorPageDTO<ProductResponseDTO> findWithFilters(ProductFilterDTO filter, int limit, String after) {
+        NavigableSet<String> matches = textMatches(filter);
+        IndexLookup lookup = narrowestLookup(filter, matches);
+        Predicate<Product> predicate = filterPredicate(filter, matches);
+        if (lookup.ids() != null) {
+            return keysetPage(lookup.ids(), predicate, limit, after, productMapper::toResponseDTO);
+        }
+        return keysetPage(lookup.index(), lookup.value(), predicate, limit, after, productMapper::toResponseDTO);
+    }
+
+    /**
+     * Seek into the price index and walk it in either direction until limit + 1 products are found
+     * The index only holds active products, so every entry it yields is a result
+     */
+    @Override
+    public CursorPageDTO<ProductResponseDTO> findByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, boolean descending,
+                                                              int limit, String after) {
+        PriceCursor cursor = PriceCursor.decode(after);
+        List<Product> rows = storeLock.snapshot(() -> priceIndex.ids(minPrice, maxPrice, cursor, descending)
+                .map(productStore::get)
+                .filter(Objects::nonNull)
+                .limit(limit + 1L)
+                .collect(Collectors.toList()));
+        return KeysetPaging.toPage(rows, limit, p -> new PriceCursor(p.getPrice(), p.getId()).encode(),
+                productMapper::toResponseDTO);
+    }
+
+    @Override
+    public ProductFacetsDTO findFacets(ProductFilterDTO filter) {
+        NavigableSet<String> matches = textMatches(filter);
+        IndexLookup lookup = narrowestLookup(filter, matches);
+        Predicate<Product> predicate = filterPredicate(filter, matches);
+        Map<String, Long> categories = new HashMap<>();
+        Map<String, Long> productAreas = new HashMap<>();
+        Map<String, Long> brands = new HashMap<>();
+        Map<String, Long> featured = new HashMap<>();
+        Map<String, Long> priceBuckets = new HashMap<>();
+
+        // Single pass over one snapshot, counting every facet at once
+        List<Product> products = lookup.ids() != null
+                ? storeLock.snapshot(() -> activeRows(lookup.ids(), null, predicate, Long.MAX_VALUE))
+                : activeSnapshot(lookup.index(), lookup.value(), predicate);
+        for (Product product : products) {
+            increment(categories, product.getCategory());
+            increment(productAreas, product.getProductArea());
+            increment(brands, product.getBrand());
+            increment(featured, String.valueOf(Boolean.TRUE.equals(product.getFeatured())));
+            increment(priceBuckets, PriceBuckets.labelOf(product.getPrice()));
+        }
+
+        ProductFacetsDTO facets = new ProductFacetsDTO();
+        facets.setCategories(sortedByCount(categories));
+        facets.setProductAreas(sortedByCount(productAreas));
+        facets.setBrands(sortedByCount(brands));
+        facets.setFeatured(sortedByCount(featured));
+        for (String bucket : PriceBuckets.labels()) {
+            if (priceBuckets.containsKey(bucket)) {
+                facets.getPriceBuckets().put(bucket, priceBuckets.get(bucket));
+            }
+        }
+        return facets;
+    }
+
+    private static void increment(Map<String, Long> counts, String key) {
+        if (key != null) {
+            counts.merge(key, 1L, Long::sum);
+        }
+    }
+
+    private static Map<String, Long> sortedByCount(Map<String, Long> counts) {
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    // Where a filtered read starts: an index entry, or the ids matching the text query
+    private record IndexLookup(HashIndex<Product> index, String value, NavigableSet<String> ids) {
+        IndexLookup(HashIndex<Product> index, String value) {
+            this(index, value, null);
+        }
+
+        int count() {
+            return ids != null ? ids.size() : index.count(value);
+        }
+    }
+
+    // Ids of the active products holding any term of the filter's text query, from the text index;
+    // null without a query
+    private NavigableSet<String> textMatches(ProductFilterDTO filter) {
+        return filter.hasText() ? textIndex.ids(TextTokenizer.tokenize(filter.getQ())) : null;
+    }
+
+    // Start from the smallest among the text matches and the index entries of the supplied
+    // equality filters, or all active products
+    private IndexLookup narrowestLookup(ProductFilterDTO filter, NavigableSet<String> matches) {
+        List<IndexLookup> candidates = new ArrayList<>();
+        if (matches != null) {
+            candidates.add(new IndexLookup(null, null, matches));
+        }
+        candidates.add(new IndexLookup(statusIndex, ACTIVE_STATUS));
+        if (filter.getCategory() != null) {
+            candidates.add(new IndexLookup(categoryIndex, filter.getCategory()));
+        }
+        if (filter.getProductArea() != null) {
+            candidates.add(new IndexLookup(productAreaIndex, filter.getProductArea()));
+        }
+        if (filter.getBrand() != null) {
+            candidates.add(new IndexLookup(brandIndex, filter.getBrand()));
+        }
+        if (filter.getFeatured() != null) {
+            candidates.add(new IndexLookup(featuredIndex, featuredKey(filter.getFeatured())));
+        }
+        return candidates.stream()
+                .min(Comparator.comparingInt(IndexLookup::count))
+                .orElseThrow();
+    }
+
+    // Chain only the predicates for supplied filters
+    private Predicate<Product> filterPredicate(ProductFilterDTO filter, NavigableSet<String> matches) {
+        Predicate<Product> predicate = p -> true;
+        if (filter.getCategory() != null) {
+            predicate = predicate.and(p -> filter.getCategory().equals(p.getCategory()));
+        }
+        if (filter.getProductArea() != null) {
+            predicate = predicate.and(p -> filter.getProductArea().equals(p.getProductArea()));
+        }
+        if (filter.getBrand() != null) {
+            predicate = predicate.and(p -> filter.getBrand().equals(p.getBrand()));
+        }
+        if (filter.getMinPrice() != null) {
+            predicate = predicate.and(p -> p.getPrice() != null && p.getPrice().compareTo(filter.getMinPrice()) >= 0);
+        }
+        if (filter.getMaxPrice() != null) {
+            predicate = predicate.and(p -> p.getPrice() != null && p.getPrice().compareTo(filter.getMaxPrice()) <= 0);
+        }
+        if (filter.getFeatured() != null) {
+            predicate = predicate.and(p -> filter.getFeatured().equals(Boolean.TRUE.equals(p.getFeatured())));
+        }
+        if (filter.getInStock() != null) {
+            predicate = predicate.and(p -> filter.getInStock() == p.isInStock());
+        }
+        if (matches != null) {
+            predicate = predicate.and(p -> matches.contains(p.getId()));
+        }
+        return predicate;
+    }
+
+    /**
+     * Ranked with BM25 over the text index, which only reads the postings of the query's terms
+     * and keeps the top (page + 1) * size hits in a heap
+     */
+    @Override
+    public List<ProductResponseDTO> search(String query, int page, int size) {
+        List<String> terms = TextTokenizer.tokenize(query);
+        long limit = (long) (page + 1) * size;
+        if (terms.isEmpty() || limit > Integer.MAX_VALUE) {
+            return Collections.emptyList();
+        }
+        return textIndex.search(terms, (int) limit).stream()
+                .skip((long) page * size)
                 .map(productMapper::toResponseDTO)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Reads the best few entries kept at the prefix's node of each field's trie, so the cost does
+     * not depend on how many texts start with the prefix
+     */
+    @Override
+    public List<SuggestionDTO> autocomplete(String prefix, int size) {
+        return Suggestions.top(Stream.of(
+                suggestions(nameSuggestions, SuggestionDTO.NAME, prefix, size),
+                suggestions(brandSuggestions, SuggestionDTO.BRAND, prefix, size),
+                suggestions(tagSuggestions, SuggestionDTO.TAG, prefix, size)).flatMap(s -> s), size);
+    }
+
+    private static Stream<SuggestionDTO> suggestions(PrefixIndex<Product> index, String field, String prefix, int size) {
+        return index.complete(Product.prefixOf(prefix), size).stream()
+                .map(s -> new SuggestionDTO(s.text(), field, s.count(), s.featured()));
+    }
+
+    @Override
+    public Stream<ProductResponseDTO> streamAll() {
+        // Captures the matching references up front, then creates each DTO only as it is written out
+        return activeSnapshot(statusIndex, ACTIVE_STATUS, p -> true).stream()
+                .map(productMapper::toResponseDTO);
+    }
+
+    @Override
+    public BulkResultDTO bulkUpsert(List<ProductCreateDTO> products) {
+        // One sync for the whole batch rather than one per item
+        return durably(() -> upsertAll(products));
+    }
+
+    private BulkResultDTO upsertAll(List<ProductCreateDTO> products) {
+        Map<String, Integer> lastIndexBySku = BulkUpserts.lastIndexBySku(products);
+
+        List<BulkItemResultDTO> items = new ArrayList<>(products.size());
+        for (int i = 0; i < products.size(); i++) {
+            ProductCreateDTO dto = products.get(i);
+            BulkItemResultDTO rejected = BulkUpserts.reject(i, dto, lastIndexBySku);
+            if (rejected != null) {
+                items.add(rejected);
+                continue;
+            }
+            int index = i;
+            items.add(skuLock.write(dto.getSku(), () -> upsertOne(index, dto)));
+        }
+        return new BulkResultDTO(items);
+    }
+
+    // Runs under the SKU's stripe, so no other bulk upsert can resolve or write this SKU in between
+    private BulkItemResultDTO upsertOne(int index, ProductCreateDTO dto) {
+        // Resolve the SKU through the SKU index rather than a pass over the store
+        Product existing = skuIndex.ids(dto.getSku()).stream()
+                .map(productStore::get)
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(null);
+        if (existing != null) {
+            Product updated = replace(existing.getId(), null, product -> {
+                productMapper.updateEntity(product, dto);
+                product.setStatus(ACTIVE_STATUS);
+                return product;
+            });
+            if (updated != null) {
+                return BulkItemResultDTO.success(index, dto.getSku(), updated.getId(), BulkItemResultDTO.Status.UPDATED);
+            }
+            // Deleted since it was resolved, so the SKU is free again and is created below
+        }
+        Product product = productMapper.toEntity(dto);
+        product.setId(UUID.randomUUID().toString());
+        insert(product);
+        return BulkItemResultDTO.success(index, dto.getSku(), product.getId(), BulkItemResultDTO.Status.CREATED);
+    }
+
+    // Seek past the cursor in the index entry's id order and stop as soon as limit + 1 active matches are found
+    private <T> CursorPageDTO<T> keysetPage(HashIndex<Product> index, String value, Predicate<Product> filter,
+                                            int limit, String after, Function<Product, T> mapper) {
+        String afterId = KeysetPaging.decodeIdCursor(after);
+        PublishedIndexes<Product> view = published.get();
+        if (view != null && view.covers(index)) {
+            List<Product> rows = view.rows(index, value).valuesAfter(afterId)
+                    .filter(p -> ACTIVE_STATUS.equals(p.getStatus()) && filter.test(p))
+                    .limit(limit + 1L)
+                    .collect(Collectors.toList());
+            return KeysetPaging.toPage(rows, limit, p -> KeysetPaging.encodeCursor(p.getId()), mapper);
+        }
+        List<Product> rows = storeLock.snapshot(() -> activeRows(index.ids(value), afterId, filter, limit + 1L));
+        return KeysetPaging.toPage(rows, limit, p -> KeysetPaging.encodeCursor(p.getId()), mapper);
+    }
+
+    // Keyset page over ids resolved outside the store's indexes, e.g. text matches
+    private <T> CursorPageDTO<T> keysetPage(NavigableSet<String> ids, Predicate<Product> filter,
+                                            int limit, String after, Function<Product, T> mapper) {
+        String afterId = KeysetPaging.decodeIdCursor(after);
+        List<Product> rows = storeLock.snapshot(() -> activeRows(ids, afterId, filter, limit + 1L));
+        return KeysetPaging.toPage(rows, limit, p -> KeysetPaging.encodeCursor(p.getId()), mapper);
+    }
+
+    // The active products among ids after afterId (null for all) that pass filter, at most max; call under the store lock
+    private List<Product> activeRows(NavigableSet<String> ids, String afterId, Predicate<Product> filter, long max) {
+        return (afterId == null ? ids : ids.tailSet(afterId, false)).stream()
+                .map(productStore::get)
+                .filter(p -> p != null && ACTIVE_STATUS.equals(p.getStatus()) && filter.test(p))
+                .limit(max)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The active products under one index entry that match filter, in id order, as of a single point in time
+     * Only references are collected under the snapshot; callers map them to DTOs afterwards
+     */
+    private List<Product> activeSnapshot(HashIndex<Product> index, String value, Predicate<Product> filter) {
+        PublishedIndexes<Product> view = published.get();
+        if (view != null && view.covers(index)) {
+            return view.rows(index, value).valuesAfter(null)
+                    .filter(p -> ACTIVE_STATUS.equals(p.getStatus()) && filter.test(p))
+                    .collect(Collectors.toList());
+        }
+        return storeLock.snapshot(() -> activeRows(index.ids(value), null, filter, Long.MAX_VALUE));
+    }
+
+    // Called under the id's stripe lock before the change is applied, so the log holds each
+    // product's changes in order, and a change that cannot be logged is not made
+    private void logPut(Product product) {
+        ProductChangeLog log = changeLog;
+        if (log != null) {
+            log.appendPut(product);
+        }
+    }
+
+    private void logDelete(String id) {
+        ProductChangeLog log = changeLog;
+        if (log != null) {
+            log.appendDelete(id);
+        }
+    }
+
+    /**
+     * Run writes, publish them to copy-on-write readers, then wait until they are as durable as
+     * the request, or the service default, asks
+     * Syncing to the log's latest sequence covers every change the writes logged
+     */
+    private <T> T durably(Supplier<T> writes) {
+        T result = writes.get();
+        publish();
+        ProductChangeLog log = changeLog;
+        if (log != null && Durability.requestedOr(durability) == Durability.SYNC) {
+            log.sync(log.lastSequence());
+        }
+        return result;
+    }
+
+    private void reindex(String id, Product before, Product after) {
+        writes.increment();
+        if (copyOnWriteReads) {
+            unpublished.add(new PublishedIndexes.Change<>(id, before, after));
+        }
+        for (HashIndex<Product> index : indexes) {
+            index.update(id, before, after);
+        }
+        priceIndex.update(id, indexedPrice(before), indexedPrice(after));
+        textIndex.update(id, activeOrNull(before), activeOrNull(after));
+        nameSuggestions.update(activeOrNull(before), activeOrNull(after));
+        brandSuggestions.update(activeOrNull(before), activeOrNull(after));
+        tagSuggestions.update(activeOrNull(before), activeOrNull(after));
+    }
+
+    /**
+     * Apply every queued change to a new version of the published indexes, in one batch
+     * A writer that finds the queue empty once it holds the lock has had its changes published by
+     * the writer before it, so every writer returns with its own changes visible to readers
+     */
+    private void publish() {
+        if (!copyOnWriteReads) {
+            return;
+        }
+        publishLock.lock();
+        try {
+            PublishedIndexes<Product> current = published.get();
+            if (current == null) {
+                return; // still being enabled; enableCopyOnWriteReads publishes the queue
+            }
+            List<PublishedIndexes.Change<Product>> batch = new ArrayList<>();
+            for (PublishedIndexes.Change<Product> change; (change = unpublished.poll()) != null; ) {
+                batch.add(change);
+            }
+            if (!batch.isEmpty()) {
+                published.set(current.with(batch));
+            }
+        } finally {
+            publishLock.unlock();
+        }
+    }
+
+    private static BigDecimal indexedPrice(Product product) {
+        return product != null && ACTIVE_STATUS.equals(product.getStatus()) ? product.getPrice() : null;
+    }
+
+    private static boolean isFeatured(Product product) {
+        return Boolean.TRUE.equals(product.getFeatured());
+    }
+
+    private static Product activeOrNull(Product product) {
+        return product != null && ACTIVE_STATUS.equals(product.getStatus()) ? product : null;
+    }
+
+    private static String featuredKey(Product product) {
+        return featuredKey(Boolean.TRUE.equals(product.getFeatured()));
+    }
+
+    private static String featuredKey(boolean featured) {
+        return String.valueOf(featured);
+    }
+
+    /**
+     * Every stored product, including inactive ones, in id order as of a single point in time,
+     * with the sequence of the last logged change they include
+     */
+    ProductSnapshots.Snapshot snapshotProducts() {
+        // Changes are logged under their stripe lock, so no change is logged while this point in time holds
+        return storeLock.snapshot(() -> {
+            ProductChangeLog log = changeLog;
+            return new ProductSnapshots.Snapshot(new ArrayList<>(productStore.values()),
+                    log != null ? log.lastSequence() : 0);
+        });
+    }
+
+    /**
+     * Log every change from now on, waiting for the given durability unless a request asks for another
+     */
+    void attachChangeLog(ProductChangeLog log, Durability durability) {
+        this.durability = durability;
+        this.changeLog = log;
+    }
+
+    /**
+     * Number of changes made to the store so far
+     */
+    long writeCount() {
+        return writes.sum();
+    }
+
+    /**
+     * Replace the store's contents with products read from a snapshot, keeping their ids and versions
+     * Must run before the service takes requests: the store is filled first, then each index is
+     * built by its own task in parallel, which is several times faster than inserting one by one
+     */
+    void restore(List<Product> products) {
+        new ArrayList<>(productStore.keySet()).forEach(this::delete);
+        for (Product product : products) {
+            productStore.put(product.getId(), product);
+        }
+        Stream.concat(
+                Stream.concat(
+                        indexes.stream().map(index -> (Runnable) () ->
+                                products.forEach(product -> index.update(product.getId(), null, product))),
+                        Stream.of(nameSuggestions, brandSuggestions, tagSuggestions).map(index -> (Runnable) () ->
+                                products.forEach(product -> index.update(null, activeOrNull(product))))),
+                Stream.of(
+                        () -> priceIndex.addAll(products, Product::getId, InMemoryProductService::indexedPrice),
+                        () -> textIndex.addAll(products.stream()
+                                .filter(product -> ACTIVE_STATUS.equals(product.getStatus()))
+                                .toList())))
+                .parallel()
+                .forEach(Runnable::run);
+        writes.add(products.size());
+        if (copyOnWriteReads) {
+            unpublished.clear();
+            published.set(PublishedIndexes.of(publishedIndexes, products, Product::getId));
+        }
+    }
+
     // Legacy methods for backward compatibility
     @Override
     public ProductDTO createLegacy(ProductDTO productDTO) {
         Product product = productMapper.toEntity(productDTO);
         product.setId(UUID.randomUUID().toString());
-        productStore.put(product.getId(), product);
+        durably(() -> insert(product));
         return productMapper.toDTO(product);
     }
 
     @Override
     public Optional<ProductDTO> findByIdLegacy(String id) {
         Product product = productStore.get(id);
-        if (product != null && "ACTIVE".equals(product.getStatus())) {
+        if (product != null && ACTIVE_STATUS.equals(product.getStatus())) {
             return Optional.of(productMapper.toDTO(product));
         }
         return Optional.empty();
@@ -142,14 +835,9 @@ public class InMemoryProductService implements IProductService {
 
     @Override
     public ProductDTO updateLegacy(String id, ProductDTO productDTO) {
-        Product existingProduct = productStore.get(id);
-        if (existingProduct != null) {
-            Product updatedProduct = productMapper.toEntity(productDTO);
-            updatedProduct.setId(id);
-            productStore.put(id, updatedProduct);
-            return productMapper.toDTO(updatedProduct);
-        }
-        return null;
+        Product updatedProduct = productMapper.toEntity(productDTO);
+        updatedProduct.setId(id);
+        return productMapper.toDTO(durably(() -> replace(id, null, current -> updatedProduct)));
     }
 
     // Initialize sample data
@@ -202,7 +890,7 @@ public class InMemoryProductService implements IProductService {
         product2.setManufacturer("AudioMax Ltd.");
         product2.setTags(Arrays.asList("headphones", "wireless", "audio", "electronics"));
 
-        productStore.put(product1.getId(), product1);
-        productStore.put(product2.getId(), product2);
+        insert(product1);
+        insert(product2);
     }
 }
@@ -0,0 +1,242 @@
+package com.techtwist.services;
+
+import com.techtwist.models.Product;
+import com.techtwist.services.support.Durability;
+import com.techtwist.services.support.ProductChangeLog;
+import com.techtwist.services.support.ProductSnapshots;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the in-memory catalog across restarts by writing it to a binary snapshot on the data
+ * volume (the Helm chart's PVC) and loading it back at startup
+ *
+ * The snapshot is loaded while the context is created, before the server takes requests, and
+ * replaces the sample products. It is rewritten every interval while the store has changed,
+ * and once more on shutdown. A snapshot that cannot be read is moved aside rather than overwritten
+ *
+ * With the change log enabled, every write is also appended to a log in the same directory,
+ * which is replayed on top of the snapshot at startup, so writes made since the last snapshot
+ * are not lost. Each snapshot lets the log segments it covers be deleted
+ * Only active when local profile is enabled and product.persistence.snapshot.enabled is true
+ */
+@Component
+@Profile("local")
+@ConditionalOnProperty(name = "product.persistence.snapshot.enabled", havingValue = "true")
+public class InMemoryProductSnapshotter {
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryProductSnapshotter.class);
+
+    static final String SNAPSHOT_FILE = "products.snapshot";
+
+    private final InMemoryProductService productService;
+    private final Path directory;
+    private final Path snapshotFile;
+    private final Duration interval;
+    private final boolean logEnabled;
+    private final Durability durability;
+    private final Duration flushInterval;
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, task -> {
+        Thread thread = new Thread(task, "product-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ProductChangeLog changeLog;
+    // Write count of the store as of the last snapshot written or loaded
+    private long snapshotWrites = -1;
+    private InMemoryCatalogLoader catalogLoader;
+
+    @Autowired
+    public InMemoryProductSnapshotter(InMemoryProductService productService,
+                                      @Value("${product.persistence.snapshot.directory:/app/data}") String directory,
+                                      @Value("${product.persistence.snapshot.interval:60s}") Duration interval,
+                                      @Value("${product.persistence.log.enabled:true}") boolean logEnabled,
+                                      @Value("${product.persistence.log.durability:sync}") String durability,
+                                      @Value("${product.persistence.log.flush-interval:200ms}") Duration flushInterval) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("product.persistence.snapshot.interval must be positive");
+        }
+        if (flushInterval.isNegative() || flushInterval.isZero()) {
+            throw new IllegalArgumentException("product.persistence.log.flush-interval must be positive");
+        }
+        this.productService = productService;
+        this.directory = Paths.get(directory);
+        this.snapshotFile = this.directory.resolve(SNAPSHOT_FILE);
+        this.interval = interval;
+        this.logEnabled = logEnabled;
+        this.durability = Durability.parse(durability);
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * Injected so a catalog preloaded from a file is in the store before the snapshot and log are read
+     */
+    @Autowired(required = false)
+    void setCatalogLoader(InMemoryCatalogLoader catalogLoader) {
+        this.catalogLoader = catalogLoader;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        load();
+        scheduler.scheduleWithFixedDelay(this::snapshotQuietly,
+                interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        if (changeLog != null) {
+            // Async writes are on disk within a flush interval
+            scheduler.scheduleWithFixedDelay(this::flushQuietly,
+                    flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.warn("Periodic product snapshot still running at shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        snapshotQuietly();
+        if (changeLog != null) {
+            try {
+                changeLog.close();
+            } catch (IOException e) {
+                logger.error("Failed to close product change log: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Load the snapshot, if there is one, replay the change log on top of it and start logging
+     * @return Whether a snapshot was loaded
+     */
+    boolean load() throws IOException {
+        long start = System.nanoTime();
+        ProductSnapshots.Snapshot snapshot = readSnapshot();
+        long read = System.nanoTime();
+        if (!logEnabled) {
+            if (snapshot != null) {
+                restore(snapshot, start, read);
+            }
+            return snapshot != null;
+        }
+
+        // Without a snapshot the log was written on top of the sample products, or the catalog file's
+        ProductSnapshots.Snapshot base = snapshot != null ? snapshot : productService.snapshotProducts();
+        Map<String, Product> products = new LinkedHashMap<>();
+        base.products().forEach(product -> products.put(product.getId(), product));
+        int[] replayed = {0};
+        long sequence = ProductChangeLog.replay(directory, base.sequence(), new ProductChangeLog.Replay() {
+            @Override
+            public void put(Product product) {
+                products.put(product.getId(), product);
+                replayed[0]++;
+            }
+
+            @Override
+            public void delete(String id) {
+                products.remove(id);
+                replayed[0]++;
+            }
+        });
+        if (snapshot != null || replayed[0] > 0) {
+            restore(new ProductSnapshots.Snapshot(new ArrayList<>(products.values()), sequence), start, read);
+            logger.info("Replayed {} logged changes up to sequence {}", replayed[0], sequence);
+        }
+        changeLog = ProductChangeLog.open(directory, sequence);
+        productService.attachChangeLog(changeLog, durability);
+        logger.info("Logging product changes to {} with {} durability", directory, durability);
+        return snapshot != null;
+    }
+
+    private ProductSnapshots.Snapshot readSnapshot() {
+        if (!Files.exists(snapshotFile)) {
+            logger.info("No product snapshot at {}; starting with the {}", snapshotFile,
+                    catalogLoader != null && catalogLoader.loaded() ? "loaded catalog" : "sample products");
+            return null;
+        }
+        try {
+            return ProductSnapshots.read(snapshotFile);
+        } catch (IOException | RuntimeException e) {
+            // Keep the unreadable file for inspection; the next snapshot would otherwise replace it
+            Path aside = snapshotFile.resolveSibling(SNAPSHOT_FILE + ".corrupt-" + System.currentTimeMillis());
+            logger.error("Failed to load product snapshot {}, moving it to {}: {}", snapshotFile, aside, e.getMessage());
+            try {
+                Files.move(snapshotFile, aside);
+            } catch (IOException moveFailure) {
+                logger.error("Failed to move product snapshot {} aside: {}", snapshotFile, moveFailure.getMessage());
+            }
+            return null;
+        }
+    }
+
+    private void restore(ProductSnapshots.Snapshot snapshot, long start, long read) {
+        productService.restore(snapshot.products());
+        snapshotWrites = productService.writeCount();
+        logger.info("Loaded {} products from {} in {} ms (read {} ms, index {} ms)", snapshot.products().size(),
+                directory, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                TimeUnit.NANOSECONDS.toMillis(read - start),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - read));
+    }
+
+    /**
+     * Write a snapshot of the store, unless it is unchanged since the last one
+     * @return Whether a snapshot was written
+     */
+    synchronized boolean snapshot() throws IOException {
+        long writes = productService.writeCount();
+        if (writes == snapshotWrites) {
+            return false;
+        }
+        long start = System.nanoTime();
+        // Changes from here on go to a new segment, so the older ones are covered by this snapshot
+        long segment = changeLog != null ? changeLog.roll() : 0;
+        ProductSnapshots.Snapshot snapshot = productService.snapshotProducts();
+        long bytes = ProductSnapshots.write(snapshotFile, snapshot.products(), snapshot.sequence());
+        snapshotWrites = writes;
+        if (changeLog != null) {
+            changeLog.deleteSegmentsBefore(segment);
+        }
+        logger.info("Wrote {} products ({} bytes) to {} in {} ms", snapshot.products().size(), bytes, snapshotFile,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return true;
+    }
+
+    // A failed snapshot must not cancel the schedule; the next run retries
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to write product snapshot {}: {}", snapshotFile, e.getMessage());
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            changeLog.sync(changeLog.lastSequence());
+        } catch (RuntimeException e) {
+            logger.error("Failed to sync product change log: {}", e.getMessage());
+        }
+    }
+}
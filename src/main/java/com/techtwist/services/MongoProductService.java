@@ -1,19 +1,43 @@
 package com.techtwist.services;
 
 import com.techtwist.dto.*;
+import com.techtwist.exceptions.InsufficientStockException;
+import com.techtwist.exceptions.VersionConflictException;
 import com.techtwist.mapper.ProductMapper;
 import com.techtwist.models.Product;
 import com.techtwist.repository.ProductRepository;
 import com.techtwist.services.interfaces.IProductService;
+import com.techtwist.services.support.BulkUpserts;
+import com.techtwist.services.support.KeysetPaging;
+import com.techtwist.services.support.MongoProductQueries;
+import com.techtwist.services.support.StockAdjustments;
+import com.techtwist.services.support.Suggestions;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Profile;
+import org.bson.Document;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * MongoDB-based implementation of IProductService
@@ -24,53 +48,176 @@ import java.util.stream.Collectors;
 @Transactional
 public class MongoProductService implements IProductService {
 
+    private static final String ACTIVE_STATUS = MongoProductQueries.ACTIVE_STATUS;
+    private static final int STREAM_BATCH_SIZE = 500;
+
     private final ProductRepository productRepository;
+    private final MongoTemplate mongoTemplate;
     private final ProductMapper productMapper;
+    // Set when product.id-filter.enabled is true
+    private ProductIdFilter idFilter;
 
     @Autowired
-    public MongoProductService(ProductRepository productRepository, ProductMapper productMapper) {
+    public MongoProductService(ProductRepository productRepository, MongoTemplate mongoTemplate,
+                               ProductMapper productMapper) {
         this.productRepository = productRepository;
+        this.mongoTemplate = mongoTemplate;
         this.productMapper = productMapper;
     }
 
+    @Autowired(required = false)
+    public void setIdFilter(ProductIdFilter idFilter) {
+        this.idFilter = idFilter;
+    }
+
     @Override
     public ProductResponseDTO create(ProductCreateDTO createDTO) {
         Product product = productMapper.toEntity(createDTO);
         Product savedProduct = productRepository.save(product);
+        if (idFilter != null) {
+            idFilter.added(savedProduct.getId());
+        }
         return productMapper.toResponseDTO(savedProduct);
     }
 
+    /**
+     * With the id filter enabled, ids it knows were never created are answered without a round trip
+     */
     @Override
     public Optional<ProductResponseDTO> findById(String id) {
-        return productRepository.findById(id)
+        if (idFilter != null && !idFilter.mightExist(id)) {
+            return Optional.empty();
+        }
+        Optional<ProductResponseDTO> product = productRepository.findById(id)
                 .map(productMapper::toResponseDTO);
+        if (idFilter != null) {
+            lookedUp(id, product.isPresent());
+        }
+        return product;
+    }
+
+    @Override
+    public Optional<Long> findVersion(String id) {
+        if (idFilter != null && !idFilter.mightExist(id)) {
+            return Optional.empty();
+        }
+        Product product = mongoTemplate.findOne(MongoProductQueries.versionOf(id), Product.class);
+        if (idFilter != null) {
+            lookedUp(id, product != null);
+        }
+        return Optional.ofNullable(product).map(p -> p.getVersion() != null ? p.getVersion() : 0L);
+    }
+
+    // A product written by another instance is added once read, so the filter holds it before its next rebuild
+    private void lookedUp(String id, boolean found) {
+        if (found) {
+            idFilter.found(id);
+        } else {
+            idFilter.missed();
+        }
     }
 
     @Override
     public ProductResponseDTO findByName(String name) {
-        // For now, find by searching all products
-        return productRepository.findAll().stream()
-                .filter(product -> product.getName().equals(name))
+        return productRepository.findByNameAndStatus(name, ACTIVE_STATUS).stream()
                 .findFirst()
                 .map(productMapper::toResponseDTO)
                 .orElse(null);
     }
 
+    /**
+     * PUT already only applies the non-null fields, so it shares the atomic $set path with PATCH
+     */
     @Override
     public ProductResponseDTO update(String id, ProductUpdateDTO updateDTO) {
-        Optional<Product> existingProduct = productRepository.findById(id);
-        if (existingProduct.isPresent()) {
-            Product product = existingProduct.get();
-            productMapper.updateEntity(product, updateDTO);
-            Product savedProduct = productRepository.save(product);
-            return productMapper.toResponseDTO(savedProduct);
+        return patch(id, updateDTO);
+    }
+
+    @Override
+    public ProductResponseDTO update(String id, ProductUpdateDTO updateDTO, long expectedVersion) {
+        return patch(id, updateDTO, expectedVersion);
+    }
+
+    /**
+     * Apply the non-null fields with a single findAndModify $set and return the updated document
+     * Concurrent patches to different fields no longer overwrite each other
+     */
+    @Override
+    public ProductResponseDTO patch(String id, ProductUpdateDTO updateDTO) {
+        Product product = mongoTemplate.findAndModify(
+                MongoProductQueries.byId(id),
+                MongoProductQueries.setNonNullFields(updateDTO),
+                MongoProductQueries.returnNew(),
+                Product.class);
+        return productMapper.toResponseDTO(product);
+    }
+
+    /**
+     * Compare-and-set patch: the version is part of the findAndModify filter, so a stale
+     * version simply matches nothing and no extra read is needed to detect the conflict
+     */
+    @Override
+    public ProductResponseDTO patch(String id, ProductUpdateDTO updateDTO, long expectedVersion) {
+        Product product = mongoTemplate.findAndModify(
+                MongoProductQueries.byIdAtVersion(id, expectedVersion),
+                MongoProductQueries.setNonNullFields(updateDTO),
+                MongoProductQueries.returnNew(),
+                Product.class);
+        if (product == null) {
+            throw new VersionConflictException(id, expectedVersion);
+        }
+        return productMapper.toResponseDTO(product);
+    }
+
+    @Override
+    public ProductResponseDTO decrementStock(String id, int quantity) {
+        StockAdjustments.requirePositive(quantity);
+        return productMapper.toResponseDTO(adjustStock(id, -quantity));
+    }
+
+    @Override
+    public ProductResponseDTO incrementStock(String id, int quantity) {
+        StockAdjustments.requirePositive(quantity);
+        return productMapper.toResponseDTO(adjustStock(id, quantity));
+    }
+
+    @Override
+    public List<ProductResponseDTO> decrementStock(List<StockAdjustmentDTO> lines) {
+        return StockAdjustments.applyAll(lines, -1, this::adjustStock).stream()
+                .map(productMapper::toResponseDTO)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<ProductResponseDTO> incrementStock(List<StockAdjustmentDTO> lines) {
+        return StockAdjustments.applyAll(lines, 1, this::adjustStock).stream()
+                .map(productMapper::toResponseDTO)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Adjust stock with one conditional findAndModify $inc; a decrement only matches while
+     * stockQuantity >= quantity, so concurrent checkouts can never oversell
+     * Only a failed decrement costs a second round trip, to tell a missing product from short stock
+     */
+    private Product adjustStock(String id, int delta) {
+        Product product = mongoTemplate.findAndModify(
+                MongoProductQueries.stockQuery(id, delta),
+                MongoProductQueries.stockUpdate(delta),
+                MongoProductQueries.returnNew(),
+                Product.class);
+        if (product == null && delta < 0 && mongoTemplate.exists(MongoProductQueries.byId(id), Product.class)) {
+            throw new InsufficientStockException(id, -delta);
         }
-        return null;
+        return product;
     }
 
     @Override
     public void delete(String id) {
         productRepository.deleteById(id);
+        if (idFilter != null) {
+            idFilter.removed(id);
+        }
     }
 
     @Override
@@ -82,43 +229,204 @@ public class MongoProductService implements IProductService {
 
     @Override
     public List<ProductSummaryDTO> findAllSummary() {
-        return productRepository.findAll().stream()
+        return productRepository.findSummariesByStatus(ACTIVE_STATUS).stream()
                 .map(productMapper::toSummaryDTO)
                 .collect(Collectors.toList());
     }
 
     @Override
     public List<ProductResponseDTO> findByCategory(String category) {
-        return productRepository.findAll().stream()
-                .filter(product -> product.getCategory().equals(category))
+        return productRepository.findByCategoryAndStatus(category, ACTIVE_STATUS).stream()
                 .map(productMapper::toResponseDTO)
                 .collect(Collectors.toList());
     }
 
     @Override
     public List<ProductResponseDTO> findByBrand(String brand) {
-        return productRepository.findAll().stream()
-                .filter(product -> product.getBrand().equals(brand))
+        return productRepository.findByBrandAndStatus(brand, ACTIVE_STATUS).stream()
                 .map(productMapper::toResponseDTO)
                 .collect(Collectors.toList());
     }
 
     @Override
     public List<ProductResponseDTO> findByProductArea(String productArea) {
-        return productRepository.findAll().stream()
-                .filter(product -> product.getProductArea().equals(productArea))
+        return productRepository.findByProductAreaAndStatus(productArea, ACTIVE_STATUS).stream()
                 .map(productMapper::toResponseDTO)
                 .collect(Collectors.toList());
     }
 
     @Override
     public List<ProductResponseDTO> findFeaturedProducts() {
-        return productRepository.findAll().stream()
-                .filter(product -> Boolean.TRUE.equals(product.getFeatured()))
+        return productRepository.findByFeaturedTrueAndStatus(ACTIVE_STATUS).stream()
+                .map(productMapper::toResponseDTO)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public CursorPageDTO<ProductResponseDTO> findAll(int limit, String after) {
+        return keysetPage(MongoProductQueries.active(), limit, after, productMapper::toResponseDTO);
+    }
+
+    @Override
+    public CursorPageDTO<ProductSummaryDTO> findAllSummary(int limit, String after) {
+        Query query = MongoProductQueries.summaryKeysetQuery(limit, after);
+        return KeysetPaging.toPage(mongoTemplate.find(query, Product.class), limit,
+                MongoProductQueries::cursorOf, productMapper::toSummaryDTO);
+    }
+
+    @Override
+    public CursorPageDTO<ProductResponseDTO> findByCategory(String category, int limit, String after) {
+        return keysetPage(MongoProductQueries.activeWith("category", category), limit, after,
+                productMapper::toResponseDTO);
+    }
+
+    @Override
+    public CursorPageDTO<ProductResponseDTO> findByBrand(String brand, int limit, String after) {
+        return keysetPage(MongoProductQueries.activeWith("brand", brand), limit, after,
+                productMapper::toResponseDTO);
+    }
+
+    @Override
+    public CursorPageDTO<ProductResponseDTO> findByProductArea(String productArea, int limit, String after) {
+        return keysetPage(MongoProductQueries.activeWith("productArea", productArea), limit, after,
+                productMapper::toResponseDTO);
+    }
+
+    @Override
+    public CursorPageDTO<ProductResponseDTO> findFeaturedProducts(int limit, String after) {
+        return keysetPage(MongoProductQueries.activeWith("featured", true), limit, after,
+                productMapper::toResponseDTO);
+    }
+
+    /**
+     * Only the filters that were supplied reach the query, hinted to the most selective filter index
+     */
+    @Override
+    public CursorPageDTO<ProductResponseDTO> findWithFilters(ProductFilterDTO filter, int limit, String after) {
+        Query query = MongoProductQueries.filterQuery(filter, limit, after);
+        return KeysetPaging.toPage(mongoTemplate.find(query, Product.class), limit,
+                MongoProductQueries::cursorOf, productMapper::toResponseDTO);
+    }
+
+    /**
+     * Price-ordered keyset page served from status_price_idx
+     * Uses MongoTemplate rather than findByPriceBetweenAndStatus to add the sort, limit and cursor
+     */
+    @Override
+    public CursorPageDTO<ProductResponseDTO> findByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, boolean descending,
+                                                              int limit, String after) {
+        Query query = MongoProductQueries.priceRangeQuery(minPrice, maxPrice, descending, limit, after);
+        return KeysetPaging.toPage(mongoTemplate.find(query, Product.class), limit,
+                MongoProductQueries::priceCursorOf, productMapper::toResponseDTO);
+    }
+
+    /**
+     * Compute every facet in a single $facet aggregation over the filtered products
+     */
+    @Override
+    public ProductFacetsDTO findFacets(ProductFilterDTO filter) {
+        Document result = mongoTemplate.aggregate(MongoProductQueries.facetAggregation(filter),
+                Product.class, Document.class).getUniqueMappedResult();
+        return MongoProductQueries.toFacets(result);
+    }
+
+    /**
+     * One aggregation per field over the lower-cased key indexes, merged by rank
+     */
+    @Override
+    public List<SuggestionDTO> autocomplete(String prefix, int size) {
+        return Suggestions.top(Stream.of(
+                suggestions(MongoProductQueries.suggestionAggregation("nameKey", "name", prefix, size), SuggestionDTO.NAME),
+                suggestions(MongoProductQueries.suggestionAggregation("brandKey", "brand", prefix, size), SuggestionDTO.BRAND),
+                suggestions(MongoProductQueries.tagSuggestionAggregation(prefix, size), SuggestionDTO.TAG))
+                .flatMap(s -> s), size);
+    }
+
+    private Stream<SuggestionDTO> suggestions(Aggregation aggregation, String field) {
+        return mongoTemplate.aggregate(aggregation, Product.class, Document.class).getMappedResults().stream()
+                .map(result -> MongoProductQueries.toSuggestion(result, field));
+    }
+
+    /**
+     * Search the weighted text index on name, brand, tags and description
+     * Results are ordered by textScore, so pages are offset based
+     */
+    @Override
+    public List<ProductResponseDTO> search(String query, int page, int size) {
+        return mongoTemplate.find(MongoProductQueries.searchQuery(query, page, size), Product.class).stream()
                 .map(productMapper::toResponseDTO)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Stream active products straight off a server-side cursor
+     * Only one cursor batch is held in memory at a time
+     */
+    @Override
+    public Stream<ProductResponseDTO> streamAll() {
+        Query query = new Query(MongoProductQueries.active()).cursorBatchSize(STREAM_BATCH_SIZE);
+        return mongoTemplate.stream(query, Product.class)
+                .map(productMapper::toResponseDTO);
+    }
+
+    /**
+     * Upsert a batch on SKU with a single unordered bulk write
+     * Per-item write errors are reported in the result instead of failing the whole batch
+     */
+    @Override
+    public BulkResultDTO bulkUpsert(List<ProductCreateDTO> products) {
+        Map<String, Integer> lastIndexBySku = BulkUpserts.lastIndexBySku(products);
+        BulkItemResultDTO[] items = new BulkItemResultDTO[products.size()];
+        List<Integer> operationItems = new ArrayList<>(); // bulk operation index -> item index
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+        for (int i = 0; i < products.size(); i++) {
+            ProductCreateDTO dto = products.get(i);
+            items[i] = BulkUpserts.reject(i, dto, lastIndexBySku);
+            if (items[i] == null) {
+                bulk.upsert(MongoProductQueries.bySku(dto.getSku()),
+                        MongoProductQueries.upsertUpdate(productMapper.toEntity(dto), mongoTemplate.getConverter()));
+                operationItems.add(i);
+            }
+        }
+        if (operationItems.isEmpty()) {
+            return new BulkResultDTO(new ArrayList<>(Arrays.asList(items)));
+        }
+
+        BulkWriteResult result;
+        List<BulkWriteError> errors = Collections.emptyList();
+        try {
+            result = bulk.execute();
+        } catch (BulkOperationException e) {
+            result = e.getResult();
+            errors = e.getErrors();
+        }
+
+        List<String> matchedSkus = MongoProductQueries.recordBulkResult(items, operationItems, products, result, errors);
+        if (!matchedSkus.isEmpty()) {
+            // Matched items did not report an id; look them all up in one query on the SKU index
+            MongoProductQueries.recordMatched(items, operationItems, products,
+                    mongoTemplate.find(MongoProductQueries.idsBySkus(matchedSkus), Product.class));
+        }
+        if (idFilter != null) {
+            for (BulkItemResultDTO item : items) {
+                if (item.getStatus() == BulkItemResultDTO.Status.CREATED) {
+                    idFilter.added(item.getId());
+                }
+            }
+        }
+        return new BulkResultDTO(new ArrayList<>(Arrays.asList(items)));
+    }
+
+    /**
+     * Fetch one page ordered by _id, seeking past the cursor instead of skipping rows
+     */
+    private <T> CursorPageDTO<T> keysetPage(Criteria criteria, int limit, String after,
+                                            Function<Product, T> mapper) {
+        List<Product> rows = mongoTemplate.find(MongoProductQueries.keysetQuery(criteria, limit, after), Product.class);
+        return KeysetPaging.toPage(rows, limit, MongoProductQueries::cursorOf, mapper);
+    }
+
     // Legacy compatibility methods - simplified
     @Override
     public ProductDTO createLegacy(ProductDTO productDTO) {
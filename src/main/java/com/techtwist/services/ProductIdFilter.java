@@ -0,0 +1,266 @@
+package com.techtwist.services;
+
+import com.techtwist.models.Product;
+import com.techtwist.services.support.BloomFilter;
+import com.techtwist.services.support.MongoProductQueries;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.bson.types.ObjectId;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter over the ids of the products in MongoDB, so lookups of ids that were never
+ * created (crawlers, stale links) are answered without a round trip
+ *
+ * The filter is built from a scan of the _id index at startup, then rebuilt every refresh
+ * interval, and sooner once it holds more ids than it was sized for or many of its ids have
+ * been deleted. Products created through this instance are added as they are written, also to
+ * a filter being built, so they are never missed. Deleted ids stay in the filter until the next
+ * rebuild and only cost the round trip they cost before. Products written by other instances
+ * or straight to MongoDB after a build cannot be in its filter, so the filter only answers for
+ * ObjectIds created before its scan began (less CLOCK_SKEW for the writers' clocks); newer
+ * ObjectIds and ids that are not ObjectIds always pass, so a product is never reported missing
+ * while it exists. Until the first build succeeds every id passes
+ * Only active when mongodb profile is enabled and product.id-filter.enabled is true
+ */
+@Component
+@Profile("mongodb")
+@ConditionalOnProperty(name = "product.id-filter.enabled", havingValue = "true")
+public class ProductIdFilter {
+    private static final Logger logger = LoggerFactory.getLogger(ProductIdFilter.class);
+
+    // Smallest number of ids a filter is sized for, so an empty catalog can still grow for a while
+    static final long MIN_CAPACITY = 10_000;
+    // Deleted ids left in the filter, as a share of the ids it was built with, before rebuilding early
+    private static final double MAX_STALE_SHARE = 0.1;
+    // How far the clock of another writer may run behind ours when it stamps an ObjectId
+    static final Duration CLOCK_SKEW = Duration.ofMinutes(5);
+
+    private final MongoTemplate mongoTemplate;
+    private final double fpp;
+    private final Duration refreshInterval;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "product-id-filter");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    private final Counter rejected;
+    private final Counter passed;
+    private final Counter uncovered;
+    private final Counter falsePositives;
+
+    // Null until the first build; readers use it, writers add to it and to building
+    private volatile BloomFilter filter;
+    // Set while a rebuild scans the collection, so ids created meanwhile are in the next filter too
+    private volatile BloomFilter building;
+    // ObjectIds stamped before this (epoch seconds) existed when the filter's scan began, so the
+    // filter holds them if they exist; written after filter, and read before it
+    private volatile long coveredBefore;
+    private volatile long capacity;
+    private volatile long builtIds;
+    private final AtomicLong staleIds = new AtomicLong();
+
+    @Autowired
+    public ProductIdFilter(MongoTemplate mongoTemplate, MeterRegistry meterRegistry,
+                           @Value("${product.id-filter.fpp:0.01}") double fpp,
+                           @Value("${product.id-filter.refresh-interval:5m}") Duration refreshInterval) {
+        if (!(fpp > 0 && fpp < 1)) {
+            throw new IllegalArgumentException("product.id-filter.fpp must be between 0 and 1");
+        }
+        if (refreshInterval.isNegative() || refreshInterval.isZero()) {
+            throw new IllegalArgumentException("product.id-filter.refresh-interval must be positive");
+        }
+        this.mongoTemplate = mongoTemplate;
+        this.fpp = fpp;
+        this.refreshInterval = refreshInterval;
+        this.rejected = Counter.builder("product.id.filter.lookups").tag("outcome", "rejected")
+                .description("Product id lookups answered as not found by the filter")
+                .register(meterRegistry);
+        this.passed = Counter.builder("product.id.filter.lookups").tag("outcome", "passed")
+                .description("Product id lookups the filter passed on to MongoDB")
+                .register(meterRegistry);
+        this.uncovered = Counter.builder("product.id.filter.lookups").tag("outcome", "uncovered")
+                .description("Product id lookups passed on as the id may postdate the filter")
+                .register(meterRegistry);
+        this.falsePositives = Counter.builder("product.id.filter.false.positives")
+                .description("Lookups passed on to MongoDB that found no product")
+                .register(meterRegistry);
+        Gauge.builder("product.id.filter.fpp", this, ProductIdFilter::expectedFpp)
+                .description("Expected false positive rate of the filter, from the bits set")
+                .register(meterRegistry);
+        Gauge.builder("product.id.filter.memory", this, ProductIdFilter::memoryBytes)
+                .description("Size of the filter's bit array").baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("product.id.filter.ids", this, ProductIdFilter::ids)
+                .description("Ids added to the filter since it was built, including the build")
+                .register(meterRegistry);
+        Gauge.builder("product.id.filter.stale", this, ProductIdFilter::staleIds)
+                .description("Deleted ids still in the filter")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        rebuildQuietly();
+        scheduler.scheduleWithFixedDelay(this::rebuildQuietly,
+                refreshInterval.toMillis(), refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * False only if the id is an ObjectId stamped before the filter was built and no product with
+     * it existed then or was created through this instance since
+     */
+    public boolean mightExist(String id) {
+        long before = coveredBefore;
+        BloomFilter current = filter;
+        if (current == null || id == null) {
+            return true;
+        }
+        if (!ObjectId.isValid(id) || new ObjectId(id).getTimestamp() >= before) {
+            uncovered.increment();
+            return true;
+        }
+        boolean might = current.mightContain(id);
+        (might ? passed : rejected).increment();
+        return might;
+    }
+
+    /**
+     * Record that a lookup the filter passed on found no product: a false positive or a deleted id
+     */
+    public void missed() {
+        falsePositives.increment();
+    }
+
+    /**
+     * Add the id of a product a lookup found, if the filter does not hold it yet
+     */
+    public void found(String id) {
+        BloomFilter current = filter;
+        if (id != null && current != null && !current.mightContain(id)) {
+            added(id);
+        }
+    }
+
+    /**
+     * Add the id of a product just written; call after the write is acknowledged
+     */
+    public void added(String id) {
+        if (id == null) {
+            return;
+        }
+        // building before filter: a rebuild publishes its filter before clearing building,
+        // so whichever is seen, the id ends up in the filter readers use next
+        BloomFilter next = building;
+        if (next != null) {
+            next.put(id);
+        }
+        BloomFilter current = filter;
+        if (current != null) {
+            current.put(id);
+            if (current.added() > capacity) {
+                queueRebuild();
+            }
+        }
+    }
+
+    /**
+     * Note that a product was deleted; its id stays in the filter until the next rebuild
+     */
+    public void removed(String id) {
+        if (staleIds.incrementAndGet() > Math.max(MIN_CAPACITY, builtIds) * MAX_STALE_SHARE) {
+            queueRebuild();
+        }
+    }
+
+    /**
+     * Build a new filter from the ids now in the collection and start using it
+     */
+    synchronized void rebuild() {
+        long start = System.nanoTime();
+        long scanned = Instant.now().minus(CLOCK_SKEW).getEpochSecond();
+        long size = Math.max(MIN_CAPACITY, 2 * mongoTemplate.estimatedCount(Product.class));
+        BloomFilter next = new BloomFilter(size, fpp);
+        building = next;
+        staleIds.set(0);
+        long[] ids = {0};
+        try (Stream<Product> products = mongoTemplate.stream(MongoProductQueries.allIds(), Product.class)) {
+            products.forEach(product -> {
+                next.put(product.getId());
+                ids[0]++;
+            });
+        } catch (RuntimeException e) {
+            building = null; // keep the filter we had
+            throw e;
+        }
+        capacity = size;
+        builtIds = ids[0];
+        filter = next;
+        coveredBefore = scanned;
+        building = null;
+        logger.info("Built product id filter over {} ids in {} ms: {} KiB, {} hashes, expected false positive rate {}",
+                ids[0], (System.nanoTime() - start) / 1_000_000, next.memoryBytes() / 1024, next.hashCount(),
+                String.format("%.4f", next.expectedFpp()));
+    }
+
+    private void rebuildQuietly() {
+        rebuildQueued.set(false);
+        try {
+            rebuild();
+        } catch (DataAccessException e) {
+            logger.error("Failed to build product id filter: {}", e.getMessage());
+        }
+    }
+
+    private void queueRebuild() {
+        if (rebuildQueued.compareAndSet(false, true)) {
+            scheduler.execute(this::rebuildQuietly);
+        }
+    }
+
+    double expectedFpp() {
+        BloomFilter current = filter;
+        return current != null ? current.expectedFpp() : 1.0;
+    }
+
+    double memoryBytes() {
+        BloomFilter current = filter;
+        return current != null ? current.memoryBytes() : 0;
+    }
+
+    double ids() {
+        BloomFilter current = filter;
+        return current != null ? current.added() : 0;
+    }
+
+    double staleIds() {
+        return staleIds.get();
+    }
+}
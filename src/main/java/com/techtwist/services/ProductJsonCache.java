@@ -0,0 +1,197 @@
+package com.techtwist.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.techtwist.dto.ProductResponseDTO;
+import com.techtwist.dto.ProductSummaryDTO;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Products and product summaries kept as the UTF-8 JSON the controller sends, so unchanged
+ * products are not mapped and serialized again for every GET /api/products/{id} and /summaries
+ *
+ * A product's JSON is kept with the version it was serialized at and reused only while the
+ * product is still at that version, which every write bumps; with gzip on, products of at least
+ * GZIP_MIN_BYTES also keep a compressed copy for clients that accept it. Summaries are read from
+ * an index that holds no version, so a summary's JSON is reused while the summary's fields are
+ * unchanged, and lists are sent as their summaries' JSON joined into an array. Deleted products
+ * are evicted by the controller; the rest is bounded by bytes held
+ * Only active when product.json-cache.enabled is true (local and mongodb profiles)
+ */
+@Component
+@Profile("!mongodb-reactive")
+@ConditionalOnProperty(name = "product.json-cache.enabled", havingValue = "true")
+public class ProductJsonCache {
+
+    // Smallest product JSON worth a gzip copy; below it the compressed form saves next to nothing
+    static final int GZIP_MIN_BYTES = 1024;
+    // Rough per-entry overhead counted against the bound besides the bytes
+    private static final int ENTRY_OVERHEAD = 96;
+
+    /**
+     * A product's JSON, with its gzip form if kept (otherwise null)
+     * version is null for products written before versioning, which are serialized for every request
+     */
+    public record Json(Long version, byte[] json, byte[] gzip) {
+    }
+
+    private record Key(String id, boolean summary) {
+    }
+
+    private record Summary(ProductSummaryDTO source, byte[] json) {
+    }
+
+    private final ObjectWriter productWriter;
+    private final ObjectWriter summaryWriter;
+    private final boolean gzip;
+    private final Cache<Key, Object> cache;
+
+    @Autowired
+    public ProductJsonCache(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                            @Value("${product.json-cache.maximum-size:64MB}") DataSize maximumSize,
+                            @Value("${product.json-cache.gzip:false}") boolean gzip) {
+        if (maximumSize.toBytes() < 1) {
+            throw new IllegalArgumentException("product.json-cache.maximum-size must be positive");
+        }
+        this.productWriter = objectMapper.writerFor(ProductResponseDTO.class);
+        this.summaryWriter = objectMapper.writerFor(ProductSummaryDTO.class);
+        this.gzip = gzip;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumSize.toBytes())
+                .weigher((Key key, Object value) -> ENTRY_OVERHEAD + key.id().length() + bytes(value))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "product-json");
+    }
+
+    /**
+     * The product's JSON at whatever version it is held, or null if none is held
+     */
+    public Json held(String id) {
+        return (Json) cache.getIfPresent(new Key(id, false));
+    }
+
+    /**
+     * The product's JSON if it is held at this version, otherwise null
+     */
+    public Json product(String id, long version) {
+        Json json = (Json) cache.getIfPresent(new Key(id, false));
+        return json != null && json.version() != null && json.version() == version ? json : null;
+    }
+
+    /**
+     * Serialize a product just read and keep its JSON for its version
+     */
+    public Json serialize(ProductResponseDTO product) {
+        byte[] json = write(productWriter, product);
+        Json serialized = new Json(product.getVersion(), json,
+                gzip && json.length >= GZIP_MIN_BYTES ? gzip(json) : null);
+        if (product.getId() != null && product.getVersion() != null) {
+            cache.asMap().merge(new Key(product.getId(), false), serialized, (held, fresh) ->
+                    ((Json) held).version() > ((Json) fresh).version() ? held : fresh);
+        }
+        return serialized;
+    }
+
+    /**
+     * The summaries as a JSON array, reusing the JSON of each summary seen before unchanged
+     */
+    public byte[] summaries(List<ProductSummaryDTO> summaries) {
+        byte[][] parts = new byte[summaries.size()][];
+        int length = 2 + Math.max(0, summaries.size() - 1);
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = summary(summaries.get(i));
+            length += parts[i].length;
+        }
+        byte[] array = new byte[length];
+        int at = 0;
+        array[at++] = '[';
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                array[at++] = ',';
+            }
+            System.arraycopy(parts[i], 0, array, at, parts[i].length);
+            at += parts[i].length;
+        }
+        array[at] = ']';
+        return array;
+    }
+
+    /**
+     * Drop everything held for a deleted product
+     */
+    public void evict(String id) {
+        cache.invalidate(new Key(id, false));
+        cache.invalidate(new Key(id, true));
+    }
+
+    private byte[] summary(ProductSummaryDTO summary) {
+        if (summary.getId() == null) {
+            return write(summaryWriter, summary);
+        }
+        Key key = new Key(summary.getId(), true);
+        Summary held = (Summary) cache.getIfPresent(key);
+        if (held != null && sameFields(held.source(), summary)) {
+            return held.json();
+        }
+        byte[] json = write(summaryWriter, summary);
+        cache.put(key, new Summary(summary, json));
+        return json;
+    }
+
+    // Every field the summary's JSON is written from; prices compare with their scale, as they are written
+    private static boolean sameFields(ProductSummaryDTO a, ProductSummaryDTO b) {
+        return a == b || (Objects.equals(a.getName(), b.getName())
+                && Objects.equals(a.getBrand(), b.getBrand())
+                && Objects.equals(a.getPrice(), b.getPrice())
+                && Objects.equals(a.getImageUrl(), b.getImageUrl())
+                && Objects.equals(a.getCategory(), b.getCategory())
+                && Objects.equals(a.getCategoryName(), b.getCategoryName())
+                && Objects.equals(a.getStockQuantity(), b.getStockQuantity())
+                && Objects.equals(a.getFeatured(), b.getFeatured())
+                && Objects.equals(a.getStatus(), b.getStatus()));
+    }
+
+    private static byte[] write(ObjectWriter writer, Object value) {
+        try {
+            return writer.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize " + value, e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4 + 32);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static int bytes(Object value) {
+        if (value instanceof Json json) {
+            return json.json().length + (json.gzip() != null ? json.gzip().length : 0);
+        }
+        return ((Summary) value).json().length;
+    }
+}
@@ -0,0 +1,394 @@
+package com.techtwist.services;
+
+import com.techtwist.dto.*;
+import com.techtwist.exceptions.InsufficientStockException;
+import com.techtwist.exceptions.ProductNotFoundException;
+import com.techtwist.exceptions.VersionConflictException;
+import com.techtwist.mapper.ProductMapper;
+import com.techtwist.models.Product;
+import com.techtwist.repository.ReactiveProductRepository;
+import com.techtwist.services.interfaces.IReactiveProductService;
+import com.techtwist.services.support.BulkUpserts;
+import com.techtwist.services.support.KeysetPaging;
+import com.techtwist.services.support.MongoProductQueries;
+import com.techtwist.services.support.StockAdjustments;
+import com.techtwist.services.support.Suggestions;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Reactive MongoDB implementation of IReactiveProductService
+ * Issues the same queries and atomic updates as MongoProductService through the reactive driver
+ * Active only when 'mongodb-reactive' profile is enabled
+ */
+@Service
+@Profile("mongodb-reactive")
+public class ReactiveMongoProductService implements IReactiveProductService {
+
+    private static final String ACTIVE_STATUS = MongoProductQueries.ACTIVE_STATUS;
+    private static final int STREAM_BATCH_SIZE = 500;
+
+    private final ReactiveProductRepository productRepository;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ProductMapper productMapper;
+
+    @Autowired
+    public ReactiveMongoProductService(ReactiveProductRepository productRepository,
+                                       ReactiveMongoTemplate mongoTemplate, ProductMapper productMapper) {
+        this.productRepository = productRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.productMapper = productMapper;
+    }
+
+    @Override
+    public Mono<ProductResponseDTO> create(ProductCreateDTO createDTO) {
+        return Mono.fromSupplier(() -> productMapper.toEntity(createDTO))
+                .flatMap(productRepository::save)
+                .map(productMapper::toResponseDTO);
+    }
+
+    @Override
+    public Mono<ProductResponseDTO> findById(String id) {
+        return productRepository.findById(id)
+                .map(productMapper::toResponseDTO);
+    }
+
+    @Override
+    public Mono<ProductResponseDTO> findByName(String name) {
+        return productRepository.findByNameAndStatus(name, ACTIVE_STATUS)
+                .next()
+                .map(productMapper::toResponseDTO);
+    }
+
+    @Override
+    public Flux<ProductResponseDTO> findAll() {
+        return productRepository.findAll()
+                .map(productMapper::toResponseDTO);
+    }
+
+    @Override
+    public Flux<ProductSummaryDTO> findAllSummary() {
+        return productRepository.findSummariesByStatus(ACTIVE_STATUS)
+                .map(productMapper::toSummaryDTO);
+    }
+
+    @Override
+    public Flux<ProductResponseDTO> findByCategory(String category) {
+        return productRepository.findByCategoryAndStatus(category, ACTIVE_STATUS)
+                .map(productMapper::toResponseDTO);
+    }
+
+    @Override
+    public Flux<ProductResponseDTO> findByBrand(String brand) {
+        return productRepository.findByBrandAndStatus(brand, ACTIVE_STATUS)
+                .map(productMapper::toResponseDTO);
+    }
+
+    @Override
+    public Flux<ProductResponseDTO> findByProductArea(String productArea) {
+        return productRepository.findByProductAreaAndStatus(productArea, ACTIVE_STATUS)
+                .map(productMapper::toResponseDTO);
+    }
+
+    @Override
+    public Flux<ProductResponseDTO> findFeaturedProducts() {
+        return productRepository.findByFeaturedTrueAndStatus(ACTIVE_STATUS)
+                .map(productMapper::toResponseDTO);
+    }
+
+    @Override
+    public Mono<CursorPageDTO<ProductResponseDTO>> findAll(int limit, String after) {
+        return keysetPage(() -> MongoProductQueries.keysetQuery(MongoProductQueries.active(), limit, after),
+                limit, productMapper::toResponseDTO);
+    }
+
+    @Override
+    public Mono<CursorPageDTO<ProductSummaryDTO>> findAllSummary(int limit, String after) {
+        return keysetPage(() -> MongoProductQueries.summaryKeysetQuery(limit, after),
+                limit, productMapper::toSummaryDTO);
+    }
+
+    @Override
+    public Mono<CursorPageDTO<ProductResponseDTO>> findByCategory(String category, int limit, String after) {
+        return keysetPage(() -> MongoProductQueries.keysetQuery(
+                MongoProductQueries.activeWith("category", category), limit, after), limit, productMapper::toResponseDTO);
+    }
+
+    @Override
+    public Mono<CursorPageDTO<ProductResponseDTO>> findByBrand(String brand, int limit, String after) {
+        return keysetPage(() -> MongoProductQueries.keysetQuery(
+                MongoProductQueries.activeWith("brand", brand), limit, after), limit, productMapper::toResponseDTO);
+    }
+
+    @Override
+    public Mono<CursorPageDTO<ProductResponseDTO>> findByProductArea(String productArea, int limit, String after) {
+        return keysetPage(() -> MongoProductQueries.keysetQuery(
+                MongoProductQueries.activeWith("productArea", productArea), limit, after),
+                limit, productMapper::toResponseDTO);
+    }
+
+    @Override
+    public Mono<CursorPageDTO<ProductResponseDTO>> findFeaturedProducts(int limit, String after) {
+        return keysetPage(() -> MongoProductQueries.keysetQuery(
+                MongoProductQueries.activeWith("featured", true), limit, after), limit, productMapper::toResponseDTO);
+    }
+
+    @Override
+    public Mono<CursorPageDTO<ProductResponseDTO>> findWithFilters(ProductFilterDTO filter, int limit, String after) {
+        return keysetPage(() -> MongoProductQueries.filterQuery(filter, limit, after),
+                limit, productMapper::toResponseDTO);
+    }
+
+    @Override
+    public Mono<CursorPageDTO<ProductResponseDTO>> findByPriceRange(BigDecimal minPrice, BigDecimal maxPrice,
+                                                                    boolean descending, int limit, String after) {
+        return keysetPage(() -> MongoProductQueries.priceRangeQuery(minPrice, maxPrice, descending, limit, after),
+                limit, MongoProductQueries::priceCursorOf, productMapper::toResponseDTO);
+    }
+
+    /**
+     * Compute every facet in a single $facet aggregation over the filtered products
+     */
+    @Override
+    public Mono<ProductFacetsDTO> findFacets(ProductFilterDTO filter) {
+        return mongoTemplate.aggregate(MongoProductQueries.facetAggregation(filter), Product.class, Document.class)
+                .next()
+                .map(MongoProductQueries::toFacets)
+                .defaultIfEmpty(new ProductFacetsDTO());
+    }
+
+    @Override
+    public Flux<ProductResponseDTO> search(String query, int page, int size) {
+        return mongoTemplate.find(MongoProductQueries.searchQuery(query, page, size), Product.class)
+                .map(productMapper::toResponseDTO);
+    }
+
+    /**
+     * One aggregation per field over the lower-cased key indexes, run together and merged by rank
+     */
+    @Override
+    public Mono<List<SuggestionDTO>> autocomplete(String prefix, int size) {
+        return Flux.merge(
+                        suggestions(MongoProductQueries.suggestionAggregation("nameKey", "name", prefix, size), SuggestionDTO.NAME),
+                        suggestions(MongoProductQueries.suggestionAggregation("brandKey", "brand", prefix, size), SuggestionDTO.BRAND),
+                        suggestions(MongoProductQueries.tagSuggestionAggregation(prefix, size), SuggestionDTO.TAG))
+                .collectList()
+                .map(suggestions -> Suggestions.top(suggestions.stream(), size));
+    }
+
+    private Flux<SuggestionDTO> suggestions(Aggregation aggregation, String field) {
+        return mongoTemplate.aggregate(aggregation, Product.class, Document.class)
+                .map(result -> MongoProductQueries.toSuggestion(result, field));
+    }
+
+    /**
+     * Batches are only fetched from the server cursor as the subscriber requests more
+     */
+    @Override
+    public Flux<ProductResponseDTO> streamAll() {
+        Query query = new Query(MongoProductQueries.active()).cursorBatchSize(STREAM_BATCH_SIZE);
+        return mongoTemplate.find(query, Product.class)
+                .map(productMapper::toResponseDTO);
+    }
+
+    /**
+     * Upsert a batch on SKU with a single unordered bulk write, reporting per-item errors in the result
+     */
+    @Override
+    public Mono<BulkResultDTO> bulkUpsert(List<ProductCreateDTO> products) {
+        return Mono.defer(() -> {
+            Map<String, Integer> lastIndexBySku = BulkUpserts.lastIndexBySku(products);
+            BulkItemResultDTO[] items = new BulkItemResultDTO[products.size()];
+            List<Integer> operationItems = new ArrayList<>(); // bulk operation index -> item index
+
+            ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+            for (int i = 0; i < products.size(); i++) {
+                ProductCreateDTO dto = products.get(i);
+                items[i] = BulkUpserts.reject(i, dto, lastIndexBySku);
+                if (items[i] == null) {
+                    bulk.upsert(MongoProductQueries.bySku(dto.getSku()),
+                            MongoProductQueries.upsertUpdate(productMapper.toEntity(dto), mongoTemplate.getConverter()));
+                    operationItems.add(i);
+                }
+            }
+            if (operationItems.isEmpty()) {
+                return Mono.just(new BulkResultDTO(new ArrayList<>(Arrays.asList(items))));
+            }
+
+            return bulk.execute()
+                    .map(result -> Tuples.of(result, Collections.<BulkWriteError>emptyList()))
+                    .onErrorResume(e -> bulkWriteFailure(e) != null, e -> {
+                        MongoBulkWriteException failure = bulkWriteFailure(e);
+                        return Mono.just(Tuples.of(failure.getWriteResult(), failure.getWriteErrors()));
+                    })
+                    .flatMap(outcome -> recordOutcome(items, operationItems, products, outcome));
+        });
+    }
+
+    private Mono<BulkResultDTO> recordOutcome(BulkItemResultDTO[] items, List<Integer> operationItems,
+                                              List<ProductCreateDTO> products,
+                                              Tuple2<BulkWriteResult, List<BulkWriteError>> outcome) {
+        List<String> matchedSkus = MongoProductQueries.recordBulkResult(items, operationItems, products,
+                outcome.getT1(), outcome.getT2());
+        Mono<Void> matched = matchedSkus.isEmpty()
+                ? Mono.empty()
+                : mongoTemplate.find(MongoProductQueries.idsBySkus(matchedSkus), Product.class)
+                        .collectList()
+                        .doOnNext(found -> MongoProductQueries.recordMatched(items, operationItems, products, found))
+                        .then();
+        return matched.then(Mono.fromSupplier(() -> new BulkResultDTO(new ArrayList<>(Arrays.asList(items)))));
+    }
+
+    /**
+     * The exception translator may report a bulk write as DuplicateKeyException, so look for the
+     * driver exception (which holds the per-item errors) anywhere in the cause chain
+     */
+    private static MongoBulkWriteException bulkWriteFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoBulkWriteException) {
+                return (MongoBulkWriteException) cause;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * PUT already only applies the non-null fields, so it shares the atomic $set path with PATCH
+     */
+    @Override
+    public Mono<ProductResponseDTO> update(String id, ProductUpdateDTO updateDTO) {
+        return patch(id, updateDTO);
+    }
+
+    @Override
+    public Mono<ProductResponseDTO> update(String id, ProductUpdateDTO updateDTO, long expectedVersion) {
+        return patch(id, updateDTO, expectedVersion);
+    }
+
+    @Override
+    public Mono<ProductResponseDTO> patch(String id, ProductUpdateDTO updateDTO) {
+        return mongoTemplate.findAndModify(MongoProductQueries.byId(id),
+                        MongoProductQueries.setNonNullFields(updateDTO), MongoProductQueries.returnNew(), Product.class)
+                .map(productMapper::toResponseDTO);
+    }
+
+    /**
+     * Compare-and-set patch: a stale version matches nothing, which is reported as a conflict
+     */
+    @Override
+    public Mono<ProductResponseDTO> patch(String id, ProductUpdateDTO updateDTO, long expectedVersion) {
+        return mongoTemplate.findAndModify(MongoProductQueries.byIdAtVersion(id, expectedVersion),
+                        MongoProductQueries.setNonNullFields(updateDTO), MongoProductQueries.returnNew(), Product.class)
+                .switchIfEmpty(Mono.error(() -> new VersionConflictException(id, expectedVersion)))
+                .map(productMapper::toResponseDTO);
+    }
+
+    @Override
+    public Mono<ProductResponseDTO> decrementStock(String id, int quantity) {
+        return Mono.fromRunnable(() -> StockAdjustments.requirePositive(quantity))
+                .then(adjustStock(id, -quantity))
+                .map(productMapper::toResponseDTO);
+    }
+
+    @Override
+    public Mono<ProductResponseDTO> incrementStock(String id, int quantity) {
+        return Mono.fromRunnable(() -> StockAdjustments.requirePositive(quantity))
+                .then(adjustStock(id, quantity))
+                .map(productMapper::toResponseDTO);
+    }
+
+    @Override
+    public Mono<List<ProductResponseDTO>> decrementStock(List<StockAdjustmentDTO> lines) {
+        return adjustAll(lines, -1);
+    }
+
+    @Override
+    public Mono<List<ProductResponseDTO>> incrementStock(List<StockAdjustmentDTO> lines) {
+        return adjustAll(lines, 1);
+    }
+
+    /**
+     * Apply the lines one after another; if one fails, the lines already applied are reversed
+     * in the opposite order before the error is propagated (see StockAdjustments)
+     */
+    private Mono<List<ProductResponseDTO>> adjustAll(List<StockAdjustmentDTO> lines, int sign) {
+        return Mono.defer(() -> {
+            lines.forEach(line -> StockAdjustments.requirePositive(line.getQuantity()));
+            List<StockAdjustmentDTO> applied = new ArrayList<>(lines.size());
+            return Flux.fromIterable(lines)
+                    .concatMap(line -> adjustStock(line.getProductId(), sign * line.getQuantity())
+                            .switchIfEmpty(Mono.error(() -> new ProductNotFoundException(line.getProductId())))
+                            .doOnNext(product -> applied.add(line)))
+                    .map(productMapper::toResponseDTO)
+                    .collectList()
+                    .onErrorResume(e -> {
+                        List<StockAdjustmentDTO> reversal = new ArrayList<>(applied);
+                        Collections.reverse(reversal);
+                        return Flux.fromIterable(reversal)
+                                .concatMap(line -> adjustStock(line.getProductId(), -sign * line.getQuantity()))
+                                .then(Mono.error(e));
+                    });
+        });
+    }
+
+    /**
+     * One conditional findAndModify $inc; only a failed decrement costs a second round trip
+     * to tell a missing product (empty) from short stock (InsufficientStockException)
+     */
+    private Mono<Product> adjustStock(String id, int delta) {
+        return mongoTemplate.findAndModify(MongoProductQueries.stockQuery(id, delta),
+                        MongoProductQueries.stockUpdate(delta), MongoProductQueries.returnNew(), Product.class)
+                .switchIfEmpty(Mono.defer(() -> delta < 0
+                        ? mongoTemplate.exists(MongoProductQueries.byId(id), Product.class)
+                                .flatMap(exists -> exists
+                                        ? Mono.<Product>error(new InsufficientStockException(id, -delta))
+                                        : Mono.<Product>empty())
+                        : Mono.<Product>empty()));
+    }
+
+    @Override
+    public Mono<Void> delete(String id) {
+        return productRepository.deleteById(id);
+    }
+
+    /**
+     * Fetch one keyset page; the query is built on subscription so a malformed cursor
+     * is signalled as an IllegalArgumentException error rather than thrown
+     */
+    private <T> Mono<CursorPageDTO<T>> keysetPage(Supplier<Query> query, int limit, Function<Product, T> mapper) {
+        return keysetPage(query, limit, MongoProductQueries::cursorOf, mapper);
+    }
+
+    private <T> Mono<CursorPageDTO<T>> keysetPage(Supplier<Query> query, int limit, Function<Product, String> cursorOf,
+                                                  Function<Product, T> mapper) {
+        return Mono.fromSupplier(query)
+                .flatMap(q -> mongoTemplate.find(q, Product.class).collectList())
+                .map(rows -> KeysetPaging.toPage(rows, limit, cursorOf, mapper));
+    }
+}
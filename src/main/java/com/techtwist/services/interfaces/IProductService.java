@@ -1,13 +1,21 @@
 package com.techtwist.services.interfaces;
 
+import com.techtwist.dto.BulkResultDTO;
+import com.techtwist.dto.CursorPageDTO;
 import com.techtwist.dto.ProductDTO;
+import com.techtwist.dto.ProductFacetsDTO;
+import com.techtwist.dto.ProductFilterDTO;
 import com.techtwist.dto.ProductCreateDTO;
 import com.techtwist.dto.ProductUpdateDTO;
 import com.techtwist.dto.ProductResponseDTO;
 import com.techtwist.dto.ProductSummaryDTO;
+import com.techtwist.dto.StockAdjustmentDTO;
+import com.techtwist.dto.SuggestionDTO;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Service interface for product operations using DTOs
@@ -19,6 +27,9 @@ public interface IProductService {
     
     // Read operations
     Optional<ProductResponseDTO> findById(String id);
+    // Version of the product findById would return, without building its DTO (0 if written before
+    // versioning); empty if findById would return none
+    Optional<Long> findVersion(String id);
     ProductResponseDTO findByName(String name);
     List<ProductResponseDTO> findAll();
     List<ProductSummaryDTO> findAllSummary(); // New method for performance
@@ -26,10 +37,56 @@ public interface IProductService {
     List<ProductResponseDTO> findByBrand(String brand);
     List<ProductResponseDTO> findByProductArea(String productArea);
     List<ProductResponseDTO> findFeaturedProducts();
+
+    // Keyset paginated read operations (ordered by id, after is an opaque cursor or null)
+    CursorPageDTO<ProductResponseDTO> findAll(int limit, String after);
+    CursorPageDTO<ProductSummaryDTO> findAllSummary(int limit, String after);
+    CursorPageDTO<ProductResponseDTO> findByCategory(String category, int limit, String after);
+    CursorPageDTO<ProductResponseDTO> findByBrand(String brand, int limit, String after);
+    CursorPageDTO<ProductResponseDTO> findByProductArea(String productArea, int limit, String after);
+    CursorPageDTO<ProductResponseDTO> findFeaturedProducts(int limit, String after);
+
+    // Combined filter (only the supplied filters are applied; keyset paginated like the list operations)
+    CursorPageDTO<ProductResponseDTO> findWithFilters(ProductFilterDTO filter, int limit, String after);
+
+    // Price range (either bound may be null), ordered by price then id, cheapest first unless descending;
+    // keyset paginated with a cursor over (price, id), so with no bounds the first page is the top-N cheapest
+    CursorPageDTO<ProductResponseDTO> findByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, boolean descending,
+                                                       int limit, String after);
+
+    // Facet counts for the products matching a filter
+    ProductFacetsDTO findFacets(ProductFilterDTO filter);
+
+    // Full-text search (ranked by relevance, page is zero-based)
+    List<ProductResponseDTO> search(String query, int page, int size);
+
+    // Autocomplete: names, brands and tags of active products starting with prefix, ignoring case;
+    // featured first, then by how many products share the text (size is at most Suggestions.MAX_SIZE)
+    List<SuggestionDTO> autocomplete(String prefix, int size);
+
+    // Streaming read operations (lazy; the caller must close the stream to release the cursor)
+    Stream<ProductResponseDTO> streamAll();
     
+    // Bulk operations (upsert on SKU; result item indexes are positions in the supplied list)
+    BulkResultDTO bulkUpsert(List<ProductCreateDTO> products);
+
     // Update operations
     ProductResponseDTO update(String id, ProductUpdateDTO productUpdateDTO);
+    ProductResponseDTO patch(String id, ProductUpdateDTO productUpdateDTO); // atomic; only non-null fields are written
+
+    // Conditional updates (optimistic concurrency): applied in one write only if the product is still at
+    // expectedVersion, otherwise VersionConflictException is thrown (also when the product does not exist)
+    ProductResponseDTO update(String id, ProductUpdateDTO productUpdateDTO, long expectedVersion);
+    ProductResponseDTO patch(String id, ProductUpdateDTO productUpdateDTO, long expectedVersion);
     
+    // Stock operations (atomic; a decrement only applies if enough stock is available, otherwise
+    // InsufficientStockException is thrown; single-product variants return null if the product does not exist)
+    ProductResponseDTO decrementStock(String id, int quantity);
+    ProductResponseDTO incrementStock(String id, int quantity);
+    // Batch variants apply every line or none (ProductNotFoundException for an unknown product)
+    List<ProductResponseDTO> decrementStock(List<StockAdjustmentDTO> lines);
+    List<ProductResponseDTO> incrementStock(List<StockAdjustmentDTO> lines);
+
     // Delete operations
     void delete(String id);
     
@@ -0,0 +1,88 @@
+package com.techtwist.services.interfaces;
+
+import com.techtwist.dto.BulkResultDTO;
+import com.techtwist.dto.CursorPageDTO;
+import com.techtwist.dto.ProductCreateDTO;
+import com.techtwist.dto.ProductFacetsDTO;
+import com.techtwist.dto.ProductFilterDTO;
+import com.techtwist.dto.ProductResponseDTO;
+import com.techtwist.dto.ProductSummaryDTO;
+import com.techtwist.dto.ProductUpdateDTO;
+import com.techtwist.dto.StockAdjustmentDTO;
+import com.techtwist.dto.SuggestionDTO;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Non-blocking counterpart of IProductService with the same semantics
+ * A Mono that completes empty stands for the null/empty results of IProductService
+ * and errors carry the same exceptions
+ */
+public interface IReactiveProductService {
+
+    // Create operations
+    Mono<ProductResponseDTO> create(ProductCreateDTO productCreateDTO);
+
+    // Read operations
+    Mono<ProductResponseDTO> findById(String id);
+    Mono<ProductResponseDTO> findByName(String name);
+
+    // Unpaged list operations, emitted as they are read from the cursor (demand-driven)
+    Flux<ProductResponseDTO> findAll();
+    Flux<ProductSummaryDTO> findAllSummary();
+    Flux<ProductResponseDTO> findByCategory(String category);
+    Flux<ProductResponseDTO> findByBrand(String brand);
+    Flux<ProductResponseDTO> findByProductArea(String productArea);
+    Flux<ProductResponseDTO> findFeaturedProducts();
+
+    // Keyset paginated read operations (ordered by id, after is an opaque cursor or null)
+    Mono<CursorPageDTO<ProductResponseDTO>> findAll(int limit, String after);
+    Mono<CursorPageDTO<ProductSummaryDTO>> findAllSummary(int limit, String after);
+    Mono<CursorPageDTO<ProductResponseDTO>> findByCategory(String category, int limit, String after);
+    Mono<CursorPageDTO<ProductResponseDTO>> findByBrand(String brand, int limit, String after);
+    Mono<CursorPageDTO<ProductResponseDTO>> findByProductArea(String productArea, int limit, String after);
+    Mono<CursorPageDTO<ProductResponseDTO>> findFeaturedProducts(int limit, String after);
+
+    // Price range, ordered by price then id (cheapest first unless descending)
+    Mono<CursorPageDTO<ProductResponseDTO>> findByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, boolean descending,
+                                                             int limit, String after);
+
+    // Combined filter and facet counts
+    Mono<CursorPageDTO<ProductResponseDTO>> findWithFilters(ProductFilterDTO filter, int limit, String after);
+    Mono<ProductFacetsDTO> findFacets(ProductFilterDTO filter);
+
+    // Full-text search (ranked by relevance, page is zero-based)
+    Flux<ProductResponseDTO> search(String query, int page, int size);
+
+    // Autocomplete: names, brands and tags of active products starting with prefix, ignoring case;
+    // featured first, then by how many products share the text (size is at most Suggestions.MAX_SIZE)
+    Mono<List<SuggestionDTO>> autocomplete(String prefix, int size);
+
+    // Every active product, read from the cursor on demand; the cursor is closed if the subscriber cancels
+    Flux<ProductResponseDTO> streamAll();
+
+    // Bulk operations (upsert on SKU; result item indexes are positions in the supplied list)
+    Mono<BulkResultDTO> bulkUpsert(List<ProductCreateDTO> products);
+
+    // Update operations (empty if the product does not exist)
+    Mono<ProductResponseDTO> update(String id, ProductUpdateDTO productUpdateDTO);
+    Mono<ProductResponseDTO> patch(String id, ProductUpdateDTO productUpdateDTO);
+
+    // Conditional updates (error with VersionConflictException if the product is not at expectedVersion)
+    Mono<ProductResponseDTO> update(String id, ProductUpdateDTO productUpdateDTO, long expectedVersion);
+    Mono<ProductResponseDTO> patch(String id, ProductUpdateDTO productUpdateDTO, long expectedVersion);
+
+    // Stock operations (atomic; single-product variants are empty if the product does not exist)
+    Mono<ProductResponseDTO> decrementStock(String id, int quantity);
+    Mono<ProductResponseDTO> incrementStock(String id, int quantity);
+    // Batch variants apply every line or none (ProductNotFoundException for an unknown product)
+    Mono<List<ProductResponseDTO>> decrementStock(List<StockAdjustmentDTO> lines);
+    Mono<List<ProductResponseDTO>> incrementStock(List<StockAdjustmentDTO> lines);
+
+    // Delete operations
+    Mono<Void> delete(String id);
+}
@@ -0,0 +1,114 @@
+package com.techtwist.services.support;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filter over strings: a set that can say a key was definitely never added, or that it
+ * probably was
+ *
+ * Each key sets hashes bits of a bit array, chosen by double hashing two 64-bit hashes of it, and
+ * a key is reported as possibly present only if all of its bits are set. The array is sized for
+ * an expected number of keys and false positive rate; adding more keys than that raises the rate,
+ * which expectedFpp tracks from the bits actually set. Keys cannot be removed, as their bits may
+ * be shared with other keys. Adds and lookups take no lock and may run concurrently: a lookup
+ * racing an add of the same key may miss it, but sees it once the add has returned
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+    private final LongAdder added = new LongAdder();
+
+    /**
+     * @param expectedKeys Number of keys the filter is sized for
+     * @param fpp False positive rate wanted at that many keys, between 0 and 1
+     */
+    public BloomFilter(long expectedKeys, double fpp) {
+        if (expectedKeys < 1) {
+            throw new IllegalArgumentException("expectedKeys must be positive");
+        }
+        if (!(fpp > 0 && fpp < 1)) {
+            throw new IllegalArgumentException("fpp must be between 0 and 1");
+        }
+        // Optimal size and hash count for n keys at rate p: m = -n ln p / (ln 2)^2, k = m / n ln 2
+        long wanted = (long) Math.ceil(-expectedKeys * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (wanted + 63) / 64));
+        this.words = new AtomicLongArray(wordCount);
+        this.bits = wordCount * 64L;
+        this.hashes = Math.max(1, (int) Math.round((double) bits / expectedKeys * Math.log(2)));
+    }
+
+    public void put(String key) {
+        long h1 = hash(key, 0x9E3779B97F4A7C15L);
+        long h2 = hash(key, 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+        }
+        added.increment();
+    }
+
+    /**
+     * False only if key was never added
+     */
+    public boolean mightContain(String key) {
+        long h1 = hash(key, 0x9E3779B97F4A7C15L);
+        long h2 = hash(key, 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Chance that a key never added is reported as possibly present, from the share of bits set
+     * Reads the whole bit array, so it is meant for metrics rather than every lookup
+     */
+    public double expectedFpp() {
+        long set = 0;
+        for (int i = 0; i < words.length(); i++) {
+            set += Long.bitCount(words.get(i));
+        }
+        return Math.pow((double) set / bits, hashes);
+    }
+
+    /**
+     * Number of puts, counting a key added twice twice
+     */
+    public long added() {
+        return added.sum();
+    }
+
+    public long memoryBytes() {
+        return words.length() * 8L;
+    }
+
+    public int hashCount() {
+        return hashes;
+    }
+
+    // 64-bit hash of the key's characters, finished with MurmurHash3's mixer so every bit depends on every input bit
+    private static long hash(String key, long seed) {
+        long h = seed ^ key.length();
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001B3L;
+            h = Long.rotateLeft(h, 29);
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
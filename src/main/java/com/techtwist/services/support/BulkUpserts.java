@@ -0,0 +1,55 @@
+package com.techtwist.services.support;
+
+import com.techtwist.dto.BulkItemResultDTO;
+import com.techtwist.dto.ProductCreateDTO;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Helpers shared by the product services for bulk upserts keyed on SKU
+ * Within one batch the last item for a SKU wins; earlier items for the same SKU are skipped
+ * so the result does not depend on the order in which an unordered bulk write is applied
+ */
+public final class BulkUpserts {
+
+    static final String MISSING_SKU = "SKU is required for bulk upsert";
+
+    private BulkUpserts() {
+    }
+
+    /**
+     * Index of the last item for each SKU in the batch
+     */
+    public static Map<String, Integer> lastIndexBySku(List<ProductCreateDTO> products) {
+        Map<String, Integer> lastIndex = new HashMap<>();
+        for (int i = 0; i < products.size(); i++) {
+            ProductCreateDTO dto = products.get(i);
+            if (dto != null && hasSku(dto)) {
+                lastIndex.put(dto.getSku(), i);
+            }
+        }
+        return lastIndex;
+    }
+
+    /**
+     * Result for an item that must not be written, or null if the item should be upserted
+     */
+    public static BulkItemResultDTO reject(int index, ProductCreateDTO dto, Map<String, Integer> lastIndexBySku) {
+        if (dto == null || !hasSku(dto)) {
+            return BulkItemResultDTO.failure(index, dto == null ? null : dto.getSku(),
+                    BulkItemResultDTO.Status.FAILED, MISSING_SKU);
+        }
+        int last = lastIndexBySku.get(dto.getSku());
+        if (last != index) {
+            return BulkItemResultDTO.failure(index, dto.getSku(),
+                    BulkItemResultDTO.Status.SKIPPED, "Superseded by item " + last + " with the same SKU");
+        }
+        return null;
+    }
+
+    private static boolean hasSku(ProductCreateDTO dto) {
+        return dto.getSku() != null && !dto.getSku().isBlank();
+    }
+}
@@ -0,0 +1,228 @@
+package com.techtwist.services.support;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * Reads a file of JSON records, either newline-delimited (one record per line) or a single JSON
+ * array, parsing chunks of it in parallel
+ *
+ * The file is memory-mapped and parsed by a fork-join task that splits its byte range in two at
+ * a record boundary until each part is at most a chunk, then streams the records of its chunk
+ * through the reader. Lines are record boundaries in newline-delimited files; in an array the
+ * boundaries are the commas between elements, found by one pass over the file that skips commas
+ * inside strings and nested values. Records come back in file order
+ */
+public final class CatalogFiles {
+
+    // Bytes parsed by one task
+    public static final int DEFAULT_CHUNK_BYTES = 1 << 20;
+
+    private CatalogFiles() {
+    }
+
+    /**
+     * @param reader Reads one record
+     * @param convert Applied to each record as it is parsed, in the parsing task
+     * @param chunkBytes Largest byte range parsed by one task
+     * @throws IOException If the file cannot be read or holds a malformed record, with its byte offset
+     */
+    public static <R, T> List<T> read(Path file, ObjectReader reader, Function<? super R, T> convert,
+                                      ForkJoinPool pool, int chunkBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(file + " is over 2 GB; split it into several files");
+            }
+            ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int first = skipWhitespace(bytes, 0);
+            Chunks chunks = first < bytes.limit() && bytes.get(first) == '['
+                    ? arrayChunks(bytes, first)
+                    : new Lines(bytes);
+            return pool.invoke(new Parse<>(bytes, chunks, reader, convert, chunkBytes,
+                    chunks.start(), chunks.end()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Where records start and end in the file
+     */
+    private interface Chunks {
+        int start();
+
+        int end();
+
+        // A record boundary in from..to near the middle, as the end of the left part and the
+        // start of the right one, or null if the range holds a single record
+        int[] split(int from, int to);
+
+        // Whether the records of a chunk must be wrapped in [ ] to be read one after the other
+        boolean array();
+    }
+
+    private record Lines(ByteBuffer bytes) implements Chunks {
+        @Override
+        public int start() {
+            return 0;
+        }
+
+        @Override
+        public int end() {
+            return bytes.limit();
+        }
+
+        @Override
+        public int[] split(int from, int to) {
+            int middle = from + (to - from) / 2;
+            for (int i = middle; i < to - 1; i++) {
+                if (bytes.get(i) == '\n') {
+                    return new int[]{i + 1, i + 1};
+                }
+            }
+            for (int i = middle - 1; i > from; i--) {
+                if (bytes.get(i) == '\n') {
+                    return new int[]{i + 1, i + 1};
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean array() {
+            return false;
+        }
+    }
+
+    private record Elements(int start, int end, int[] commas) implements Chunks {
+        @Override
+        public int[] split(int from, int to) {
+            int middle = from + (to - from) / 2;
+            int at = Arrays.binarySearch(commas, middle);
+            at = at >= 0 ? at : -at - 1;
+            // The comma nearest the middle that lies inside the range, if any
+            for (int i : new int[]{at, at - 1}) {
+                if (i >= 0 && i < commas.length && commas[i] > from && commas[i] < to) {
+                    return new int[]{commas[i], commas[i] + 1};
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean array() {
+            return true;
+        }
+    }
+
+    // One pass over an array: the commas between its elements and where it closes
+    private static Elements arrayChunks(ByteBuffer bytes, int open) throws IOException {
+        int[] commas = new int[1024];
+        int count = 0;
+        int depth = 0;
+        boolean inString = false;
+        for (int i = open; i < bytes.limit(); i++) {
+            byte b = bytes.get(i);
+            if (inString) {
+                if (b == '\\') {
+                    i++;
+                } else if (b == '"') {
+                    inString = false;
+                }
+            } else if (b == '"') {
+                inString = true;
+            } else if (b == '[' || b == '{') {
+                depth++;
+            } else if (b == ']' || b == '}') {
+                if (--depth == 0) {
+                    return new Elements(open + 1, i, Arrays.copyOf(commas, count));
+                }
+            } else if (b == ',' && depth == 1) {
+                if (count == commas.length) {
+                    commas = Arrays.copyOf(commas, count * 2);
+                }
+                commas[count++] = i;
+            }
+        }
+        throw new IOException("Unterminated JSON array starting at byte " + open);
+    }
+
+    private static int skipWhitespace(ByteBuffer bytes, int from) {
+        while (from < bytes.limit() && Character.isWhitespace(bytes.get(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static final class Parse<R, T> extends RecursiveTask<List<T>> {
+        private final ByteBuffer bytes;
+        private final Chunks chunks;
+        private final ObjectReader reader;
+        private final Function<? super R, T> convert;
+        private final int chunkBytes;
+        private final int from;
+        private final int to;
+
+        private Parse(ByteBuffer bytes, Chunks chunks, ObjectReader reader, Function<? super R, T> convert,
+                      int chunkBytes, int from, int to) {
+            this.bytes = bytes;
+            this.chunks = chunks;
+            this.reader = reader;
+            this.convert = convert;
+            this.chunkBytes = chunkBytes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<T> compute() {
+            int[] split = to - from > chunkBytes ? chunks.split(from, to) : null;
+            if (split == null) {
+                return parse();
+            }
+            Parse<R, T> right = new Parse<>(bytes, chunks, reader, convert, chunkBytes, split[1], to);
+            right.fork();
+            List<T> records = new Parse<R, T>(bytes, chunks, reader, convert, chunkBytes, from, split[0]).compute();
+            records.addAll(right.join());
+            return records;
+        }
+
+        private List<T> parse() {
+            int wrap = chunks.array() ? 1 : 0;
+            byte[] chunk = new byte[to - from + 2 * wrap];
+            bytes.get(from, chunk, wrap, to - from);
+            if (chunks.array()) {
+                chunk[0] = '[';
+                chunk[chunk.length - 1] = ']';
+            }
+            List<T> records = new ArrayList<>();
+            try (MappingIterator<R> values = reader.readValues(chunk)) {
+                while (values.hasNextValue()) {
+                    records.add(convert.apply(values.nextValue()));
+                }
+            } catch (JsonProcessingException e) {
+                long offset = from - wrap + Math.max(0, e.getLocation() != null ? e.getLocation().getByteOffset() : 0);
+                throw new UncheckedIOException(new IOException(
+                        "Malformed record at byte " + offset + ": " + e.getOriginalMessage(), e));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return records;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.techtwist.services.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Immutable map from id to value, in id order, that is changed by making a new version
+ *
+ * Entries are held in sorted chunks of at most a few hundred, found through a directory of the
+ * chunks' first ids. A new version copies only the directory and the chunks a batch of changes
+ * touches, sharing every other chunk with the version it came from, so a batch costs about
+ * (number of chunks + changed chunks x chunk size) instead of a copy of the whole map. Versions
+ * can be read from any number of threads without locks
+ */
+public final class ChunkedIdMap<V> {
+
+    private static final int CHUNK_SIZE = 256;
+    private static final ChunkedIdMap<?> EMPTY = new ChunkedIdMap<>(new String[0], new Chunk[0], 0);
+
+    private record Chunk(String[] ids, Object[] values) {
+    }
+
+    private final String[] firstIds;
+    private final Chunk[] chunks;
+    private final int size;
+
+    private ChunkedIdMap(String[] firstIds, Chunk[] chunks, int size) {
+        this.firstIds = firstIds;
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> ChunkedIdMap<V> empty() {
+        return (ChunkedIdMap<V>) EMPTY;
+    }
+
+    /**
+     * Build a map from entries already in id order
+     */
+    public static <V> ChunkedIdMap<V> of(NavigableMap<String, V> entries) {
+        List<Chunk> chunks = new ArrayList<>();
+        split(new ArrayList<>(entries.keySet()), new ArrayList<>(entries.values()), chunks);
+        return new ChunkedIdMap<>(firstIds(chunks), chunks.toArray(new Chunk[0]), entries.size());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(String id) {
+        int chunk = chunkOf(id);
+        if (chunk < 0) {
+            return null;
+        }
+        int at = Arrays.binarySearch(chunks[chunk].ids, id);
+        return at >= 0 ? (V) chunks[chunk].values[at] : null;
+    }
+
+    /**
+     * Values in id order, starting after the given id, or from the first id if it is null
+     */
+    @SuppressWarnings("unchecked")
+    public Stream<V> valuesAfter(String afterId) {
+        int firstChunk = 0;
+        int firstEntry = 0;
+        if (afterId != null && chunks.length > 0) {
+            firstChunk = Math.max(chunkOf(afterId), 0);
+            int at = Arrays.binarySearch(chunks[firstChunk].ids, afterId);
+            firstEntry = at >= 0 ? at + 1 : -at - 1;
+        }
+        int startEntry = firstEntry;
+        int startChunk = firstChunk;
+        return IntStream.range(startChunk, chunks.length)
+                .boxed()
+                .flatMap(c -> Arrays.stream(chunks[c].values, c == startChunk ? startEntry : 0, chunks[c].values.length))
+                .map(value -> (V) value);
+    }
+
+    /**
+     * A new version with the changes applied; this version is left as it was
+     * @param changes New values by id, in id order; a null value removes the id
+     */
+    public ChunkedIdMap<V> with(NavigableMap<String, V> changes) {
+        if (changes.isEmpty()) {
+            return this;
+        }
+        List<Chunk> result = new ArrayList<>(chunks.length + 1);
+        int newSize = size;
+        int next = 0;
+        var pending = changes.entrySet().iterator();
+        Map.Entry<String, V> change = pending.next();
+        for (int c = 0; c < Math.max(chunks.length, 1); c++) {
+            String upperBound = c + 1 < chunks.length ? firstIds[c + 1] : null;
+            if (change == null || (upperBound != null && change.getKey().compareTo(upperBound) >= 0)) {
+                // No change falls into this chunk: share it
+                result.add(chunks[c]);
+                continue;
+            }
+            Chunk chunk = chunks.length > 0 ? chunks[c] : new Chunk(new String[0], new Object[0]);
+            List<String> ids = new ArrayList<>(chunk.ids.length + 8);
+            List<Object> values = new ArrayList<>(chunk.ids.length + 8);
+            int i = 0;
+            while (change != null && (upperBound == null || change.getKey().compareTo(upperBound) < 0)) {
+                String id = change.getKey();
+                while (i < chunk.ids.length && chunk.ids[i].compareTo(id) < 0) {
+                    ids.add(chunk.ids[i]);
+                    values.add(chunk.values[i]);
+                    i++;
+                }
+                boolean present = i < chunk.ids.length && chunk.ids[i].equals(id);
+                if (present) {
+                    i++;
+                    newSize--;
+                }
+                if (change.getValue() != null) {
+                    ids.add(id);
+                    values.add(change.getValue());
+                    newSize++;
+                }
+                change = pending.hasNext() ? pending.next() : null;
+            }
+            while (i < chunk.ids.length) {
+                ids.add(chunk.ids[i]);
+                values.add(chunk.values[i]);
+                i++;
+            }
+            split(ids, values, result);
+        }
+        return new ChunkedIdMap<>(firstIds(result), result.toArray(new Chunk[0]), newSize);
+    }
+
+    // Index of the chunk whose range holds id, or -1 if there are no chunks
+    private int chunkOf(String id) {
+        if (chunks.length == 0) {
+            return -1;
+        }
+        int at = Arrays.binarySearch(firstIds, id);
+        return at >= 0 ? at : Math.max(-at - 2, 0);
+    }
+
+    // Cut sorted entries into chunks of at most CHUNK_SIZE; nothing is added for no entries
+    private static void split(List<String> ids, List<?> values, List<Chunk> into) {
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            int to = Math.min(from + CHUNK_SIZE, ids.size());
+            into.add(new Chunk(ids.subList(from, to).toArray(new String[0]), values.subList(from, to).toArray()));
+        }
+    }
+
+    private static String[] firstIds(List<Chunk> chunks) {
+        String[] firstIds = new String[chunks.size()];
+        for (int c = 0; c < firstIds.length; c++) {
+            firstIds[c] = chunks.get(c).ids[0];
+        }
+        return firstIds;
+    }
+}
@@ -0,0 +1,48 @@
+package com.techtwist.services.support;
+
+import java.util.Locale;
+
+/**
+ * How durable a write to the in-memory store must be before it is acknowledged
+ *
+ * SYNC waits until the change log is fsynced (group-committed with concurrent writers), so an
+ * acknowledged write survives a crash of the node. ASYNC returns once the change is handed to
+ * the OS, which survives a crash of the process; the log is fsynced in the background shortly after
+ *
+ * A request can ask for its own level, e.g. from a header; it applies to writes made on the
+ * requesting thread until cleared
+ */
+public enum Durability {
+    SYNC,
+    ASYNC;
+
+    private static final ThreadLocal<Durability> requested = new ThreadLocal<>();
+
+    /**
+     * Parse a level by name, ignoring case
+     * @throws IllegalArgumentException if the name is not a level
+     */
+    public static Durability parse(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Durability must be one of sync, async");
+        }
+    }
+
+    /**
+     * The level requested for the current thread, or fallback if none was
+     */
+    public static Durability requestedOr(Durability fallback) {
+        Durability level = requested.get();
+        return level != null ? level : fallback;
+    }
+
+    public static void request(Durability level) {
+        requested.set(level);
+    }
+
+    public static void clearRequest() {
+        requested.remove();
+    }
+}
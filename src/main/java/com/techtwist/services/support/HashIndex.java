@@ -0,0 +1,89 @@
+package com.techtwist.services.support;
+
+import java.util.Collections;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+
+/**
+ * Hash-based secondary index from a field value to the ids of the rows holding it
+ *
+ * Ids for one value are kept sorted, so a lookup can be read in id order and a keyset page
+ * can seek past its cursor with tailSet. Each value's entry is changed inside
+ * ConcurrentHashMap.compute, which keeps its id set and size in step; callers must still
+ * serialize updates for the same row id (the in-memory store does so under its stripe lock)
+ * Null values are not indexed
+ */
+public final class HashIndex<T> {
+
+    private final Function<T, String> valueOf;
+    private final ConcurrentHashMap<String, Postings> postings = new ConcurrentHashMap<>();
+
+    public HashIndex(Function<T, String> valueOf) {
+        this.valueOf = valueOf;
+    }
+
+    /**
+     * Move a row's id from the entry of its old value to the entry of its new value
+     * @param before The row as it was, or null if it is new
+     * @param after The row as it is now, or null if it was removed
+     */
+    public void update(String id, T before, T after) {
+        String oldValue = before != null ? valueOf.apply(before) : null;
+        String newValue = after != null ? valueOf.apply(after) : null;
+        if (Objects.equals(oldValue, newValue)) {
+            return;
+        }
+        if (oldValue != null) {
+            postings.computeIfPresent(oldValue, (value, entry) -> entry.remove(id) ? null : entry);
+        }
+        if (newValue != null) {
+            postings.compute(newValue, (value, entry) -> (entry != null ? entry : new Postings()).add(id));
+        }
+    }
+
+    /**
+     * The value a row is indexed under, or null if it is not indexed
+     */
+    public String valueOf(T row) {
+        return valueOf.apply(row);
+    }
+
+    /**
+     * Ids of the rows holding value, in id order; a live read-only view
+     */
+    public NavigableSet<String> ids(String value) {
+        Postings entry = value != null ? postings.get(value) : null;
+        return entry != null ? Collections.unmodifiableNavigableSet(entry.ids) : Collections.emptyNavigableSet();
+    }
+
+    /**
+     * Number of rows holding value, in constant time
+     */
+    public int count(String value) {
+        Postings entry = value != null ? postings.get(value) : null;
+        return entry != null ? entry.size : 0;
+    }
+
+    private static final class Postings {
+        private final NavigableSet<String> ids = new ConcurrentSkipListSet<>();
+        private volatile int size;
+
+        private Postings add(String id) {
+            if (ids.add(id)) {
+                size++;
+            }
+            return this;
+        }
+
+        // @return whether the entry is now empty and should be dropped
+        private boolean remove(String id) {
+            if (ids.remove(id)) {
+                size--;
+            }
+            return size == 0;
+        }
+    }
+}
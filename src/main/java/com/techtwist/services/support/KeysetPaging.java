@@ -0,0 +1,66 @@
+package com.techtwist.services.support;
+
+import com.techtwist.dto.CursorPageDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Helpers shared by the product services for keyset (cursor) pagination
+ * A cursor is the base64url encoding of the sort key(s) of the last row on a page
+ */
+public final class KeysetPaging {
+
+    private static final String KEY_SEPARATOR = "\n";
+
+    private KeysetPaging() {
+    }
+
+    /**
+     * Encode the sort key(s) of the last row of a page into an opaque cursor
+     */
+    public static String encodeCursor(String... keys) {
+        String raw = String.join(KEY_SEPARATOR, keys);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor produced by encodeCursor
+     * @throws IllegalArgumentException if the cursor is malformed or has the wrong number of keys
+     */
+    public static String[] decodeCursor(String cursor, int expectedKeys) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid pagination cursor", e);
+        }
+        String[] keys = raw.split(KEY_SEPARATOR, -1);
+        if (keys.length != expectedKeys || keys[0].isEmpty()) {
+            throw new IllegalArgumentException("Invalid pagination cursor");
+        }
+        return keys;
+    }
+
+    /**
+     * Decode a single-key (id) cursor, or return null when no cursor was supplied
+     */
+    public static String decodeIdCursor(String cursor) {
+        return cursor == null ? null : decodeCursor(cursor, 1)[0];
+    }
+
+    /**
+     * Build a page from rows fetched with limit + 1 so the extra row signals a following page
+     */
+    public static <E, T> CursorPageDTO<T> toPage(List<E> rows, int limit,
+                                                  Function<E, String> cursorFn, Function<E, T> mapper) {
+        boolean hasMore = rows.size() > limit;
+        List<E> pageRows = hasMore ? rows.subList(0, limit) : rows;
+        String nextCursor = hasMore ? cursorFn.apply(pageRows.get(pageRows.size() - 1)) : null;
+        List<T> items = pageRows.stream().map(mapper).collect(Collectors.toList());
+        return new CursorPageDTO<>(items, nextCursor, limit);
+    }
+}
@@ -0,0 +1,517 @@
+package com.techtwist.services.support;
+
+import com.techtwist.dto.BulkItemResultDTO;
+import com.techtwist.dto.ProductCreateDTO;
+import com.techtwist.dto.ProductFacetsDTO;
+import com.techtwist.dto.ProductFilterDTO;
+import com.techtwist.dto.ProductUpdateDTO;
+import com.techtwist.dto.SuggestionDTO;
+import com.techtwist.models.Product;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.StringOperators;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Queries and updates shared by the blocking and reactive Mongo product services
+ * so both backends hit the same indexes with the same filters
+ */
+public final class MongoProductQueries {
+
+    public static final String ACTIVE_STATUS = "ACTIVE";
+
+    // Products read per field for one autocomplete request
+    static final int SUGGESTION_CANDIDATES = 1000;
+
+    // Ids read per round trip when scanning the whole collection
+    private static final int ID_BATCH_SIZE = 10_000;
+
+    // Fields read by ProductSummaryDTO, all held in summary_covering_idx
+    private static final String[] SUMMARY_FIELDS = {"name", "brand", "price", "imageUrl", "category",
+            "categoryName", "stockQuantity", "featured", "status"};
+
+    private MongoProductQueries() {
+    }
+
+    public static Criteria active() {
+        return Criteria.where("status").is(ACTIVE_STATUS);
+    }
+
+    public static Criteria activeWith(String field, Object value) {
+        return Criteria.where(field).is(value).and("status").is(ACTIVE_STATUS);
+    }
+
+    public static Query byId(String id) {
+        return new Query(Criteria.where("id").is(id));
+    }
+
+    /**
+     * The product projected to its version, so only the _id index entry and one field are read back
+     */
+    public static Query versionOf(String id) {
+        Query query = byId(id);
+        query.fields().include("version");
+        return query;
+    }
+
+    /**
+     * Match the product only while it is still at the expected version (compare-and-set)
+     */
+    public static Query byIdAtVersion(String id, long expectedVersion) {
+        return new Query(Criteria.where("id").is(id).and("version").is(expectedVersion));
+    }
+
+    public static FindAndModifyOptions returnNew() {
+        return FindAndModifyOptions.options().returnNew(true);
+    }
+
+    /**
+     * One page ordered by _id, seeking past the cursor instead of skipping rows
+     * so every page costs an index range scan of limit + 1 entries
+     */
+    public static Query keysetQuery(Criteria criteria, int limit, String after) {
+        String afterId = KeysetPaging.decodeIdCursor(after);
+        if (afterId != null) {
+            criteria = new Criteria().andOperator(criteria, Criteria.where("id").gt(afterId));
+        }
+        return new Query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "id"))
+                .limit(limit + 1);
+    }
+
+    /**
+     * Keyset page of active products projected to the summary fields
+     */
+    public static Query summaryKeysetQuery(int limit, String after) {
+        Query query = keysetQuery(active(), limit, after);
+        query.fields().include(SUMMARY_FIELDS);
+        return query;
+    }
+
+    /**
+     * Every product projected to its id, read in large batches
+     * Hinted to the _id index so the scan is covered by it and never reads the documents
+     */
+    public static Query allIds() {
+        Query query = new Query().withHint("_id_").cursorBatchSize(ID_BATCH_SIZE);
+        query.fields().include("id");
+        return query;
+    }
+
+    public static String cursorOf(Product product) {
+        return KeysetPaging.encodeCursor(product.getId());
+    }
+
+    /**
+     * One page of active products in a price range ordered by (price, _id), seeking past the cursor
+     * Hinted to status_price_idx, which serves both the range and the sort in either direction
+     */
+    public static Query priceRangeQuery(BigDecimal minPrice, BigDecimal maxPrice, boolean descending,
+                                        int limit, String after) {
+        Query query = new Query(active()).withHint("status_price_idx");
+        if (minPrice != null || maxPrice != null) {
+            Criteria price = Criteria.where("price");
+            if (minPrice != null) {
+                price.gte(minPrice);
+            }
+            if (maxPrice != null) {
+                price.lte(maxPrice);
+            }
+            query.addCriteria(price);
+        }
+        PriceCursor cursor = PriceCursor.decode(after);
+        if (cursor != null) {
+            Criteria pastPrice = descending
+                    ? Criteria.where("price").lt(cursor.price())
+                    : Criteria.where("price").gt(cursor.price());
+            Criteria samePricePastId = descending
+                    ? Criteria.where("price").is(cursor.price()).and("id").lt(cursor.id())
+                    : Criteria.where("price").is(cursor.price()).and("id").gt(cursor.id());
+            query.addCriteria(new Criteria().orOperator(pastPrice, samePricePastId));
+        }
+        Sort.Direction direction = descending ? Sort.Direction.DESC : Sort.Direction.ASC;
+        return query.with(Sort.by(direction, "price", "id")).limit(limit + 1);
+    }
+
+    public static String priceCursorOf(Product product) {
+        return new PriceCursor(product.getPrice(), product.getId()).encode();
+    }
+
+    /**
+     * Build a query from only the filters that were supplied, so the planner sees plain
+     * equality and range predicates instead of $exists/$or wrappers
+     */
+    public static Query filterQuery(ProductFilterDTO filter, int limit, String after) {
+        Query query = filter.hasText()
+                ? TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(filter.getQ()))
+                : new Query().withHint(filterIndexHint(filter));
+        filterCriteria(filter).forEach(query::addCriteria);
+        String afterId = KeysetPaging.decodeIdCursor(after);
+        if (afterId != null) {
+            query.addCriteria(Criteria.where("id").gt(afterId));
+        }
+        return query.with(Sort.by(Sort.Direction.ASC, "id")).limit(limit + 1);
+    }
+
+    /**
+     * Predicates for the supplied filters (other than free text), always scoped to active products
+     */
+    static List<Criteria> filterCriteria(ProductFilterDTO filter) {
+        List<Criteria> criteria = new ArrayList<>();
+        criteria.add(active());
+        if (filter.getCategory() != null) {
+            criteria.add(Criteria.where("category").is(filter.getCategory()));
+        }
+        if (filter.getProductArea() != null) {
+            criteria.add(Criteria.where("productArea").is(filter.getProductArea()));
+        }
+        if (filter.getBrand() != null) {
+            criteria.add(Criteria.where("brand").is(filter.getBrand()));
+        }
+        if (filter.getMinPrice() != null || filter.getMaxPrice() != null) {
+            Criteria price = Criteria.where("price");
+            if (filter.getMinPrice() != null) {
+                price.gte(filter.getMinPrice());
+            }
+            if (filter.getMaxPrice() != null) {
+                price.lte(filter.getMaxPrice());
+            }
+            criteria.add(price);
+        }
+        if (filter.getFeatured() != null) {
+            criteria.add(Criteria.where("featured").is(filter.getFeatured()));
+        }
+        if (filter.getInStock() != null) {
+            criteria.add(filter.getInStock()
+                    ? Criteria.where("stockQuantity").gt(0)
+                    : Criteria.where("stockQuantity").not().gt(0));
+        }
+        return criteria;
+    }
+
+    /**
+     * Choose the filter index led by the most selective equality filter supplied
+     * Unfiltered scans use the {status, _id, ...} summary index, which also holds price and stock
+     */
+    static String filterIndexHint(ProductFilterDTO filter) {
+        if (filter.getCategory() != null) {
+            return "category_filter_idx";
+        }
+        if (filter.getProductArea() != null) {
+            return "productArea_filter_idx";
+        }
+        if (filter.getBrand() != null) {
+            return "brand_filter_idx";
+        }
+        if (filter.getFeatured() != null) {
+            return "featured_filter_idx";
+        }
+        return "summary_covering_idx";
+    }
+
+    /**
+     * Every facet in a single $facet aggregation over the filtered products
+     */
+    public static Aggregation facetAggregation(ProductFilterDTO filter) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        if (filter.hasText()) {
+            // $text must be the first stage of the pipeline
+            stages.add(Aggregation.match(TextCriteria.forDefaultLanguage().matching(filter.getQ())));
+        }
+        stages.add(Aggregation.match(new Criteria().andOperator(filterCriteria(filter))));
+        stages.add(Aggregation.facet(Aggregation.sortByCount("category")).as("categories")
+                .and(Aggregation.sortByCount("productArea")).as("productAreas")
+                .and(Aggregation.sortByCount("brand")).as("brands")
+                .and(Aggregation.sortByCount("featured")).as("featured")
+                .and(Aggregation.bucket("price")
+                        .withBoundaries(PriceBuckets.boundaries().toArray())
+                        .withDefaultBucket(PriceBuckets.TOP_BUCKET)).as("priceBuckets"));
+        return Aggregation.newAggregation(stages);
+    }
+
+    /**
+     * Read the single document produced by facetAggregation (null when nothing matched)
+     */
+    public static ProductFacetsDTO toFacets(Document result) {
+        ProductFacetsDTO facets = new ProductFacetsDTO();
+        if (result == null) {
+            return facets;
+        }
+        facets.setCategories(facetCounts(result, "categories", String::valueOf));
+        facets.setProductAreas(facetCounts(result, "productAreas", String::valueOf));
+        facets.setBrands(facetCounts(result, "brands", String::valueOf));
+        facets.setFeatured(facetCounts(result, "featured", String::valueOf));
+        facets.setPriceBuckets(facetCounts(result, "priceBuckets", bucket -> bucket instanceof Number
+                ? PriceBuckets.labelForLowerBound(((Number) bucket).intValue())
+                : String.valueOf(bucket)));
+        return facets;
+    }
+
+    private static Map<String, Long> facetCounts(Document result, String facet, Function<Object, String> label) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Document entry : result.getList(facet, Document.class, Collections.emptyList())) {
+            Object value = entry.get("_id");
+            if (value != null) {
+                counts.put(label.apply(value), ((Number) entry.get("count")).longValue());
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Search the weighted text index on name, brand, tags and description
+     * Results are ordered by textScore, so pages are offset based
+     */
+    public static Query searchQuery(String query, int page, int size) {
+        return TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(query))
+                .sortByScore()
+                .addCriteria(active())
+                .skip((long) page * size)
+                .limit(size);
+    }
+
+    /**
+     * Distinct names or brands of active products whose key starts with prefix, best first
+     * The key is matched with an anchored regex, which reads only that range of the key's index;
+     * for a prefix shared by very many products, the suggestions come from the first
+     * SUGGESTION_CANDIDATES of them in key order
+     * @param keyField nameKey or brandKey
+     * @param textField The field the key is made from, returned as the suggestion's text
+     */
+    public static Aggregation suggestionAggregation(String keyField, String textField, String prefix, int size) {
+        return Aggregation.newAggregation(
+                Aggregation.match(Criteria.where(keyField).regex(startsWith(prefix)).and("status").is(ACTIVE_STATUS)),
+                Aggregation.limit(SUGGESTION_CANDIDATES),
+                Aggregation.group(keyField).first(textField).as("text").count().as("count").max("featured").as("featured"),
+                Aggregation.sort(Sort.by(Sort.Order.desc("featured"), Sort.Order.desc("count"), Sort.Order.asc("_id"))),
+                Aggregation.limit(size));
+    }
+
+    /**
+     * Distinct tags of active products starting with prefix, best first; see suggestionAggregation
+     */
+    public static Aggregation tagSuggestionAggregation(String prefix, int size) {
+        return Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("tagKeys").regex(startsWith(prefix)).and("status").is(ACTIVE_STATUS)),
+                Aggregation.limit(SUGGESTION_CANDIDATES),
+                Aggregation.unwind("tags"),
+                Aggregation.project("featured").and("tags").as("text")
+                        .and(StringOperators.valueOf("tags").toLower()).as("key"),
+                Aggregation.match(Criteria.where("key").regex(startsWith(prefix))),
+                Aggregation.group("key").first("text").as("text").count().as("count").max("featured").as("featured"),
+                Aggregation.sort(Sort.by(Sort.Order.desc("featured"), Sort.Order.desc("count"), Sort.Order.asc("_id"))),
+                Aggregation.limit(size));
+    }
+
+    /**
+     * Products written before the autocomplete keys existed, or by something other than this service
+     */
+    public static Document missingPrefixKeys() {
+        return new Document("nameKey", new Document("$exists", false));
+    }
+
+    /**
+     * Pipeline update setting the autocomplete keys from name, brand and tags on the server,
+     * as Product.prefixKey does (MongoDB's $toLower only lower-cases ASCII letters)
+     */
+    public static List<Document> setPrefixKeys() {
+        return List.of(new Document("$set", new Document()
+                .append("nameKey", lowerTrimmed("$name"))
+                .append("brandKey", lowerTrimmed("$brand"))
+                .append("tagKeys", new Document("$map", new Document()
+                        .append("input", new Document("$ifNull", List.of("$tags", List.of())))
+                        .append("as", "tag")
+                        .append("in", lowerTrimmed("$$tag"))))));
+    }
+
+    private static Document lowerTrimmed(String expression) {
+        return new Document("$toLower", new Document("$trim", new Document("input", expression)));
+    }
+
+    /**
+     * Products whose price was written as a string, before price was stored as Decimal128
+     */
+    public static Document stringPrice() {
+        return new Document("price", new Document("$type", "string"));
+    }
+
+    /**
+     * Pipeline update converting a string price to Decimal128 on the server, so it matches
+     * price ranges, sorts and facet buckets like the prices written since
+     */
+    public static List<Document> priceToDecimal() {
+        return List.of(new Document("$set", new Document("price", new Document("$toDecimal", "$price"))));
+    }
+
+    public static SuggestionDTO toSuggestion(Document result, String field) {
+        return new SuggestionDTO(result.getString("text"), field,
+                ((Number) result.get("count")).longValue(), Boolean.TRUE.equals(result.get("featured")));
+    }
+
+    // Anchored regex for keys starting with the typed prefix; every character that is not a
+    // letter or digit is escaped, which keeps the regex a plain prefix the index can seek to
+    private static String startsWith(String prefix) {
+        StringBuilder regex = new StringBuilder("^");
+        for (char c : Product.prefixOf(prefix).toCharArray()) {
+            if (!Character.isLetterOrDigit(c)) {
+                regex.append('\\');
+            }
+            regex.append(c);
+        }
+        return regex.toString();
+    }
+
+    /**
+     * $set of the non-null fields of a partial update, plus updatedAt and the next version
+     */
+    public static Update setNonNullFields(ProductUpdateDTO dto) {
+        Update update = new Update();
+        setIfPresent(update, "name", dto.getName());
+        setIfPresent(update, "brand", dto.getBrand());
+        setIfPresent(update, "price", dto.getPrice());
+        setIfPresent(update, "description", dto.getDescription());
+        setIfPresent(update, "imageUrl", dto.getImageUrl());
+        setIfPresent(update, "category", dto.getCategory());
+        setIfPresent(update, "categoryName", dto.getCategoryName());
+        setIfPresent(update, "productArea", dto.getProductArea());
+        setIfPresent(update, "productAreaName", dto.getProductAreaName());
+        setIfPresent(update, "stockQuantity", dto.getStockQuantity());
+        setIfPresent(update, "sku", dto.getSku());
+        setIfPresent(update, "status", dto.getStatus());
+        setIfPresent(update, "featured", dto.getFeatured());
+        setIfPresent(update, "weight", dto.getWeight());
+        setIfPresent(update, "dimensions", dto.getDimensions());
+        setIfPresent(update, "warranty", dto.getWarranty());
+        setIfPresent(update, "manufacturer", dto.getManufacturer());
+        setIfPresent(update, "features", dto.getFeatures());
+        setIfPresent(update, "specifications", dto.getSpecifications());
+        setIfPresent(update, "tags", dto.getTags());
+        setIfPresent(update, "nameKey", Product.prefixKey(dto.getName()));
+        setIfPresent(update, "brandKey", Product.prefixKey(dto.getBrand()));
+        setIfPresent(update, "tagKeys", Product.tagKeys(dto.getTags()));
+        return update.set("updatedAt", LocalDateTime.now()).inc("version", 1);
+    }
+
+    private static void setIfPresent(Update update, String field, Object value) {
+        if (value != null) {
+            update.set(field, value);
+        }
+    }
+
+    /**
+     * Match the product for a stock adjustment; a decrement only matches while
+     * stockQuantity >= quantity, so concurrent checkouts can never oversell
+     */
+    public static Query stockQuery(String id, int delta) {
+        Criteria criteria = Criteria.where("id").is(id);
+        if (delta < 0) {
+            criteria = criteria.and("stockQuantity").gte(-delta);
+        }
+        return new Query(criteria);
+    }
+
+    public static Update stockUpdate(int delta) {
+        return new Update().inc("stockQuantity", delta).set("updatedAt", LocalDateTime.now()).inc("version", 1);
+    }
+
+    public static Query bySku(String sku) {
+        return new Query(Criteria.where("sku").is(sku));
+    }
+
+    /**
+     * Pipeline update setting every mapped field except _id and version; createdAt is only written
+     * when the upsert inserts. version starts at 0 on insert, as for a product saved through create,
+     * and goes up by one on a match ($setOnInsert and $inc cannot both write version in one update)
+     */
+    public static AggregationUpdate upsertUpdate(Product product, MongoConverter converter) {
+        Document document = new Document();
+        converter.write(product, document);
+        document.remove("_id");
+        document.remove("version");
+        Object createdAt = document.remove("createdAt");
+        Document set = new Document();
+        // As literals, so a value starting with $ is not read as a field path
+        document.forEach((field, value) -> set.append(field, new Document("$literal", value)));
+        set.append("createdAt", new Document("$ifNull", List.of("$createdAt", new Document("$literal", createdAt))));
+        set.append("version", new Document("$add", List.of(new Document("$ifNull", List.of("$version", -1)), 1)));
+        AggregationOperation stage = context -> new Document("$set", set);
+        return AggregationUpdate.from(List.of(stage));
+    }
+
+    /**
+     * Ids of existing products for the given SKUs, projected to id and sku only
+     */
+    public static Query idsBySkus(List<String> skus) {
+        Query query = new Query(Criteria.where("sku").in(skus));
+        query.fields().include("sku");
+        return query;
+    }
+
+    /**
+     * Record the outcome of an unordered bulk upsert: write errors become FAILED, upserts CREATED
+     * @param operationItems Item index for each bulk operation index
+     * @return SKUs of the items that matched an existing product, whose ids still need to be looked up
+     */
+    public static List<String> recordBulkResult(BulkItemResultDTO[] items, List<Integer> operationItems,
+                                                List<ProductCreateDTO> products, BulkWriteResult result,
+                                                List<BulkWriteError> errors) {
+        for (BulkWriteError error : errors) {
+            int i = operationItems.get(error.getIndex());
+            items[i] = BulkItemResultDTO.failure(i, products.get(i).getSku(),
+                    BulkItemResultDTO.Status.FAILED, error.getMessage());
+        }
+        for (BulkWriteUpsert upsert : result.getUpserts()) {
+            int i = operationItems.get(upsert.getIndex());
+            items[i] = BulkItemResultDTO.success(i, products.get(i).getSku(),
+                    upsertedId(upsert.getId()), BulkItemResultDTO.Status.CREATED);
+        }
+        return operationItems.stream()
+                .filter(i -> items[i] == null)
+                .map(i -> products.get(i).getSku())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Mark the remaining operations UPDATED with the ids found by idsBySkus
+     */
+    public static void recordMatched(BulkItemResultDTO[] items, List<Integer> operationItems,
+                                     List<ProductCreateDTO> products, List<Product> matched) {
+        Map<String, String> idsBySku = matched.stream()
+                .collect(Collectors.toMap(Product::getSku, Product::getId, (first, second) -> first));
+        for (int i : operationItems) {
+            if (items[i] == null) {
+                String sku = products.get(i).getSku();
+                items[i] = BulkItemResultDTO.success(i, sku, idsBySku.get(sku), BulkItemResultDTO.Status.UPDATED);
+            }
+        }
+    }
+
+    private static String upsertedId(BsonValue id) {
+        return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue();
+    }
+}
@@ -0,0 +1,378 @@
+package com.techtwist.services.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Prefix index of a text field of the rows, answering "the best few texts starting with this"
+ *
+ * Texts are kept by key (normalized text) in a radix trie: each node is labelled with the
+ * characters it adds to its parent's, so a chain of single children is one node and the trie
+ * has at most two nodes per distinct key. Every node also holds the best capacity entries of
+ * its subtree, so a lookup walks down the prefix and returns that node's list, in time set by
+ * the prefix length rather than the number of keys under it. A change to one key only touches
+ * the lists on its path: an entry that gains a row moves up each list, and one that loses a
+ * row has each list holding it merged again from the node's own entry and its children's lists.
+ *
+ * Entries are ranked by whether any row holding the text is featured, then by how many rows
+ * hold it, then by key. Callers must serialize updates for the same row; the index takes its
+ * own lock for everything else
+ */
+public final class PrefixIndex<T> {
+
+    /**
+     * A text in the index and how many rows hold it
+     */
+    public record Suggestion(String text, int count, boolean featured) {
+    }
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    private final Function<T, Collection<String>> textsOf;
+    private final Predicate<T> featuredOf;
+    private final UnaryOperator<String> keyOf;
+    private final int capacity;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Guarded by lock
+    private final Node root = new Node("");
+
+    /**
+     * @param textsOf The row's texts, e.g. its name or each of its tags; may be null or hold nulls
+     * @param keyOf Normalizes a text into the key that prefixes are matched against
+     * @param capacity Most suggestions a lookup can return
+     */
+    public PrefixIndex(Function<T, Collection<String>> textsOf, Predicate<T> featuredOf,
+                       UnaryOperator<String> keyOf, int capacity) {
+        this.textsOf = textsOf;
+        this.featuredOf = featuredOf;
+        this.keyOf = keyOf;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Move a row from its old texts to its new ones
+     * @param before The row as it was, or null if it was not indexed
+     * @param after The row to index now, or null to drop it from the index
+     */
+    public void update(T before, T after) {
+        Map<String, String> oldTexts = texts(before);
+        Map<String, String> newTexts = texts(after);
+        boolean wasFeatured = before != null && featuredOf.test(before);
+        boolean isFeatured = after != null && featuredOf.test(after);
+        if (wasFeatured == isFeatured && oldTexts.equals(newTexts)) {
+            return; // e.g. a stock or price change
+        }
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<String, String> text : oldTexts.entrySet()) {
+                if (wasFeatured != isFeatured || !Objects.equals(text.getValue(), newTexts.get(text.getKey()))) {
+                    remove(text.getKey(), wasFeatured);
+                }
+            }
+            for (Map.Entry<String, String> text : newTexts.entrySet()) {
+                if (wasFeatured != isFeatured || !Objects.equals(text.getValue(), oldTexts.get(text.getKey()))) {
+                    add(text.getKey(), text.getValue(), isFeatured);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The best texts whose key starts with prefix, best first
+     * @param prefix Normalized as keys are, except that it may end in space
+     * @param limit How many to return, at most capacity
+     */
+    public List<Suggestion> complete(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int at = 0;
+            while (at < prefix.length()) {
+                Node child = child(node, prefix.charAt(at));
+                if (child == null) {
+                    return List.of();
+                }
+                int common = commonPrefix(child.label, prefix, at);
+                if (at + common == prefix.length()) {
+                    node = child; // the prefix ends on or inside the child's label
+                    break;
+                }
+                if (common < child.label.length()) {
+                    return List.of();
+                }
+                node = child;
+                at += common;
+            }
+            List<Suggestion> suggestions = new ArrayList<>(Math.min(limit, node.top.length));
+            for (int i = 0; i < node.top.length && i < limit; i++) {
+                Entry entry = node.top[i];
+                suggestions.add(new Suggestion(entry.text, entry.count, entry.featured > 0));
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Distinct keys of the row's texts, each with the text it was given as
+    private Map<String, String> texts(T row) {
+        Collection<String> texts = row != null ? textsOf.apply(row) : null;
+        if (texts == null) {
+            return Map.of();
+        }
+        Map<String, String> byKey = new HashMap<>();
+        for (String text : texts) {
+            String key = text != null ? keyOf.apply(text) : null;
+            if (key != null && !key.isEmpty()) {
+                byKey.putIfAbsent(key, text);
+            }
+        }
+        return byKey;
+    }
+
+    private void add(String key, String text, boolean featured) {
+        List<Node> path = new ArrayList<>();
+        path.add(root);
+        Node node = root;
+        int at = 0;
+        while (at < key.length()) {
+            int c = childIndex(node, key.charAt(at));
+            if (c < 0) {
+                Node leaf = new Node(key.substring(at));
+                node.children = insert(node.children, -c - 1, leaf);
+                node = leaf;
+                path.add(node);
+                break;
+            }
+            Node child = node.children[c];
+            int common = commonPrefix(child.label, key, at);
+            if (common < child.label.length()) {
+                // Split the child's label where the key leaves it
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.children = new Node[]{child};
+                middle.top = child.top.clone();
+                node.children[c] = middle;
+                child = middle;
+            }
+            node = child;
+            path.add(node);
+            at += common;
+        }
+        if (node.entry == null) {
+            node.entry = new Entry(key);
+        }
+        Entry entry = node.entry;
+        entry.text = text;
+        entry.count++;
+        if (featured) {
+            entry.featured++;
+        }
+        for (Node onPath : path) {
+            promote(onPath, entry);
+        }
+    }
+
+    private void remove(String key, boolean featured) {
+        List<Node> path = new ArrayList<>();
+        path.add(root);
+        Node node = root;
+        int at = 0;
+        while (at < key.length()) {
+            Node child = child(node, key.charAt(at));
+            if (child == null || !key.startsWith(child.label, at)) {
+                return; // not indexed
+            }
+            node = child;
+            path.add(node);
+            at += child.label.length();
+        }
+        if (node.entry == null) {
+            return;
+        }
+        node.entry.count--;
+        if (featured) {
+            node.entry.featured--;
+        }
+        Entry entry = node.entry;
+        if (entry.count == 0) {
+            node.entry = null;
+            prune(path);
+        }
+        // Deepest first, so each node merges its children's lists as they now are
+        for (int i = path.size() - 1; i >= 0; i--) {
+            if (Arrays.asList(path.get(i).top).contains(entry)) {
+                rerank(path.get(i));
+            }
+        }
+    }
+
+    // Drop nodes left without entry or children, and merge ones left with a single child into it
+    private void prune(List<Node> path) {
+        for (int i = path.size() - 1; i > 0; i--) {
+            Node node = path.get(i);
+            Node parent = path.get(i - 1);
+            int at = childIndex(parent, node.label.charAt(0));
+            if (node.entry == null && node.children.length == 0) {
+                parent.children = delete(parent.children, at);
+                path.remove(i);
+            } else if (node.entry == null && node.children.length == 1) {
+                Node child = node.children[0];
+                child.label = node.label + child.label;
+                parent.children[at] = child;
+                path.set(i, child);
+            } else {
+                return;
+            }
+        }
+    }
+
+    // An entry of the node's subtree now ranks higher: move it up the node's list, or into it
+    private void promote(Node node, Entry entry) {
+        Entry[] top = node.top;
+        int at = Arrays.asList(top).indexOf(entry);
+        if (at < 0) {
+            if (top.length < capacity) {
+                top = Arrays.copyOf(top, top.length + 1);
+                node.top = top;
+            } else if (rank(entry, top[top.length - 1]) > 0) {
+                return;
+            }
+            at = top.length - 1;
+        }
+        while (at > 0 && rank(entry, top[at - 1]) < 0) {
+            top[at] = top[at - 1];
+            at--;
+        }
+        top[at] = entry;
+    }
+
+    // Recompute the node's list by merging its own entry with its children's ranked lists
+    private void rerank(Node node) {
+        Node[] children = node.children;
+        int[] next = new int[children.length];
+        Entry own = node.entry;
+        Entry[] best = new Entry[capacity];
+        int size = 0;
+        while (size < capacity) {
+            Entry pick = own;
+            int from = -1;
+            for (int c = 0; c < children.length; c++) {
+                Entry head = next[c] < children[c].top.length ? children[c].top[next[c]] : null;
+                if (head != null && (pick == null || rank(head, pick) < 0)) {
+                    pick = head;
+                    from = c;
+                }
+            }
+            if (pick == null) {
+                break;
+            }
+            if (from < 0) {
+                own = null;
+            } else {
+                next[from]++;
+            }
+            best[size++] = pick;
+        }
+        node.top = size == 0 ? NO_ENTRIES : Arrays.copyOf(best, size);
+    }
+
+    // Negative if a ranks before b: featured first, then held by more rows, then by key
+    private static int rank(Entry a, Entry b) {
+        if ((a.featured > 0) != (b.featured > 0)) {
+            return a.featured > 0 ? -1 : 1;
+        }
+        if (a.count != b.count) {
+            return a.count > b.count ? -1 : 1;
+        }
+        return a.key.compareTo(b.key);
+    }
+
+    private static Node child(Node node, char first) {
+        int at = childIndex(node, first);
+        return at >= 0 ? node.children[at] : null;
+    }
+
+    // Children are kept sorted by the first character of their label, which is unique among them
+    private static int childIndex(Node node, char first) {
+        int low = 0;
+        int high = node.children.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char c = node.children[mid].label.charAt(0);
+            if (c < first) {
+                low = mid + 1;
+            } else if (c > first) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    // Length of the common prefix of label and key[from..]
+    private static int commonPrefix(String label, String key, int from) {
+        int max = Math.min(label.length(), key.length() - from);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(from + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static Node[] insert(Node[] children, int at, Node child) {
+        Node[] grown = new Node[children.length + 1];
+        System.arraycopy(children, 0, grown, 0, at);
+        grown[at] = child;
+        System.arraycopy(children, at, grown, at + 1, children.length - at);
+        return grown;
+    }
+
+    private static Node[] delete(Node[] children, int at) {
+        if (children.length == 1) {
+            return NO_CHILDREN;
+        }
+        Node[] shrunk = new Node[children.length - 1];
+        System.arraycopy(children, 0, shrunk, 0, at);
+        System.arraycopy(children, at + 1, shrunk, at, children.length - at - 1);
+        return shrunk;
+    }
+
+    private static final class Node {
+        private String label;
+        private Node[] children = NO_CHILDREN;
+        // Set while at least one row holds the key ending at this node
+        private Entry entry;
+        // Best entries of the subtree, best first
+        private Entry[] top = NO_ENTRIES;
+
+        private Node(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final class Entry {
+        private final String key;
+        // As given by the row indexed most recently
+        private String text;
+        private int count;
+        private int featured;
+
+        private Entry(String key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.techtwist.services.support;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Fixed price bands used by the price facet
+ * Buckets are [lower, upper) with an open-ended top bucket
+ */
+public final class PriceBuckets {
+
+    private static final int[] BOUNDARIES = {0, 50, 100, 250, 500, 1000, 2500};
+
+    /** Label of the open-ended bucket above the last boundary */
+    public static final String TOP_BUCKET = BOUNDARIES[BOUNDARIES.length - 1] + "+";
+
+    private PriceBuckets() {
+    }
+
+    /**
+     * Bucket boundaries in ascending order (suitable for a Mongo $bucket stage)
+     */
+    public static List<Integer> boundaries() {
+        return Arrays.stream(BOUNDARIES).boxed().collect(Collectors.toList());
+    }
+
+    /**
+     * All bucket labels in price order
+     */
+    public static List<String> labels() {
+        List<String> labels = Arrays.stream(BOUNDARIES, 0, BOUNDARIES.length - 1)
+                .mapToObj(PriceBuckets::labelForLowerBound)
+                .collect(Collectors.toList());
+        labels.add(TOP_BUCKET);
+        return labels;
+    }
+
+    /**
+     * Label for the bucket starting at the given boundary, e.g. 50 -> "50-100"
+     */
+    public static String labelForLowerBound(int lowerBound) {
+        int index = Arrays.binarySearch(BOUNDARIES, lowerBound);
+        if (index < 0 || index == BOUNDARIES.length - 1) {
+            return TOP_BUCKET;
+        }
+        return BOUNDARIES[index] + "-" + BOUNDARIES[index + 1];
+    }
+
+    /**
+     * Label of the bucket a price falls into, or null for a missing or negative price
+     */
+    public static String labelOf(BigDecimal price) {
+        if (price == null || price.signum() < 0) {
+            return null;
+        }
+        for (int i = BOUNDARIES.length - 1; i >= 0; i--) {
+            if (price.compareTo(BigDecimal.valueOf(BOUNDARIES[i])) >= 0) {
+                return labelForLowerBound(BOUNDARIES[i]);
+            }
+        }
+        return null;
+    }
+}
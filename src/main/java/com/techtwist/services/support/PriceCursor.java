@@ -0,0 +1,30 @@
+package com.techtwist.services.support;
+
+import java.math.BigDecimal;
+
+/**
+ * Keyset cursor for pages ordered by (price, id), so products with equal prices are neither
+ * skipped nor repeated between pages. Both backends encode the price as a plain decimal string
+ */
+public record PriceCursor(BigDecimal price, String id) {
+
+    public String encode() {
+        return KeysetPaging.encodeCursor(price.toPlainString(), id);
+    }
+
+    /**
+     * Decode a cursor produced by encode, or return null when no cursor was supplied
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static PriceCursor decode(String cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        String[] keys = KeysetPaging.decodeCursor(cursor, 2);
+        try {
+            return new PriceCursor(new BigDecimal(keys[0]), keys[1]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid pagination cursor", e);
+        }
+    }
+}
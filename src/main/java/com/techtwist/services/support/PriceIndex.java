@@ -0,0 +1,126 @@
+package com.techtwist.services.support;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Sorted index of ids by price, for price ranges and cheapest / dearest first listings
+ *
+ * Prices are held as long cents, so seeks and range scans compare primitives rather than
+ * BigDecimals; BigDecimal is only converted at the query bounds and cursor. Entries are
+ * ordered by (cents, id), the same order as PriceCursor, so pages never skip or repeat
+ * products with equal prices. Callers must serialize updates for the same id
+ */
+public final class PriceIndex {
+
+    private static final BigDecimal MAX_CENTS = BigDecimal.valueOf(Long.MAX_VALUE);
+    private static final BigDecimal MIN_CENTS = BigDecimal.valueOf(Long.MIN_VALUE);
+
+    // A null id sorts after every id, so (cents, null) bounds all entries at that price from above
+    private record Key(long cents, String id) implements Comparable<Key> {
+        @Override
+        public int compareTo(Key other) {
+            int byCents = Long.compare(cents, other.cents);
+            if (byCents != 0) {
+                return byCents;
+            }
+            if (id == null || other.id == null) {
+                return id == null ? (other.id == null ? 0 : 1) : -1;
+            }
+            return id.compareTo(other.id);
+        }
+    }
+
+    private final NavigableSet<Key> keys = new ConcurrentSkipListSet<>();
+
+    /**
+     * Move an id from its old price to its new one
+     * @param before The indexed price before the change, or null if the id was not indexed
+     * @param after The price to index now, or null to drop the id from the index
+     */
+    public void update(String id, BigDecimal before, BigDecimal after) {
+        Long oldCents = before != null ? toCents(before) : null;
+        Long newCents = after != null ? toCents(after) : null;
+        if (Objects.equals(oldCents, newCents)) {
+            return;
+        }
+        if (oldCents != null) {
+            keys.remove(new Key(oldCents, id));
+        }
+        if (newCents != null) {
+            keys.add(new Key(newCents, id));
+        }
+    }
+
+    /**
+     * Index many rows at once, e.g. when loading a snapshot; rows with a null price are skipped
+     * Keys are sorted before they are added, as inserting in order is several times faster than
+     * inserting at random positions of the skip list
+     */
+    public <T> void addAll(Collection<T> rows, Function<T, String> idOf, Function<T, BigDecimal> priceOf) {
+        Key[] sorted = rows.stream()
+                .filter(row -> priceOf.apply(row) != null)
+                .map(row -> new Key(toCents(priceOf.apply(row)), idOf.apply(row)))
+                .toArray(Key[]::new);
+        Arrays.parallelSort(sorted);
+        keys.addAll(Arrays.asList(sorted));
+    }
+
+    /**
+     * Ids priced within [min, max] in price order, lazily, resuming after the cursor if one is given
+     * @param min Lowest price, or null for no lower bound
+     * @param max Highest price, or null for no upper bound
+     * @param after The last row of the previous page, or null for the first page
+     * @param descending Dearest first instead of cheapest first
+     */
+    public Stream<String> ids(BigDecimal min, BigDecimal max, PriceCursor after, boolean descending) {
+        Key from = min != null ? new Key(boundCents(min, RoundingMode.CEILING), "") : null;
+        boolean fromInclusive = true;
+        Key to = max != null ? new Key(boundCents(max, RoundingMode.FLOOR), null) : null;
+        boolean toInclusive = true;
+        if (after != null) {
+            Key cursor = new Key(toCents(after.price()), after.id());
+            if (descending && (to == null || cursor.compareTo(to) < 0)) {
+                to = cursor;
+                toInclusive = false;
+            } else if (!descending && (from == null || cursor.compareTo(from) > 0)) {
+                from = cursor;
+                fromInclusive = false;
+            }
+        }
+
+        NavigableSet<Key> range = keys;
+        if (from != null && to != null) {
+            if (from.compareTo(to) > 0) {
+                return Stream.empty();
+            }
+            range = keys.subSet(from, fromInclusive, to, toInclusive);
+        } else if (from != null) {
+            range = keys.tailSet(from, fromInclusive);
+        } else if (to != null) {
+            range = keys.headSet(to, toInclusive);
+        }
+        return (descending ? range.descendingSet() : range).stream().map(Key::id);
+    }
+
+    // Stored prices carry at most two decimal places
+    private static long toCents(BigDecimal price) {
+        return boundCents(price, RoundingMode.HALF_UP);
+    }
+
+    // Query bounds may be arbitrarily precise or large; round inwards and clamp instead of failing
+    private static long boundCents(BigDecimal price, RoundingMode rounding) {
+        BigDecimal cents = price.movePointRight(2).setScale(0, rounding);
+        if (cents.compareTo(MAX_CENTS) > 0) {
+            return Long.MAX_VALUE;
+        }
+        return cents.compareTo(MIN_CENTS) < 0 ? Long.MIN_VALUE : cents.longValue();
+    }
+}
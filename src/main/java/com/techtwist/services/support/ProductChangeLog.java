@@ -0,0 +1,293 @@
+package com.techtwist.services.support;
+
+import com.techtwist.models.Product;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of changes to the in-memory store, replayed on top of the latest snapshot at startup
+ *
+ * Each record holds a sequence number and either the whole product as written (ProductSnapshots
+ * encoding) or the id of a deleted product, behind its length and a CRC32. Records are appended
+ * to the OS by the writer and fsynced by sync, which group-commits: while one caller forces the
+ * file, others keep appending and then queue for the next force, which covers all of them.
+ *
+ * The log is split into numbered segments. A snapshot rolls the log to a new segment before it
+ * captures the store, so once the snapshot is written every older segment can be deleted
+ */
+public final class ProductChangeLog implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ProductChangeLog.class);
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    // Record header after the length: CRC32, sequence, operation
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES + Long.BYTES + 1;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("changes-(\\d{10})\\.log");
+
+    /**
+     * Receives the changes read back from the log, in the order they were made to each product
+     */
+    public interface Replay {
+        void put(Product product);
+
+        void delete(String id);
+    }
+
+    private final Path directory;
+    private final ProductSnapshots.Encoder encoder = new ProductSnapshots.Encoder();
+    private final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + RECORD_HEADER_BYTES);
+    private final CRC32 crc = new CRC32();
+    // Held by whoever forces or switches the channel; always taken before the log's monitor
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    // Guarded by this
+    private FileChannel channel;
+    private long segment;
+    private long sequence;
+    private volatile long appended;
+    // Guarded by syncLock
+    private volatile long synced;
+
+    private ProductChangeLog(Path directory, long segment, long sequence) throws IOException {
+        this.directory = directory;
+        this.segment = segment;
+        this.sequence = sequence;
+        this.appended = sequence;
+        this.synced = sequence;
+        this.channel = openSegment(directory, segment);
+    }
+
+    /**
+     * Start a new segment after any existing ones, continuing from the given sequence
+     * @param sequence The last sequence already used, as returned by replay
+     */
+    public static ProductChangeLog open(Path directory, long sequence) throws IOException {
+        Files.createDirectories(directory);
+        List<Long> segments = segments(directory);
+        long next = segments.isEmpty() ? 1 : segments.get(segments.size() - 1) + 1;
+        return new ProductChangeLog(directory, next, sequence);
+    }
+
+    /**
+     * Read every segment in order, passing changes with a sequence after afterSequence to replay
+     * A segment ends at its first incomplete or corrupt record, such as one torn by a crash mid-write
+     * @return The last sequence found in the log, or afterSequence if there is none later
+     */
+    public static long replay(Path directory, long afterSequence, Replay replay) throws IOException {
+        long last = afterSequence;
+        if (!Files.isDirectory(directory)) {
+            return last;
+        }
+        for (long segment : segments(directory)) {
+            Path file = segmentFile(directory, segment);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                CRC32 crc = new CRC32();
+                while (records.remaining() >= Integer.BYTES + RECORD_HEADER_BYTES) {
+                    int start = records.position();
+                    int length = records.getInt();
+                    if (length < RECORD_HEADER_BYTES || length > records.remaining()) {
+                        records.position(start);
+                        break;
+                    }
+                    int expectedCrc = records.getInt();
+                    ByteBuffer body = records.slice(records.position(), length - Integer.BYTES);
+                    crc.reset();
+                    crc.update(body.duplicate());
+                    if ((int) crc.getValue() != expectedCrc) {
+                        records.position(start);
+                        break;
+                    }
+                    records.position(records.position() + body.remaining());
+                    long recordSequence = body.getLong();
+                    byte operation = body.get();
+                    last = Math.max(last, recordSequence);
+                    if (recordSequence <= afterSequence) {
+                        continue;
+                    }
+                    if (operation == PUT) {
+                        replay.put(ProductSnapshots.decode(body));
+                    } else if (operation == DELETE) {
+                        replay.delete(StandardCharsets.UTF_8.decode(body).toString());
+                    } else {
+                        throw new IOException("Unknown change log operation " + operation + " in " + file);
+                    }
+                }
+                if (records.hasRemaining()) {
+                    logger.warn("Ignoring {} bytes of incomplete or corrupt changes at the end of {}",
+                            records.remaining(), file);
+                }
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Append a created or changed product, as it now is
+     * @return The change's sequence, to pass to sync
+     */
+    public long appendPut(Product product) {
+        return append(PUT, product, null);
+    }
+
+    /**
+     * Append the deletion of a product
+     * @return The change's sequence, to pass to sync
+     */
+    public long appendDelete(String id) {
+        return append(DELETE, null, id);
+    }
+
+    private synchronized long append(byte operation, Product product, String id) {
+        ByteBuffer body = operation == PUT
+                ? encoder.encode(product)
+                : ByteBuffer.wrap(id.getBytes(StandardCharsets.UTF_8));
+        long next = sequence + 1;
+        header.clear();
+        header.putInt(RECORD_HEADER_BYTES + body.remaining()).putInt(0).putLong(next).put(operation);
+        crc.reset();
+        crc.update(header.array(), Integer.BYTES * 2, Long.BYTES + 1);
+        crc.update(body.duplicate());
+        header.putInt(Integer.BYTES, (int) crc.getValue()).flip();
+        try {
+            ByteBuffer[] record = {header, body};
+            while (header.hasRemaining() || body.hasRemaining()) {
+                channel.write(record);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to product change log", e);
+        }
+        sequence = next;
+        appended = next;
+        return next;
+    }
+
+    /**
+     * Sequence of the last change appended
+     */
+    public long lastSequence() {
+        return appended;
+    }
+
+    /**
+     * Wait until the change with the given sequence, and every change before it, is on disk
+     * Callers arriving while a force is in progress are covered together by the next one
+     */
+    public void sync(long sequence) {
+        if (synced >= sequence) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (synced >= sequence) {
+                return; // the force that ran while we waited covered this change
+            }
+            FileChannel current;
+            long upTo;
+            synchronized (this) {
+                current = channel;
+                upTo = appended;
+            }
+            current.force(false);
+            synced = upTo;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to sync product change log", e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Force the current segment and start appending to a new one
+     * @return The number of the new segment; every older segment is covered by a snapshot taken from now on
+     */
+    public long roll() throws IOException {
+        syncLock.lock();
+        try {
+            synchronized (this) {
+                channel.force(false);
+                synced = appended;
+                FileChannel next = openSegment(directory, segment + 1);
+                channel.close();
+                channel = next;
+                segment++;
+                return segment;
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Delete the segments before the given one, once a snapshot covering them has been written
+     */
+    public void deleteSegmentsBefore(long segment) throws IOException {
+        for (long older : segments(directory)) {
+            if (older < segment) {
+                Files.deleteIfExists(segmentFile(directory, older));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        syncLock.lock();
+        try {
+            synchronized (this) {
+                channel.force(false);
+                synced = appended;
+                channel.close();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private static FileChannel openSegment(Path directory, long segment) throws IOException {
+        FileChannel channel = FileChannel.open(segmentFile(directory, segment),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        // Make the new file's directory entry durable, so a synced change cannot be lost with its segment
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            logger.debug("Cannot sync directory {}: {}", directory, e.getMessage());
+        }
+        return channel;
+    }
+
+    private static Path segmentFile(Path directory, long segment) {
+        return directory.resolve(String.format("changes-%010d.log", segment));
+    }
+
+    private static List<Long> segments(Path directory) throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher name = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (name.matches()) {
+                    segments.add(Long.parseLong(name.group(1)));
+                }
+            });
+        }
+        segments.sort(null);
+        return segments;
+    }
+}
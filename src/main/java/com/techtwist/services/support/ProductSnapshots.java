@@ -0,0 +1,414 @@
+package com.techtwist.services.support;
+
+import com.techtwist.models.Product;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshots of the in-memory catalog, written and read through memory-mapped windows
+ *
+ * Layout: a 40 byte header (magic, format version, record count, body length, CRC32 of the body,
+ * sequence of the last change log record included) followed by one length-prefixed record per product. A record starts with a bitmask of the
+ * fields present, then each present field in declaration order. A snapshot is written to a
+ * temporary file in the target directory and renamed over the previous one, so readers only
+ * ever see a complete snapshot
+ */
+public final class ProductSnapshots {
+
+    private static final int MAGIC = 0x54545053; // "TTPS"
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_BYTES = 40;
+    private static final long WRITE_WINDOW_BYTES = 64L << 20;
+    private static final long READ_WINDOW_BYTES = 1L << 30;
+
+    private ProductSnapshots() {
+    }
+
+    /**
+     * The products of a snapshot, and the sequence of the last change log record they include
+     */
+    public record Snapshot(List<Product> products, long sequence) {
+    }
+
+    /**
+     * Write products to file, replacing any previous snapshot atomically
+     * @param sequence The sequence of the last change log record reflected in products, or 0
+     * @return The size of the snapshot in bytes
+     */
+    public static long write(Path file, Collection<Product> products, long sequence) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            long size;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                CRC32 crc = new CRC32();
+                Encoder encoder = new Encoder();
+                long windowStart = HEADER_BYTES;
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, WRITE_WINDOW_BYTES);
+                long count = 0;
+                for (Product product : products) {
+                    ByteBuffer record = encoder.encode(product);
+                    int recordBytes = Integer.BYTES + record.remaining();
+                    if (window.remaining() < recordBytes) {
+                        window.force();
+                        windowStart += window.position();
+                        window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart,
+                                Math.max(WRITE_WINDOW_BYTES, recordBytes));
+                    }
+                    int start = window.position();
+                    window.putInt(record.remaining()).put(record);
+                    crc.update(window.slice(start, recordBytes));
+                    count++;
+                }
+                window.force();
+                size = windowStart + window.position();
+                // Mapping a window extends the file to its end; drop the unused tail
+                channel.truncate(size);
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                        .putInt(MAGIC)
+                        .putInt(FORMAT_VERSION)
+                        .putLong(count)
+                        .putLong(size - HEADER_BYTES)
+                        .putInt((int) crc.getValue())
+                        .putLong(sequence);
+                header.clear();
+                channel.write(header, 0);
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return size;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Read every product from a snapshot written by write, in the order they were written
+     * @throws IOException if the file cannot be read, or is truncated, corrupt or of another format
+     */
+    public static Snapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES) {
+                throw new IOException("Snapshot " + file + " is too short to hold a header");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                throw new IOException("Snapshot " + file + " is not a product snapshot of format " + FORMAT_VERSION);
+            }
+            long count = header.getLong();
+            long bodyBytes = header.getLong();
+            int expectedCrc = header.getInt();
+            long sequence = header.getLong();
+            if (count < 0 || count > Integer.MAX_VALUE || HEADER_BYTES + bodyBytes != fileSize) {
+                throw new IOException("Snapshot " + file + " is truncated");
+            }
+
+            List<Product> products = new ArrayList<>((int) count);
+            CRC32 crc = new CRC32();
+            long position = HEADER_BYTES;
+            while (position < fileSize) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(READ_WINDOW_BYTES, fileSize - position));
+                int consumed = decodeRecords(window, products, crc);
+                if (consumed == 0) {
+                    throw new IOException("Snapshot " + file + " is corrupt at byte " + position);
+                }
+                position += consumed;
+            }
+            if (products.size() != count || (int) crc.getValue() != expectedCrc) {
+                throw new IOException("Snapshot " + file + " failed its checksum");
+            }
+            return new Snapshot(products, sequence);
+        }
+    }
+
+    // Decode the complete records in a window; a record cut off by the window end is left for the next one
+    private static int decodeRecords(ByteBuffer window, List<Product> products, CRC32 crc) throws IOException {
+        int position = 0;
+        while (window.limit() - position >= Integer.BYTES) {
+            int length = window.getInt(position);
+            if (length < 0) {
+                throw new IOException("Negative record length");
+            }
+            int recordBytes = Integer.BYTES + length;
+            if (window.limit() - position < recordBytes) {
+                break;
+            }
+            crc.update(window.slice(position, recordBytes));
+            products.add(decode(window.slice(position + Integer.BYTES, length)));
+            position += recordBytes;
+        }
+        return position;
+    }
+
+    // Field presence bits, in the order fields are written
+    private static final int ID = 1;
+    private static final int NAME = 1 << 1;
+    private static final int BRAND = 1 << 2;
+    private static final int PRICE = 1 << 3;
+    private static final int DESCRIPTION = 1 << 4;
+    private static final int IMAGE_URL = 1 << 5;
+    private static final int FEATURES = 1 << 6;
+    private static final int SPECIFICATIONS = 1 << 7;
+    private static final int CATEGORY = 1 << 8;
+    private static final int CATEGORY_NAME = 1 << 9;
+    private static final int PRODUCT_AREA = 1 << 10;
+    private static final int PRODUCT_AREA_NAME = 1 << 11;
+    private static final int STOCK_QUANTITY = 1 << 12;
+    private static final int SKU = 1 << 13;
+    private static final int STATUS = 1 << 14;
+    private static final int FEATURED = 1 << 15;
+    private static final int WEIGHT = 1 << 16;
+    private static final int DIMENSIONS = 1 << 17;
+    private static final int WARRANTY = 1 << 18;
+    private static final int MANUFACTURER = 1 << 19;
+    private static final int TAGS = 1 << 20;
+    private static final int CREATED_AT = 1 << 21;
+    private static final int UPDATED_AT = 1 << 22;
+    private static final int VERSION = 1 << 23;
+
+    /**
+     * Encodes products into one reusable buffer, growing it for the occasional large product
+     * Shared with ProductChangeLog, whose records carry products in the same encoding
+     */
+    static final class Encoder {
+        private ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+        ByteBuffer encode(Product product) {
+            buffer.clear();
+            int fieldsAt = buffer.position();
+            buffer.putInt(0);
+            int fields = 0;
+            fields |= putString(ID, product.getId());
+            fields |= putString(NAME, product.getName());
+            fields |= putString(BRAND, product.getBrand());
+            if (product.getPrice() != null) {
+                byte[] unscaled = product.getPrice().unscaledValue().toByteArray();
+                ensure(Integer.BYTES * 2 + unscaled.length);
+                buffer.putInt(product.getPrice().scale()).putInt(unscaled.length).put(unscaled);
+                fields |= PRICE;
+            }
+            fields |= putString(DESCRIPTION, product.getDescription());
+            fields |= putString(IMAGE_URL, product.getImageUrl());
+            fields |= putStrings(FEATURES, product.getFeatures());
+            if (product.getSpecifications() != null) {
+                ensure(Integer.BYTES);
+                buffer.putInt(product.getSpecifications().size());
+                product.getSpecifications().forEach((key, value) -> {
+                    putNullableString(key);
+                    putNullableString(value);
+                });
+                fields |= SPECIFICATIONS;
+            }
+            fields |= putString(CATEGORY, product.getCategory());
+            fields |= putString(CATEGORY_NAME, product.getCategoryName());
+            fields |= putString(PRODUCT_AREA, product.getProductArea());
+            fields |= putString(PRODUCT_AREA_NAME, product.getProductAreaName());
+            if (product.getStockQuantity() != null) {
+                ensure(Integer.BYTES);
+                buffer.putInt(product.getStockQuantity());
+                fields |= STOCK_QUANTITY;
+            }
+            fields |= putString(SKU, product.getSku());
+            fields |= putString(STATUS, product.getStatus());
+            if (product.getFeatured() != null) {
+                ensure(1);
+                buffer.put((byte) (product.getFeatured() ? 1 : 0));
+                fields |= FEATURED;
+            }
+            if (product.getWeight() != null) {
+                ensure(Double.BYTES);
+                buffer.putDouble(product.getWeight());
+                fields |= WEIGHT;
+            }
+            fields |= putString(DIMENSIONS, product.getDimensions());
+            fields |= putString(WARRANTY, product.getWarranty());
+            fields |= putString(MANUFACTURER, product.getManufacturer());
+            fields |= putStrings(TAGS, product.getTags());
+            fields |= putTimestamp(CREATED_AT, product.getCreatedAt());
+            fields |= putTimestamp(UPDATED_AT, product.getUpdatedAt());
+            if (product.getVersion() != null) {
+                ensure(Long.BYTES);
+                buffer.putLong(product.getVersion());
+                fields |= VERSION;
+            }
+            buffer.putInt(fieldsAt, fields);
+            return buffer.flip();
+        }
+
+        private int putString(int field, String value) {
+            if (value == null) {
+                return 0;
+            }
+            putNullableString(value);
+            return field;
+        }
+
+        // Length -1 marks null, for list elements and map entries
+        private void putNullableString(String value) {
+            if (value == null) {
+                ensure(Integer.BYTES);
+                buffer.putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ensure(Integer.BYTES + bytes.length);
+            buffer.putInt(bytes.length).put(bytes);
+        }
+
+        private int putStrings(int field, List<String> values) {
+            if (values == null) {
+                return 0;
+            }
+            ensure(Integer.BYTES);
+            buffer.putInt(values.size());
+            values.forEach(this::putNullableString);
+            return field;
+        }
+
+        private int putTimestamp(int field, LocalDateTime value) {
+            if (value == null) {
+                return 0;
+            }
+            ensure(Long.BYTES + Integer.BYTES);
+            buffer.putLong(value.toEpochSecond(ZoneOffset.UTC)).putInt(value.getNano());
+            return field;
+        }
+
+        private void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                buffer.flip();
+                buffer = larger.put(buffer);
+            }
+        }
+    }
+
+    static Product decode(ByteBuffer record) {
+        int fields = record.getInt();
+        // Only present fields are set, as every setter also stamps updatedAt; the fields Product()
+        // defaults are reset when absent, and the timestamps are set last
+        Product product = new Product();
+        product.setId(has(fields, ID) ? getString(record) : null);
+        if (has(fields, NAME)) {
+            product.setName(getString(record));
+        }
+        if (has(fields, BRAND)) {
+            product.setBrand(getString(record));
+        }
+        if (has(fields, PRICE)) {
+            int scale = record.getInt();
+            byte[] unscaled = new byte[record.getInt()];
+            record.get(unscaled);
+            product.setPrice(new BigDecimal(new BigInteger(unscaled), scale));
+        }
+        if (has(fields, DESCRIPTION)) {
+            product.setDescription(getString(record));
+        }
+        if (has(fields, IMAGE_URL)) {
+            product.setImageUrl(getString(record));
+        }
+        if (has(fields, FEATURES)) {
+            product.setFeatures(getStrings(record));
+        }
+        if (has(fields, SPECIFICATIONS)) {
+            int size = record.getInt();
+            Map<String, String> specifications = new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) {
+                specifications.put(getString(record), getString(record));
+            }
+            product.setSpecifications(specifications);
+        }
+        if (has(fields, CATEGORY)) {
+            product.setCategory(getString(record));
+        }
+        if (has(fields, CATEGORY_NAME)) {
+            product.setCategoryName(getString(record));
+        }
+        if (has(fields, PRODUCT_AREA)) {
+            product.setProductArea(getString(record));
+        }
+        if (has(fields, PRODUCT_AREA_NAME)) {
+            product.setProductAreaName(getString(record));
+        }
+        if (has(fields, STOCK_QUANTITY)) {
+            product.setStockQuantity(record.getInt());
+        }
+        if (has(fields, SKU)) {
+            product.setSku(getString(record));
+        }
+        product.setStatus(has(fields, STATUS) ? getString(record) : null);
+        product.setFeatured(has(fields, FEATURED) ? Boolean.valueOf(record.get() != 0) : null);
+        if (has(fields, WEIGHT)) {
+            product.setWeight(record.getDouble());
+        }
+        if (has(fields, DIMENSIONS)) {
+            product.setDimensions(getString(record));
+        }
+        if (has(fields, WARRANTY)) {
+            product.setWarranty(getString(record));
+        }
+        if (has(fields, MANUFACTURER)) {
+            product.setManufacturer(getString(record));
+        }
+        if (has(fields, TAGS)) {
+            product.setTags(getStrings(record));
+        }
+        product.setCreatedAt(has(fields, CREATED_AT) ? getTimestamp(record) : null);
+        LocalDateTime updatedAt = has(fields, UPDATED_AT) ? getTimestamp(record) : null;
+        if (has(fields, VERSION)) {
+            product.setVersion(record.getLong());
+        }
+        product.setUpdatedAt(updatedAt);
+        return product;
+    }
+
+    private static boolean has(int fields, int field) {
+        return (fields & field) != 0;
+    }
+
+    private static String getString(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static List<String> getStrings(ByteBuffer record) {
+        int size = record.getInt();
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(getString(record));
+        }
+        return values;
+    }
+
+    private static LocalDateTime getTimestamp(ByteBuffer record) {
+        long seconds = record.getLong();
+        return LocalDateTime.ofEpochSecond(seconds, record.getInt(), ZoneOffset.UTC);
+    }
+}
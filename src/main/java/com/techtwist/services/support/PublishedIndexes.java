@@ -0,0 +1,102 @@
+package com.techtwist.services.support;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Immutable copy of some secondary indexes, mapping each indexed value to its rows in id order
+ *
+ * Readers hold on to one version for as long as they like and never see a later change; writers
+ * make the next version from a batch of changes with with, which shares every entry and chunk the
+ * batch does not touch. Meant for indexes with few distinct values, as each version copies the
+ * value map of every index the batch changes
+ */
+public final class PublishedIndexes<T> {
+
+    /**
+     * One change to a row, as made to the live indexes
+     * @param before The row as it was, or null if it is new
+     * @param after The row as it is now, or null if it was removed
+     */
+    public record Change<T>(String id, T before, T after) {
+    }
+
+    private final Map<HashIndex<T>, Map<String, ChunkedIdMap<T>>> entries;
+
+    private PublishedIndexes(Map<HashIndex<T>, Map<String, ChunkedIdMap<T>>> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Index rows under each of indexes, as HashIndex.valueOf gives their values
+     */
+    public static <T> PublishedIndexes<T> of(List<HashIndex<T>> indexes, Collection<T> rows, Function<T, String> idOf) {
+        Map<HashIndex<T>, Map<String, ChunkedIdMap<T>>> entries = new HashMap<>();
+        for (HashIndex<T> index : indexes) {
+            Map<String, TreeMap<String, T>> byValue = new HashMap<>();
+            for (T row : rows) {
+                String value = index.valueOf(row);
+                if (value != null) {
+                    byValue.computeIfAbsent(value, v -> new TreeMap<>()).put(idOf.apply(row), row);
+                }
+            }
+            Map<String, ChunkedIdMap<T>> values = new HashMap<>();
+            byValue.forEach((value, ids) -> values.put(value, ChunkedIdMap.of(ids)));
+            entries.put(index, values);
+        }
+        return new PublishedIndexes<>(entries);
+    }
+
+    public boolean covers(HashIndex<T> index) {
+        return entries.containsKey(index);
+    }
+
+    /**
+     * The rows indexed under value, by id
+     */
+    public ChunkedIdMap<T> rows(HashIndex<T> index, String value) {
+        ChunkedIdMap<T> rows = value != null ? entries.get(index).get(value) : null;
+        return rows != null ? rows : ChunkedIdMap.empty();
+    }
+
+    /**
+     * The next version, with changes applied in the order given; this version is left as it was
+     */
+    public PublishedIndexes<T> with(List<Change<T>> changes) {
+        Map<HashIndex<T>, Map<String, ChunkedIdMap<T>>> next = new HashMap<>(entries);
+        entries.forEach((index, values) -> {
+            // Net change per value and id; a null row removes the id from the value
+            Map<String, TreeMap<String, T>> byValue = new HashMap<>();
+            for (Change<T> change : changes) {
+                String oldValue = change.before() != null ? index.valueOf(change.before()) : null;
+                String newValue = change.after() != null ? index.valueOf(change.after()) : null;
+                if (oldValue != null && !Objects.equals(oldValue, newValue)) {
+                    byValue.computeIfAbsent(oldValue, v -> new TreeMap<>()).put(change.id(), null);
+                }
+                if (newValue != null) {
+                    // Also when the value is unchanged, so readers get the row as it is now
+                    byValue.computeIfAbsent(newValue, v -> new TreeMap<>()).put(change.id(), change.after());
+                }
+            }
+            if (byValue.isEmpty()) {
+                return;
+            }
+            Map<String, ChunkedIdMap<T>> nextValues = new HashMap<>(values);
+            byValue.forEach((value, rows) -> {
+                ChunkedIdMap<T> changed = nextValues.getOrDefault(value, ChunkedIdMap.empty()).with(rows);
+                if (changed.size() == 0) {
+                    nextValues.remove(value);
+                } else {
+                    nextValues.put(value, changed);
+                }
+            });
+            next.put(index, nextValues);
+        });
+        return new PublishedIndexes<>(next);
+    }
+}
@@ -0,0 +1,60 @@
+package com.techtwist.services.support;
+
+import com.techtwist.dto.StockAdjustmentDTO;
+import com.techtwist.exceptions.ProductNotFoundException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Applies a batch of stock adjustments line by line with compensation
+ * Each line is an atomic single-product adjustment; if one fails the lines already applied
+ * are reversed, so the batch as a whole applies every line or none
+ */
+public final class StockAdjustments {
+
+    private StockAdjustments() {
+    }
+
+    /**
+     * @param lines Lines to apply, in order
+     * @param sign -1 to decrement, 1 to increment
+     * @param adjust Atomic adjustment of one product by a signed delta; returns null if the product
+     *               does not exist and throws if a decrement cannot be satisfied
+     * @return The adjusted products, one per line
+     */
+    public static <T> List<T> applyAll(List<StockAdjustmentDTO> lines, int sign,
+                                       BiFunction<String, Integer, T> adjust) {
+        for (StockAdjustmentDTO line : lines) {
+            requirePositive(line.getQuantity());
+        }
+        List<T> adjusted = new ArrayList<>(lines.size());
+        try {
+            for (StockAdjustmentDTO line : lines) {
+                T product = adjust.apply(line.getProductId(), sign * line.getQuantity());
+                if (product == null) {
+                    throw new ProductNotFoundException(line.getProductId());
+                }
+                adjusted.add(product);
+            }
+        } catch (RuntimeException e) {
+            // Reverse in the opposite order; a reversal never needs the stock guard
+            for (int i = adjusted.size() - 1; i >= 0; i--) {
+                StockAdjustmentDTO line = lines.get(i);
+                adjust.apply(line.getProductId(), -sign * line.getQuantity());
+            }
+            throw e;
+        }
+        return adjusted;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the quantity is not at least 1
+     */
+    public static void requirePositive(int quantity) {
+        if (quantity < 1) {
+            throw new IllegalArgumentException("quantity must be at least 1");
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.techtwist.services.support;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * Striped seqlock giving multi-row reads a point-in-time view of a concurrent map
+ *
+ * Each write locks only the stripe of the key it changes, so writers to different keys run
+ * in parallel. A snapshot read takes an optimistic stamp on every stripe, runs without
+ * blocking anyone and is accepted only if no stripe was written meanwhile; after a few failed
+ * attempts it falls back to holding every stripe's read lock, which waits out in-flight
+ * writes and guarantees the reader makes progress under a steady write load
+ *
+ * The snapshot body may run against a changing map and be discarded, so it must be free of
+ * side effects and must only read data that is safe to read concurrently
+ */
+public final class StripedSnapshotLock {
+
+    private static final int OPTIMISTIC_ATTEMPTS = 3;
+
+    private final StampedLock[] stripes;
+    private final int mask;
+
+    /**
+     * @param minStripes Lower bound on the stripe count, rounded up to a power of two
+     */
+    public StripedSnapshotLock(int minStripes) {
+        int count = Integer.highestOneBit(Math.max(1, minStripes - 1)) << 1;
+        this.stripes = new StampedLock[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new StampedLock();
+        }
+        this.mask = count - 1;
+    }
+
+    /**
+     * Run a write to one key while holding that key's stripe exclusively
+     */
+    public <T> T write(Object key, Supplier<T> action) {
+        StampedLock stripe = stripeOf(key);
+        long stamp = stripe.writeLock();
+        try {
+            return action.get();
+        } finally {
+            stripe.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Run a multi-row read so that it sees every write that completed before it and none that
+     * started during it
+     */
+    public <T> T snapshot(Supplier<T> read) {
+        long[] stamps = new long[stripes.length];
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            if (!tryOptimistic(stamps)) {
+                Thread.onSpinWait();
+                continue;
+            }
+            T result;
+            try {
+                result = read.get();
+            } catch (RuntimeException e) {
+                // A torn read may fail in ways a consistent one would not; only a valid one counts
+                if (validate(stamps)) {
+                    throw e;
+                }
+                continue;
+            }
+            if (validate(stamps)) {
+                return result;
+            }
+        }
+
+        // Stripes are always locked in index order, and writers hold at most one, so this cannot deadlock
+        for (int i = 0; i < stripes.length; i++) {
+            stamps[i] = stripes[i].readLock();
+        }
+        try {
+            return read.get();
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                stripes[i].unlockRead(stamps[i]);
+            }
+        }
+    }
+
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    private boolean tryOptimistic(long[] stamps) {
+        for (int i = 0; i < stripes.length; i++) {
+            stamps[i] = stripes[i].tryOptimisticRead();
+            if (stamps[i] == 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean validate(long[] stamps) {
+        for (int i = 0; i < stripes.length; i++) {
+            if (!stripes[i].validate(stamps[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private StampedLock stripeOf(Object key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & mask];
+    }
+}
@@ -0,0 +1,35 @@
+package com.techtwist.services.support;
+
+import com.techtwist.dto.SuggestionDTO;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Ranking shared by the product services for autocomplete suggestions
+ * Suggestions held by a featured product come first, then those held by more products;
+ * ties go in alphabetical order, so the same catalog always suggests the same list
+ */
+public final class Suggestions {
+
+    // Most suggestions one request can ask for; the in-memory index keeps this many per prefix
+    public static final int MAX_SIZE = 20;
+
+    public static final Comparator<SuggestionDTO> RANKING = Comparator
+            .comparing(SuggestionDTO::isFeatured).reversed()
+            .thenComparing(Comparator.comparingLong(SuggestionDTO::getCount).reversed())
+            .thenComparing(suggestion -> suggestion.getText().toLowerCase(Locale.ROOT))
+            .thenComparing(SuggestionDTO::getField);
+
+    private Suggestions() {
+    }
+
+    /**
+     * The best size suggestions of those found for each field
+     */
+    public static List<SuggestionDTO> top(Stream<SuggestionDTO> suggestions, int size) {
+        return suggestions.sorted(RANKING).limit(size).toList();
+    }
+}
@@ -0,0 +1,353 @@
+package com.techtwist.services.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Inverted index of the terms in some text fields of each row, ranked with BM25
+ *
+ * Each row indexed is given a document number, increasing with every add. A term's postings are
+ * the numbers of the documents holding it with the term's weighted frequency there, delta and
+ * varint encoded into one byte array, so adding a document appends a few bytes to each of its
+ * terms' postings. Changing a row adds it as a new document; removing one only marks its number
+ * dead, and the dead entries are dropped from every postings list once they outnumber the live ones.
+ *
+ * A search walks the postings of its terms side by side in document order, scoring each document
+ * holding any of them and keeping only the best few in a heap, so it costs the length of those
+ * postings rather than the size of the catalog. Fields are weighted by scaling term frequencies
+ * and document lengths (BM25F); ties are broken by id. Callers must serialize updates for the
+ * same id; the index takes its own lock for everything else
+ */
+public final class TextIndex<T> {
+
+    // Usual BM25 parameters: term frequency saturation and document length normalization
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Dead documents kept before compacting, so small catalogs are not compacted on every write
+    private static final int MIN_DEAD_TO_COMPACT = 1024;
+
+    /**
+     * A text field of the row and how much a term found there counts
+     * @param texts The field's texts, e.g. a name or each tag; may be null or hold nulls
+     */
+    public record Field<T>(Function<T, Collection<String>> texts, int weight) {
+    }
+
+    private record Hit(int doc, double score) {
+    }
+
+    private final Function<T, String> idOf;
+    private final List<Field<T>> fields;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<String, Integer> docs = new HashMap<>();
+    private Object[] rows = new Object[1024];
+    private int[] lengths = new int[1024];
+    private final BitSet live = new BitSet();
+    private int nextDoc;
+    private int liveDocs;
+    private long totalLength;
+
+    public TextIndex(Function<T, String> idOf, List<Field<T>> fields) {
+        this.idOf = idOf;
+        this.fields = fields;
+    }
+
+    /**
+     * Move a row from its old terms to its new ones
+     * @param before The row as it was, or null if it was not indexed
+     * @param after The row to index now, or null to drop it from the index
+     */
+    public void update(String id, T before, T after) {
+        Map<String, Integer> terms = after != null ? terms(after) : null;
+        lock.writeLock().lock();
+        try {
+            if (before != null) {
+                remove(id);
+            }
+            if (after != null) {
+                add(after, terms);
+            }
+            if (nextDoc - liveDocs > Math.max(MIN_DEAD_TO_COMPACT, liveDocs)) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Index many rows at once, e.g. when loading a snapshot; rows are tokenized in parallel
+     */
+    public void addAll(Collection<T> rows) {
+        List<T> ordered = new ArrayList<>(rows);
+        List<Map<String, Integer>> terms = ordered.parallelStream().map(this::terms).toList();
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < ordered.size(); i++) {
+                add(ordered.get(i), terms.get(i));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The best matches for any of the terms, best first
+     * @param limit How many to return at most
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> search(Collection<String> terms, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Cursor> cursors = new ArrayList<>();
+            for (String term : new LinkedHashSet<>(terms)) {
+                Postings entry = postings.get(term);
+                if (entry != null) {
+                    double idf = Math.log(1 + (liveDocs - entry.docs + 0.5) / (entry.docs + 0.5));
+                    cursors.add(new Cursor(entry, idf));
+                }
+            }
+            if (cursors.isEmpty() || limit <= 0) {
+                return List.of();
+            }
+            double averageLength = (double) totalLength / liveDocs;
+            // The worst hit kept is at the head, so it is the one a better hit replaces
+            Comparator<Hit> byRank = Comparator.comparingDouble(Hit::score)
+                    .thenComparing(hit -> idOf.apply((T) rows[hit.doc()]), Comparator.reverseOrder());
+            PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, byRank);
+            while (true) {
+                int doc = Integer.MAX_VALUE;
+                for (Cursor cursor : cursors) {
+                    if (cursor.doc >= 0) {
+                        doc = Math.min(doc, cursor.doc);
+                    }
+                }
+                if (doc == Integer.MAX_VALUE) {
+                    break;
+                }
+                double score = 0;
+                for (Cursor cursor : cursors) {
+                    if (cursor.doc == doc) {
+                        double norm = K1 * (1 - B + B * lengths[doc] / averageLength);
+                        score += cursor.idf * cursor.frequency * (K1 + 1) / (cursor.frequency + norm);
+                        cursor.next();
+                    }
+                }
+                if (live.get(doc) && (best.size() < limit || score >= best.peek().score())) {
+                    best.add(new Hit(doc, score));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+            List<T> results = new ArrayList<>(best.size());
+            best.stream().sorted(byRank.reversed()).forEach(hit -> results.add((T) rows[hit.doc()]));
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the rows holding any of the terms, in id order; costs the length of their postings
+     */
+    @SuppressWarnings("unchecked")
+    public NavigableSet<String> ids(Collection<String> terms) {
+        NavigableSet<String> ids = new TreeSet<>();
+        lock.readLock().lock();
+        try {
+            for (String term : new LinkedHashSet<>(terms)) {
+                Postings entry = postings.get(term);
+                if (entry == null) {
+                    continue;
+                }
+                for (Cursor cursor = new Cursor(entry, 0); cursor.doc >= 0; cursor.next()) {
+                    if (live.get(cursor.doc)) {
+                        ids.add(idOf.apply((T) rows[cursor.doc]));
+                    }
+                }
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of rows indexed
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Weighted frequency of each term in the row's fields
+    private Map<String, Integer> terms(T row) {
+        Map<String, Integer> terms = new HashMap<>();
+        for (Field<T> field : fields) {
+            Collection<String> texts = field.texts().apply(row);
+            if (texts == null) {
+                continue;
+            }
+            for (String text : texts) {
+                for (String term : TextTokenizer.tokenize(text)) {
+                    terms.merge(term, field.weight(), Integer::sum);
+                }
+            }
+        }
+        return terms;
+    }
+
+    private void add(T row, Map<String, Integer> terms) {
+        int doc = nextDoc++;
+        if (doc == rows.length) {
+            rows = Arrays.copyOf(rows, doc * 2);
+            lengths = Arrays.copyOf(lengths, doc * 2);
+        }
+        int length = 0;
+        for (Map.Entry<String, Integer> term : terms.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), t -> new Postings()).add(doc, term.getValue());
+            length += term.getValue();
+        }
+        rows[doc] = row;
+        lengths[doc] = length;
+        live.set(doc);
+        docs.put(idOf.apply(row), doc);
+        liveDocs++;
+        totalLength += length;
+    }
+
+    private void remove(String id) {
+        Integer doc = docs.remove(id);
+        if (doc == null) {
+            return;
+        }
+        // The terms the document was indexed under, from the row as it was indexed
+        @SuppressWarnings("unchecked")
+        Set<String> terms = terms((T) rows[doc]).keySet();
+        for (String term : terms) {
+            Postings entry = postings.get(term);
+            if (--entry.docs == 0) {
+                postings.remove(term); // every entry left in it is dead
+            }
+        }
+        live.clear(doc);
+        rows[doc] = null;
+        liveDocs--;
+        totalLength -= lengths[doc];
+    }
+
+    // Renumber the live documents from 0 and drop the dead ones from every postings list
+    private void compact() {
+        int[] renumbered = new int[nextDoc];
+        int next = 0;
+        for (int doc = live.nextSetBit(0); doc >= 0; doc = live.nextSetBit(doc + 1)) {
+            renumbered[doc] = next;
+            rows[next] = rows[doc];
+            lengths[next] = lengths[doc];
+            next++;
+        }
+        Arrays.fill(rows, next, nextDoc, null);
+        for (Map.Entry<String, Postings> entry : postings.entrySet()) {
+            Postings compacted = new Postings();
+            for (Cursor cursor = new Cursor(entry.getValue(), 0); cursor.doc >= 0; cursor.next()) {
+                if (live.get(cursor.doc)) {
+                    compacted.add(renumbered[cursor.doc], cursor.frequency);
+                }
+            }
+            entry.setValue(compacted);
+        }
+        docs.replaceAll((id, doc) -> renumbered[doc]);
+        live.clear();
+        live.set(0, next);
+        nextDoc = next;
+    }
+
+    /**
+     * One term's entries: (document number delta, weighted frequency) pairs as varints
+     */
+    private static final class Postings {
+        private byte[] bytes = new byte[8];
+        private int size;
+        private int lastDoc = -1;
+        // Live documents holding the term
+        private int docs;
+
+        private void add(int doc, int frequency) {
+            if (size + 10 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            writeVarint(doc - lastDoc);
+            writeVarint(frequency);
+            lastDoc = doc;
+            docs++;
+        }
+
+        private void writeVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+    }
+
+    /**
+     * Reads a postings list forward; doc is -1 once it is exhausted
+     */
+    private static final class Cursor {
+        private final Postings postings;
+        private final double idf;
+        private int position;
+        private int lastDoc = -1;
+        private int doc;
+        private int frequency;
+
+        private Cursor(Postings postings, double idf) {
+            this.postings = postings;
+            this.idf = idf;
+            next();
+        }
+
+        private void next() {
+            if (position >= postings.size) {
+                doc = -1;
+                return;
+            }
+            lastDoc += readVarint();
+            doc = lastDoc;
+            frequency = readVarint();
+        }
+
+        private int readVarint() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = postings.bytes[position++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+}
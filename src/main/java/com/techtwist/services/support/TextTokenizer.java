@@ -0,0 +1,39 @@
+package com.techtwist.services.support;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits free text into lower-case alphanumeric terms
+ * Used by the in-memory backend so search matches the word-level behaviour of the Mongo text index
+ */
+public final class TextTokenizer {
+
+    private TextTokenizer() {
+    }
+
+    /**
+     * Tokenize text into lower-case terms, splitting on anything that is not a letter or digit
+     * @param text Text to tokenize (may be null)
+     * @return Terms in order of appearance, including duplicates
+     */
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> terms = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,54 @@
+package com.techtwist.config;
+
+import com.techtwist.services.support.Durability;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the X-Durability request header
+ */
+public class DurabilityHeaderFilterTest {
+
+    private final DurabilityHeaderFilter filter = new DurabilityHeaderFilter();
+
+    @Test
+    void testHeaderAppliesToWritesDuringTheRequestOnly() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/products");
+        request.addHeader(DurabilityHeaderFilter.HEADER, "Async");
+        AtomicReference<Durability> seen = new AtomicReference<>();
+
+        filter.doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> seen.set(Durability.requestedOr(Durability.SYNC)));
+
+        assertThat(seen.get()).isEqualTo(Durability.ASYNC);
+        assertThat(Durability.requestedOr(Durability.SYNC)).isEqualTo(Durability.SYNC);
+    }
+
+    @Test
+    void testWithoutHeaderTheDefaultApplies() throws Exception {
+        AtomicReference<Durability> seen = new AtomicReference<>();
+
+        filter.doFilter(new MockHttpServletRequest("DELETE", "/api/products/1"), new MockHttpServletResponse(),
+                (req, res) -> seen.set(Durability.requestedOr(Durability.ASYNC)));
+
+        assertThat(seen.get()).isEqualTo(Durability.ASYNC);
+    }
+
+    @Test
+    void testUnknownLevelIsRejected() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/products");
+        request.addHeader(DurabilityHeaderFilter.HEADER, "eventually");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<Boolean> called = new AtomicReference<>(false);
+
+        filter.doFilter(request, response, (req, res) -> called.set(true));
+
+        assertThat(response.getStatus()).isEqualTo(400);
+        assertThat(called.get()).isFalse();
+    }
+}
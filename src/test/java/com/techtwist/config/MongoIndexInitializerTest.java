@@ -0,0 +1,64 @@
+package com.techtwist.config;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.result.UpdateResult;
+import com.techtwist.models.Product;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the startup backfills of MongoIndexInitializer
+ */
+public class MongoIndexInitializerTest {
+
+    private MongoCollection<Document> collection;
+    private MongoIndexInitializer initializer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        collection = mock(MongoCollection.class);
+        when(mongoTemplate.getCollectionName(Product.class)).thenReturn("products");
+        when(mongoTemplate.getCollection("products")).thenReturn(collection);
+        initializer = new MongoIndexInitializer(mongoTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testStringPricesAreConvertedToDecimalOnTheServer() {
+        when(collection.updateMany(any(Bson.class), anyList())).thenReturn(UpdateResult.acknowledged(3, 3L, null));
+
+        initializer.convertStringPrices();
+
+        ArgumentCaptor<Bson> filter = ArgumentCaptor.forClass(Bson.class);
+        ArgumentCaptor<List<Bson>> pipeline = ArgumentCaptor.forClass(List.class);
+        verify(collection).updateMany(filter.capture(), pipeline.capture());
+        // Only documents still holding a string match, so running it on every start is a no-op once converted
+        assertThat(filter.getValue()).isEqualTo(new Document("price", new Document("$type", "string")));
+        assertThat(pipeline.getValue()).containsExactly(
+                new Document("$set", new Document("price", new Document("$toDecimal", "$price"))));
+    }
+
+    @Test
+    void testFailedConversionDoesNotStopStartup() {
+        when(collection.updateMany(any(Bson.class), anyList())).thenThrow(new MongoException("not primary"));
+
+        assertThatCode(initializer::convertStringPrices).doesNotThrowAnyException();
+    }
+}
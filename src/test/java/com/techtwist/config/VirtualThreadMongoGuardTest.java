@@ -0,0 +1,81 @@
+package com.techtwist.config;
+
+import com.techtwist.dto.ProductResponseDTO;
+import com.techtwist.mapper.ProductMapper;
+import com.techtwist.models.Product;
+import com.techtwist.repository.ProductRepository;
+import com.techtwist.services.InMemoryProductService;
+import com.techtwist.services.MongoProductService;
+import com.techtwist.services.interfaces.IProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the virtual-thread bulkhead around MongoProductService
+ */
+public class VirtualThreadMongoGuardTest {
+
+    @Test
+    void testConcurrentCallersAreLimited() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        ProductRepository repository = mock(ProductRepository.class);
+        when(repository.findAll()).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            inFlight.decrementAndGet();
+            return Collections.<Product>emptyList();
+        });
+        IProductService service = guard(2, new MongoProductService(repository, mock(MongoTemplate.class), new ProductMapper()));
+
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<ProductResponseDTO>>> calls = IntStream.range(0, 16)
+                    .mapToObj(i -> callers.submit(() -> service.findAll()))
+                    .collect(Collectors.toList());
+            for (Future<List<ProductResponseDTO>> call : calls) {
+                call.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+
+        assertThat(AopUtils.isAopProxy(service)).isTrue();
+        assertThat(maxInFlight.get()).isBetween(1, 2);
+    }
+
+    @Test
+    void testOtherServicesAreNotProxied() {
+        InMemoryProductService inMemory = new InMemoryProductService();
+
+        assertThat(guard(2, inMemory)).isSameAs(inMemory);
+    }
+
+    @Test
+    void testLimitMustBePositive() {
+        assertThatThrownBy(() -> new VirtualThreadMongoGuard(0))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private IProductService guard(int limit, IProductService bean) {
+        VirtualThreadMongoGuard guard = new VirtualThreadMongoGuard(limit);
+        guard.setBeanClassLoader(getClass().getClassLoader());
+        return (IProductService) guard.postProcessAfterInitialization(bean, "productService");
+    }
+}
@@ -0,0 +1,208 @@
+package com.techtwist.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.techtwist.dto.CursorPageDTO;
+import com.techtwist.dto.ProductResponseDTO;
+import com.techtwist.dto.ProductSummaryDTO;
+import com.techtwist.services.ProductJsonCache;
+import com.techtwist.services.interfaces.IProductService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * ProductController with product.json-cache.enabled: GET /{id} and /summaries answered from cached JSON
+ */
+@WebMvcTest(value = ProductController.class,
+        properties = {"product.json-cache.enabled=true", "product.json-cache.gzip=true"})
+@ContextConfiguration(classes = {ProductController.class, ProductJsonCache.class,
+        ProductControllerJsonCacheTest.TestConfig.class})
+public class ProductControllerJsonCacheTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private IProductService productService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Configuration
+    static class TestConfig {
+        @Bean
+        public IProductService productService() {
+            return mock(IProductService.class);
+        }
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @BeforeEach
+    void resetService() {
+        reset(productService);
+    }
+
+    @Test
+    public void testUnchangedProductIsReadAndSerializedOnce() throws Exception {
+        ProductResponseDTO product = product("p-1", 7L);
+        when(productService.findVersion("p-1")).thenReturn(Optional.of(7L));
+        when(productService.findById("p-1")).thenReturn(Optional.of(product));
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/api/products/p-1"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, "\"7\""))
+                    .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                    .andExpect(content().contentType("application/json"))
+                    .andExpect(content().bytes(objectMapper.writeValueAsBytes(product)));
+        }
+
+        verify(productService, times(1)).findById("p-1");
+        verify(productService, times(2)).findVersion("p-1"); // not before the first read, which held nothing
+    }
+
+    @Test
+    public void testNewVersionIsSerializedAgain() throws Exception {
+        when(productService.findVersion("p-2")).thenReturn(Optional.of(1L));
+        when(productService.findById("p-2")).thenReturn(Optional.of(product("p-2", 1L)));
+        mockMvc.perform(get("/api/products/p-2")).andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+
+        ProductResponseDTO updated = product("p-2", 2L);
+        updated.setName("Renamed");
+        when(productService.findVersion("p-2")).thenReturn(Optional.of(2L));
+        when(productService.findById("p-2")).thenReturn(Optional.of(updated));
+
+        mockMvc.perform(get("/api/products/p-2"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""))
+                .andExpect(jsonPath("$.name").value("Renamed"));
+        verify(productService, times(2)).findById("p-2");
+    }
+
+    @Test
+    public void testProductNotHeldIsReadOnce() throws Exception {
+        when(productService.findById("missing")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/products/missing")).andExpect(status().isNotFound());
+        verify(productService, times(1)).findById("missing");
+        verify(productService, never()).findVersion("missing");
+    }
+
+    @Test
+    public void testHeldProductDeletedElsewhereIsNotFound() throws Exception {
+        when(productService.findById("p-5")).thenReturn(Optional.of(product("p-5", 1L)));
+        mockMvc.perform(get("/api/products/p-5")).andExpect(status().isOk());
+        when(productService.findVersion("p-5")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/products/p-5")).andExpect(status().isNotFound());
+        verify(productService, times(1)).findById("p-5");
+    }
+
+    @Test
+    public void testLargeProductIsSentGzippedToClientsThatAcceptIt() throws Exception {
+        ProductResponseDTO product = product("p-3", 1L);
+        product.setDescription("Compressible description. ".repeat(100));
+        when(productService.findVersion("p-3")).thenReturn(Optional.of(1L));
+        when(productService.findById("p-3")).thenReturn(Optional.of(product));
+
+        MvcResult gzipped = mockMvc.perform(get("/api/products/p-3").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT_ENCODING)))
+                .andReturn();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.getResponse().getContentAsByteArray()))) {
+            assertThat(in.readAllBytes()).isEqualTo(objectMapper.writeValueAsBytes(product));
+        }
+
+        mockMvc.perform(get("/api/products/p-3").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity"))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().bytes(objectMapper.writeValueAsBytes(product)));
+    }
+
+    @Test
+    public void testDeleteEvictsTheProduct() throws Exception {
+        when(productService.findVersion("p-4")).thenReturn(Optional.of(1L));
+        when(productService.findById("p-4")).thenReturn(Optional.of(product("p-4", 1L)));
+        mockMvc.perform(get("/api/products/p-4")).andExpect(status().isOk());
+
+        mockMvc.perform(delete("/api/products/p-4")).andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/products/p-4")).andExpect(status().isOk());
+
+        verify(productService, times(2)).findById("p-4");
+    }
+
+    @Test
+    public void testSummariesAreWrittenAsCachedJson() throws Exception {
+        List<ProductSummaryDTO> summaries = List.of(summary("a"), summary("b"));
+        when(productService.findAllSummary()).thenReturn(summaries);
+        when(productService.findAllSummary(1, null))
+                .thenReturn(new CursorPageDTO<>(List.of(summary("a")), "next-cursor", 1));
+
+        mockMvc.perform(get("/api/products/summaries"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/json"))
+                .andExpect(content().bytes(objectMapper.writeValueAsBytes(summaries)));
+        mockMvc.perform(get("/api/products/summaries").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(ProductController.NEXT_CURSOR_HEADER, "next-cursor"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value("a"));
+    }
+
+    @Test
+    public void testAcceptsGzip() {
+        assertThat(ProductController.acceptsGzip("gzip")).isTrue();
+        assertThat(ProductController.acceptsGzip("deflate, GZIP;q=0.5")).isTrue();
+        assertThat(ProductController.acceptsGzip("*")).isTrue();
+        assertThat(ProductController.acceptsGzip("*, gzip;q=0")).isFalse();
+        assertThat(ProductController.acceptsGzip("gzip; q=0.0")).isFalse();
+        assertThat(ProductController.acceptsGzip("identity")).isFalse();
+        assertThat(ProductController.acceptsGzip(null)).isFalse();
+    }
+
+    private static ProductResponseDTO product(String id, Long version) {
+        ProductResponseDTO product = new ProductResponseDTO();
+        product.setId(id);
+        product.setVersion(version);
+        product.setName("FlexiRetail Mobile POS");
+        product.setPrice(new BigDecimal("399.99"));
+        product.setBrand("TechTwist");
+        return product;
+    }
+
+    private static ProductSummaryDTO summary(String id) {
+        return new ProductSummaryDTO(id, "Product " + id, "TechTwist", new BigDecimal("10.00"), null,
+                "retail", "Retail", 4, false, "ACTIVE");
+    }
+}
@@ -2,28 +2,38 @@ package com.techtwist.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.techtwist.dto.*;
+import com.techtwist.exceptions.InsufficientStockException;
+import com.techtwist.exceptions.ProductNotFoundException;
+import com.techtwist.exceptions.VersionConflictException;
 import com.techtwist.services.interfaces.IProductService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@WebMvcTest(ProductController.class)
+@WebMvcTest(value = ProductController.class, properties = "product.bulk.chunk-size=2")
 @ContextConfiguration(classes = {ProductController.class, ProductControllerTest.TestConfig.class})
 public class ProductControllerTest {
 
@@ -140,6 +150,130 @@ public class ProductControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void testPatchProduct() throws Exception {
+        ProductResponseDTO responseDTO = new ProductResponseDTO();
+        responseDTO.setId("ret_pos_004");
+        responseDTO.setStockQuantity(7);
+
+        when(productService.patch(eq("ret_pos_004"), argThat(dto -> Integer.valueOf(7).equals(dto.getStockQuantity())
+                && dto.getName() == null))).thenReturn(responseDTO);
+
+        mockMvc.perform(patch("/api/products/ret_pos_004")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"stockQuantity\":7}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stockQuantity").value(7));
+    }
+
+    @Test
+    public void testPatchProductNotFound() throws Exception {
+        when(productService.patch(eq("ret_pos_999"), any(ProductUpdateDTO.class))).thenReturn(null);
+
+        mockMvc.perform(patch("/api/products/ret_pos_999")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Updated Product\"}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testDecrementStock() throws Exception {
+        ProductResponseDTO responseDTO = new ProductResponseDTO();
+        responseDTO.setId("ret_pos_004");
+        responseDTO.setStockQuantity(8);
+
+        when(productService.decrementStock("ret_pos_004", 2)).thenReturn(responseDTO);
+        when(productService.decrementStock("ret_pos_005", 2)).thenThrow(new InsufficientStockException("ret_pos_005", 2));
+
+        mockMvc.perform(post("/api/products/ret_pos_004/stock/decrement").param("quantity", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stockQuantity").value(8));
+        mockMvc.perform(post("/api/products/ret_pos_005/stock/decrement").param("quantity", "2"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    public void testBatchDecrementStockMapsMissingProductTo404() throws Exception {
+        when(productService.decrementStock(argThat((List<StockAdjustmentDTO> lines) -> lines.size() == 2
+                && "ret_pos_999".equals(lines.get(1).getProductId()))))
+                .thenThrow(new ProductNotFoundException("ret_pos_999"));
+
+        mockMvc.perform(post("/api/products/stock/decrement")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"productId\":\"ret_pos_004\",\"quantity\":1},{\"productId\":\"ret_pos_999\",\"quantity\":1}]"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/products/stock/decrement")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetProductByIdReturnsVersionAsETag() throws Exception {
+        ProductResponseDTO responseDTO = new ProductResponseDTO();
+        responseDTO.setId("ret_pos_004");
+        responseDTO.setVersion(3L);
+
+        when(productService.findById("ret_pos_004")).thenReturn(Optional.of(responseDTO));
+
+        mockMvc.perform(get("/api/products/ret_pos_004"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""));
+    }
+
+    @Test
+    public void testConditionalUpdateWithIfMatch() throws Exception {
+        ProductResponseDTO responseDTO = new ProductResponseDTO();
+        responseDTO.setId("ret_pos_004");
+        responseDTO.setVersion(4L);
+
+        when(productService.update(eq("ret_pos_004"), any(ProductUpdateDTO.class), eq(3L))).thenReturn(responseDTO);
+
+        mockMvc.perform(put("/api/products/ret_pos_004")
+                .header("If-Match", "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Renamed\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""));
+    }
+
+    @Test
+    public void testDuplicateSkuIsAConflict() throws Exception {
+        when(productService.create(any(ProductCreateDTO.class))).thenThrow(new DuplicateKeyException("sku_idx"));
+        when(productService.update(eq("ret_pos_004"), any(ProductUpdateDTO.class))).thenThrow(new DuplicateKeyException("sku_idx"));
+        when(productService.patch(eq("ret_pos_004"), any(ProductUpdateDTO.class))).thenThrow(new DuplicateKeyException("sku_idx"));
+
+        mockMvc.perform(post("/api/products")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Mobile POS\",\"sku\":\"POS-1\"}"))
+                .andExpect(status().isConflict());
+        mockMvc.perform(put("/api/products/ret_pos_004")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"sku\":\"POS-1\"}"))
+                .andExpect(status().isConflict());
+        mockMvc.perform(patch("/api/products/ret_pos_004")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"sku\":\"POS-1\"}"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    public void testConditionalPatchWithStaleVersionFails() throws Exception {
+        when(productService.patch(eq("ret_pos_004"), any(ProductUpdateDTO.class), eq(2L)))
+                .thenThrow(new VersionConflictException("ret_pos_004", 2L));
+
+        mockMvc.perform(patch("/api/products/ret_pos_004")
+                .header("If-Match", "W/\"2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Renamed\"}"))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(patch("/api/products/ret_pos_004")
+                .header("If-Match", "\"not-a-version\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Renamed\"}"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
     @Test
     public void testDeleteProduct() throws Exception {
         // The delete method returns void, so we just verify it's called
@@ -232,4 +366,235 @@ public class ProductControllerTest {
                 .andExpect(jsonPath("$.id").value("ret_pos_004"))
                 .andExpect(jsonPath("$.name").value("FlexiRetail Mobile POS"));
     }
+
+    @Test
+    public void testGetProductsByCategoryPaged() throws Exception {
+        ProductResponseDTO response = new ProductResponseDTO();
+        response.setId("ret_pos_004");
+        response.setName("FlexiRetail Mobile POS");
+
+        CursorPageDTO<ProductResponseDTO> page = new CursorPageDTO<>(Arrays.asList(response), "next-token", 1);
+
+        when(productService.findByCategory("Retail", 1, null)).thenReturn(page);
+
+        mockMvc.perform(get("/api/products/category/Retail").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "next-token"))
+                .andExpect(header().string("Link", containsString("after=next-token")))
+                .andExpect(jsonPath("$").isArray())
+                .andExpect(jsonPath("$[0].id").value("ret_pos_004"));
+    }
+
+    @Test
+    public void testGetSummariesLastPageHasNoCursor() throws Exception {
+        ProductSummaryDTO summary = new ProductSummaryDTO();
+        summary.setId("ret_pos_005");
+
+        when(productService.findAllSummary(500, "cursor"))
+                .thenReturn(new CursorPageDTO<>(Arrays.asList(summary), null, 500));
+
+        mockMvc.perform(get("/api/products/summaries").param("limit", "1000").param("after", "cursor"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                .andExpect(jsonPath("$[0].id").value("ret_pos_005"));
+    }
+
+    @Test
+    public void testListAllRejectsInvalidCursor() throws Exception {
+        when(productService.findAll(50, "bad")).thenThrow(new IllegalArgumentException("Invalid pagination cursor"));
+
+        mockMvc.perform(get("/api/products").param("after", "bad"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testListAllRejectsNonPositiveLimit() throws Exception {
+        mockMvc.perform(get("/api/products").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testStreamAllWritesNdjson() throws Exception {
+        ProductResponseDTO response1 = new ProductResponseDTO();
+        response1.setId("ret_pos_004");
+        response1.setName("FlexiRetail Mobile POS");
+
+        ProductResponseDTO response2 = new ProductResponseDTO();
+        response2.setId("ret_pos_005");
+        response2.setName("FlexiRetail Desktop POS");
+
+        when(productService.streamAll()).thenReturn(Stream.of(response1, response2));
+
+        MvcResult result = mockMvc.perform(get("/api/products/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertThat(body).endsWith("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readTree(lines[0]).get("id").asText())
+                .isEqualTo("ret_pos_004");
+        assertThat(objectMapper.readTree(lines[1]).get("name").asText())
+                .isEqualTo("FlexiRetail Desktop POS");
+    }
+
+    @Test
+    public void testSearchProducts() throws Exception {
+        ProductResponseDTO response = new ProductResponseDTO();
+        response.setId("ret_pos_004");
+        response.setName("FlexiRetail Mobile POS");
+
+        when(productService.search("mobile pos", 1, 20)).thenReturn(Arrays.asList(response));
+
+        mockMvc.perform(get("/api/products/search").param("q", "mobile pos").param("page", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value("ret_pos_004"));
+    }
+
+    @Test
+    public void testSearchRequiresQuery() throws Exception {
+        mockMvc.perform(get("/api/products/search").param("q", " "))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testAutocompleteCapsSize() throws Exception {
+        when(productService.autocomplete("flexi", 20))
+                .thenReturn(List.of(new SuggestionDTO("FlexiRetail Mobile POS", SuggestionDTO.NAME, 1, true)));
+
+        mockMvc.perform(get("/api/products/autocomplete").param("prefix", "flexi").param("size", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].text").value("FlexiRetail Mobile POS"))
+                .andExpect(jsonPath("$[0].field").value("name"))
+                .andExpect(jsonPath("$[0].featured").value(true));
+    }
+
+    @Test
+    public void testAutocompleteWithoutMatchesIsNoContent() throws Exception {
+        when(productService.autocomplete("zzz", 10)).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/products/autocomplete").param("prefix", "zzz"))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    public void testAutocompleteRequiresPrefix() throws Exception {
+        mockMvc.perform(get("/api/products/autocomplete").param("prefix", " "))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testFilterBindsQueryParameters() throws Exception {
+        ProductResponseDTO response = new ProductResponseDTO();
+        response.setId("ret_pos_004");
+
+        when(productService.findWithFilters(argThat(f -> "Retail".equals(f.getCategory())
+                        && new BigDecimal("100").compareTo(f.getMinPrice()) == 0
+                        && Boolean.TRUE.equals(f.getInStock())
+                        && f.getBrand() == null), eq(50), isNull()))
+                .thenReturn(new CursorPageDTO<>(Arrays.asList(response), null, 50));
+
+        mockMvc.perform(get("/api/products/filter")
+                .param("category", "Retail")
+                .param("minPrice", "100")
+                .param("inStock", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value("ret_pos_004"));
+    }
+
+    @Test
+    public void testFilterRejectsInvertedPriceRange() throws Exception {
+        mockMvc.perform(get("/api/products/filter").param("minPrice", "10").param("maxPrice", "5"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetByPriceDescendingSetsCursorHeaders() throws Exception {
+        ProductResponseDTO response = new ProductResponseDTO();
+        response.setId("ret_pos_004");
+
+        when(productService.findByPriceRange(argThat(min -> new BigDecimal("10").compareTo(min) == 0), isNull(),
+                eq(true), eq(1), isNull()))
+                .thenReturn(new CursorPageDTO<>(Arrays.asList(response), "next-cursor", 1));
+
+        mockMvc.perform(get("/api/products/price").param("minPrice", "10").param("sort", "DESC").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(ProductController.NEXT_CURSOR_HEADER, "next-cursor"))
+                .andExpect(jsonPath("$[0].id").value("ret_pos_004"));
+    }
+
+    @Test
+    public void testGetByPriceRejectsUnknownSortAndInvertedRange() throws Exception {
+        mockMvc.perform(get("/api/products/price").param("sort", "cheapest"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/products/price").param("minPrice", "10").param("maxPrice", "5"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetFacets() throws Exception {
+        ProductFacetsDTO facets = new ProductFacetsDTO();
+        facets.getCategories().put("Retail", 3L);
+        facets.getPriceBuckets().put("250-500", 2L);
+
+        when(productService.findFacets(argThat(f -> "TechTwist".equals(f.getBrand())))).thenReturn(facets);
+
+        mockMvc.perform(get("/api/products/facets").param("brand", "TechTwist"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.categories.Retail").value(3))
+                .andExpect(jsonPath("$.priceBuckets['250-500']").value(2));
+    }
+
+    @Test
+    public void testBulkUpsertNdjsonIsWrittenInChunks() throws Exception {
+        when(productService.bulkUpsert(anyList())).thenAnswer(invocation -> {
+            List<ProductCreateDTO> chunk = invocation.getArgument(0);
+            List<BulkItemResultDTO> items = new ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                items.add(BulkItemResultDTO.success(i, chunk.get(i).getSku(), "id-" + chunk.get(i).getSku(),
+                        BulkItemResultDTO.Status.CREATED));
+            }
+            return new BulkResultDTO(items);
+        });
+
+        String body = "{\"name\":\"A\",\"sku\":\"SKU-A\"}\n" +
+                "{\"name\":\"B\",\"sku\":\"SKU-B\"}\n" +
+                "{\"name\":\"C\",\"sku\":\"SKU-C\"}\n";
+
+        mockMvc.perform(post("/api/products/bulk")
+                .contentType("application/x-ndjson")
+                .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(3))
+                .andExpect(jsonPath("$.items[2].index").value(2))
+                .andExpect(jsonPath("$.items[2].id").value("id-SKU-C"));
+
+        verify(productService).bulkUpsert(argThat(chunk -> chunk.size() == 1 && "SKU-C".equals(chunk.get(0).getSku())));
+    }
+
+    @Test
+    public void testBulkUpsertAcceptsJsonArray() throws Exception {
+        when(productService.bulkUpsert(anyList())).thenReturn(new BulkResultDTO(new ArrayList<>(List.of(
+                BulkItemResultDTO.failure(0, null, BulkItemResultDTO.Status.FAILED, "SKU is required for bulk upsert")))));
+
+        mockMvc.perform(post("/api/products/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"name\":\"No SKU\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.items[0].status").value("FAILED"));
+    }
+
+    @Test
+    public void testBulkUpsertRejectsEmptyAndMalformedBodies() throws Exception {
+        mockMvc.perform(post("/api/products/bulk").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/products/bulk").contentType("application/x-ndjson").content("{\"name\":"))
+                .andExpect(status().isBadRequest());
+    }
 }
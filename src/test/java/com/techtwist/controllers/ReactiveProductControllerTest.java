@@ -0,0 +1,244 @@
+package com.techtwist.controllers;
+
+import com.techtwist.dto.*;
+import com.techtwist.exceptions.InsufficientStockException;
+import com.techtwist.exceptions.VersionConflictException;
+import com.techtwist.services.interfaces.IReactiveProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(value = ReactiveProductController.class, properties = "product.bulk.chunk-size=2")
+@ContextConfiguration(classes = {ReactiveProductController.class, ReactiveProductControllerTest.TestConfig.class})
+@ActiveProfiles("mongodb-reactive")
+public class ReactiveProductControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private IReactiveProductService productService;
+
+    @Configuration
+    static class TestConfig {
+        @Bean
+        public IReactiveProductService productService() {
+            return mock(IReactiveProductService.class);
+        }
+    }
+
+    @Test
+    public void testGetProductByIdSetsETag() {
+        ProductResponseDTO product = product("ret_pos_004", "FlexiRetail Mobile POS");
+        product.setVersion(3L);
+        when(productService.findById("ret_pos_004")).thenReturn(Mono.just(product));
+
+        webTestClient.get().uri("/api/products/ret_pos_004")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"")
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("FlexiRetail Mobile POS");
+    }
+
+    @Test
+    public void testGetProductByIdNotFound() {
+        when(productService.findById("999")).thenReturn(Mono.empty());
+
+        webTestClient.get().uri("/api/products/999")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void testListAllStreamsJsonArray() {
+        when(productService.findAll()).thenReturn(Flux.just(product("1", "Mobile POS"), product("2", "Smart Kiosk")));
+
+        webTestClient.get().uri("/api/products")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[1].id").isEqualTo("2");
+    }
+
+    @Test
+    public void testListCategoryPageSetsCursorHeaders() {
+        when(productService.findByCategory(eq("retail"), eq(1), isNull()))
+                .thenReturn(Mono.just(new CursorPageDTO<>(List.of(product("1", "Mobile POS")), "next-cursor", 1)));
+
+        webTestClient.get().uri("/api/products/category/retail?limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(ProductController.NEXT_CURSOR_HEADER, "next-cursor")
+                .expectHeader().value(HttpHeaders.LINK, containsString("after=next-cursor"))
+                .expectBody()
+                .jsonPath("$[0].id").isEqualTo("1");
+    }
+
+    @Test
+    public void testEmptyPageReturnsNoContent() {
+        when(productService.findAll(50, "abc")).thenReturn(Mono.just(new CursorPageDTO<>(List.of(), null, 50)));
+
+        webTestClient.get().uri("/api/products?after=abc")
+                .exchange()
+                .expectStatus().isNoContent();
+    }
+
+    @Test
+    public void testInvalidCursorReturnsBadRequest() {
+        when(productService.findAll(50, "bad")).thenReturn(Mono.error(new IllegalArgumentException("Invalid pagination cursor")));
+
+        webTestClient.get().uri("/api/products?after=bad")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void testGetByPriceBindsRangeAndSort() {
+        when(productService.findByPriceRange(argThat(min -> new BigDecimal("5").compareTo(min) == 0),
+                argThat(max -> new BigDecimal("20").compareTo(max) == 0), eq(false), eq(50), isNull()))
+                .thenReturn(Mono.just(new CursorPageDTO<>(List.of(product("1", "Cable")), null, 50)));
+
+        webTestClient.get().uri("/api/products/price?minPrice=5&maxPrice=20")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].id").isEqualTo("1");
+    }
+
+    @Test
+    public void testAutocompleteCapsSizeAndReturnsSuggestions() {
+        when(productService.autocomplete("sma", 20)).thenReturn(Mono.just(List.of(
+                new SuggestionDTO("smart-home", SuggestionDTO.TAG, 2, true),
+                new SuggestionDTO("SmartPay", SuggestionDTO.BRAND, 3, false))));
+        when(productService.autocomplete("zz", 10)).thenReturn(Mono.just(List.of()));
+
+        webTestClient.get().uri("/api/products/autocomplete?prefix=sma&size=500")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].text").isEqualTo("smart-home")
+                .jsonPath("$[1].field").isEqualTo(SuggestionDTO.BRAND);
+        webTestClient.get().uri("/api/products/autocomplete?prefix=zz")
+                .exchange()
+                .expectStatus().isNoContent();
+        webTestClient.get().uri("/api/products/autocomplete?prefix=sma&size=0")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void testStreamAllWritesNdjson() {
+        when(productService.streamAll()).thenReturn(Flux.just(product("1", "Mobile POS"), product("2", "Smart Kiosk")));
+
+        String body = webTestClient.get().uri("/api/products/stream")
+                .accept(MediaType.parseMediaType(ProductController.APPLICATION_NDJSON_VALUE))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+
+        assertThat(body.trim().split("\n")).hasSize(2);
+        assertThat(body).contains("\"id\":\"2\"");
+    }
+
+    @Test
+    public void testPatchWithStaleIfMatchReturnsPreconditionFailed() {
+        when(productService.patch(eq("1"), any(ProductUpdateDTO.class), eq(2L)))
+                .thenReturn(Mono.error(new VersionConflictException("1", 2L)));
+
+        webTestClient.patch().uri("/api/products/1")
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"price\": 10}")
+                .exchange()
+                .expectStatus().isEqualTo(412);
+    }
+
+    @Test
+    public void testCreateWithDuplicateSkuReturnsConflict() {
+        when(productService.create(any(ProductCreateDTO.class))).thenReturn(Mono.error(new DuplicateKeyException("sku_idx")));
+
+        webTestClient.post().uri("/api/products")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"name\": \"Mobile POS\", \"sku\": \"POS-1\"}")
+                .exchange()
+                .expectStatus().isEqualTo(409);
+    }
+
+    @Test
+    public void testDecrementStockShortReturnsConflict() {
+        when(productService.decrementStock("1", 5)).thenReturn(Mono.error(new InsufficientStockException("1", 5)));
+
+        webTestClient.post().uri("/api/products/1/stock/decrement?quantity=5")
+                .exchange()
+                .expectStatus().isEqualTo(409);
+    }
+
+    @Test
+    public void testBulkUpsertDecodesNdjsonInChunks() {
+        when(productService.bulkUpsert(anyList())).thenAnswer(invocation -> {
+            List<ProductCreateDTO> chunk = invocation.getArgument(0);
+            BulkResultDTO result = new BulkResultDTO();
+            for (int i = 0; i < chunk.size(); i++) {
+                result.getItems().add(BulkItemResultDTO.success(i, chunk.get(i).getSku(), "id-" + chunk.get(i).getSku(),
+                        BulkItemResultDTO.Status.CREATED));
+            }
+            return Mono.just(result);
+        });
+
+        webTestClient.post().uri("/api/products/bulk")
+                .contentType(MediaType.parseMediaType(ProductController.APPLICATION_NDJSON_VALUE))
+                .bodyValue("{\"sku\":\"A\"}\n{\"sku\":\"B\"}\n{\"sku\":\"C\"}\n")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.created").isEqualTo(3)
+                .jsonPath("$.items[2].index").isEqualTo(2)
+                .jsonPath("$.items[2].sku").isEqualTo("C");
+
+        verify(productService).bulkUpsert(argThat(chunk -> chunk.size() == 1 && "C".equals(chunk.get(0).getSku())));
+    }
+
+    @Test
+    public void testBulkUpsertWithEmptyBodyReturnsBadRequest() {
+        webTestClient.post().uri("/api/products/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[]")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    private ProductResponseDTO product(String id, String name) {
+        ProductResponseDTO dto = new ProductResponseDTO();
+        dto.setId(id);
+        dto.setName(name);
+        dto.setPrice(new BigDecimal("399.99"));
+        dto.setBrand("TechTwist");
+        return dto;
+    }
+}
@@ -469,6 +469,33 @@ public class ProductMapperTest {
         assertThat(responseDTO.getUpdatedAt()).isEqualTo("2024-12-16T14:30:45");
     }
 
+    @Test
+    void testToEntityFromResponseDTORoundTrips() {
+        Product product = createSampleProduct();
+        product.setStatus("DISCONTINUED");
+        product.setCreatedAt(LocalDateTime.of(2024, 12, 15, 14, 30, 45));
+        product.setUpdatedAt(LocalDateTime.of(2024, 12, 16, 14, 30, 45));
+        product.setVersion(7L);
+
+        Product entity = productMapper.toEntity(productMapper.toResponseDTO(product));
+
+        assertThat(entity).usingRecursiveComparison().isEqualTo(product);
+    }
+
+    @Test
+    void testToEntityFromResponseDTOKeepsDefaultsForMissingFields() {
+        ProductResponseDTO dto = new ProductResponseDTO();
+        dto.setName("Minimal");
+
+        Product entity = productMapper.toEntity(dto);
+
+        assertThat(entity.getStatus()).isEqualTo("ACTIVE");
+        assertThat(entity.getFeatured()).isFalse();
+        assertThat(entity.getCreatedAt()).isNotNull();
+        assertThat(entity.getId()).isNull();
+        assertThat(productMapper.toEntity((ProductResponseDTO) null)).isNull();
+    }
+
     // Helper method to create a sample product for testing
     private Product createSampleProduct() {
         Product product = new Product();
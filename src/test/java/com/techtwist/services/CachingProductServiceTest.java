@@ -0,0 +1,322 @@
+package com.techtwist.services;
+
+import com.techtwist.dto.ProductCreateDTO;
+import com.techtwist.dto.ProductResponseDTO;
+import com.techtwist.dto.ProductUpdateDTO;
+import com.techtwist.dto.StockAdjustmentDTO;
+import com.techtwist.exceptions.InsufficientStockException;
+import com.techtwist.exceptions.VersionConflictException;
+import com.techtwist.mapper.ProductMapper;
+import com.techtwist.services.interfaces.IProductService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for CachingProductService in front of a spied InMemoryProductService
+ */
+public class CachingProductServiceTest {
+
+    private InMemoryProductService backend;
+    private MeterRegistry meterRegistry;
+    private final AtomicLong nanos = new AtomicLong();
+    private CachingProductService productService;
+
+    @BeforeEach
+    void setUp() {
+        InMemoryProductService inMemory = new InMemoryProductService();
+        ReflectionTestUtils.setField(inMemory, "productMapper", new ProductMapper());
+        inMemory.initializeSampleProducts();
+        backend = spy(inMemory);
+        meterRegistry = new SimpleMeterRegistry();
+        productService = cache(100_000);
+    }
+
+    @Test
+    void testRepeatedReadsAreServedFromTheCache() {
+        ProductResponseDTO created = productService.create(createDTO("Cached", "retail", "Acme"));
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(productService.findById(created.getId())).get()
+                    .extracting(ProductResponseDTO::getName).isEqualTo("Cached");
+            assertThat(productService.findByCategory("retail")).extracting(ProductResponseDTO::getId)
+                    .contains(created.getId());
+            assertThat(productService.findByCategory("retail", 10, null).getItems()).isNotEmpty();
+        }
+        assertThat(productService.findById("never-created")).isEmpty();
+        assertThat(productService.findById("never-created")).isEmpty();
+
+        verify(backend, times(1)).findById(created.getId());
+        verify(backend, times(1)).findById("never-created");
+        verify(backend, times(1)).findByCategory("retail");
+        verify(backend, times(1)).findByCategory("retail", 10, null);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "products").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(7);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "products").tag("result", "miss")
+                .functionCounter().count()).isEqualTo(4);
+    }
+
+    @Test
+    void testUpdateExpiresTheListsTheProductLeavesAndJoins() {
+        ProductResponseDTO moving = productService.create(createDTO("Moving", "retail", "Acme"));
+        productService.create(createDTO("Other", "wholesale", "Globex"));
+        productService.findById(moving.getId());
+        productService.findByCategory("retail");
+        productService.findByCategory("wholesale");
+        productService.findByBrand("Globex");
+
+        ProductUpdateDTO changes = new ProductUpdateDTO();
+        changes.setCategory("wholesale");
+        productService.patch(moving.getId(), changes);
+
+        assertThat(productService.findById(moving.getId())).get()
+                .extracting(ProductResponseDTO::getCategory).isEqualTo("wholesale");
+        assertThat(productService.findByCategory("retail")).extracting(ProductResponseDTO::getId)
+                .doesNotContain(moving.getId());
+        assertThat(productService.findByCategory("wholesale")).extracting(ProductResponseDTO::getId)
+                .contains(moving.getId());
+        productService.findByBrand("Globex");
+
+        verify(backend, times(2)).findByCategory("retail");
+        verify(backend, times(2)).findByCategory("wholesale");
+        verify(backend, times(1)).findByBrand("Globex"); // untouched by the write
+    }
+
+    @Test
+    void testUpdateThatKeepsTheProductInItsListsDoesNotReadItFirst() {
+        ProductResponseDTO product = productService.create(createDTO("Priced", "retail", "Acme"));
+        productService.findByBrand("Acme");
+
+        ProductUpdateDTO changes = new ProductUpdateDTO();
+        changes.setPrice(new BigDecimal("9.99"));
+        productService.update(product.getId(), changes);
+
+        verify(backend, times(0)).findById(product.getId());
+        assertThat(productService.findByBrand("Acme")).extracting(ProductResponseDTO::getPrice)
+                .contains(new BigDecimal("9.99"));
+        verify(backend, times(2)).findByBrand("Acme");
+    }
+
+    @Test
+    void testMovingUpdateOfAProductNotCachedDoesNotReadIt() {
+        ProductResponseDTO product = productService.create(createDTO("Unread Mover", "retail", "Acme"));
+        productService.findByCategory("retail");
+
+        ProductUpdateDTO changes = new ProductUpdateDTO();
+        changes.setCategory("wholesale");
+        productService.patch(product.getId(), changes, product.getVersion());
+
+        verify(backend, times(0)).findById(product.getId());
+        assertThat(productService.findByCategory("retail")).extracting(ProductResponseDTO::getId)
+                .doesNotContain(product.getId());
+        assertThat(meterRegistry.get("product.cache.invalidations").tag("scope", "all").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void testStockChangesExpireTheProductAndItsListsOnly() {
+        ProductResponseDTO product = productService.create(createDTO("Stocked", "retail", "Acme"));
+        productService.findById(product.getId());
+        productService.findByCategory("retail");
+        productService.findByCategory("pos-only");
+
+        productService.decrementStock(product.getId(), 2);
+        productService.incrementStock(List.of(new StockAdjustmentDTO(product.getId(), 1)));
+
+        assertThat(productService.findById(product.getId())).get()
+                .extracting(ProductResponseDTO::getStockQuantity).isEqualTo(4);
+        assertThat(productService.findByCategory("retail")).filteredOn(p -> p.getId().equals(product.getId()))
+                .extracting(ProductResponseDTO::getStockQuantity).containsExactly(4);
+        productService.findByCategory("pos-only");
+        verify(backend, times(1)).findByCategory("pos-only");
+    }
+
+    @Test
+    void testFailedBatchExpiresItsProducts() {
+        ProductResponseDTO product = productService.create(createDTO("Short", "retail", "Acme"));
+        productService.findById(product.getId());
+
+        assertThatThrownBy(() -> productService.decrementStock(List.of(
+                new StockAdjustmentDTO(product.getId(), 1), new StockAdjustmentDTO(product.getId(), 100))))
+                .isInstanceOf(InsufficientStockException.class);
+
+        productService.findById(product.getId());
+        verify(backend, times(2)).findById(product.getId());
+    }
+
+    @Test
+    void testDeleteExpiresTheProductAndItsLists() {
+        ProductResponseDTO product = productService.create(createDTO("Doomed", "retail", "Acme"));
+        productService.findById(product.getId());
+        productService.findByName("Doomed");
+        productService.findByCategory("retail");
+
+        productService.delete(product.getId());
+
+        assertThat(productService.findById(product.getId())).isEmpty();
+        assertThat(productService.findByName("Doomed")).isNull();
+        assertThat(productService.findByCategory("retail")).extracting(ProductResponseDTO::getId)
+                .doesNotContain(product.getId());
+        assertThat(meterRegistry.get("product.cache.invalidations").tag("scope", "tags").counter().count())
+                .isEqualTo(2);
+        verify(backend, times(2)).findById(product.getId()); // the cached read and the one after the delete
+    }
+
+    @Test
+    void testDeleteOfAProductNotCachedDoesNotReadIt() {
+        ProductResponseDTO product = productService.create(createDTO("Unread", "retail", "Acme"));
+        productService.findByCategory("retail");
+
+        productService.delete(product.getId());
+
+        verify(backend, times(0)).findById(product.getId());
+        assertThat(productService.findByCategory("retail")).extracting(ProductResponseDTO::getId)
+                .doesNotContain(product.getId());
+        assertThat(meterRegistry.get("product.cache.invalidations").tag("scope", "all").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void testVersionsAreReadFromTheBackend() {
+        ProductResponseDTO product = productService.create(createDTO("Versioned", "retail", "Acme"));
+        productService.findById(product.getId());
+
+        backend.patch(product.getId(), priceChange("1.00")); // as another replica would
+
+        assertThat(productService.findVersion(product.getId())).contains(product.getVersion() + 1);
+    }
+
+    @Test
+    void testConflictingUpdateExpiresTheStaleProduct() {
+        ProductResponseDTO product = productService.create(createDTO("Contested", "retail", "Acme"));
+        productService.findById(product.getId());
+        backend.patch(product.getId(), priceChange("1.00")); // as another replica would
+
+        assertThatThrownBy(() -> productService.patch(product.getId(), priceChange("2.00"), product.getVersion()))
+                .isInstanceOf(VersionConflictException.class);
+
+        // The client's re-read gets the version to retry with
+        assertThat(productService.findById(product.getId())).get()
+                .extracting(ProductResponseDTO::getVersion).isEqualTo(product.getVersion() + 1);
+    }
+
+    @Test
+    void testBulkUpsertExpiresEverything() {
+        productService.findById("1");
+        productService.findByBrand("Globex");
+
+        productService.bulkUpsert(List.of(createDTO("Bulk", "retail", "Globex")));
+
+        assertThat(productService.findByBrand("Globex")).extracting(ProductResponseDTO::getName).contains("Bulk");
+        productService.findById("1");
+        verify(backend, times(2)).findById("1");
+        assertThat(meterRegistry.get("product.cache.invalidations").tag("scope", "all").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void testEntriesExpireAfterTheTtlOfTheirMethod() {
+        productService.findById("1");
+        productService.findAll();
+        productService.search("pos", 0, 10);
+
+        nanos.addAndGet(Duration.ofSeconds(45).toNanos()); // past the queries TTL only
+        productService.findById("1");
+        productService.findAll();
+        productService.search("pos", 0, 10);
+        nanos.addAndGet(Duration.ofSeconds(30).toNanos()); // now past the lists TTL too
+        productService.findById("1");
+        productService.findAll();
+
+        verify(backend, times(1)).findById("1");
+        verify(backend, times(2)).findAll();
+        verify(backend, times(2)).search("pos", 0, 10);
+    }
+
+    @Test
+    void testCacheIsBoundedByTheProductsItHolds() {
+        meterRegistry = new SimpleMeterRegistry();
+        productService = cache(5);
+        for (int i = 0; i < 10; i++) {
+            productService.create(createDTO("Listed " + i, "retail", "Acme"));
+        }
+
+        productService.findByCategory("retail"); // 10 products: over the bound on its own
+        productService.findById("1");
+        productService.cleanUp();
+
+        assertThat(meterRegistry.get("cache.evictions").tag("cache", "products").functionCounter().count())
+                .isGreaterThanOrEqualTo(1);
+        assertThat(meterRegistry.get("cache.eviction.weight").tag("cache", "products").functionCounter().count())
+                .isGreaterThanOrEqualTo(10);
+    }
+
+    @Test
+    void testBadSettingsAreRejected() {
+        assertThatThrownBy(() -> new CachingProductService(backend, meterRegistry, 0,
+                Duration.ofMinutes(5), Duration.ofMinutes(1), Duration.ofSeconds(30)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CachingProductService(backend, meterRegistry, 10,
+                Duration.ofMinutes(5), Duration.ZERO, Duration.ofSeconds(30)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testDecoratesTheBackendBeanWhenEnabled() {
+        IProductService mongoBackend = mock(IProductService.class);
+        new ApplicationContextRunner()
+                // Converts the TTL settings as Spring Boot does
+                .withInitializer(context -> context.getBeanFactory()
+                        .setConversionService(ApplicationConversionService.getSharedInstance()))
+                .withPropertyValues("product.cache.enabled=true")
+                .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+                .withBean("mongoProductService", IProductService.class, () -> mongoBackend)
+                .withUserConfiguration(CachingProductService.class)
+                .run(context -> {
+                    assertThat(context).hasNotFailed();
+                    assertThat(context.getBean(IProductService.class)).isInstanceOf(CachingProductService.class);
+                    context.getBean(IProductService.class).findById("a");
+                    verify(mongoBackend).findById("a");
+                });
+    }
+
+    private CachingProductService cache(long maximumWeight) {
+        return new CachingProductService(backend, meterRegistry, maximumWeight,
+                Duration.ofMinutes(5), Duration.ofMinutes(1), Duration.ofSeconds(30), nanos::get);
+    }
+
+    private static ProductUpdateDTO priceChange(String price) {
+        ProductUpdateDTO changes = new ProductUpdateDTO();
+        changes.setPrice(new BigDecimal(price));
+        return changes;
+    }
+
+    private ProductCreateDTO createDTO(String name, String category, String brand) {
+        ProductCreateDTO dto = new ProductCreateDTO();
+        dto.setName(name);
+        dto.setBrand(brand);
+        dto.setPrice(new BigDecimal("49.99"));
+        dto.setDescription("Test product for the caching service");
+        dto.setCategory(category);
+        dto.setProductArea("pos");
+        dto.setStockQuantity(5);
+        dto.setSku("SKU-" + name);
+        return dto;
+    }
+}
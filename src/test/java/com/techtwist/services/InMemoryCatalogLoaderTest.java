@@ -0,0 +1,187 @@
+package com.techtwist.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.techtwist.dto.ProductResponseDTO;
+import com.techtwist.mapper.ProductMapper;
+import com.techtwist.models.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for InMemoryCatalogLoader and the parallel catalog file reader
+ */
+public class InMemoryCatalogLoaderTest {
+
+    @TempDir
+    Path dataDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ProductMapper productMapper = new ProductMapper();
+    private InMemoryProductService productService;
+
+    @BeforeEach
+    void setUp() {
+        productService = new InMemoryProductService();
+        ReflectionTestUtils.setField(productService, "productMapper", productMapper);
+        productService.initializeSampleProducts();
+    }
+
+    @Test
+    void testNdjsonCatalogIsParsedInChunksAndIndexed() throws IOException {
+        List<ProductResponseDTO> catalog = catalog(2000);
+        StringBuilder ndjson = new StringBuilder();
+        for (ProductResponseDTO dto : catalog) {
+            ndjson.append(objectMapper.writeValueAsString(dto)).append('\n');
+        }
+        Path file = write("catalog.ndjson", ndjson.toString());
+
+        InMemoryCatalogLoader loader = loader(file);
+        loader.setChunkBytes(4096); // hundreds of chunks
+        assertThat(loader.load()).isEqualTo(2000);
+
+        assertThat(loader.loaded()).isTrue();
+        assertThat(productService.findById("1")).isEmpty(); // the sample products are replaced
+        assertThat(productService.findAllSummary()).hasSize(2000);
+        assertThat(productService.findById("p-0042")).get()
+                .extracting(ProductResponseDTO::getName, ProductResponseDTO::getVersion)
+                .containsExactly("Catalog product 42", 3L);
+        assertThat(productService.findByCategory("category-7")).hasSize(200);
+        assertThat(productService.search("product 1999", 0, 1)).extracting(ProductResponseDTO::getId)
+                .containsExactly("p-1999");
+        assertThat(productService.autocomplete("brand-3", 5)).isNotEmpty();
+    }
+
+    @Test
+    void testJsonArrayCatalogSplitsOnlyBetweenElements() throws IOException {
+        List<ProductResponseDTO> catalog = catalog(500);
+        // Commas, brackets, braces and escaped quotes inside strings must not be taken for element boundaries
+        catalog.forEach(dto -> dto.setDescription("Has , [ ] { } and \\\" \" in it, twice , ]"));
+        Path file = write("catalog.json", "  [\n" + catalog.stream()
+                .map(this::json)
+                .collect(Collectors.joining(",\n")) + "\n]\n");
+
+        InMemoryCatalogLoader loader = loader(file);
+        loader.setChunkBytes(1024);
+        assertThat(loader.load()).isEqualTo(500);
+
+        assertThat(productService.findAll()).extracting(ProductResponseDTO::getId)
+                .containsExactlyElementsOf(catalog.stream().map(ProductResponseDTO::getId).sorted().toList());
+        assertThat(productService.findById("p-0321")).get().extracting(ProductResponseDTO::getDescription)
+                .isEqualTo("Has , [ ] { } and \\\" \" in it, twice , ]");
+    }
+
+    @Test
+    void testRecordsWithoutIdGetOneAndRepeatedIdsKeepTheLast() throws IOException {
+        Path file = write("catalog.ndjson", """
+                {"id":"a","name":"First A","price":1}
+                {"name":"No id","price":2}
+
+                {"id":"a","name":"Second A","price":3}
+                """);
+
+        assertThat(loader(file).load()).isEqualTo(2);
+
+        assertThat(productService.findById("a")).get().extracting(ProductResponseDTO::getName).isEqualTo("Second A");
+        ProductResponseDTO noId = productService.findByName("No id");
+        assertThat(noId.getId()).isNotBlank();
+        assertThat(noId.getVersion()).isZero();
+        assertThat(noId.getStatus()).isEqualTo("ACTIVE");
+    }
+
+    @Test
+    void testRecordsWithoutIdGetTheSameIdOnEveryLoad() throws IOException {
+        Path file = write("catalog.ndjson", """
+                {"name":"By SKU","sku":"SKU-1","price":1}
+                {"name":"By position","price":2}
+                """);
+        loader(file).load();
+        String bySku = productService.findByName("By SKU").getId();
+        String byPosition = productService.findByName("By position").getId();
+
+        // A restart loads the same file into a fresh store
+        setUp();
+        loader(file).load();
+
+        assertThat(productService.findByName("By SKU").getId()).isEqualTo(bySku);
+        assertThat(productService.findByName("By position").getId()).isEqualTo(byPosition).isNotEqualTo(bySku);
+    }
+
+    @Test
+    void testEmptyArrayLoadsNoProducts() throws IOException {
+        assertThat(loader(write("catalog.json", "[ ]")).load()).isZero();
+        assertThat(productService.findAll()).isEmpty();
+    }
+
+    @Test
+    void testMalformedRecordFailsWithItsPosition() throws IOException {
+        String good = "{\"id\":\"a\",\"name\":\"Good\"}\n";
+        Path file = write("catalog.ndjson", good.repeat(100) + "{\"id\":\"b\",\"name\":}\n" + good);
+
+        InMemoryCatalogLoader loader = loader(file);
+        loader.setChunkBytes(256);
+
+        assertThatThrownBy(loader::load)
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("catalog.ndjson")
+                .hasMessageContaining("byte " + (good.length() * 100 + 17));
+        assertThat(loader.loaded()).isFalse();
+        assertThat(productService.findById("1")).isPresent(); // the sample products are kept
+    }
+
+    @Test
+    void testMissingFileKeepsTheSampleProducts() throws IOException {
+        InMemoryCatalogLoader loader = loader(dataDir.resolve("missing.ndjson"));
+
+        assertThat(loader.load()).isEqualTo(-1);
+        assertThat(loader.loaded()).isFalse();
+        assertThat(productService.findById("1")).isPresent();
+    }
+
+    private InMemoryCatalogLoader loader(Path file) {
+        return new InMemoryCatalogLoader(productService, productMapper, objectMapper, file.toString());
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(dataDir.resolve(name), content, StandardCharsets.UTF_8);
+    }
+
+    private String json(ProductResponseDTO dto) {
+        try {
+            return objectMapper.writeValueAsString(dto);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<ProductResponseDTO> catalog(int size) {
+        List<ProductResponseDTO> catalog = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Product product = new Product();
+            product.setId(String.format("p-%04d", i));
+            product.setName("Catalog product " + i);
+            product.setBrand("brand-" + (i % 13));
+            product.setCategory("category-" + (i % 10));
+            product.setPrice(new BigDecimal(i + ".99"));
+            product.setStockQuantity(i % 50);
+            product.setSku("SKU-" + i);
+            product.setTags(List.of("tag-" + (i % 7)));
+            product.setVersion(3L);
+            catalog.add(new ProductMapper().toResponseDTO(product));
+        }
+        return catalog;
+    }
+}
@@ -0,0 +1,306 @@
+package com.techtwist.services;
+
+import com.techtwist.dto.CursorPageDTO;
+import com.techtwist.dto.ProductCreateDTO;
+import com.techtwist.dto.ProductResponseDTO;
+import com.techtwist.dto.ProductSummaryDTO;
+import com.techtwist.dto.ProductUpdateDTO;
+import com.techtwist.mapper.ProductMapper;
+import com.techtwist.services.support.StripedSnapshotLock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Multi-threaded stress tests for InMemoryProductService, in both read modes
+ * Checks that concurrent writers never lose updates and that list queries only ever observe
+ * a point-in-time state. The throughput of mixed and read-heavy workloads as threads are added
+ * is only measured and reported when asked for:
+ *   mvn test -Dtest=InMemoryProductServiceConcurrencyTest -Dbenchmark=true
+ */
+public class InMemoryProductServiceConcurrencyTest {
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryProductServiceConcurrencyTest.class);
+
+    private static final int GROUPS = 4;
+    private static final int PRODUCTS_PER_GROUP = 500;
+    // Smaller groups for the snapshot check, which sweeps every group many times
+    private static final int SWEPT_PER_GROUP = 100;
+
+    private InMemoryProductService productService;
+
+    @BeforeEach
+    void setUp() {
+        productService = new InMemoryProductService();
+        ReflectionTestUtils.setField(productService, "productMapper", new ProductMapper());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"locked", "copy-on-write"})
+    void testConcurrentWritersNeverLoseUpdates(String readMode) throws Exception {
+        productService.setReadMode(readMode);
+        List<String> ids = createGroup("stock", 8);
+        int threads = 8;
+        int incrementsPerThread = 2_000;
+
+        runConcurrently(threads, t -> () -> {
+            for (int i = 0; i < incrementsPerThread; i++) {
+                productService.incrementStock(ids.get((t + i) % ids.size()), 1);
+            }
+        });
+
+        int total = productService.findByCategory("stock").stream()
+                .mapToInt(ProductResponseDTO::getStockQuantity)
+                .sum();
+        assertThat(total).isEqualTo(threads * incrementsPerThread);
+        assertThat(productService.findById(ids.get(0))).get()
+                .extracting(ProductResponseDTO::getVersion)
+                .isEqualTo((long) threads * incrementsPerThread / ids.size());
+    }
+
+    /**
+     * Each writer owns one group and sweeps it in id order, adding one to every product's stock.
+     * At any instant a group therefore reads [n, .., n, n-1, .., n-1] in id order; a list that
+     * mixed reads from before and after a write would show a later product ahead of an earlier one
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"locked", "copy-on-write"})
+    void testListQueriesObservePointInTimeSnapshots(String readMode) throws Exception {
+        productService.setReadMode(readMode);
+        Map<String, List<String>> groups = new HashMap<>();
+        for (int g = 0; g < GROUPS; g++) {
+            groups.put("group-" + g, createGroup("group-" + g, SWEPT_PER_GROUP));
+        }
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicInteger writersLeft = new AtomicInteger(GROUPS);
+        AtomicInteger snapshotsChecked = new AtomicInteger();
+        int sweeps = 20;
+
+        runConcurrently(GROUPS * 2, t -> () -> {
+            if (t < GROUPS) {
+                List<String> ids = groups.get("group-" + t);
+                for (int sweep = 0; sweep < sweeps; sweep++) {
+                    ids.forEach(id -> productService.incrementStock(id, 1));
+                }
+                if (writersLeft.decrementAndGet() == 0) {
+                    writing.set(false);
+                }
+                return;
+            }
+            do {
+                switch (snapshotsChecked.getAndIncrement() % 3) {
+                    case 0 -> assertSweepOrder(byCategory(productService.findAll(),
+                            ProductResponseDTO::getCategory, ProductResponseDTO::getStockQuantity));
+                    case 1 -> assertSweepOrder(byCategory(productService.findAllSummary(),
+                            ProductSummaryDTO::getCategory, ProductSummaryDTO::getStockQuantity));
+                    default -> {
+                        CursorPageDTO<ProductResponseDTO> page = productService.findByCategory(
+                                "group-" + ThreadLocalRandom.current().nextInt(GROUPS), SWEPT_PER_GROUP, null);
+                        assertSweepOrder(byCategory(page.getItems(),
+                                ProductResponseDTO::getCategory, ProductResponseDTO::getStockQuantity));
+                    }
+                }
+            } while (writing.get());
+        });
+
+        assertThat(snapshotsChecked.get()).isGreaterThan(0);
+        assertThat(productService.findAll())
+                .allSatisfy(product -> assertThat(product.getStockQuantity()).isEqualTo(sweeps));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"locked", "copy-on-write"})
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void testMixedWorkloadThroughputAsThreadsScale(String readMode) throws Exception {
+        productService.setReadMode(readMode);
+        for (int g = 0; g < GROUPS; g++) {
+            createGroup("group-" + g, PRODUCTS_PER_GROUP);
+        }
+        List<String> ids = productService.findAll().stream().map(ProductResponseDTO::getId).collect(Collectors.toList());
+        int cores = Runtime.getRuntime().availableProcessors();
+        long windowNanos = TimeUnit.MILLISECONDS.toNanos(200);
+
+        for (int threads = 1; threads <= Math.max(2, cores * 2); threads *= 2) {
+            LongAdder operations = new LongAdder();
+            long deadline = System.nanoTime() + windowNanos;
+            runConcurrently(threads, t -> () -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    String id = ids.get(random.nextInt(ids.size()));
+                    int roll = random.nextInt(100);
+                    if (roll < 80) {
+                        productService.findById(id);
+                    } else if (roll < 95) {
+                        productService.incrementStock(id, 1);
+                    } else if (roll < 99) {
+                        productService.patch(id, priceUpdate(random.nextInt(1, 500)));
+                    } else {
+                        productService.findAllSummary(50, null);
+                    }
+                    operations.increment();
+                }
+            });
+            double opsPerSecond = operations.sum() * 1e9 / windowNanos;
+            logger.info("In-memory store, {} reads: {} thread(s), {} cores, {} ops/s",
+                    readMode, threads, cores, String.format("%,.0f", opsPerSecond));
+            assertThat(operations.sum()).isPositive();
+        }
+
+        int total = productService.findAll().stream().mapToInt(ProductResponseDTO::getStockQuantity).sum();
+        assertThat(total).isPositive();
+    }
+
+    /**
+     * 99% list reads (pages of summaries and of a category), 1% stock writes
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"locked", "copy-on-write"})
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void testReadHeavyListThroughputAsThreadsScale(String readMode) throws Exception {
+        productService.setReadMode(readMode);
+        for (int g = 0; g < GROUPS; g++) {
+            createGroup("group-" + g, PRODUCTS_PER_GROUP);
+        }
+        List<String> ids = productService.findAll().stream().map(ProductResponseDTO::getId).collect(Collectors.toList());
+        int cores = Runtime.getRuntime().availableProcessors();
+        long windowNanos = TimeUnit.MILLISECONDS.toNanos(200);
+
+        for (int threads = 1; threads <= Math.max(2, cores * 2); threads *= 2) {
+            LongAdder operations = new LongAdder();
+            long deadline = System.nanoTime() + windowNanos;
+            runConcurrently(threads, t -> () -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    int roll = random.nextInt(100);
+                    if (roll < 50) {
+                        productService.findAllSummary(50, null);
+                    } else if (roll < 99) {
+                        productService.findByCategory("group-" + random.nextInt(GROUPS), 50, null);
+                    } else {
+                        productService.incrementStock(ids.get(random.nextInt(ids.size())), 1);
+                    }
+                    operations.increment();
+                }
+            });
+            double opsPerSecond = operations.sum() * 1e9 / windowNanos;
+            logger.info("In-memory store, {} reads, 99% list pages: {} thread(s), {} cores, {} ops/s",
+                    readMode, threads, cores, String.format("%,.0f", opsPerSecond));
+            assertThat(operations.sum()).isPositive();
+        }
+    }
+
+    @Test
+    void testSnapshotFallsBackToLockingUnderContinuousWrites() throws Exception {
+        StripedSnapshotLock lock = new StripedSnapshotLock(4);
+        AtomicInteger counter = new AtomicInteger();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CountDownLatch writerStarted = new CountDownLatch(1);
+
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> writes = writer.submit(() -> {
+                writerStarted.countDown();
+                while (writing.get()) {
+                    lock.write("key", counter::incrementAndGet);
+                }
+            });
+            writerStarted.await();
+            for (int i = 0; i < 100; i++) {
+                int[] seen = lock.snapshot(() -> {
+                    int before = counter.get();
+                    Thread.yield();
+                    return new int[] {before, counter.get()};
+                });
+                assertThat(seen[1]).isEqualTo(seen[0]);
+            }
+            writing.set(false);
+            writes.get(10, TimeUnit.SECONDS);
+        } finally {
+            writer.shutdownNow();
+        }
+        assertThat(lock.stripeCount()).isEqualTo(4);
+    }
+
+    private static void assertSweepOrder(Map<String, List<Integer>> stockByCategory) {
+        stockByCategory.forEach((category, stock) -> {
+            for (int i = 1; i < stock.size(); i++) {
+                assertThat(stock.get(i)).as("%s position %d", category, i).isLessThanOrEqualTo(stock.get(i - 1));
+            }
+            if (!stock.isEmpty()) {
+                assertThat(stock.get(0) - stock.get(stock.size() - 1)).as(category).isBetween(0, 1);
+            }
+        });
+    }
+
+    private static <T> Map<String, List<Integer>> byCategory(List<T> products, Function<T, String> category,
+                                                            Function<T, Integer> stock) {
+        return products.stream().collect(Collectors.groupingBy(category,
+                Collectors.mapping(stock, Collectors.toList())));
+    }
+
+    private List<String> createGroup(String category, int size) {
+        List<String> ids = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ProductCreateDTO dto = new ProductCreateDTO();
+            dto.setName(category + " product " + i);
+            dto.setBrand("TechTwist");
+            dto.setPrice(new BigDecimal("10.00"));
+            dto.setCategory(category);
+            dto.setStockQuantity(0);
+            ids.add(productService.create(dto).getId());
+        }
+        ids.sort(null);
+        return ids;
+    }
+
+    private static ProductUpdateDTO priceUpdate(int price) {
+        ProductUpdateDTO update = new ProductUpdateDTO();
+        update.setPrice(BigDecimal.valueOf(price));
+        return update;
+    }
+
+    private static void runConcurrently(int threads, Function<Integer, Runnable> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Runnable work = task.apply(t);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    work.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
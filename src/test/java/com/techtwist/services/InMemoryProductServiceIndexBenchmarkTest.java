@@ -0,0 +1,269 @@
+package com.techtwist.services;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.techtwist.dto.ProductCreateDTO;
+import com.techtwist.dto.ProductFilterDTO;
+import com.techtwist.dto.ProductResponseDTO;
+import com.techtwist.mapper.ProductMapper;
+import com.techtwist.models.Product;
+import com.techtwist.services.support.TextTokenizer;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark of the indexed in-memory finders at 100k and 1M products
+ * Compares each finder with a full scan of the same data, which is what the finders did before
+ * the secondary and text indexes, and times a snapshot restart and a catalog file load. Opt-in, as it needs a couple of GB of heap:
+ *   mvn test -Dtest=InMemoryProductServiceIndexBenchmarkTest -Dbenchmark=true -DargLine=-Xmx3g
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class InMemoryProductServiceIndexBenchmarkTest {
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryProductServiceIndexBenchmarkTest.class);
+
+    private static final int CATEGORIES = 100;
+    private static final int BRANDS = 50;
+    private static final int FEATURED_EVERY = 200;
+    private static final int TAGS = 1000;
+    // Prices cycle through 0.01 .. 100.00 in cent steps
+    private static final int PRICE_POINTS = 10_000;
+    private static final int RUNS = 25;
+    // Full scans at 1M products take seconds each, so the baseline gets fewer runs
+    private static final int SCAN_RUNS = 5;
+
+    @ParameterizedTest
+    @ValueSource(ints = {100_000, 1_000_000})
+    void benchmarkIndexedFinders(int size) {
+        InMemoryProductService productService = new InMemoryProductService();
+        ProductMapper mapper = new ProductMapper();
+        ReflectionTestUtils.setField(productService, "productMapper", mapper);
+
+        long loadStart = System.nanoTime();
+        for (int i = 0; i < size; i++) {
+            productService.create(product(i));
+        }
+        logger.info("{} products loaded in {} ms", size, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - loadStart));
+
+        // The unindexed baseline, as the finders were before: stream every product, compare strings, map matches
+        @SuppressWarnings("unchecked")
+        Map<String, Product> store = (Map<String, Product>) ReflectionTestUtils.getField(productService, "productStore");
+        Function<Predicate<Product>, Stream<ProductResponseDTO>> scan = match -> store.values().stream()
+                .filter(p -> "ACTIVE".equals(p.getStatus()) && match.test(p))
+                .map(mapper::toResponseDTO);
+        ProductFilterDTO filter = new ProductFilterDTO();
+        filter.setCategory("category-7");
+        filter.setBrand("brand-7");
+
+        int categorySize = size / CATEGORIES;
+        report(size, "findByCategory", categorySize,
+                () -> productService.findByCategory("category-7").size(),
+                () -> scan.apply(p -> "category-7".equals(p.getCategory())).toList().size());
+        report(size, "findByBrand", size / BRANDS,
+                () -> productService.findByBrand("brand-7").size(),
+                () -> scan.apply(p -> "brand-7".equals(p.getBrand())).toList().size());
+        report(size, "findFeaturedProducts", size / FEATURED_EVERY,
+                () -> productService.findFeaturedProducts().size(),
+                () -> scan.apply(p -> Boolean.TRUE.equals(p.getFeatured())).toList().size());
+        report(size, "findByName", 1,
+                () -> productService.findByName("Product " + (size - 1)) != null ? 1 : 0,
+                () -> scan.apply(p -> ("Product " + (size - 1)).equals(p.getName())).findFirst().isPresent() ? 1 : 0);
+        report(size, "findByCategory page", 50,
+                () -> productService.findByCategory("category-7", 50, null).getItems().size(),
+                () -> scan.apply(p -> "category-7".equals(p.getCategory())).limit(50).toList().size());
+        report(size, "findWithFilters category+brand", 50,
+                () -> productService.findWithFilters(filter, 50, null).getItems().size(),
+                () -> scan.apply(p -> "category-7".equals(p.getCategory()) && "brand-7".equals(p.getBrand()))
+                        .limit(50).toList().size());
+
+        // Every price point is shared by size / PRICE_POINTS products
+        BigDecimal low = new BigDecimal("50.00");
+        BigDecimal high = new BigDecimal("50.09");
+        int perPrice = size / PRICE_POINTS;
+        report(size, "findByPriceRange page", 50,
+                () -> productService.findByPriceRange(low, high, false, 50, null).getItems().size(),
+                () -> byPrice(store, mapper, low, high, false, 0, 50));
+        report(size, "findByPriceRange cheapest 10", 10,
+                () -> productService.findByPriceRange(null, null, false, 10, null).getItems().size(),
+                () -> byPrice(store, mapper, null, null, false, 0, 10));
+        report(size, "findByPriceRange dearest 10", 10,
+                () -> productService.findByPriceRange(null, null, true, 10, null).getItems().size(),
+                () -> byPrice(store, mapper, null, null, true, 0, 10));
+        String secondPage = productService.findByPriceRange(low, high, false, perPrice, null).getNextCursor();
+        report(size, "findByPriceRange page after cursor", 50,
+                () -> productService.findByPriceRange(low, high, false, 50, secondPage).getItems().size(),
+                () -> byPrice(store, mapper, low, high, false, perPrice, 50));
+
+        // A term held by size / TAGS products, and one held by a single product
+        report(size, "search common term top 20", 20,
+                () -> productService.search("tag7", 0, 20).size(),
+                () -> scan.apply(p -> p.getTags().contains("tag7")).limit(20).toList().size());
+        String unique = String.valueOf(size - 1);
+        report(size, "search unique term", 1,
+                () -> productService.search(unique, 0, 20).size(),
+                () -> scan.apply(p -> TextTokenizer.tokenize(p.getName()).contains(unique)).toList().size());
+
+        // Every name starts with "p", and tags tag0 .. tag999 share the prefix "tag"
+        report(size, "autocomplete one letter", 10,
+                () -> productService.autocomplete("p", 10).size(),
+                () -> scan.apply(p -> p.getName().toLowerCase().startsWith("p"))
+                        .collect(Collectors.groupingBy(ProductResponseDTO::getName, Collectors.counting()))
+                        .entrySet().stream().sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
+                        .limit(10).toList().size());
+        report(size, "autocomplete tag prefix", 10,
+                () -> productService.autocomplete("tag9", 10).size(),
+                () -> scan.apply(p -> p.getTags().get(0).startsWith("tag9"))
+                        .collect(Collectors.groupingBy(p -> p.getTags().get(0), Collectors.counting()))
+                        .entrySet().stream().sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
+                        .limit(10).toList().size());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {100_000, 1_000_000})
+    void benchmarkSnapshotRestart(int size, @TempDir Path dataDir) throws IOException {
+        ProductMapper mapper = new ProductMapper();
+        List<Product> products = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Product product = mapper.toEntity(product(i));
+            product.setId(String.format("%08d", i));
+            product.setVersion(0L);
+            products.add(product);
+        }
+        InMemoryProductService running = new InMemoryProductService();
+        ReflectionTestUtils.setField(running, "productMapper", mapper);
+        running.restore(products);
+        products = null;
+
+        long writeStart = System.nanoTime();
+        assertThat(new InMemoryProductSnapshotter(running, dataDir.toString(), Duration.ofMinutes(1),
+                false, "sync", Duration.ofSeconds(1)).snapshot()).isTrue();
+        long writeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - writeStart);
+        running = null;
+
+        InMemoryProductService restarted = new InMemoryProductService();
+        ReflectionTestUtils.setField(restarted, "productMapper", mapper);
+        restarted.initializeSampleProducts();
+        long loadStart = System.nanoTime();
+        assertThat(new InMemoryProductSnapshotter(restarted, dataDir.toString(), Duration.ofMinutes(1),
+                false, "sync", Duration.ofSeconds(1)).load()).isTrue();
+        long loadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - loadStart);
+
+        assertThat(restarted.findByCategory("category-7", 50, null).getItems()).hasSize(50);
+        logger.info("{} products: snapshot written in {} ms, loaded and indexed in {} ms", size, writeMillis, loadMillis);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {500_000})
+    void benchmarkCatalogLoad(int size, @TempDir Path dataDir) throws IOException {
+        ProductMapper mapper = new ProductMapper();
+        ObjectMapper objectMapper = new ObjectMapper();
+        Path file = dataDir.resolve("catalog.ndjson");
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            for (int i = 0; i < size; i++) {
+                Product product = mapper.toEntity(product(i));
+                product.setId(String.format("%08d", i));
+                product.setDescription("Description of product " + i + " with a few more words to index");
+                out.write(objectMapper.writeValueAsString(mapper.toResponseDTO(product)));
+                out.newLine();
+            }
+        }
+
+        // The baseline: one streaming parser over the whole file
+        long sequentialStart = System.nanoTime();
+        List<Product> sequential = new ArrayList<>(size);
+        try (MappingIterator<ProductResponseDTO> records = objectMapper.readerFor(ProductResponseDTO.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES).readValues(file.toFile())) {
+            while (records.hasNextValue()) {
+                sequential.add(mapper.toEntity(records.nextValue()));
+            }
+        }
+        long sequentialMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sequentialStart);
+        assertThat(sequential).hasSize(size);
+        sequential = null;
+
+        InMemoryProductService productService = new InMemoryProductService();
+        ReflectionTestUtils.setField(productService, "productMapper", mapper);
+        productService.initializeSampleProducts();
+        long loadStart = System.nanoTime();
+        assertThat(new InMemoryCatalogLoader(productService, mapper, objectMapper, file.toString()).load())
+                .isEqualTo(size);
+        long loadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - loadStart);
+
+        assertThat(productService.findByCategory("category-7", 50, null).getItems()).hasSize(50);
+        logger.info("{} products ({} MB): catalog loaded and indexed in {} ms on {} cores; sequential parse alone {} ms",
+                size, Files.size(file) >> 20, loadMillis, Runtime.getRuntime().availableProcessors(), sequentialMillis);
+    }
+
+    // Unindexed price listing: filter and sort every product by BigDecimal price, then map one page
+    private static int byPrice(Map<String, Product> store, ProductMapper mapper, BigDecimal min, BigDecimal max,
+                               boolean descending, int skip, int limit) {
+        Comparator<Product> order = Comparator.comparing(Product::getPrice).thenComparing(Product::getId);
+        return store.values().stream()
+                .filter(p -> "ACTIVE".equals(p.getStatus())
+                        && (min == null || p.getPrice().compareTo(min) >= 0)
+                        && (max == null || p.getPrice().compareTo(max) <= 0))
+                .sorted(descending ? order.reversed() : order)
+                .skip(skip)
+                .limit(limit)
+                .map(mapper::toResponseDTO)
+                .toList()
+                .size();
+    }
+
+    private static void report(int size, String finder, int expected, Supplier<Integer> indexed, Supplier<Integer> scan) {
+        long indexedMicros = medianMicros(indexed, expected, RUNS);
+        long scanMicros = medianMicros(scan, expected, SCAN_RUNS);
+        logger.info("{} products, {}: {} results, indexed {} us, full scan {} us",
+                size, finder, expected, indexedMicros, scanMicros);
+    }
+
+    private static long medianMicros(Supplier<Integer> finder, int expected, int runs) {
+        long[] samples = new long[runs];
+        for (int run = 0; run < runs; run++) {
+            long start = System.nanoTime();
+            int found = finder.get();
+            samples[run] = System.nanoTime() - start;
+            assertThat(found).isEqualTo(expected);
+        }
+        Arrays.sort(samples);
+        return TimeUnit.NANOSECONDS.toMicros(samples[runs / 2]);
+    }
+
+    private static ProductCreateDTO product(int i) {
+        ProductCreateDTO dto = new ProductCreateDTO();
+        dto.setName("Product " + i);
+        dto.setBrand("brand-" + (i % BRANDS));
+        dto.setCategory("category-" + (i % CATEGORIES));
+        dto.setProductArea("area-" + (i % 20));
+        dto.setPrice(BigDecimal.valueOf(i % PRICE_POINTS + 1, 2));
+        dto.setStockQuantity(10);
+        dto.setFeatured(i % FEATURED_EVERY == 0);
+        dto.setTags(List.of("tag" + (i % TAGS)));
+        return dto;
+    }
+}
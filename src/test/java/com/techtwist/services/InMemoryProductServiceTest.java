@@ -0,0 +1,698 @@
+package com.techtwist.services;
+
+import com.techtwist.dto.BulkItemResultDTO;
+import com.techtwist.dto.BulkResultDTO;
+import com.techtwist.dto.CursorPageDTO;
+import com.techtwist.dto.ProductCreateDTO;
+import com.techtwist.dto.ProductFacetsDTO;
+import com.techtwist.dto.ProductFilterDTO;
+import com.techtwist.dto.ProductResponseDTO;
+import com.techtwist.dto.ProductSummaryDTO;
+import com.techtwist.dto.ProductUpdateDTO;
+import com.techtwist.dto.StockAdjustmentDTO;
+import com.techtwist.dto.SuggestionDTO;
+import com.techtwist.exceptions.InsufficientStockException;
+import com.techtwist.exceptions.ProductNotFoundException;
+import com.techtwist.exceptions.VersionConflictException;
+import com.techtwist.mapper.ProductMapper;
+import com.techtwist.services.support.Suggestions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Unit tests for InMemoryProductService
+ * The service starts with the two sample products (ids "1" and "2")
+ */
+public class InMemoryProductServiceTest {
+
+    private InMemoryProductService productService;
+
+    @BeforeEach
+    void setUp() {
+        productService = new InMemoryProductService();
+        ReflectionTestUtils.setField(productService, "productMapper", new ProductMapper());
+        productService.initializeSampleProducts();
+    }
+
+    @Test
+    void testKeysetPaginationVisitsEveryProductOnce() {
+        for (int i = 0; i < 7; i++) {
+            productService.create(createDTO("Retail Product " + i, "retail"));
+        }
+
+        List<String> seen = new ArrayList<>();
+        String after = null;
+        int pages = 0;
+        do {
+            CursorPageDTO<ProductResponseDTO> page = productService.findAll(3, after);
+            page.getItems().forEach(p -> seen.add(p.getId()));
+            after = page.getNextCursor();
+            pages++;
+        } while (after != null);
+
+        assertThat(seen).hasSize(9).doesNotHaveDuplicates().isSorted();
+        assertThat(pages).isEqualTo(3);
+    }
+
+    @Test
+    void testFilteredPageOnlyReturnsMatches() {
+        productService.create(createDTO("Retail Scanner", "retail"));
+        productService.create(createDTO("Retail Printer", "retail"));
+
+        CursorPageDTO<ProductResponseDTO> first = productService.findByCategory("retail", 1, null);
+        CursorPageDTO<ProductResponseDTO> second = productService.findByCategory("retail", 1, first.getNextCursor());
+
+        assertThat(first.getItems()).hasSize(1);
+        assertThat(first.hasMore()).isTrue();
+        assertThat(second.getItems()).hasSize(1);
+        assertThat(second.hasMore()).isFalse();
+        assertThat(second.getItems().get(0).getId()).isNotEqualTo(first.getItems().get(0).getId());
+        assertThat(second.getItems().get(0).getCategory()).isEqualTo("retail");
+    }
+
+    @Test
+    void testSummaryPage() {
+        CursorPageDTO<ProductSummaryDTO> page = productService.findAllSummary(10, null);
+
+        assertThat(page.getItems()).extracting(ProductSummaryDTO::getId).containsExactly("1", "2");
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void testFindVersionFollowsWritesAndHidesInactiveProducts() {
+        long version = productService.findVersion("1").orElseThrow();
+        assertThat(productService.findById("1")).get().extracting(ProductResponseDTO::getVersion).isEqualTo(version);
+
+        productService.incrementStock("1", 1);
+        assertThat(productService.findVersion("1")).contains(version + 1);
+
+        ProductUpdateDTO inactive = new ProductUpdateDTO();
+        inactive.setStatus("INACTIVE");
+        productService.patch("2", inactive);
+        assertThat(productService.findVersion("2")).isEmpty();
+        assertThat(productService.findVersion("never-created")).isEmpty();
+    }
+
+    @Test
+    void testFeaturedPage() {
+        CursorPageDTO<ProductResponseDTO> page = productService.findFeaturedProducts(10, null);
+
+        assertThat(page.getItems()).extracting(ProductResponseDTO::getName).containsExactly("Premium Laptop");
+    }
+
+    @Test
+    void testInvalidCursorIsRejected() {
+        assertThatThrownBy(() -> productService.findAll(10, "not base64!"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testSearchRanksNameMatchesAboveDescriptionMatches() {
+        ProductCreateDTO descriptionOnly = createDTO("Docking Station", "electronics");
+        descriptionOnly.setDescription("Works with any wireless keyboard");
+        productService.create(descriptionOnly);
+
+        List<ProductResponseDTO> results = productService.search("Wireless", 0, 10);
+
+        assertThat(results).extracting(ProductResponseDTO::getName)
+            .containsExactly("Wireless Headphones", "Docking Station");
+    }
+
+    @Test
+    void testSearchMatchesTagsAndPaginates() {
+        List<ProductResponseDTO> firstPage = productService.search("electronics", 0, 1);
+        List<ProductResponseDTO> secondPage = productService.search("electronics", 1, 1);
+
+        assertThat(firstPage).hasSize(1);
+        assertThat(secondPage).hasSize(1);
+        assertThat(firstPage.get(0).getId()).isNotEqualTo(secondPage.get(0).getId());
+        assertThat(productService.search("electronics", 2, 1)).isEmpty();
+    }
+
+    @Test
+    void testSearchWithoutTermsReturnsNothing() {
+        assertThat(productService.search("  --  ", 0, 10)).isEmpty();
+    }
+
+    @Test
+    void testSearchRanksRareTermsAboveCommonOnes() {
+        for (int i = 0; i < 5; i++) {
+            productService.create(createDTO("Basic Cable", "accessories"));
+        }
+        productService.create(createDTO("Basic Adapter", "accessories"));
+
+        List<ProductResponseDTO> results = productService.search("basic adapter", 0, 10);
+
+        assertThat(results).hasSize(6);
+        assertThat(results.get(0).getName()).isEqualTo("Basic Adapter");
+    }
+
+    @Test
+    void testSearchFollowsUpdatesStatusAndDeletes() {
+        String id = productService.create(createDTO("Quantum Blender", "kitchen")).getId();
+        assertThat(productService.search("quantum", 0, 10)).extracting(ProductResponseDTO::getId).containsExactly(id);
+
+        ProductUpdateDTO rename = new ProductUpdateDTO();
+        rename.setName("Fusion Blender");
+        productService.update(id, rename);
+        assertThat(productService.search("quantum", 0, 10)).isEmpty();
+        assertThat(productService.search("fusion", 0, 10)).extracting(ProductResponseDTO::getName)
+            .containsExactly("Fusion Blender");
+
+        ProductUpdateDTO deactivate = new ProductUpdateDTO();
+        deactivate.setStatus("INACTIVE");
+        productService.update(id, deactivate);
+        assertThat(productService.search("blender", 0, 10)).isEmpty();
+
+        ProductUpdateDTO reactivate = new ProductUpdateDTO();
+        reactivate.setStatus("ACTIVE");
+        productService.update(id, reactivate);
+        assertThat(productService.search("blender", 0, 10)).hasSize(1);
+
+        productService.delete(id);
+        assertThat(productService.search("blender", 0, 10)).isEmpty();
+    }
+
+    @Test
+    void testSearchStaysCorrectAcrossManyRewrites() {
+        // Enough changes that the index drops its dead entries several times
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            ids.add(productService.create(createDTO("Widget " + i, "widgets")).getId());
+        }
+        for (int round = 0; round < 100; round++) {
+            for (String id : ids) {
+                ProductUpdateDTO update = new ProductUpdateDTO();
+                update.setDescription("revision" + round);
+                productService.update(id, update);
+            }
+        }
+
+        assertThat(productService.search("revision99", 0, 100)).hasSize(40);
+        assertThat(productService.search("revision98", 0, 100)).isEmpty();
+        assertThat(productService.search("widget 7", 0, 1)).extracting(ProductResponseDTO::getName)
+            .containsExactly("Widget 7");
+        List<ProductResponseDTO> pages = new ArrayList<>(productService.search("widget", 0, 25));
+        pages.addAll(productService.search("widget", 1, 25));
+        assertThat(pages).extracting(ProductResponseDTO::getId).containsExactlyInAnyOrderElementsOf(ids);
+    }
+
+    @Test
+    void testFilterAppliesOnlySuppliedFilters() {
+        ProductFilterDTO filter = new ProductFilterDTO();
+        filter.setCategory("electronics");
+        filter.setMaxPrice(new BigDecimal("500"));
+
+        CursorPageDTO<ProductResponseDTO> page = productService.findWithFilters(filter, 10, null);
+
+        assertThat(page.getItems()).extracting(ProductResponseDTO::getName).containsExactly("Wireless Headphones");
+    }
+
+    @Test
+    void testFilterCombinesFeaturedStockAndText() {
+        ProductFilterDTO filter = new ProductFilterDTO();
+        filter.setFeatured(true);
+        filter.setInStock(true);
+        filter.setQ("laptop");
+
+        assertThat(productService.findWithFilters(filter, 10, null).getItems())
+            .extracting(ProductResponseDTO::getId).containsExactly("1");
+
+        filter.setQ("headphones");
+        assertThat(productService.findWithFilters(filter, 10, null).getItems()).isEmpty();
+    }
+
+    @Test
+    void testTextFilterPagesAndCountsTheTextIndexMatches() {
+        ProductResponseDTO scanner = productService.create(createDTO("Quantum Scanner", "retail"));
+        ProductResponseDTO printer = productService.create(createDTO("Quantum Printer", "retail"));
+        productService.create(createDTO("Plain Printer", "retail"));
+        // Pages follow id order
+        boolean scannerFirst = scanner.getId().compareTo(printer.getId()) < 0;
+        ProductResponseDTO first = scannerFirst ? scanner : printer;
+        ProductResponseDTO second = scannerFirst ? printer : scanner;
+        ProductFilterDTO filter = new ProductFilterDTO();
+        filter.setQ("quantum");
+
+        CursorPageDTO<ProductResponseDTO> page = productService.findWithFilters(filter, 1, null);
+        CursorPageDTO<ProductResponseDTO> next = productService.findWithFilters(filter, 1, page.getNextCursor());
+        assertThat(page.getItems()).extracting(ProductResponseDTO::getId).containsExactly(first.getId());
+        assertThat(next.getItems()).extracting(ProductResponseDTO::getId).containsExactly(second.getId());
+        assertThat(productService.findFacets(filter).getCategories()).containsExactly(entry("retail", 2L));
+
+        // Matches follow writes, and combine with the other filters
+        ProductUpdateDTO rename = new ProductUpdateDTO();
+        rename.setName("Classic Printer");
+        productService.patch(printer.getId(), rename);
+        filter.setCategory("retail");
+        assertThat(productService.findWithFilters(filter, 10, null).getItems())
+            .extracting(ProductResponseDTO::getId).containsExactly(scanner.getId());
+        filter.setCategory("electronics");
+        assertThat(productService.findFacets(filter).getCategories()).isEmpty();
+    }
+
+    @Test
+    void testEmptyFilterPagesThroughEverything() {
+        CursorPageDTO<ProductResponseDTO> first = productService.findWithFilters(new ProductFilterDTO(), 1, null);
+        CursorPageDTO<ProductResponseDTO> second =
+            productService.findWithFilters(new ProductFilterDTO(), 1, first.getNextCursor());
+
+        assertThat(first.getItems()).extracting(ProductResponseDTO::getId).containsExactly("1");
+        assertThat(second.getItems()).extracting(ProductResponseDTO::getId).containsExactly("2");
+        assertThat(second.hasMore()).isFalse();
+    }
+
+    @Test
+    void testFacetsCountEveryDimensionInOnePass() {
+        productService.create(createDTO("Retail Scanner", "retail"));
+
+        ProductFacetsDTO facets = productService.findFacets(new ProductFilterDTO());
+
+        assertThat(facets.getCategories()).containsExactly(
+            entry("electronics", 2L),
+            entry("retail", 1L));
+        assertThat(facets.getBrands()).containsEntry("TechCorp", 1L).containsEntry("TechTwist", 1L);
+        assertThat(facets.getFeatured()).containsEntry("true", 1L).containsEntry("false", 2L);
+        assertThat(facets.getPriceBuckets()).containsExactly(
+            entry("0-50", 1L),
+            entry("100-250", 1L),
+            entry("1000-2500", 1L));
+    }
+
+    @Test
+    void testFacetsRespectFilters() {
+        ProductFilterDTO filter = new ProductFilterDTO();
+        filter.setProductArea("audio");
+
+        ProductFacetsDTO facets = productService.findFacets(filter);
+
+        assertThat(facets.getCategories()).containsOnlyKeys("electronics");
+        assertThat(facets.getBrands()).containsOnlyKeys("AudioMax");
+        assertThat(facets.getPriceBuckets()).containsOnlyKeys("100-250");
+    }
+
+    @Test
+    void testBulkUpsertCreatesNewSkusAndUpdatesExistingOnes() {
+        ProductCreateDTO laptop = createDTO("Premium Laptop v2", "electronics");
+        laptop.setSku("LAPTOP-001");
+        ProductCreateDTO scanner = createDTO("Retail Scanner", "retail");
+        scanner.setSku("SCAN-001");
+
+        BulkResultDTO result = productService.bulkUpsert(Arrays.asList(laptop, scanner));
+
+        assertThat(result.getItems()).extracting(BulkItemResultDTO::getStatus)
+            .containsExactly(BulkItemResultDTO.Status.UPDATED, BulkItemResultDTO.Status.CREATED);
+        assertThat(result.getItems().get(0).getId()).isEqualTo("1");
+        assertThat(productService.findById("1")).get().extracting(ProductResponseDTO::getName).isEqualTo("Premium Laptop v2");
+        assertThat(productService.findById(result.getItems().get(1).getId())).isPresent();
+    }
+
+    @Test
+    void testBulkUpsertSkipsSupersededDuplicatesAndRejectsMissingSku() {
+        ProductCreateDTO first = createDTO("Scanner v1", "retail");
+        first.setSku("SCAN-002");
+        ProductCreateDTO second = createDTO("Scanner v2", "retail");
+        second.setSku("SCAN-002");
+
+        BulkResultDTO result = productService.bulkUpsert(Arrays.asList(first, createDTO("No SKU", "retail"), second));
+
+        assertThat(result.getItems()).extracting(BulkItemResultDTO::getStatus).containsExactly(
+            BulkItemResultDTO.Status.SKIPPED, BulkItemResultDTO.Status.FAILED, BulkItemResultDTO.Status.CREATED);
+        assertThat(productService.findByName("Scanner v2")).isNotNull();
+        assertThat(productService.findByName("Scanner v1")).isNull();
+    }
+
+    @Test
+    void testConcurrentBulkUpsertsCreateEachSkuOnce() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicInteger created = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                List<ProductCreateDTO> batch = new ArrayList<>();
+                for (int i = 0; i < 20; i++) {
+                    ProductCreateDTO dto = createDTO("Bulk Item " + i, "retail");
+                    dto.setSku("BULK-" + i);
+                    batch.add(dto);
+                }
+                productService.bulkUpsert(batch).getItems().stream()
+                    .filter(item -> item.getStatus() == BulkItemResultDTO.Status.CREATED)
+                    .forEach(item -> created.incrementAndGet());
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertThat(created.get()).isEqualTo(20);
+        assertThat(productService.findAll()).filteredOn(p -> p.getSku() != null && p.getSku().startsWith("BULK-"))
+            .hasSize(20);
+    }
+
+    @Test
+    void testDecrementStockRejectsOversellWithoutChangingStock() {
+        assertThat(productService.decrementStock("1", 20).getStockQuantity()).isEqualTo(30);
+
+        assertThatThrownBy(() -> productService.decrementStock("1", 31))
+            .isInstanceOf(InsufficientStockException.class);
+        assertThat(productService.findById("1")).get().extracting(ProductResponseDTO::getStockQuantity).isEqualTo(30);
+        assertThat(productService.incrementStock("missing", 1)).isNull();
+    }
+
+    @Test
+    void testConcurrentDecrementsNeverOversell() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicInteger sold = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 20; i++) {
+                    try {
+                        productService.decrementStock("1", 1);
+                        sold.incrementAndGet();
+                    } catch (InsufficientStockException e) {
+                        // sold out
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertThat(sold.get()).isEqualTo(50);
+        assertThat(productService.findById("1")).get().extracting(ProductResponseDTO::getStockQuantity).isEqualTo(0);
+    }
+
+    @Test
+    void testBatchDecrementAppliesAllLinesOrNone() {
+        List<ProductResponseDTO> adjusted = productService.decrementStock(Arrays.asList(
+            new StockAdjustmentDTO("1", 5), new StockAdjustmentDTO("2", 10)));
+        assertThat(adjusted).extracting(ProductResponseDTO::getStockQuantity).containsExactly(45, 90);
+
+        assertThatThrownBy(() -> productService.decrementStock(Arrays.asList(
+                new StockAdjustmentDTO("1", 5), new StockAdjustmentDTO("2", 500))))
+            .isInstanceOf(InsufficientStockException.class);
+        assertThatThrownBy(() -> productService.decrementStock(Arrays.asList(
+                new StockAdjustmentDTO("1", 5), new StockAdjustmentDTO("missing", 1))))
+            .isInstanceOf(ProductNotFoundException.class);
+
+        assertThat(productService.findById("1")).get().extracting(ProductResponseDTO::getStockQuantity).isEqualTo(45);
+        assertThat(productService.findById("2")).get().extracting(ProductResponseDTO::getStockQuantity).isEqualTo(90);
+    }
+
+    @Test
+    void testConditionalUpdateIsCompareAndSetOnVersion() {
+        ProductUpdateDTO rename = new ProductUpdateDTO();
+        rename.setName("Premium Laptop Pro");
+
+        ProductResponseDTO updated = productService.update("1", rename, 0L);
+        assertThat(updated.getVersion()).isEqualTo(1L);
+
+        ProductUpdateDTO staleRename = new ProductUpdateDTO();
+        staleRename.setName("Lost Update");
+        assertThatThrownBy(() -> productService.patch("1", staleRename, 0L))
+            .isInstanceOf(VersionConflictException.class);
+        assertThatThrownBy(() -> productService.patch("missing", staleRename, 0L))
+            .isInstanceOf(VersionConflictException.class);
+        assertThat(productService.findById("1")).get().extracting(ProductResponseDTO::getName).isEqualTo("Premium Laptop Pro");
+    }
+
+    @Test
+    void testEveryWriteAdvancesTheVersion() {
+        assertThat(productService.create(createDTO("Retail Scanner", "retail")).getVersion()).isEqualTo(0L);
+        assertThat(productService.decrementStock("2", 1).getVersion()).isEqualTo(1L);
+        assertThat(productService.patch("2", new ProductUpdateDTO()).getVersion()).isEqualTo(2L);
+    }
+
+    @Test
+    void testIndexedFindersFollowUpdatesAndDeletes() {
+        ProductResponseDTO scanner = productService.create(createDTO("Retail Scanner", "retail"));
+
+        ProductUpdateDTO move = new ProductUpdateDTO();
+        move.setCategory("kiosk");
+        move.setName("Kiosk Scanner");
+        move.setFeatured(true);
+        productService.patch(scanner.getId(), move);
+
+        assertThat(productService.findByCategory("retail")).isEmpty();
+        assertThat(productService.findByCategory("kiosk")).extracting(ProductResponseDTO::getId).containsExactly(scanner.getId());
+        assertThat(productService.findByName("Retail Scanner")).isNull();
+        assertThat(productService.findByName("Kiosk Scanner").getId()).isEqualTo(scanner.getId());
+        assertThat(productService.findFeaturedProducts()).extracting(ProductResponseDTO::getId)
+            .containsExactlyInAnyOrder("1", scanner.getId());
+
+        ProductFilterDTO filter = new ProductFilterDTO();
+        filter.setCategory("electronics");
+        filter.setBrand("AudioMax");
+        assertThat(productService.findWithFilters(filter, 10, null).getItems()).extracting(ProductResponseDTO::getId)
+            .containsExactly("2");
+
+        productService.delete(scanner.getId());
+        assertThat(productService.findByCategory("kiosk")).isEmpty();
+        assertThat(productService.findByProductArea("pos")).isEmpty();
+        assertThat(productService.findFeaturedProducts()).extracting(ProductResponseDTO::getId).containsExactly("1");
+    }
+
+    @Test
+    void testPriceRangePagesInPriceOrderThroughTies() {
+        List<String> ties = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ProductCreateDTO dto = createDTO("Tie " + i, "retail");
+            dto.setPrice(new BigDecimal("250.00"));
+            ties.add(productService.create(dto).getId());
+        }
+        ProductCreateDTO cheap = createDTO("Cheap Cable", "retail");
+        cheap.setPrice(new BigDecimal("9.99"));
+        String cheapId = productService.create(cheap).getId();
+
+        // Top-N cheapest: no bounds, first page only
+        assertThat(productService.findByPriceRange(null, null, false, 2, null).getItems())
+            .extracting(ProductResponseDTO::getId).containsExactly(cheapId, "2");
+
+        List<String> seen = new ArrayList<>();
+        String after = null;
+        do {
+            CursorPageDTO<ProductResponseDTO> page = productService.findByPriceRange(
+                new BigDecimal("199.99"), new BigDecimal("250"), false, 2, after);
+            page.getItems().forEach(p -> seen.add(p.getId()));
+            after = page.getNextCursor();
+        } while (after != null);
+        ties.sort(null);
+        assertThat(seen).containsExactly("2", ties.get(0), ties.get(1), ties.get(2));
+
+        assertThat(productService.findByPriceRange(new BigDecimal("200"), null, true, 10, null).getItems())
+            .extracting(ProductResponseDTO::getId).containsExactly("1", ties.get(2), ties.get(1), ties.get(0));
+    }
+
+    @Test
+    void testPriceIndexFollowsPriceChangesAndDeletes() {
+        ProductUpdateDTO reprice = new ProductUpdateDTO();
+        reprice.setPrice(new BigDecimal("5.00"));
+        productService.patch("1", reprice);
+        productService.delete("2");
+
+        assertThat(productService.findByPriceRange(null, new BigDecimal("10"), false, 10, null).getItems())
+            .extracting(ProductResponseDTO::getId).containsExactly("1");
+        assertThat(productService.findByPriceRange(new BigDecimal("10"), null, false, 10, null).getItems()).isEmpty();
+        assertThat(productService.findByPriceRange(new BigDecimal("5.001"), new BigDecimal("5.009"), false, 10, null)
+            .getItems()).isEmpty();
+    }
+
+    @Test
+    void testCopyOnWriteReadsFollowEveryWrite() {
+        productService.setReadMode("copy-on-write");
+        List<String> categories = List.of("cow-a", "cow-b", "cow-c");
+        // More products per category than fit in one chunk of the published copy
+        Map<String, String> categoryById = new HashMap<>();
+        for (int i = 0; i < 900; i++) {
+            String category = categories.get(i % categories.size());
+            categoryById.put(productService.create(createDTO("Cow " + i, category)).getId(), category);
+        }
+        Random random = new Random(42);
+        List<String> ids = new ArrayList<>(categoryById.keySet());
+        for (int i = 0; i < 600; i++) {
+            String id = ids.get(random.nextInt(ids.size()));
+            if (!categoryById.containsKey(id)) {
+                continue;
+            }
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    productService.delete(id);
+                    categoryById.remove(id);
+                }
+                case 1 -> {
+                    String category = categories.get(random.nextInt(categories.size()));
+                    ProductUpdateDTO update = new ProductUpdateDTO();
+                    update.setCategory(category);
+                    productService.update(id, update);
+                    categoryById.put(id, category);
+                }
+                default -> productService.incrementStock(id, 1);
+            }
+        }
+
+        for (String category : categories) {
+            List<String> expected = categoryById.entrySet().stream()
+                    .filter(e -> e.getValue().equals(category))
+                    .map(Map.Entry::getKey)
+                    .sorted()
+                    .toList();
+            assertThat(productService.findByCategory(category)).extracting(ProductResponseDTO::getId)
+                    .containsExactlyElementsOf(expected);
+            List<String> paged = new ArrayList<>();
+            String after = null;
+            do {
+                CursorPageDTO<ProductResponseDTO> page = productService.findByCategory(category, 70, after);
+                page.getItems().forEach(p -> paged.add(p.getId()));
+                after = page.getNextCursor();
+            } while (after != null);
+            assertThat(paged).containsExactlyElementsOf(expected);
+        }
+        // Published copies hold products as they are now, not as first indexed
+        String changed = categoryById.keySet().iterator().next();
+        int stock = productService.findById(changed).orElseThrow().getStockQuantity();
+        productService.incrementStock(changed, 5);
+        assertThat(productService.findByCategory(categoryById.get(changed)))
+                .filteredOn(p -> p.getId().equals(changed))
+                .singleElement()
+                .satisfies(p -> assertThat(p.getStockQuantity()).isEqualTo(stock + 5));
+    }
+
+    @Test
+    void testAutocompleteRanksFeaturedThenSharedTexts() {
+        productService.create(createDTO("WiFi Extender", "networking"));
+        productService.create(createDTO("WiFi Extender", "networking"));
+        ProductCreateDTO featured = createDTO("Wide Monitor", "displays");
+        featured.setFeatured(true);
+        productService.create(featured);
+
+        assertThat(productService.autocomplete("  WI", 10))
+            .extracting(SuggestionDTO::getText, SuggestionDTO::getField, SuggestionDTO::getCount)
+            .containsExactly(tuple("Wide Monitor", SuggestionDTO.NAME, 1L),
+                             tuple("WiFi Extender", SuggestionDTO.NAME, 2L),
+                             tuple("wireless", SuggestionDTO.TAG, 1L),
+                             tuple("Wireless Headphones", SuggestionDTO.NAME, 1L));
+        assertThat(productService.autocomplete("wi", 2)).hasSize(2);
+        assertThat(productService.autocomplete("tech", 10)).extracting(SuggestionDTO::getText)
+            .containsExactly("TechTwist", "TechCorp");
+        assertThat(productService.autocomplete("wix", 10)).isEmpty();
+    }
+
+    @Test
+    void testAutocompleteFollowsRenamesStatusAndDeletes() {
+        String id = productService.create(createDTO("Wide Monitor", "displays")).getId();
+
+        ProductUpdateDTO rename = new ProductUpdateDTO();
+        rename.setName("Curved Monitor");
+        productService.update(id, rename);
+        assertThat(productService.autocomplete("wide", 10)).isEmpty();
+        assertThat(productService.autocomplete("curved m", 10)).extracting(SuggestionDTO::getText)
+            .containsExactly("Curved Monitor");
+
+        ProductUpdateDTO deactivate = new ProductUpdateDTO();
+        deactivate.setStatus("INACTIVE");
+        productService.update(id, deactivate);
+        assertThat(productService.autocomplete("curved", 10)).isEmpty();
+
+        ProductUpdateDTO reactivate = new ProductUpdateDTO();
+        reactivate.setStatus("ACTIVE");
+        productService.update(id, reactivate);
+        productService.delete(id);
+        assertThat(productService.autocomplete("curved", 10)).isEmpty();
+    }
+
+    @Test
+    void testAutocompleteMatchesRecountAfterRandomWrites() {
+        // Names share prefixes at many lengths, so trie nodes are split and merged again and again
+        List<String> words = List.of("al", "alp", "alpha", "alpine", "alps", "be", "bet", "beta", "better", "c");
+        Random random = new Random(7);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            int roll = random.nextInt(10);
+            if (roll < 4 || ids.isEmpty()) {
+                ProductCreateDTO dto = createDTO(words.get(random.nextInt(words.size())) + " "
+                        + words.get(random.nextInt(words.size())), "random");
+                dto.setBrand(words.get(random.nextInt(words.size())));
+                dto.setTags(List.of(words.get(random.nextInt(words.size())), words.get(random.nextInt(words.size()))));
+                dto.setFeatured(random.nextInt(8) == 0);
+                ids.add(productService.create(dto).getId());
+            } else if (roll < 7) {
+                ProductUpdateDTO update = new ProductUpdateDTO();
+                update.setName(words.get(random.nextInt(words.size())));
+                update.setFeatured(random.nextInt(8) == 0);
+                productService.update(ids.get(random.nextInt(ids.size())), update);
+            } else if (roll < 8) {
+                ProductUpdateDTO update = new ProductUpdateDTO();
+                update.setStatus(random.nextBoolean() ? "ACTIVE" : "INACTIVE");
+                productService.update(ids.get(random.nextInt(ids.size())), update);
+            } else {
+                productService.delete(ids.remove(random.nextInt(ids.size())));
+            }
+        }
+
+        Map<List<String>, SuggestionDTO> expected = new HashMap<>();
+        for (ProductResponseDTO product : productService.findAll()) {
+            Map<List<String>, String> texts = new HashMap<>();
+            texts.put(List.of(SuggestionDTO.NAME, product.getName().toLowerCase()), product.getName());
+            texts.put(List.of(SuggestionDTO.BRAND, product.getBrand().toLowerCase()), product.getBrand());
+            product.getTags().forEach(tag -> texts.put(List.of(SuggestionDTO.TAG, tag.toLowerCase()), tag));
+            texts.forEach((key, text) -> {
+                SuggestionDTO suggestion = expected.computeIfAbsent(key, k -> new SuggestionDTO(text, k.get(0), 0, false));
+                suggestion.setCount(suggestion.getCount() + 1);
+                suggestion.setFeatured(suggestion.isFeatured() || Boolean.TRUE.equals(product.getFeatured()));
+            });
+        }
+        for (String prefix : List.of("a", "al", "alp", "alph", "alpi", "alps ", "alpha b", "b", "be", "bet", "bett", "c", "c a", "d")) {
+            List<SuggestionDTO> recounted = expected.values().stream()
+                    .filter(s -> s.getText().toLowerCase().startsWith(prefix))
+                    .sorted(Suggestions.RANKING)
+                    .limit(Suggestions.MAX_SIZE)
+                    .toList();
+            assertThat(productService.autocomplete(prefix, Suggestions.MAX_SIZE))
+                .as("suggestions for '%s'", prefix)
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(recounted);
+        }
+    }
+
+    @Test
+    void testUnknownReadModeIsRejected() {
+        assertThatThrownBy(() -> productService.setReadMode("optimistic"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private ProductCreateDTO createDTO(String name, String category) {
+        ProductCreateDTO dto = new ProductCreateDTO();
+        dto.setName(name);
+        dto.setBrand("TechTwist");
+        dto.setPrice(new BigDecimal("49.99"));
+        dto.setDescription("Test product for the in-memory service");
+        dto.setCategory(category);
+        dto.setProductArea("pos");
+        dto.setStockQuantity(5);
+        return dto;
+    }
+}
@@ -0,0 +1,374 @@
+package com.techtwist.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.techtwist.dto.ProductCreateDTO;
+import com.techtwist.dto.ProductFilterDTO;
+import com.techtwist.dto.ProductResponseDTO;
+import com.techtwist.dto.ProductUpdateDTO;
+import com.techtwist.mapper.ProductMapper;
+import com.techtwist.models.Product;
+import com.techtwist.services.support.Durability;
+import com.techtwist.services.support.ProductChangeLog;
+import com.techtwist.services.support.ProductSnapshots;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for InMemoryProductSnapshotter, the snapshot file format and the change log
+ */
+public class InMemoryProductSnapshotterTest {
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void testSnapshotRoundTripsEveryField() throws IOException {
+        Product full = new Product();
+        full.setId("full");
+        full.setName("Café Laptop ☃");
+        full.setBrand("TechCorp");
+        full.setPrice(new BigDecimal("123456789012345678901234.50"));
+        full.setDescription("Every field set");
+        full.setImageUrl("https://example.com/full.jpg");
+        full.setFeatures(Arrays.asList("fast", null, "light"));
+        Map<String, String> specifications = new LinkedHashMap<>();
+        specifications.put("cpu", "8 cores");
+        specifications.put("gpu", null);
+        full.setSpecifications(specifications);
+        full.setCategory("laptops");
+        full.setCategoryName("Laptops");
+        full.setProductArea("computing");
+        full.setProductAreaName("Computing");
+        full.setStockQuantity(-3);
+        full.setSku("SKU-FULL");
+        full.setStatus("DISCONTINUED");
+        full.setFeatured(true);
+        full.setWeight(1.25);
+        full.setDimensions("30x20x2");
+        full.setWarranty("2 years");
+        full.setManufacturer("TechCorp Inc");
+        full.setTags(List.of("sale"));
+        full.setCreatedAt(LocalDateTime.of(2020, 1, 2, 3, 4, 5, 6));
+        full.setVersion(42L);
+        full.setUpdatedAt(LocalDateTime.of(2021, 6, 7, 8, 9, 10, 11));
+
+        Product empty = new Product();
+        empty.setId("empty");
+        empty.setStatus(null);
+        empty.setFeatured(null);
+        empty.setCreatedAt(null);
+        empty.setUpdatedAt(null);
+
+        Path file = dataDir.resolve("nested").resolve("products.snapshot");
+        ProductSnapshots.write(file, List.of(full, empty), 0);
+        List<Product> restored = ProductSnapshots.read(file).products();
+
+        assertThat(restored).hasSize(2);
+        assertThat(restored.get(0)).usingRecursiveComparison().isEqualTo(full);
+        assertThat(restored.get(1)).usingRecursiveComparison().isEqualTo(empty);
+        assertThat(Files.list(file.getParent())).containsExactly(file);
+    }
+
+    @Test
+    void testSnapshotSpansMappedWindows() throws IOException {
+        // Records of about 1MB each cross the 64MB write window
+        String description = "x".repeat(1 << 20);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 70; i++) {
+            Product product = new Product();
+            product.setId(String.format("%04d", i));
+            product.setDescription(description);
+            products.add(product);
+        }
+
+        Path file = dataDir.resolve("products.snapshot");
+        long bytes = ProductSnapshots.write(file, products, 0);
+
+        assertThat(Files.size(file)).isEqualTo(bytes).isGreaterThan(70L << 20);
+        List<Product> restored = ProductSnapshots.read(file).products();
+        assertThat(restored).extracting(Product::getId).containsExactlyElementsOf(
+                products.stream().map(Product::getId).toList());
+        assertThat(restored.get(69).getDescription()).isEqualTo(description);
+    }
+
+    @Test
+    void testRestartRestoresProductsVersionsAndIndexes() throws IOException {
+        InMemoryProductService before = newService();
+        InMemoryProductSnapshotter snapshotter = snapshotter(before);
+        ProductResponseDTO created = before.create(createDTO("Snapshot Speaker", "audio", new BigDecimal("79.99")));
+        ProductUpdateDTO update = new ProductUpdateDTO();
+        update.setBrand("SoundCo");
+        before.update(created.getId(), update);
+        before.delete("2");
+        assertThat(snapshotter.snapshot()).isTrue();
+
+        InMemoryProductService after = newService();
+        assertThat(snapshotter(after).load()).isTrue();
+
+        ProductResponseDTO restored = after.findById(created.getId()).orElseThrow();
+        assertThat(restored.getBrand()).isEqualTo("SoundCo");
+        assertThat(restored.getVersion()).isEqualTo(1L);
+        assertThat(after.findById("2")).isEmpty();
+        assertThat(after.findAll()).extracting(ProductResponseDTO::getId)
+                .containsExactlyInAnyOrderElementsOf(before.findAll().stream().map(ProductResponseDTO::getId).toList());
+        assertThat(after.findByCategory("audio")).extracting(ProductResponseDTO::getId).containsExactly(created.getId());
+        assertThat(after.findByName("Snapshot Speaker").getId()).isEqualTo(created.getId());
+        assertThat(after.findByPriceRange(new BigDecimal("79.99"), new BigDecimal("79.99"), false, 10, null).getItems())
+                .extracting(ProductResponseDTO::getId).containsExactly(created.getId());
+        ProductFilterDTO filter = new ProductFilterDTO();
+        filter.setBrand("SoundCo");
+        assertThat(after.findWithFilters(filter, 10, null).getItems()).hasSize(1);
+
+        // Restored products keep changing as usual
+        after.delete(created.getId());
+        assertThat(after.findByCategory("audio")).isEmpty();
+    }
+
+    @Test
+    void testSnapshotIsSkippedWhileTheStoreIsUnchanged() throws IOException {
+        InMemoryProductService productService = newService();
+        InMemoryProductSnapshotter snapshotter =
+                snapshotter(productService);
+
+        assertThat(snapshotter.snapshot()).isTrue();
+        assertThat(snapshotter.snapshot()).isFalse();
+        productService.create(createDTO("New Product", "misc", BigDecimal.TEN));
+        assertThat(snapshotter.snapshot()).isTrue();
+    }
+
+    @Test
+    void testCorruptSnapshotIsMovedAsideAndSamplesKept() throws IOException {
+        InMemoryProductService productService = newService();
+        InMemoryProductSnapshotter snapshotter =
+                snapshotter(productService);
+        productService.create(createDTO("Doomed Product", "misc", BigDecimal.ONE));
+        snapshotter.snapshot();
+        Path file = dataDir.resolve(InMemoryProductSnapshotter.SNAPSHOT_FILE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) 0xFF}), Files.size(file) - 1);
+        }
+        assertThatThrownBy(() -> ProductSnapshots.read(file)).isInstanceOf(IOException.class);
+
+        InMemoryProductService restarted = newService();
+        assertThat(snapshotter(restarted).load()).isFalse();
+
+        assertThat(restarted.findAll()).extracting(ProductResponseDTO::getId).containsExactlyInAnyOrder("1", "2");
+        assertThat(Files.exists(file)).isFalse();
+        assertThat(Files.list(dataDir).filter(f -> f.getFileName().toString().startsWith("products.")))
+                .singleElement()
+                .satisfies(aside -> assertThat(aside.getFileName().toString()).startsWith("products.snapshot.corrupt-"));
+    }
+
+    @Test
+    void testTruncatedSnapshotIsRejected() throws IOException {
+        Path file = dataDir.resolve("products.snapshot");
+        ProductSnapshots.write(file, newService().snapshotProducts().products(), 0);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(file) - 10);
+        }
+
+        assertThatThrownBy(() -> ProductSnapshots.read(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("truncated");
+    }
+
+    @Test
+    void testChangesSinceTheLastSnapshotAreReplayedFromTheLog() throws IOException {
+        InMemoryProductService before = newService();
+        InMemoryProductSnapshotter running = snapshotter(before);
+        running.load();
+        ProductResponseDTO kept = before.create(createDTO("Logged Speaker", "audio", new BigDecimal("10.00")));
+        running.snapshot();
+        // Not in the snapshot: only the log has these
+        ProductResponseDTO later = before.create(createDTO("Logged Headphones", "audio", new BigDecimal("20.00")));
+        ProductUpdateDTO update = new ProductUpdateDTO();
+        update.setPrice(new BigDecimal("12.50"));
+        before.update(kept.getId(), update);
+        before.decrementStock(later.getId(), 2);
+        before.delete("1");
+
+        InMemoryProductService after = newService();
+        assertThat(snapshotter(after).load()).isTrue();
+
+        assertThat(after.findById(kept.getId()).orElseThrow())
+                .satisfies(p -> assertThat(p.getPrice()).isEqualByComparingTo("12.50"))
+                .satisfies(p -> assertThat(p.getVersion()).isEqualTo(1L));
+        assertThat(after.findById(later.getId()).orElseThrow().getStockQuantity()).isEqualTo(3);
+        assertThat(after.findById("1")).isEmpty();
+        assertThat(after.findByPriceRange(new BigDecimal("12.50"), new BigDecimal("12.50"), false, 10, null).getItems())
+                .extracting(ProductResponseDTO::getId).containsExactly(kept.getId());
+        running.stop();
+    }
+
+    @Test
+    void testLogIsReplayedOnTheSampleProductsWithoutASnapshot() throws IOException {
+        InMemoryProductService before = newService();
+        snapshotter(before).load();
+        ProductResponseDTO created = before.create(createDTO("Unsnapshotted", "misc", BigDecimal.ONE));
+        before.delete("2");
+
+        InMemoryProductService after = newService();
+        assertThat(snapshotter(after).load()).isFalse();
+
+        assertThat(after.findAll()).extracting(ProductResponseDTO::getId).containsExactlyInAnyOrder("1", created.getId());
+    }
+
+    @Test
+    void testLogIsReplayedOnACatalogWithoutIdsWithoutASnapshot() throws IOException {
+        Path catalog = Files.writeString(dataDir.resolve("catalog.ndjson"), """
+                {"name":"Catalog Scanner","sku":"SCAN-1","price":10}
+                {"name":"Catalog Printer","price":20}
+                """);
+        InMemoryProductService before = newService();
+        catalogLoader(before, catalog).load();
+        snapshotter(before).load();
+        ProductUpdateDTO update = new ProductUpdateDTO();
+        update.setPrice(new BigDecimal("12.00"));
+        before.update(before.findByName("Catalog Scanner").getId(), update);
+        before.update(before.findByName("Catalog Printer").getId(), update);
+
+        InMemoryProductService after = newService();
+        catalogLoader(after, catalog).load();
+        assertThat(snapshotter(after).load()).isFalse();
+
+        // The logged changes land on the catalog's products rather than beside them
+        assertThat(after.findAll()).hasSize(2)
+                .allSatisfy(p -> assertThat(p.getPrice()).isEqualByComparingTo("12.00"))
+                .allSatisfy(p -> assertThat(p.getVersion()).isEqualTo(1L));
+    }
+
+    @Test
+    void testTornRecordAtTheEndOfTheLogIsIgnored() throws IOException {
+        InMemoryProductService before = newService();
+        snapshotter(before).load();
+        ProductResponseDTO created = before.create(createDTO("Survivor", "misc", BigDecimal.ONE));
+        Path segment;
+        try (var files = Files.list(dataDir)) {
+            segment = files.filter(f -> f.getFileName().toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+        // A record cut short by a crash mid-append: a length with only part of its body
+        Files.write(segment, new byte[] {0, 0, 0, 100, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14}, StandardOpenOption.APPEND);
+
+        InMemoryProductService after = newService();
+        snapshotter(after).load();
+
+        assertThat(after.findById(created.getId())).isPresent();
+        // Logging carries on in a new segment after the torn one
+        ProductResponseDTO next = after.create(createDTO("Next", "misc", BigDecimal.TEN));
+        InMemoryProductService third = newService();
+        snapshotter(third).load();
+        assertThat(third.findById(next.getId())).isPresent();
+    }
+
+    @Test
+    void testSnapshotDeletesTheLogSegmentsItCovers() throws IOException {
+        InMemoryProductService productService = newService();
+        InMemoryProductSnapshotter snapshotter = snapshotter(productService);
+        snapshotter.load();
+        for (int i = 0; i < 3; i++) {
+            productService.create(createDTO("Product " + i, "misc", BigDecimal.ONE));
+            snapshotter.snapshot();
+        }
+
+        try (var files = Files.list(dataDir)) {
+            assertThat(files.map(f -> f.getFileName().toString()))
+                    .containsExactlyInAnyOrder(InMemoryProductSnapshotter.SNAPSHOT_FILE, "changes-0000000004.log");
+        }
+        assertThat(ProductSnapshots.read(dataDir.resolve(InMemoryProductSnapshotter.SNAPSHOT_FILE)).sequence()).isEqualTo(3);
+    }
+
+    @Test
+    void testConcurrentSyncWritesAreAllDurable() throws Exception {
+        InMemoryProductService productService = newService();
+        InMemoryProductSnapshotter snapshotter = snapshotter(productService);
+        snapshotter.load();
+        int threads = 8;
+        int perThread = 50;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            writers.add(pool.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    productService.create(createDTO("Writer " + thread + " product " + i, "concurrent", BigDecimal.ONE));
+                }
+            }));
+        }
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        pool.shutdown();
+
+        InMemoryProductService restarted = newService();
+        snapshotter(restarted).load();
+        assertThat(restarted.findByCategory("concurrent")).hasSize(threads * perThread);
+    }
+
+    @Test
+    void testRequestedDurabilityOverridesTheDefault() throws IOException {
+        InMemoryProductService productService = newService();
+        InMemoryProductSnapshotter snapshotter = new InMemoryProductSnapshotter(productService, dataDir.toString(),
+                Duration.ofMinutes(1), true, "async", Duration.ofMinutes(1));
+        snapshotter.load();
+        ProductChangeLog log = (ProductChangeLog) ReflectionTestUtils.getField(snapshotter, "changeLog");
+
+        productService.create(createDTO("Async", "misc", BigDecimal.ONE));
+        assertThat(ReflectionTestUtils.getField(log, "synced")).isNotEqualTo(log.lastSequence());
+
+        Durability.request(Durability.SYNC);
+        try {
+            productService.create(createDTO("Sync", "misc", BigDecimal.ONE));
+        } finally {
+            Durability.clearRequest();
+        }
+        assertThat(ReflectionTestUtils.getField(log, "synced")).isEqualTo(log.lastSequence());
+    }
+
+    private InMemoryProductSnapshotter snapshotter(InMemoryProductService productService) {
+        return new InMemoryProductSnapshotter(productService, dataDir.toString(), Duration.ofMinutes(1),
+                true, "sync", Duration.ofMinutes(1));
+    }
+
+    private static InMemoryCatalogLoader catalogLoader(InMemoryProductService productService, Path file) {
+        return new InMemoryCatalogLoader(productService, new ProductMapper(), new ObjectMapper(), file.toString());
+    }
+
+    private static InMemoryProductService newService() {
+        InMemoryProductService productService = new InMemoryProductService();
+        ReflectionTestUtils.setField(productService, "productMapper", new ProductMapper());
+        productService.initializeSampleProducts();
+        return productService;
+    }
+
+    private static ProductCreateDTO createDTO(String name, String category, BigDecimal price) {
+        ProductCreateDTO dto = new ProductCreateDTO();
+        dto.setName(name);
+        dto.setBrand("TestBrand");
+        dto.setCategory(category);
+        dto.setPrice(price);
+        dto.setStockQuantity(5);
+        return dto;
+    }
+}
@@ -0,0 +1,615 @@
+package com.techtwist.services;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.techtwist.dto.BulkItemResultDTO;
+import com.techtwist.dto.BulkResultDTO;
+import com.techtwist.dto.CursorPageDTO;
+import com.techtwist.dto.ProductCreateDTO;
+import com.techtwist.dto.ProductFacetsDTO;
+import com.techtwist.dto.ProductFilterDTO;
+import com.techtwist.dto.ProductResponseDTO;
+import com.techtwist.dto.ProductSummaryDTO;
+import com.techtwist.dto.ProductUpdateDTO;
+import com.techtwist.dto.StockAdjustmentDTO;
+import com.techtwist.dto.SuggestionDTO;
+import com.techtwist.exceptions.InsufficientStockException;
+import com.techtwist.exceptions.VersionConflictException;
+import com.techtwist.mapper.ProductMapper;
+import com.techtwist.models.Product;
+import com.techtwist.repository.ProductRepository;
+import com.techtwist.services.support.KeysetPaging;
+import com.techtwist.services.support.MongoProductQueries;
+import com.techtwist.services.support.PriceCursor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for MongoProductService using a mocked ProductRepository
+ * Verifies that filters are pushed down to the indexed repository queries
+ */
+@ExtendWith(MockitoExtension.class)
+public class MongoProductServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private MongoProductService productService;
+
+    private Product mobilePOS;
+    private Product smartKiosk;
+
+    @BeforeEach
+    void setUp() {
+        productService = new MongoProductService(productRepository, mongoTemplate, new ProductMapper());
+
+        mobilePOS = createProduct("1", "FlexiRetail Mobile POS", "TechTwist", "retail", "pos", true);
+        smartKiosk = createProduct("2", "Smart Kiosk Pro", "TechTwist", "retail", "kiosk", false);
+    }
+
+    @Test
+    void testFindByCategoryUsesIndexedQuery() {
+        when(productRepository.findByCategoryAndStatus("retail", "ACTIVE"))
+            .thenReturn(Arrays.asList(mobilePOS, smartKiosk));
+
+        List<ProductResponseDTO> results = productService.findByCategory("retail");
+
+        assertThat(results).extracting(ProductResponseDTO::getId).containsExactly("1", "2");
+        verify(productRepository, never()).findAll();
+    }
+
+    @Test
+    void testFindByBrandUsesIndexedQuery() {
+        when(productRepository.findByBrandAndStatus("TechTwist", "ACTIVE"))
+            .thenReturn(Arrays.asList(mobilePOS, smartKiosk));
+
+        List<ProductResponseDTO> results = productService.findByBrand("TechTwist");
+
+        assertThat(results).hasSize(2);
+        verify(productRepository, never()).findAll();
+    }
+
+    @Test
+    void testFindByProductAreaUsesIndexedQuery() {
+        when(productRepository.findByProductAreaAndStatus("kiosk", "ACTIVE"))
+            .thenReturn(Collections.singletonList(smartKiosk));
+
+        List<ProductResponseDTO> results = productService.findByProductArea("kiosk");
+
+        assertThat(results).extracting(ProductResponseDTO::getName).containsExactly("Smart Kiosk Pro");
+        verify(productRepository, never()).findAll();
+    }
+
+    @Test
+    void testFindFeaturedProductsUsesIndexedQuery() {
+        when(productRepository.findByFeaturedTrueAndStatus("ACTIVE"))
+            .thenReturn(Collections.singletonList(mobilePOS));
+
+        List<ProductResponseDTO> results = productService.findFeaturedProducts();
+
+        assertThat(results).extracting(ProductResponseDTO::getId).containsExactly("1");
+        verify(productRepository, never()).findAll();
+    }
+
+    @Test
+    void testFindByNameUsesIndexedQuery() {
+        when(productRepository.findByNameAndStatus("Smart Kiosk Pro", "ACTIVE"))
+            .thenReturn(Collections.singletonList(smartKiosk));
+
+        ProductResponseDTO result = productService.findByName("Smart Kiosk Pro");
+
+        assertThat(result).isNotNull();
+        assertThat(result.getId()).isEqualTo("2");
+        verify(productRepository, never()).findAll();
+    }
+
+    @Test
+    void testFindByNameNotFound() {
+        when(productRepository.findByNameAndStatus("Unknown", "ACTIVE"))
+            .thenReturn(Collections.emptyList());
+
+        assertThat(productService.findByName("Unknown")).isNull();
+    }
+
+    @Test
+    void testFindAllSummaryUsesProjectedQuery() {
+        when(productRepository.findSummariesByStatus("ACTIVE"))
+            .thenReturn(Arrays.asList(mobilePOS, smartKiosk));
+
+        List<ProductSummaryDTO> results = productService.findAllSummary();
+
+        assertThat(results).extracting(ProductSummaryDTO::getId).containsExactly("1", "2");
+        assertThat(results.get(0).isInStock()).isTrue();
+        verify(productRepository, never()).findAll();
+    }
+
+    @Test
+    void testFindByCategoryPageSeeksPastCursor() {
+        when(mongoTemplate.find(any(Query.class), eq(Product.class)))
+            .thenReturn(Arrays.asList(mobilePOS, smartKiosk));
+
+        CursorPageDTO<ProductResponseDTO> page =
+            productService.findByCategory("retail", 1, KeysetPaging.encodeCursor("0"));
+
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(queryCaptor.capture(), eq(Product.class));
+        Query query = queryCaptor.getValue();
+        assertThat(query.getLimit()).isEqualTo(2);
+        assertThat(query.getSortObject().toJson()).contains("\"id\": 1");
+        assertThat(query.getQueryObject().toJson()).contains("$gt").contains("retail");
+
+        assertThat(page.getItems()).extracting(ProductResponseDTO::getId).containsExactly("1");
+        assertThat(page.hasMore()).isTrue();
+        assertThat(KeysetPaging.decodeIdCursor(page.getNextCursor())).isEqualTo("1");
+    }
+
+    @Test
+    void testFindAllSummaryLastPageHasNoCursor() {
+        when(mongoTemplate.find(any(Query.class), eq(Product.class)))
+            .thenReturn(Arrays.asList(mobilePOS, smartKiosk));
+
+        CursorPageDTO<ProductSummaryDTO> page = productService.findAllSummary(5, null);
+
+        assertThat(page.getItems()).hasSize(2);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void testInvalidCursorIsRejected() {
+        assertThatThrownBy(() -> productService.findAll(10, "%%%"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testStreamAllUsesBatchedCursor() {
+        when(mongoTemplate.stream(any(Query.class), eq(Product.class)))
+            .thenReturn(Stream.of(mobilePOS, smartKiosk));
+
+        List<String> ids;
+        try (Stream<ProductResponseDTO> stream = productService.streamAll()) {
+            ids = stream.map(ProductResponseDTO::getId).collect(Collectors.toList());
+        }
+
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).stream(queryCaptor.capture(), eq(Product.class));
+        assertThat(queryCaptor.getValue().getMeta().getCursorBatchSize()).isEqualTo(500);
+        assertThat(ids).containsExactly("1", "2");
+        verify(productRepository, never()).findAll();
+    }
+
+    @Test
+    void testSearchUsesTextIndexSortedByScore() {
+        when(mongoTemplate.find(any(Query.class), eq(Product.class)))
+            .thenReturn(Collections.singletonList(mobilePOS));
+
+        List<ProductResponseDTO> results = productService.search("mobile pos", 2, 10);
+
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(queryCaptor.capture(), eq(Product.class));
+        Query query = queryCaptor.getValue();
+        assertThat(query.getQueryObject().toJson()).contains("$text").contains("mobile pos").contains("ACTIVE");
+        assertThat(query.getSortObject().toJson()).contains("textScore");
+        assertThat(query.getSkip()).isEqualTo(20);
+        assertThat(query.getLimit()).isEqualTo(10);
+        assertThat(results).extracting(ProductResponseDTO::getId).containsExactly("1");
+    }
+
+    @Test
+    void testFilterBuildsOnlySuppliedPredicates() {
+        when(mongoTemplate.find(any(Query.class), eq(Product.class)))
+            .thenReturn(Collections.singletonList(mobilePOS));
+
+        ProductFilterDTO filter = new ProductFilterDTO();
+        filter.setCategory("retail");
+        filter.setMinPrice(new BigDecimal("100"));
+        filter.setInStock(true);
+
+        CursorPageDTO<ProductResponseDTO> page = productService.findWithFilters(filter, 10, null);
+
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(queryCaptor.capture(), eq(Product.class));
+        Query query = queryCaptor.getValue();
+        assertThat(query.getQueryObject().keySet())
+            .containsExactlyInAnyOrder("status", "category", "price", "stockQuantity");
+        assertThat(query.getQueryObject().toJson()).doesNotContain("$exists").doesNotContain("$or");
+        assertThat(query.getHint()).isEqualTo("category_filter_idx");
+        assertThat(page.getItems()).hasSize(1);
+    }
+
+    @Test
+    void testPriceRangePageSeeksPastPriceCursorOnPriceIndex() {
+        when(mongoTemplate.find(any(Query.class), eq(Product.class)))
+            .thenReturn(Arrays.asList(mobilePOS, smartKiosk));
+
+        CursorPageDTO<ProductResponseDTO> page = productService.findByPriceRange(new BigDecimal("100"), null, true, 1,
+            new PriceCursor(new BigDecimal("499.99"), "9").encode());
+
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(queryCaptor.capture(), eq(Product.class));
+        Query query = queryCaptor.getValue();
+        assertThat(query.getHint()).isEqualTo("status_price_idx");
+        assertThat(query.getSortObject().toJson()).isEqualTo("{\"price\": -1, \"id\": -1}");
+        assertThat(query.getQueryObject().keySet()).containsExactlyInAnyOrder("status", "price", "$or");
+        assertThat(query.getQueryObject().toJson()).contains("$lt").contains("499.99");
+        assertThat(query.getLimit()).isEqualTo(2);
+
+        assertThat(page.getItems()).extracting(ProductResponseDTO::getId).containsExactly("1");
+        assertThat(PriceCursor.decode(page.getNextCursor())).isEqualTo(new PriceCursor(mobilePOS.getPrice(), "1"));
+    }
+
+    @Test
+    void testFilterWithTextUsesTextIndex() {
+        when(mongoTemplate.find(any(Query.class), eq(Product.class)))
+            .thenReturn(Collections.emptyList());
+
+        ProductFilterDTO filter = new ProductFilterDTO();
+        filter.setBrand("TechTwist");
+        filter.setQ("kiosk");
+
+        productService.findWithFilters(filter, 10, KeysetPaging.encodeCursor("1"));
+
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(queryCaptor.capture(), eq(Product.class));
+        Query query = queryCaptor.getValue();
+        assertThat(query.getQueryObject().keySet()).contains("$text", "brand", "id");
+        assertThat(query.getHint()).isNull();
+    }
+
+    @Test
+    void testFacetsRunAsSingleAggregation() {
+        Document result = new Document()
+            .append("categories", Arrays.asList(new Document("_id", "retail").append("count", 2)))
+            .append("productAreas", Arrays.asList(new Document("_id", "pos").append("count", 1),
+                                                  new Document("_id", "kiosk").append("count", 1)))
+            .append("brands", Arrays.asList(new Document("_id", "TechTwist").append("count", 2)))
+            .append("featured", Arrays.asList(new Document("_id", true).append("count", 1),
+                                              new Document("_id", false).append("count", 1)))
+            .append("priceBuckets", Arrays.asList(new Document("_id", 250).append("count", 2),
+                                                  new Document("_id", "2500+").append("count", 1)));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Product.class), eq(Document.class)))
+            .thenReturn(new AggregationResults<>(Collections.singletonList(result), new Document()));
+
+        ProductFilterDTO filter = new ProductFilterDTO();
+        filter.setCategory("retail");
+        ProductFacetsDTO facets = productService.findFacets(filter);
+
+        ArgumentCaptor<Aggregation> aggregationCaptor = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(aggregationCaptor.capture(), eq(Product.class), eq(Document.class));
+        String pipeline = aggregationCaptor.getValue().toString();
+        assertThat(pipeline).contains("$facet").contains("$bucket").contains("retail");
+
+        assertThat(facets.getCategories()).containsEntry("retail", 2L);
+        assertThat(facets.getProductAreas()).containsOnlyKeys("pos", "kiosk");
+        assertThat(facets.getFeatured()).containsEntry("true", 1L).containsEntry("false", 1L);
+        assertThat(facets.getPriceBuckets()).containsEntry("250-500", 2L).containsEntry("2500+", 1L);
+    }
+
+    @Test
+    void testAutocompleteMergesAnchoredKeyAggregationsByRank() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Product.class), eq(Document.class)))
+            .thenReturn(results(new Document("text", "Smart Kiosk Pro").append("count", 1).append("featured", false)))
+            .thenReturn(results(new Document("text", "SmartPay").append("count", 3).append("featured", false)))
+            .thenReturn(results(new Document("text", "smart-home").append("count", 2).append("featured", true)));
+
+        List<SuggestionDTO> suggestions = productService.autocomplete("Smart.", 10);
+
+        ArgumentCaptor<Aggregation> aggregationCaptor = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate, times(3)).aggregate(aggregationCaptor.capture(), eq(Product.class), eq(Document.class));
+        assertThat(aggregationCaptor.getAllValues()).extracting(Aggregation::toString)
+            .allSatisfy(pipeline -> assertThat(pipeline).contains("^smart\\\\.").contains("$limit"));
+        assertThat(aggregationCaptor.getAllValues().get(0).toString()).contains("nameKey");
+        assertThat(aggregationCaptor.getAllValues().get(2).toString()).contains("tagKeys").contains("$unwind");
+        assertThat(suggestions).extracting(SuggestionDTO::getText, SuggestionDTO::getField)
+            .containsExactly(tuple("smart-home", SuggestionDTO.TAG), tuple("SmartPay", SuggestionDTO.BRAND),
+                             tuple("Smart Kiosk Pro", SuggestionDTO.NAME));
+    }
+
+    private static AggregationResults<Document> results(Document... documents) {
+        return new AggregationResults<>(Arrays.asList(documents), new Document());
+    }
+
+    @Test
+    void testPatchIsSingleFindAndModifyOfSuppliedFields() {
+        ProductUpdateDTO updateDTO = new ProductUpdateDTO();
+        updateDTO.setName("Smart Kiosk Pro Max");
+        updateDTO.setStockQuantity(3);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Product.class)))
+            .thenReturn(smartKiosk);
+
+        ProductResponseDTO result = productService.patch("2", updateDTO);
+
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+        ArgumentCaptor<FindAndModifyOptions> optionsCaptor = ArgumentCaptor.forClass(FindAndModifyOptions.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), updateCaptor.capture(), optionsCaptor.capture(), eq(Product.class));
+        Document set = updateCaptor.getValue().getUpdateObject().get("$set", Document.class);
+        assertThat(set).containsOnlyKeys("name", "nameKey", "stockQuantity", "updatedAt");
+        assertThat(set).containsEntry("nameKey", "smart kiosk pro max");
+        assertThat(optionsCaptor.getValue().isReturnNew()).isTrue();
+        assertThat(result.getId()).isEqualTo("2");
+        verify(productRepository, never()).findById(any());
+        verify(productRepository, never()).save(any());
+    }
+
+    @Test
+    void testConditionalPatchPutsVersionInTheFilter() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Product.class)))
+            .thenReturn(smartKiosk);
+
+        productService.patch("2", new ProductUpdateDTO(), 5L);
+
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(queryCaptor.capture(), updateCaptor.capture(), any(FindAndModifyOptions.class), eq(Product.class));
+        assertThat(queryCaptor.getValue().getQueryObject()).containsEntry("version", 5L);
+        assertThat(updateCaptor.getValue().getUpdateObject().get("$inc", Document.class)).containsEntry("version", 1);
+    }
+
+    @Test
+    void testConditionalPatchWithStaleVersionConflictsWithoutReading() {
+        assertThatThrownBy(() -> productService.update("2", new ProductUpdateDTO(), 5L))
+            .isInstanceOf(VersionConflictException.class);
+        verify(mongoTemplate, never()).exists(any(Query.class), eq(Product.class));
+        verify(productRepository, never()).findById(any());
+    }
+
+    @Test
+    void testPatchOfMissingProductReturnsNull() {
+        assertThat(productService.patch("missing", new ProductUpdateDTO())).isNull();
+    }
+
+    @Test
+    void testDecrementStockIsOneConditionalIncrement() {
+        smartKiosk.setStockQuantity(7);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Product.class)))
+            .thenReturn(smartKiosk);
+
+        assertThat(productService.decrementStock("2", 3).getStockQuantity()).isEqualTo(7);
+
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(queryCaptor.capture(), updateCaptor.capture(), any(FindAndModifyOptions.class), eq(Product.class));
+        assertThat(queryCaptor.getValue().getQueryObject().get("stockQuantity", Document.class)).containsEntry("$gte", 3);
+        assertThat(updateCaptor.getValue().getUpdateObject().get("$inc", Document.class)).containsEntry("stockQuantity", -3);
+        verify(mongoTemplate, never()).exists(any(Query.class), eq(Product.class));
+    }
+
+    @Test
+    void testDecrementStockDistinguishesShortStockFromMissingProduct() {
+        when(mongoTemplate.exists(any(Query.class), eq(Product.class))).thenReturn(true, false);
+
+        assertThatThrownBy(() -> productService.decrementStock("2", 3))
+            .isInstanceOf(InsufficientStockException.class);
+        assertThat(productService.decrementStock("missing", 3)).isNull();
+    }
+
+    @Test
+    void testBatchDecrementReversesAppliedLinesOnFailure() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Product.class)))
+            .thenReturn(mobilePOS, null, mobilePOS);
+        when(mongoTemplate.exists(any(Query.class), eq(Product.class))).thenReturn(true);
+
+        assertThatThrownBy(() -> productService.decrementStock(Arrays.asList(
+                new StockAdjustmentDTO("1", 2), new StockAdjustmentDTO("2", 4))))
+            .isInstanceOf(InsufficientStockException.class);
+
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(3)).findAndModify(any(Query.class), updateCaptor.capture(), any(FindAndModifyOptions.class), eq(Product.class));
+        assertThat(updateCaptor.getAllValues()).extracting(u -> u.getUpdateObject().get("$inc", Document.class).get("stockQuantity"))
+            .containsExactly(-2, -4, 2);
+    }
+
+    @Test
+    void testBulkUpsertWritesOneUnorderedBatchAndReportsEachItem() {
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoTemplate.getConverter()).thenReturn(mongoConverter());
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class)).thenReturn(bulk);
+        ObjectId insertedId = new ObjectId();
+        when(bulk.execute()).thenReturn(BulkWriteResult.acknowledged(0, 1, 0, 1,
+            Collections.singletonList(new BulkWriteUpsert(0, new BsonObjectId(insertedId))), Collections.emptyList()));
+        Product existing = createProduct("existing-b", "Smart Kiosk Pro", "TechTwist", "retail", "kiosk", false);
+        existing.setSku("SKU-B");
+        when(mongoTemplate.find(any(Query.class), eq(Product.class))).thenReturn(Collections.singletonList(existing));
+
+        BulkResultDTO result = productService.bulkUpsert(Arrays.asList(
+            bulkItem("SKU-A"), bulkItem("SKU-B"), bulkItem(null)));
+
+        ArgumentCaptor<AggregationUpdate> updateCaptor = ArgumentCaptor.forClass(AggregationUpdate.class);
+        verify(bulk, times(2)).upsert(any(Query.class), updateCaptor.capture());
+        List<Document> pipeline = updateCaptor.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        assertThat(pipeline).hasSize(1);
+        Document set = pipeline.get(0).get("$set", Document.class);
+        assertThat(set).containsEntry("sku", new Document("$literal", "SKU-B")).doesNotContainKey("_id");
+        assertThat(set.get("createdAt", Document.class)).containsKey("$ifNull");
+
+        assertThat(result.getItems()).extracting(BulkItemResultDTO::getStatus).containsExactly(
+            BulkItemResultDTO.Status.CREATED, BulkItemResultDTO.Status.UPDATED, BulkItemResultDTO.Status.FAILED);
+        assertThat(result.getItems()).extracting(BulkItemResultDTO::getId)
+            .containsExactly(insertedId.toHexString(), "existing-b", null);
+    }
+
+    @Test
+    void testBulkUpsertStartsInsertedProductsAtTheVersionCreateDoes() {
+        ProductCreateDTO dto = bulkItem("SKU-V");
+        dto.setName("$5 off bundle");
+
+        AggregationUpdate update = MongoProductQueries.upsertUpdate(new ProductMapper().toEntity(dto), mongoConverter());
+
+        Document set = update.toPipeline(Aggregation.DEFAULT_CONTEXT).get(0).get("$set", Document.class);
+        // Inserted: no version yet, so -1 + 1 = 0, the version @Version gives a product saved by create;
+        // matched: one more than before
+        assertThat(set.get("version")).isEqualTo(new Document("$add",
+            List.of(new Document("$ifNull", List.of("$version", -1)), 1)));
+        // Written as given, not read as a field path
+        assertThat(set).containsEntry("name", new Document("$literal", "$5 off bundle"));
+    }
+
+    @Test
+    void testBulkUpsertReportsWriteErrorsPerItem() {
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoTemplate.getConverter()).thenReturn(mongoConverter());
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class)).thenReturn(bulk);
+        BulkWriteResult partial = BulkWriteResult.acknowledged(0, 0, 0, 0,
+            Collections.singletonList(new BulkWriteUpsert(0, new BsonObjectId(new ObjectId()))), Collections.emptyList());
+        when(bulk.execute()).thenThrow(new BulkOperationException("write failed",
+            new MongoBulkWriteException(partial,
+                Collections.singletonList(new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 1)),
+                null, new ServerAddress(), Collections.emptySet())));
+
+        BulkResultDTO result = productService.bulkUpsert(Arrays.asList(bulkItem("SKU-A"), bulkItem("SKU-B")));
+
+        assertThat(result.getCreated()).isEqualTo(1);
+        assertThat(result.getItems().get(1).getStatus()).isEqualTo(BulkItemResultDTO.Status.FAILED);
+        assertThat(result.getItems().get(1).getError()).contains("E11000");
+        verify(mongoTemplate, never()).find(any(Query.class), eq(Product.class));
+    }
+
+    @Test
+    void testIdFilterAnswersUnknownIdsWithoutAQuery() {
+        String neverCreated = ProductIdFilterTest.oldId();
+        String created = ProductIdFilterTest.oldId();
+        productService.setIdFilter(idFilterOver(mobilePOS, smartKiosk));
+        when(productRepository.findById("1")).thenReturn(Optional.of(mobilePOS));
+        when(productRepository.save(any(Product.class))).thenAnswer(invocation -> {
+            Product saved = invocation.getArgument(0);
+            saved.setId(created);
+            return saved;
+        });
+
+        assertThat(productService.findById("1")).map(ProductResponseDTO::getId).contains("1");
+        assertThat(productService.findById(neverCreated)).isEmpty();
+        assertThat(productService.findVersion(neverCreated)).isEmpty();
+        verify(productRepository, never()).findById(neverCreated);
+        verify(mongoTemplate, never()).findOne(any(Query.class), eq(Product.class));
+
+        productService.create(bulkItem("SKU-C"));
+        assertThat(productService.findById(created)).isEmpty(); // passed on to the repository mock
+        verify(productRepository).findById(created);
+    }
+
+    @Test
+    void testIdFilterFindsProductsWrittenElsewhereBeforeItsRebuild() {
+        productService.setIdFilter(idFilterOver(mobilePOS, smartKiosk));
+        // Inserted by another replica after the filter was built
+        Product elsewhere = new Product();
+        elsewhere.setId(new ObjectId().toHexString());
+        elsewhere.setName("Written elsewhere");
+        elsewhere.setVersion(0L);
+        when(productRepository.findById(elsewhere.getId())).thenReturn(Optional.of(elsewhere));
+        when(mongoTemplate.findOne(any(Query.class), eq(Product.class))).thenReturn(elsewhere);
+
+        assertThat(productService.findById(elsewhere.getId())).map(ProductResponseDTO::getName)
+                .contains("Written elsewhere");
+        assertThat(productService.findVersion(elsewhere.getId())).contains(0L);
+    }
+
+    private ProductIdFilter idFilterOver(Product... products) {
+        when(mongoTemplate.estimatedCount(Product.class)).thenReturn((long) products.length);
+        when(mongoTemplate.stream(any(Query.class), eq(Product.class))).thenReturn(Stream.of(products));
+        ProductIdFilter idFilter = new ProductIdFilter(mongoTemplate, new SimpleMeterRegistry(), 0.01, Duration.ofMinutes(5));
+        idFilter.rebuild();
+        return idFilter;
+    }
+
+    @Test
+    void testFindVersionReadsOnlyTheVersion() {
+        Product unversioned = new Product();
+        unversioned.setId("2");
+        when(mongoTemplate.findOne(any(Query.class), eq(Product.class))).thenAnswer(invocation -> {
+            Query query = invocation.getArgument(0);
+            String id = (String) query.getQueryObject().get("id");
+            return "1".equals(id) ? mobilePOS : "2".equals(id) ? unversioned : null;
+        });
+        mobilePOS.setVersion(4L);
+
+        assertThat(productService.findVersion("1")).contains(4L);
+        assertThat(productService.findVersion("2")).contains(0L); // written before versioning
+        assertThat(productService.findVersion("never-created")).isEmpty();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(3)).findOne(query.capture(), eq(Product.class));
+        assertThat(query.getValue().getFieldsObject()).containsOnlyKeys("version");
+        verify(productRepository, never()).findById(any());
+    }
+
+    private MappingMongoConverter mongoConverter() {
+        MongoCustomConversions conversions = new MongoCustomConversions(Collections.emptyList());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+
+    private ProductCreateDTO bulkItem(String sku) {
+        ProductCreateDTO dto = new ProductCreateDTO();
+        dto.setName("Bulk " + sku);
+        dto.setBrand("TechTwist");
+        dto.setPrice(new BigDecimal("19.99"));
+        dto.setSku(sku);
+        return dto;
+    }
+
+    private Product createProduct(String id, String name, String brand, String category,
+                                  String productArea, boolean featured) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setBrand(brand);
+        product.setPrice(new BigDecimal("299.99"));
+        product.setCategory(category);
+        product.setProductArea(productArea);
+        product.setStockQuantity(10);
+        product.setFeatured(featured);
+        product.setStatus("ACTIVE");
+        return product;
+    }
+}
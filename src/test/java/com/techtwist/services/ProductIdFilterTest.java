@@ -0,0 +1,216 @@
+package com.techtwist.services;
+
+import com.techtwist.models.Product;
+import com.techtwist.services.support.BloomFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for ProductIdFilter and the Bloom filter behind it, with a mocked MongoTemplate
+ */
+public class ProductIdFilterTest {
+
+    // ObjectIds stamped an hour ago, well before any filter built here
+    private final String a = oldId();
+    private final String b = oldId();
+    private final String neverCreated = oldId();
+
+    private MongoTemplate mongoTemplate;
+    private MeterRegistry meterRegistry;
+    private ProductIdFilter idFilter;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+        idFilter = new ProductIdFilter(mongoTemplate, meterRegistry, 0.01, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void testBloomFilterNeverMissesAnAddedKeyAndKeepsItsRate() {
+        int keys = 100_000;
+        BloomFilter filter = new BloomFilter(keys, 0.01);
+        List<String> added = new ArrayList<>();
+        for (int i = 0; i < keys; i++) {
+            String id = new ObjectId().toHexString();
+            filter.put(id);
+            added.add(id);
+        }
+
+        assertThat(added).allMatch(filter::mightContain);
+        long falsePositives = IntStream.range(0, keys)
+                .filter(i -> filter.mightContain("missing-" + i))
+                .count();
+        assertThat((double) falsePositives / keys).isLessThan(0.015);
+        assertThat(filter.expectedFpp()).isBetween(0.005, 0.015);
+        // About 9.6 bits per key for 1%
+        assertThat(filter.memoryBytes()).isBetween(115_000L, 125_000L);
+        assertThat(filter.hashCount()).isEqualTo(7);
+    }
+
+    @Test
+    void testBloomFilterRejectsBadSizes() {
+        assertThatThrownBy(() -> new BloomFilter(0, 0.01)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new BloomFilter(10, 1.0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testRebuildAnswersIdsFromTheCollection() {
+        givenCollection(product(a), product(b));
+
+        idFilter.rebuild();
+
+        assertThat(idFilter.mightExist(a)).isTrue();
+        assertThat(idFilter.mightExist(b)).isTrue();
+        assertThat(idFilter.mightExist(neverCreated)).isFalse();
+        String c = oldId();
+        idFilter.added(c);
+        assertThat(idFilter.mightExist(c)).isTrue();
+    }
+
+    @Test
+    void testIdsTheFilterCannotHoldAlwaysPass() {
+        givenCollection(product(a));
+        idFilter.rebuild();
+
+        // Created by another instance or straight in MongoDB since the scan, or with an id of their own
+        assertThat(idFilter.mightExist(new ObjectId().toHexString())).isTrue();
+        assertThat(idFilter.mightExist(new ObjectId(Date.from(Instant.now().minus(Duration.ofMinutes(1))))
+                .toHexString())).isTrue(); // within the clock skew allowed for
+        assertThat(idFilter.mightExist("sku-1001")).isTrue();
+        assertThat(meterRegistry.get("product.id.filter.lookups").tag("outcome", "uncovered").counter().count())
+                .isEqualTo(3);
+    }
+
+    @Test
+    void testFoundIdsAreAddedOnce() {
+        givenCollection(product(a));
+        idFilter.rebuild();
+
+        idFilter.found(a);
+        String elsewhere = oldId();
+        idFilter.found(elsewhere);
+        idFilter.found(elsewhere);
+
+        assertThat(idFilter.mightExist(elsewhere)).isTrue();
+        assertThat(meterRegistry.get("product.id.filter.ids").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void testIdsCreatedDuringARebuildAreKept() {
+        String createdWhileScanning = oldId();
+        when(mongoTemplate.estimatedCount(Product.class)).thenReturn(2L);
+        when(mongoTemplate.stream(any(Query.class), eq(Product.class))).thenReturn(
+                Stream.of(product(a), product(b)).peek(p -> idFilter.added(createdWhileScanning)));
+
+        idFilter.rebuild();
+
+        assertThat(idFilter.mightExist(createdWhileScanning)).isTrue();
+    }
+
+    @Test
+    void testEveryIdPassesUntilABuildSucceeds() {
+        when(mongoTemplate.stream(any(Query.class), eq(Product.class)))
+                .thenThrow(new DataAccessResourceFailureException("no server"));
+
+        assertThatThrownBy(idFilter::rebuild).isInstanceOf(DataAccessResourceFailureException.class);
+        assertThat(idFilter.mightExist(neverCreated)).isTrue();
+    }
+
+    @Test
+    void testFailedRebuildKeepsThePreviousFilter() {
+        givenCollection(product(a));
+        idFilter.rebuild();
+        when(mongoTemplate.stream(any(Query.class), eq(Product.class)))
+                .thenThrow(new DataAccessResourceFailureException("no server"));
+
+        assertThatThrownBy(idFilter::rebuild).isInstanceOf(DataAccessResourceFailureException.class);
+        idFilter.added(b);
+
+        assertThat(idFilter.mightExist(a)).isTrue();
+        assertThat(idFilter.mightExist(b)).isTrue();
+        assertThat(idFilter.mightExist(neverCreated)).isFalse();
+    }
+
+    @Test
+    void testManyDeletesRebuildEarly() {
+        givenCollection(product(a));
+        idFilter.rebuild();
+
+        for (int i = 0; i <= ProductIdFilter.MIN_CAPACITY / 10; i++) {
+            idFilter.removed("deleted-" + i);
+        }
+
+        verify(mongoTemplate, timeout(5000).times(2)).stream(any(Query.class), eq(Product.class));
+        idFilter.stop();
+    }
+
+    @Test
+    void testMetricsReportRateMemoryAndLookups() {
+        givenCollection(product(a), product(b));
+        idFilter.rebuild();
+
+        idFilter.mightExist(a);
+        idFilter.mightExist(neverCreated);
+        idFilter.missed();
+        idFilter.removed(b);
+
+        assertThat(meterRegistry.get("product.id.filter.lookups").tag("outcome", "passed").counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("product.id.filter.lookups").tag("outcome", "rejected").counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("product.id.filter.false.positives").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("product.id.filter.fpp").gauge().value()).isBetween(0.0, 0.01);
+        // Sized for MIN_CAPACITY ids, as the collection is small
+        assertThat(meterRegistry.get("product.id.filter.memory").gauge().value()).isBetween(11_000.0, 13_000.0);
+        assertThat(meterRegistry.get("product.id.filter.ids").gauge().value()).isEqualTo(2);
+        assertThat(meterRegistry.get("product.id.filter.stale").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void testBadSettingsAreRejected() {
+        assertThatThrownBy(() -> new ProductIdFilter(mongoTemplate, meterRegistry, 0, Duration.ofMinutes(5)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ProductIdFilter(mongoTemplate, meterRegistry, 0.01, Duration.ZERO))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void givenCollection(Product... products) {
+        when(mongoTemplate.estimatedCount(Product.class)).thenReturn((long) products.length);
+        when(mongoTemplate.stream(any(Query.class), eq(Product.class))).thenAnswer(invocation -> Stream.of(products));
+    }
+
+    static String oldId() {
+        return new ObjectId(Date.from(Instant.now().minus(Duration.ofHours(1)))).toHexString();
+    }
+
+    private static Product product(String id) {
+        Product product = new Product();
+        product.setId(id);
+        return product;
+    }
+}
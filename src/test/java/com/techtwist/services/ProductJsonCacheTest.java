@@ -0,0 +1,149 @@
+package com.techtwist.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.techtwist.dto.ProductResponseDTO;
+import com.techtwist.dto.ProductSummaryDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for ProductJsonCache
+ */
+public class ProductJsonCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger serialized = new AtomicInteger();
+    private MeterRegistry meterRegistry;
+    private ProductJsonCache jsonCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        jsonCache = new ProductJsonCache(objectMapper, meterRegistry, DataSize.ofMegabytes(1), true);
+    }
+
+    @Test
+    void testProductJsonIsReusedOnlyAtItsVersion() throws IOException {
+        ProductResponseDTO product = product("p-1", 3L, "Scanner");
+
+        ProductJsonCache.Json json = jsonCache.serialize(product);
+
+        assertThat(json.json()).isEqualTo(objectMapper.writeValueAsBytes(product));
+        assertThat(jsonCache.product("p-1", 3)).isSameAs(json);
+        assertThat(jsonCache.product("p-1", 4)).isNull();
+        assertThat(jsonCache.product("p-2", 3)).isNull();
+
+        // A late reader of the old version does not replace the newer JSON
+        ProductJsonCache.Json newer = jsonCache.serialize(product("p-1", 4L, "Scanner v2"));
+        jsonCache.serialize(product);
+        assertThat(jsonCache.product("p-1", 4)).isSameAs(newer);
+        assertThat(jsonCache.product("p-1", 3)).isNull();
+        assertThat(jsonCache.held("p-1")).isSameAs(newer);
+        assertThat(jsonCache.held("p-2")).isNull();
+    }
+
+    @Test
+    void testUnversionedProductsAreNotKept() {
+        jsonCache.serialize(product("p-1", null, "Legacy"));
+
+        assertThat(jsonCache.product("p-1", 0)).isNull();
+    }
+
+    @Test
+    void testOnlyLargeProductsKeepAGzipCopy() throws IOException {
+        ProductResponseDTO small = product("small", 1L, "Small");
+        ProductResponseDTO large = product("large", 1L, "Large");
+        large.setDescription("A long description that compresses well. ".repeat(50));
+
+        assertThat(jsonCache.serialize(small).gzip()).isNull();
+        ProductJsonCache.Json json = jsonCache.serialize(large);
+
+        assertThat(json.gzip()).isNotNull();
+        assertThat(json.gzip().length).isLessThan(json.json().length / 4);
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(json.gzip()))) {
+            assertThat(in.readAllBytes()).isEqualTo(json.json());
+        }
+        ProductJsonCache plain = new ProductJsonCache(objectMapper, new SimpleMeterRegistry(), DataSize.ofMegabytes(1), false);
+        assertThat(plain.serialize(large).gzip()).isNull();
+    }
+
+    @Test
+    void testSummariesAreJoinedAsJacksonWouldWriteTheList() throws IOException {
+        List<ProductSummaryDTO> summaries = List.of(summary("a", "10.00"), summary("b", "20.50"), summary("c", "5"));
+
+        assertThat(jsonCache.summaries(summaries)).isEqualTo(objectMapper.writeValueAsBytes(summaries));
+        assertThat(jsonCache.summaries(List.of())).isEqualTo("[]".getBytes());
+    }
+
+    @Test
+    void testUnchangedSummariesAreNotSerializedAgain() throws IOException {
+        jsonCache.summaries(List.of(summary("a", "10.00"), summary("b", "20.50")));
+        serialized.set(0);
+
+        // Fresh DTOs with the same fields, as a backend builds them for every request
+        List<ProductSummaryDTO> again = List.of(summary("a", "10.00"), summary("b", "21.00"));
+        byte[] json = jsonCache.summaries(again);
+
+        assertThat(serialized.get()).isEqualTo(1); // only b, whose price changed
+        assertThat(json).isEqualTo(objectMapper.writeValueAsBytes(again));
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "product-json").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void testEvictDropsTheProductAndItsSummary() {
+        jsonCache.serialize(product("a", 1L, "Doomed"));
+        jsonCache.summaries(List.of(summary("a", "1.00")));
+        serialized.set(0);
+
+        jsonCache.evict("a");
+
+        assertThat(jsonCache.product("a", 1)).isNull();
+        jsonCache.summaries(List.of(summary("a", "1.00")));
+        assertThat(serialized.get()).isEqualTo(1);
+    }
+
+    @Test
+    void testBadSizeIsRejected() {
+        assertThatThrownBy(() -> new ProductJsonCache(objectMapper, meterRegistry, DataSize.ofBytes(0), false))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static ProductResponseDTO product(String id, Long version, String name) {
+        ProductResponseDTO product = new ProductResponseDTO();
+        product.setId(id);
+        product.setVersion(version);
+        product.setName(name);
+        product.setBrand("TechTwist");
+        product.setPrice(new BigDecimal("49.99"));
+        product.setStockQuantity(3);
+        product.setTags(List.of("pos", "retail"));
+        return product;
+    }
+
+    // Counts its serializations: only Jackson reads the computed inStock field
+    private ProductSummaryDTO summary(String id, String price) {
+        return new ProductSummaryDTO(id, "Product " + id, "TechTwist", new BigDecimal(price), null,
+                "retail", "Retail", 4, false, "ACTIVE") {
+            @Override
+            public boolean isInStock() {
+                serialized.incrementAndGet();
+                return super.isInStock();
+            }
+        };
+    }
+}
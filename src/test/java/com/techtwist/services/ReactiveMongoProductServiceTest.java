@@ -0,0 +1,250 @@
+package com.techtwist.services;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.techtwist.dto.BulkItemResultDTO;
+import com.techtwist.dto.ProductCreateDTO;
+import com.techtwist.dto.ProductResponseDTO;
+import com.techtwist.dto.ProductUpdateDTO;
+import com.techtwist.dto.StockAdjustmentDTO;
+import com.techtwist.dto.SuggestionDTO;
+import com.techtwist.exceptions.InsufficientStockException;
+import com.techtwist.exceptions.VersionConflictException;
+import com.techtwist.mapper.ProductMapper;
+import com.techtwist.models.Product;
+import com.techtwist.repository.ReactiveProductRepository;
+import com.techtwist.services.support.KeysetPaging;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for ReactiveMongoProductService using a mocked ReactiveMongoTemplate
+ * Verifies that it issues the same queries and atomic updates as MongoProductService
+ */
+@ExtendWith(MockitoExtension.class)
+public class ReactiveMongoProductServiceTest {
+
+    @Mock
+    private ReactiveProductRepository productRepository;
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    private ReactiveMongoProductService productService;
+
+    private Product mobilePOS;
+    private Product smartKiosk;
+
+    @BeforeEach
+    void setUp() {
+        productService = new ReactiveMongoProductService(productRepository, mongoTemplate, new ProductMapper());
+
+        mobilePOS = createProduct("1", "FlexiRetail Mobile POS", "retail", true);
+        smartKiosk = createProduct("2", "Smart Kiosk Pro", "retail", false);
+    }
+
+    @Test
+    void testFindByCategoryStreamsIndexedQuery() {
+        when(productRepository.findByCategoryAndStatus("retail", "ACTIVE"))
+            .thenReturn(Flux.just(mobilePOS, smartKiosk));
+
+        StepVerifier.create(productService.findByCategory("retail"), 1)
+            .assertNext(product -> assertThat(product.getId()).isEqualTo("1"))
+            .thenRequest(1)
+            .assertNext(product -> assertThat(product.getId()).isEqualTo("2"))
+            .verifyComplete();
+        verify(productRepository, never()).findAll();
+    }
+
+    @Test
+    void testFindAllSummaryUsesProjectedQuery() {
+        when(productRepository.findSummariesByStatus("ACTIVE")).thenReturn(Flux.just(mobilePOS));
+
+        StepVerifier.create(productService.findAllSummary())
+            .assertNext(summary -> assertThat(summary.getName()).isEqualTo("FlexiRetail Mobile POS"))
+            .verifyComplete();
+    }
+
+    @Test
+    void testFindByCategoryPageSeeksPastCursor() {
+        when(mongoTemplate.find(any(Query.class), eq(Product.class))).thenReturn(Flux.just(mobilePOS, smartKiosk));
+
+        StepVerifier.create(productService.findByCategory("retail", 1, KeysetPaging.encodeCursor("0")))
+            .assertNext(page -> {
+                assertThat(page.getItems()).extracting(ProductResponseDTO::getId).containsExactly("1");
+                assertThat(page.getNextCursor()).isEqualTo(KeysetPaging.encodeCursor("1"));
+            })
+            .verifyComplete();
+
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(queryCaptor.capture(), eq(Product.class));
+        assertThat(queryCaptor.getValue().getLimit()).isEqualTo(2);
+        assertThat(queryCaptor.getValue().getQueryObject().toJson()).contains("\"$gt\": \"0\"");
+    }
+
+    @Test
+    void testInvalidCursorIsSignalledAsError() {
+        StepVerifier.create(productService.findAll(10, "not a cursor!"))
+            .verifyError(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testAutocompleteMergesAnchoredKeyAggregationsByRank() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Product.class), eq(Document.class)))
+            .thenReturn(Flux.just(new Document("text", "Smart Kiosk Pro").append("count", 1).append("featured", false)))
+            .thenReturn(Flux.just(new Document("text", "SmartPay").append("count", 3).append("featured", false)))
+            .thenReturn(Flux.just(new Document("text", "smart-home").append("count", 2).append("featured", true)));
+
+        StepVerifier.create(productService.autocomplete("Smart.", 10))
+            .assertNext(suggestions -> assertThat(suggestions)
+                .extracting(SuggestionDTO::getText, SuggestionDTO::getField)
+                .containsExactly(tuple("smart-home", SuggestionDTO.TAG), tuple("SmartPay", SuggestionDTO.BRAND),
+                                 tuple("Smart Kiosk Pro", SuggestionDTO.NAME)))
+            .verifyComplete();
+
+        ArgumentCaptor<Aggregation> aggregationCaptor = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate, times(3)).aggregate(aggregationCaptor.capture(), eq(Product.class), eq(Document.class));
+        assertThat(aggregationCaptor.getAllValues()).extracting(Aggregation::toString)
+            .allSatisfy(pipeline -> assertThat(pipeline).contains("^smart\\\\.").contains("$limit"));
+    }
+
+    @Test
+    void testConditionalPatchWithStaleVersionConflicts() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Product.class)))
+            .thenReturn(Mono.empty());
+
+        StepVerifier.create(productService.patch("1", new ProductUpdateDTO(), 3))
+            .verifyError(VersionConflictException.class);
+
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).findAndModify(queryCaptor.capture(), any(Update.class), any(FindAndModifyOptions.class), eq(Product.class));
+        assertThat(queryCaptor.getValue().getQueryObject()).containsEntry("version", 3L);
+    }
+
+    @Test
+    void testDecrementStockDistinguishesShortStockFromMissingProduct() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Product.class)))
+            .thenReturn(Mono.empty());
+        when(mongoTemplate.exists(any(Query.class), eq(Product.class)))
+            .thenReturn(Mono.just(true))
+            .thenReturn(Mono.just(false));
+
+        StepVerifier.create(productService.decrementStock("2", 3))
+            .verifyError(InsufficientStockException.class);
+        StepVerifier.create(productService.decrementStock("missing", 3))
+            .verifyComplete();
+    }
+
+    @Test
+    void testBatchDecrementReversesAppliedLinesOnFailure() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Product.class)))
+            .thenReturn(Mono.just(mobilePOS))
+            .thenReturn(Mono.empty())
+            .thenReturn(Mono.just(mobilePOS));
+        when(mongoTemplate.exists(any(Query.class), eq(Product.class))).thenReturn(Mono.just(true));
+
+        StepVerifier.create(productService.decrementStock(Arrays.asList(
+                new StockAdjustmentDTO("1", 2), new StockAdjustmentDTO("2", 4))))
+            .verifyError(InsufficientStockException.class);
+
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(3)).findAndModify(any(Query.class), updateCaptor.capture(), any(FindAndModifyOptions.class), eq(Product.class));
+        assertThat(updateCaptor.getAllValues()).extracting(u -> u.getUpdateObject().get("$inc", Document.class).get("stockQuantity"))
+            .containsExactly(-2, -4, 2);
+    }
+
+    @Test
+    void testBulkUpsertReportsWriteErrorsFromTranslatedException() {
+        ReactiveBulkOperations bulk = mock(ReactiveBulkOperations.class);
+        when(mongoTemplate.getConverter()).thenReturn(mongoConverter());
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class)).thenReturn(bulk);
+        BulkWriteResult partial = BulkWriteResult.acknowledged(0, 0, 0, 0,
+            Collections.singletonList(new BulkWriteUpsert(0, new BsonObjectId(new ObjectId()))), Collections.emptyList());
+        MongoBulkWriteException failure = new MongoBulkWriteException(partial,
+            Collections.singletonList(new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 1)),
+            null, new ServerAddress(), Collections.emptySet());
+        when(bulk.execute()).thenReturn(Mono.error(new DuplicateKeyException("write failed", failure)));
+
+        StepVerifier.create(productService.bulkUpsert(Arrays.asList(bulkItem("SKU-A"), bulkItem("SKU-B"))))
+            .assertNext(result -> {
+                assertThat(result.getCreated()).isEqualTo(1);
+                assertThat(result.getItems().get(1).getStatus()).isEqualTo(BulkItemResultDTO.Status.FAILED);
+                assertThat(result.getItems().get(1).getError()).contains("E11000");
+            })
+            .verifyComplete();
+        verify(mongoTemplate, never()).find(any(Query.class), eq(Product.class));
+    }
+
+    private MappingMongoConverter mongoConverter() {
+        MongoCustomConversions conversions = new MongoCustomConversions(Collections.emptyList());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+
+    private ProductCreateDTO bulkItem(String sku) {
+        ProductCreateDTO dto = new ProductCreateDTO();
+        dto.setName("Bulk " + sku);
+        dto.setBrand("TechTwist");
+        dto.setPrice(new BigDecimal("19.99"));
+        dto.setSku(sku);
+        return dto;
+    }
+
+    private Product createProduct(String id, String name, String category, boolean featured) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setBrand("TechTwist");
+        product.setPrice(new BigDecimal("299.99"));
+        product.setCategory(category);
+        product.setStockQuantity(10);
+        product.setFeatured(featured);
+        product.setStatus("ACTIVE");
+        return product;
+    }
+}